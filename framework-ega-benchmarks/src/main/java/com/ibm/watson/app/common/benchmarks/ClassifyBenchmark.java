@@ -0,0 +1,113 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.watson.app.common.services.nlclassifier.impl.NLClassifierRestClient;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierBatchResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Classifies text end to end with {@link NLClassifierRestClient} against an in-process stub of the classifier service, 
+ * so the measurement covers the request entity, the pooled HTTP client, the resilience and metrics layers 
+ * and the response handling, but not the network or the real service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+// Without TCP_NODELAY the stub server's small writes stall on delayed ACKs, adding ~40ms to every call
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class ClassifyBenchmark {
+	private static final String CLASSIFIER_ID = "10D41B-nlc-1";
+	private static final String TEXT = "How hot will it be today?";
+	private static final int BATCH_SIZE = 20;
+
+	private HttpServer server;
+	private ExecutorService serverExecutor;
+	private NLClassifierRestClient client;
+	private final List<String> batch = new ArrayList<>();
+
+	@Setup
+	public void setup() throws IOException {
+		final byte[] response = Payloads.load(Payloads.CLASSIFY_RESPONSE);
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/v1/classifiers/" + CLASSIFIER_ID + "/classify", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try(InputStream in = exchange.getRequestBody()) {
+					IOUtils.toByteArray(in);
+				}
+				exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+				exchange.sendResponseHeaders(200, response.length);
+				try(OutputStream out = exchange.getResponseBody()) {
+					out.write(response);
+				}
+			}
+		});
+		serverExecutor = Executors.newFixedThreadPool(16);
+		server.setExecutor(serverExecutor);
+		server.start();
+
+		client = new NLClassifierRestClient("http://127.0.0.1:" + server.getAddress().getPort(), "user", "password");
+		for(int i = 0; i < BATCH_SIZE; i++) {
+			batch.add(TEXT + " #" + i);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		client.close();
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Benchmark
+	public NLClassiferClassifyResponse classify() {
+		return client.classify(CLASSIFIER_ID, TEXT);
+	}
+
+	@Benchmark
+	public List<NLClassifierBatchResult> classifyAll() {
+		return client.classifyAll(CLASSIFIER_ID, batch);
+	}
+}
@@ -0,0 +1,75 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierClassifyRequest;
+import com.ibm.watson.app.common.util.rest.JSONEntity;
+
+/**
+ * Serializes a classify request into a {@link JSONEntity} and writes it out, as done for every classify call
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonEntityBenchmark {
+	@Param({"32", "1024"})
+	public int textLength;
+
+	private NLClassifierClassifyRequest request;
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+
+	@Setup
+	public void setup() {
+		StringBuilder text = new StringBuilder(textLength);
+		String words = "How hot will it be today? \"Quoted\" text\twith escapes. ";
+		while(text.length() < textLength) {
+			text.append(words);
+		}
+		text.setLength(textLength);
+		request = new NLClassifierClassifyRequest(text.toString());
+	}
+
+	@Benchmark
+	public JSONEntity create() throws IOException {
+		return JSONEntity.create(request);
+	}
+
+	@Benchmark
+	public int createAndWrite() throws IOException {
+		out.reset();
+		JSONEntity.create(request).writeTo(out);
+		return out.size();
+	}
+}
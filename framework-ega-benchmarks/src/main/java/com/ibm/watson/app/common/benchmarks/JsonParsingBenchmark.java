@@ -0,0 +1,154 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.benchmarks;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse;
+import com.ibm.watson.app.common.services.nlclassifier.impl.NLClassifierImpl;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.util.rest.JSONResponseHandler;
+
+/**
+ * Parses the service responses through {@link JSONResponseHandler}, configured like the REST clients configure it, 
+ * both streaming from the entity and reading the entity into a String first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonParsingBenchmark {
+	@Param({"true", "false"})
+	public boolean streaming;
+
+	private final Gson underscoreGson = new GsonBuilder()
+		.setVersion(1.0)
+		.setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+		.create();
+	private final Gson boxGson = new GsonBuilder()
+		.setVersion(1.0)
+		.create();
+
+	private JSONResponseHandler<NLClassiferClassifyResponse> classifyHandler;
+	private JSONResponseHandler<List<NLClassifierImpl>> classifiersHandler;
+	private JSONResponseHandler<BoxMetadataResponse> boxMetadataHandler;
+
+	private HttpResponse classifyResponse;
+	private HttpResponse classifiersResponse;
+	private HttpResponse boxMetadataResponse;
+
+	@Setup
+	public void setup() {
+		classifyHandler = new NoValidationHandler<>(underscoreGson, NLClassiferClassifyResponse.class);
+		boxMetadataHandler = new NoValidationHandler<>(boxGson, BoxMetadataResponse.class);
+		classifiersHandler = new ClassifiersHandler(underscoreGson);
+		classifyHandler.setStreaming(streaming);
+		boxMetadataHandler.setStreaming(streaming);
+		classifiersHandler.setStreaming(streaming);
+
+		classifyResponse = createResponse(Payloads.CLASSIFY_RESPONSE);
+		classifiersResponse = createResponse(Payloads.CLASSIFIERS);
+		boxMetadataResponse = createResponse(Payloads.BOX_METADATA);
+	}
+
+	@Benchmark
+	public NLClassiferClassifyResponse classifyResponse() throws IOException {
+		return classifyHandler.handleResponse(classifyResponse);
+	}
+
+	@Benchmark
+	public List<NLClassifierImpl> classifierList() throws IOException {
+		return classifiersHandler.handleResponse(classifiersResponse);
+	}
+
+	@Benchmark
+	public BoxMetadataResponse boxMetadataResponse() throws IOException {
+		return boxMetadataHandler.handleResponse(boxMetadataResponse);
+	}
+
+	private static HttpResponse createResponse(String payload) {
+		// A byte array entity can be read any number of times, so the response can be reused across invocations
+		BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+		response.setEntity(new ByteArrayEntity(Payloads.load(payload), ContentType.APPLICATION_JSON));
+		return response;
+	}
+
+	private static class NoValidationHandler<T> extends JSONResponseHandler<T> {
+		NoValidationHandler(Gson gson, Class<T> classOfT) {
+			super(gson, classOfT);
+		}
+
+		@Override
+		protected void validate(T object) throws InvalidObjectException {
+		}
+	}
+
+	/**
+	 * Parses the classifier list the way the NL classifier REST client does, through the JSON tree
+	 */
+	private static class ClassifiersHandler extends JSONResponseHandler<List<NLClassifierImpl>> {
+		private static final Type CLASSIFIER_LIST_TYPE = new TypeToken<List<NLClassifierImpl>>() {}.getType();
+
+		private final JsonParser jsonParser = new JsonParser();
+		private final Gson gson;
+
+		ClassifiersHandler(Gson gson) {
+			super(gson, null);
+			this.gson = gson;
+		}
+
+		@Override
+		protected List<NLClassifierImpl> parseJSON(JsonReader reader) throws JsonSyntaxException, JsonIOException {
+			return gson.fromJson(jsonParser.parse(reader).getAsJsonObject().get("classifiers"), CLASSIFIER_LIST_TYPE);
+		}
+
+		@Override
+		protected void validate(List<NLClassifierImpl> object) throws InvalidObjectException {
+		}
+	}
+}
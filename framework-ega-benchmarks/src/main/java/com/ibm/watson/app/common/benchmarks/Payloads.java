@@ -0,0 +1,44 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Loads the sample service responses the benchmarks work with
+ */
+final class Payloads {
+	static final String CLASSIFY_RESPONSE = "classify-response.json";
+	static final String CLASSIFIERS = "classifiers.json";
+	static final String BOX_METADATA = "box-metadata.json";
+
+	private Payloads() {
+	}
+
+	static byte[] load(String name) {
+		try(InputStream in = Payloads.class.getResourceAsStream("/payloads/" + name)) {
+			if(in == null) {
+				throw new IllegalStateException("Missing payload " + name);
+			}
+			return IOUtils.toByteArray(in);
+		} catch(IOException e) {
+			throw new IllegalStateException("Unable to read payload " + name, e);
+		}
+	}
+}
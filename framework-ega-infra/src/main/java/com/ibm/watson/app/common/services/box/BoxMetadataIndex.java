@@ -0,0 +1,45 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box;
+
+import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse;
+
+/**
+ * A local index of the metadata of Box files, kept up to date by an incremental sync.
+ * The sync calls the index from a single thread.
+ */
+public interface BoxMetadataIndex {
+	/**
+	 * Add a file to the index, or replace its metadata
+	 * 
+	 * @param fileId - id of the file
+	 * @param metadata - current metadata of the file
+	 */
+	public void put(String fileId, BoxMetadataResponse metadata);
+	
+	/**
+	 * Remove a file from the index, if it is there
+	 * 
+	 * @param fileId - id of the file
+	 */
+	public void remove(String fileId);
+	
+	/**
+	 * Check if a file is in the index
+	 * 
+	 * @param fileId - id of the file
+	 */
+	public boolean contains(String fileId);
+}
@@ -0,0 +1,42 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box;
+
+/**
+ * Receives the results of a bulk request to the Box API, one file at a time, as they complete.
+ * The sink is called from the thread that made the bulk request, so it does not need to be thread safe, 
+ * but the requests still in flight wait for it to return.
+ * 
+ * @param <T> The type of result for each file
+ */
+public interface BoxResultSink<T> {
+	/**
+	 * Receive the result for a file. Like the single file methods of {@link BoxService}, 
+	 * this is the default value if Box answered with an error status, such as 404 for an unknown file.
+	 * 
+	 * @param fileId - id of the file
+	 * @param result - result of the request for the file
+	 */
+	public void onResult(String fileId, T result);
+	
+	/**
+	 * Receive the error that prevented the request for a file from completing, such as a connection failure or Box 
+	 * still limiting the request rate after all retries
+	 * 
+	 * @param fileId - id of the file
+	 * @param error - cause of the failure
+	 */
+	public void onFailure(String fileId, Throwable error);
+}
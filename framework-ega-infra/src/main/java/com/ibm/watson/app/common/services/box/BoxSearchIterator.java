@@ -0,0 +1,136 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.ibm.watson.app.common.services.box.model.BoxSearchResponse;
+import com.ibm.watson.app.common.services.box.model.BoxSearchResponse.FileInfo;
+
+/**
+ * Iterates lazily over all the results of a Box search, one page at a time.
+ * As soon as a page is received, the next one is requested in the background, so it is usually ready by the time 
+ * the caller has gone through the current one.
+ * <p>If a page cannot be retrieved, the iteration ends early and {@link #isTruncated()} returns true; 
+ * the error itself is logged by the client. {@link #close() Closing} the iterator cancels the request for the next page.</p>
+ */
+public class BoxSearchIterator implements Iterator<FileInfo>, Closeable {
+	private final AsyncFunction<Integer, BoxSearchResponse> pages;
+	private final int pageSize;
+	
+	private Iterator<FileInfo> page = Collections.<FileInfo>emptyList().iterator();
+	private ListenableFuture<BoxSearchResponse> next;
+	private int nextOffset;
+	private int totalCount = -1;
+	private boolean truncated;
+	
+	/**
+	 * @param pages Requests the page of results starting at the given offset
+	 * @param pageSize The number of results requested per page
+	 */
+	public BoxSearchIterator(AsyncFunction<Integer, BoxSearchResponse> pages, int pageSize) {
+		if(pageSize < 1) {
+			throw new IllegalArgumentException("pageSize must be at least 1: " + pageSize);
+		}
+		this.pages = pages;
+		this.pageSize = pageSize;
+		this.next = request(0);
+	}
+
+	@Override
+	public boolean hasNext() {
+		while(!page.hasNext()) {
+			if(next == null) {
+				return false;
+			}
+			BoxSearchResponse response;
+			try {
+				response = Futures.getUnchecked(next);
+			} catch(UncheckedExecutionException | CancellationException e) {
+				response = null;
+			}
+			next = null;
+			if(response == null || response.getTotalCount() < 0 || response.getEntries() == null) {
+				truncated = true;
+				return false;
+			}
+			
+			List<FileInfo> entries = response.getEntries();
+			totalCount = response.getTotalCount();
+			nextOffset += pageSize;
+			if(!entries.isEmpty() && nextOffset < totalCount) {
+				next = request(nextOffset);
+			}
+			page = entries.iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public FileInfo next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return page.next();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+	
+	/**
+	 * Get the total number of results reported by Box, or -1 until the first page is received
+	 */
+	public int getTotalCount() {
+		return totalCount;
+	}
+	
+	/**
+	 * Check if the iteration ended early because a page could not be retrieved
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+	
+	/**
+	 * Stop the iteration, cancelling the request for the next page if it is still in flight
+	 */
+	@Override
+	public void close() {
+		if(next != null) {
+			next.cancel(true);
+			next = null;
+		}
+		page = Collections.<FileInfo>emptyList().iterator();
+	}
+	
+	private ListenableFuture<BoxSearchResponse> request(int offset) {
+		try {
+			return pages.apply(offset);
+		} catch(Exception e) {
+			return Futures.immediateFailedFuture(e);
+		}
+	}
+}
@@ -16,6 +16,12 @@
 
 package com.ibm.watson.app.common.services.box;
 
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.Map;
+
 import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse;
 import com.ibm.watson.app.common.services.box.model.BoxSearchResponse;
 
@@ -28,6 +34,60 @@ public interface BoxService {
 	 */
   public String getFileContents(String fileId);
   
+  /**
+   * Uses the Box API to stream the contents of the file with the associated Id, without holding the file in memory
+   * 
+   * @param fileId - id of the file to retrieve the contents for
+   * @param out - stream to write the contents to, it is not closed
+   * @return - the number of bytes written, or -1 if the contents could not be retrieved
+   */
+  public long writeFileContents(String fileId, OutputStream out);
+  
+  /**
+   * Uses the Box API to stream the contents of the file with the associated Id, without holding the file in memory
+   * 
+   * @param fileId - id of the file to retrieve the contents for
+   * @param target - channel to write the contents to, it is not closed
+   * @return - the number of bytes written, or -1 if the contents could not be retrieved
+   */
+  public long writeFileContents(String fileId, WritableByteChannel target);
+  
+  /**
+   * Uses the Box API to stream a byte range of the contents of the file with the associated Id
+   * 
+   * @param fileId - id of the file to retrieve the contents for
+   * @param offset - offset of the first byte to retrieve
+   * @param length - number of bytes to retrieve, or -1 for everything up to the end of the file
+   * @param target - channel to write the contents to, it is not closed
+   * @return - the number of bytes written, 0 if the offset is past the end of the file, or -1 if the contents could not be retrieved
+   */
+  public long writeFileContents(String fileId, long offset, long length, WritableByteChannel target);
+  
+  /**
+   * Uses the Box API to download the file with the associated Id to disk, resuming from the length of the local file if it exists
+   * 
+   * @param fileId - id of the file to download
+   * @param file - local file to download to
+   * @return - the number of bytes written, or -1 if the contents could not be retrieved
+   */
+  public long downloadFile(String fileId, File file);
+  
+  /**
+   * Uses the Box API to download the file with the associated Id to a new temporary file, which the caller must delete
+   * 
+   * @param fileId - id of the file to download
+   * @return - the temporary file, or null if the contents could not be retrieved
+   */
+  public File downloadToTempFile(String fileId);
+  
+  /**
+   * Uses the Box API to retrieve the contents of many files in parallel
+   * 
+   * @param fileIds - ids of the files to retrieve the contents for
+   * @param sink - receives the contents of each file as soon as they are available
+   */
+  public void getFileContents(Collection<String> fileIds, BoxResultSink<? super String> sink);
+  
   /**
    * Uses the Box API to search for a particular file
    * 
@@ -36,6 +96,27 @@ public interface BoxService {
    */
   public BoxSearchResponse search(String query);
   
+  /**
+   * Uses the Box API to search for files, returning one page of the results
+   * 
+   * @param query - query string to use to search for the file (will be quoted so is an exact search)
+   * @param offset - offset of the first result to return
+   * @param limit - maximum number of results to return
+   * @param fields - file fields to return, only the name if none
+   * @return - response object with the page of search results
+   */
+  public BoxSearchResponse search(String query, int offset, int limit, String... fields);
+  
+  /**
+   * Uses the Box API to search for files, going through all the results lazily, one page at a time
+   * 
+   * @param query - query string to use to search for the file (will be quoted so is an exact search)
+   * @param pageSize - number of results to request at once
+   * @param fields - file fields to return, only the name if none
+   * @return - iterator over the search results, the next page is requested while the current one is consumed
+   */
+  public BoxSearchIterator searchAll(String query, int pageSize, String... fields);
+  
   /**
    * Uses the Box API to retrieve the metadata for the file with the associated Id
    * 
@@ -43,4 +124,20 @@ public interface BoxService {
    * @return - response object with all of the metadata for the file
    */
   public BoxMetadataResponse getMetadata(String fileId);
+  
+  /**
+   * Uses the Box API to retrieve the metadata for many files in parallel
+   * 
+   * @param fileIds - ids of the files to retrieve the metadata for
+   * @return - the metadata of each file by id, in the order of the ids
+   */
+  public Map<String, BoxMetadataResponse> getMetadata(Collection<String> fileIds);
+  
+  /**
+   * Uses the Box API to retrieve the metadata for many files in parallel
+   * 
+   * @param fileIds - ids of the files to retrieve the metadata for
+   * @param sink - receives the metadata of each file as soon as it is available
+   */
+  public void getMetadata(Collection<String> fileIds, BoxResultSink<? super BoxMetadataResponse> sink);
 }
@@ -0,0 +1,268 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box.impl;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.ibm.watson.app.common.services.box.BoxResultSink;
+import com.ibm.watson.app.common.util.rest.MessageKey;
+import com.ibm.watson.app.common.util.rest.RateLimitedException;
+import com.ibm.watson.app.common.util.rest.RetryPolicy;
+
+/**
+ * Sends one asynchronous request per file, keeping a bounded number in flight, and hands each result to a sink as soon as it completes.
+ * <p>The number of requests in flight adapts to the rate limits of Box: it is halved every time a request is rejected with 
+ * {@code 429 Too Many Requests}, and grows back by one for every full window of successful requests, up to the maximum.
+ * A rejected request is sent again, after the delay asked for by Box or the backoff of the retry policy, whichever is longer; 
+ * no new request is sent until then. A request is given up once it used all the attempts of the retry policy.</p>
+ * <p>With a deadline, once it passes the requests in flight are cancelled and all the files without a result 
+ * are reported as failed. Without one, a stalled request is only ended by the socket timeout of the HTTP client.</p>
+ * <p>The sink is only called from the thread running {@link #run(Collection)}, in completion order.</p>
+ */
+final class BoxBulkFetch<T> {
+	private static final Logger logger = LogManager.getLogger();
+
+	private final AsyncFunction<String, T> request;
+	private final BoxResultSink<? super T> sink;
+	private final int maxConcurrency;
+	private final RetryPolicy retryPolicy;
+	private final long deadlineNanos;
+	private final Random random = new Random();
+	private final BlockingQueue<Completion<T>> completed = new LinkedBlockingQueue<>();
+
+	private double window;
+	private long resumeAt;
+	private int throttledCount;
+
+	/**
+	 * @param request Sends the request for a file
+	 * @param maxConcurrency The maximum number of requests in flight at once
+	 * @param retryPolicy The attempts and backoff for requests rejected by the rate limit
+	 * @param deadlineMillis The longest {@link #run(Collection)} may take overall, 0 for no deadline
+	 */
+	BoxBulkFetch(AsyncFunction<String, T> request, BoxResultSink<? super T> sink, int maxConcurrency, RetryPolicy retryPolicy, long deadlineMillis) {
+		if(maxConcurrency < 1) {
+			throw new IllegalArgumentException("maxConcurrency must be at least 1: " + maxConcurrency);
+		}
+		this.request = request;
+		this.sink = sink;
+		this.maxConcurrency = maxConcurrency;
+		this.retryPolicy = retryPolicy;
+		this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+		this.window = maxConcurrency;
+		// Only compared as a difference, System.nanoTime() can be negative
+		this.resumeAt = System.nanoTime();
+	}
+
+	/**
+	 * Fetch the results for all the files, returning once each of them was handed to the sink.
+	 * If the calling thread is interrupted or the deadline passes, the requests in flight are cancelled 
+	 * and the files without a result are reported as failed.
+	 */
+	void run(Collection<String> fileIds) {
+		final Deque<Attempt> pending = new ArrayDeque<>(fileIds.size());
+		for(String fileId : fileIds) {
+			pending.add(new Attempt(fileId, 1));
+		}
+		final Set<Completion<T>> inFlight = new HashSet<>();
+		final long endAt = System.nanoTime() + deadlineNanos;
+		try {
+			while(!pending.isEmpty() || !inFlight.isEmpty()) {
+				final long now = System.nanoTime();
+				final long remaining = deadlineNanos > 0 ? endAt - now : Long.MAX_VALUE;
+				if(remaining <= 0) {
+					throw new TimeoutException("Not done within " + TimeUnit.NANOSECONDS.toMillis(deadlineNanos) + " ms");
+				}
+				long wait = resumeAt - now;
+				while(wait <= 0 && !pending.isEmpty() && inFlight.size() < (int) window) {
+					inFlight.add(submit(pending.poll()));
+				}
+				
+				Completion<T> completion;
+				if(inFlight.isEmpty()) {
+					// Waiting for the rate limit to clear before sending anything else
+					TimeUnit.NANOSECONDS.sleep(Math.min(wait, remaining));
+					continue;
+				} else if(wait > 0 && !pending.isEmpty()) {
+					completion = completed.poll(Math.min(wait, remaining), TimeUnit.NANOSECONDS);
+				} else if(deadlineNanos > 0) {
+					completion = completed.poll(remaining, TimeUnit.NANOSECONDS);
+				} else {
+					completion = completed.take();
+				}
+				
+				if(completion != null) {
+					inFlight.remove(completion);
+					handle(completion, pending);
+				}
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failAll(inFlight, pending, e);
+		} catch(TimeoutException e) {
+			for(Completion<T> completion : inFlight) {
+				logger.error(MessageKey.AQWEGA14205E_error_box_bulk_request_2.getMessage(completion.attempt.fileId, e.getMessage()));
+			}
+			failAll(inFlight, pending, e);
+		} finally {
+			for(Completion<T> completion : inFlight) {
+				completion.future.cancel(true);
+			}
+		}
+		
+		if(logger.isDebugEnabled()) {
+			logger.debug("Fetched " + fileIds.size() + " files, rate limited " + throttledCount + " times, ending with " + (int) window + " requests in flight");
+		}
+	}
+
+	/**
+	 * Get the number of times a request was rejected by the rate limit
+	 */
+	int getThrottledCount() {
+		return throttledCount;
+	}
+
+	/**
+	 * Get the current number of requests allowed in flight
+	 */
+	int getWindow() {
+		return (int) window;
+	}
+
+	private Completion<T> submit(Attempt attempt) {
+		ListenableFuture<T> future;
+		try {
+			future = request.apply(attempt.fileId);
+		} catch(Exception e) {
+			future = Futures.immediateFailedFuture(e);
+		}
+		final Completion<T> completion = new Completion<T>(attempt, future);
+		future.addListener(new Runnable() {
+			@Override
+			public void run() {
+				completed.add(completion);
+			}
+		}, MoreExecutors.directExecutor());
+		return completion;
+	}
+
+	private void handle(Completion<T> completion, Deque<Attempt> pending) {
+		final Attempt attempt = completion.attempt;
+		Throwable error;
+		try {
+			T result = completion.future.get();
+			window = Math.min(maxConcurrency, window + 1 / window);
+			sink.onResult(attempt.fileId, result);
+			return;
+		} catch(ExecutionException e) {
+			error = e.getCause();
+		} catch(CancellationException | InterruptedException e) {
+			error = e;
+		}
+		
+		if(error instanceof RateLimitedException && attempt.number < retryPolicy.getMaxAttempts()) {
+			long retryAfter = ((RateLimitedException) error).getRetryAfterMillis();
+			if(retryAfter <= retryPolicy.getMaxRetryAfterMillis()) {
+				throttledCount++;
+				window = Math.max(1, window / 2);
+				long delay = Math.max(retryAfter, retryPolicy.getBackoffMillis(attempt.number, random));
+				resumeAt = Math.max(resumeAt, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay));
+				logger.warn(MessageKey.AQWEGA02003W_retrying_request_3.getMessage("for Box file " + attempt.fileId, error.getMessage(), delay));
+				pending.addFirst(new Attempt(attempt.fileId, attempt.number + 1));
+				return;
+			}
+		}
+		
+		logger.error(MessageKey.AQWEGA14205E_error_box_bulk_request_2.getMessage(attempt.fileId, error.getMessage()));
+		logger.catching(error);
+		sink.onFailure(attempt.fileId, error);
+	}
+
+	private void failAll(Set<Completion<T>> inFlight, Deque<Attempt> pending, Throwable error) {
+		for(Completion<T> completion : inFlight) {
+			sink.onFailure(completion.attempt.fileId, error);
+		}
+		for(Attempt attempt : pending) {
+			sink.onFailure(attempt.fileId, error);
+		}
+	}
+
+	/**
+	 * A sink that collects the results by file id, in the order of the ids it was created with.
+	 * Files that failed keep the default value.
+	 */
+	static final class MapSink<T> implements BoxResultSink<T> {
+		private final Map<String, T> results = new LinkedHashMap<>();
+
+		MapSink(Collection<String> fileIds, T defaultValue) {
+			for(String fileId : fileIds) {
+				results.put(fileId, defaultValue);
+			}
+		}
+
+		@Override
+		public void onResult(String fileId, T result) {
+			results.put(fileId, result);
+		}
+
+		@Override
+		public void onFailure(String fileId, Throwable error) {
+		}
+
+		Map<String, T> getResults() {
+			return results;
+		}
+	}
+
+	private static final class Attempt {
+		private final String fileId;
+		private final int number;
+
+		Attempt(String fileId, int number) {
+			this.fileId = fileId;
+			this.number = number;
+		}
+	}
+
+	private static final class Completion<T> {
+		private final Attempt attempt;
+		private final ListenableFuture<T> future;
+
+		Completion(Attempt attempt, ListenableFuture<T> future) {
+			this.attempt = attempt;
+			this.future = future;
+		}
+	}
+}
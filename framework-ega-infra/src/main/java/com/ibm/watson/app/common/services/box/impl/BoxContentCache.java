@@ -0,0 +1,434 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse;
+
+/**
+ * A disk-backed cache of Box file contents and metadata, used by {@link CachingBoxService}.
+ * <p>File contents are content-addressed: each one is stored once in the cache directory, in a file named after its SHA-1, 
+ * and read through a memory-mapped buffer. Box reports the SHA-1 of every file, so a file whose etag changed without its 
+ * contents changing, or two files with the same contents, never need another download. The contents survive a restart: 
+ * the files found in the directory are cached again when the cache is created.
+ * When the total size of the contents exceeds the maximum, the least recently read are evicted and deleted.</p>
+ * <p>Each file id maps to the etag and SHA-1 of the version last seen, and to its metadata. An entry is served without asking Box 
+ * for a while after it was last checked; after that it must be revalidated with a conditional request.</p>
+ */
+public class BoxContentCache implements BoxContentCacheMXBean {
+	private static final Logger logger = LogManager.getLogger();
+
+	public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+	public static final long DEFAULT_MAX_FILES = 10000;
+	public static final long DEFAULT_REVALIDATE_AFTER_SECONDS = 300;
+
+	private static final Pattern SHA1_FILE_NAME = Pattern.compile("[0-9a-f]{40}");
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	private final File directory;
+	private final long maxBytes;
+	private final long revalidateAfterMillis;
+	private final Cache<String, Content> contents;
+	private final Cache<String, Entry> entries;
+
+	private final AtomicLong contentBytes = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong metadataHits = new AtomicLong();
+	private final AtomicLong metadataMisses = new AtomicLong();
+	private final AtomicLong bytesSaved = new AtomicLong();
+	private final AtomicLong bytesDownloaded = new AtomicLong();
+	private final AtomicLong revalidations = new AtomicLong();
+	private final AtomicLong notModified = new AtomicLong();
+
+	public BoxContentCache(File directory) throws IOException {
+		this(directory, DEFAULT_MAX_BYTES, DEFAULT_REVALIDATE_AFTER_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @param directory The directory to store the file contents in, created if needed
+	 * @param maxBytes The maximum number of bytes of file contents to keep
+	 * @param revalidateAfter How long a file is served from the cache before checking whether it changed
+	 */
+	public BoxContentCache(File directory, long maxBytes, long revalidateAfter, TimeUnit unit) throws IOException {
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create the cache directory " + directory);
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.revalidateAfterMillis = unit.toMillis(revalidateAfter);
+		// A single segment, so that the size bound and the LRU order apply to the whole cache
+		this.contents = CacheBuilder.newBuilder()
+				.concurrencyLevel(1)
+				.maximumWeight(maxBytes)
+				.weigher(new Weigher<String, Content>() {
+					@Override
+					public int weigh(String sha1, Content content) {
+						return (int) Math.min(content.size, Integer.MAX_VALUE);
+					}
+				})
+				.removalListener(new RemovalListener<String, Content>() {
+					@Override
+					public void onRemoval(RemovalNotification<String, Content> notification) {
+						if(notification.getCause() != RemovalCause.REPLACED) {
+							removed(notification.getValue());
+						}
+					}
+				})
+				.build();
+		this.entries = CacheBuilder.newBuilder().maximumSize(DEFAULT_MAX_FILES).build();
+		load();
+	}
+
+	/**
+	 * Get the entry of a file
+	 * @return The entry, or null if the file was not seen yet
+	 */
+	Entry getEntry(String fileId) {
+		return entries.getIfPresent(fileId);
+	}
+
+	void putEntry(String fileId, Entry entry) {
+		entries.put(fileId, entry);
+	}
+
+	/**
+	 * Check if something checked or fetched at the supplied time can still be served without asking Box
+	 */
+	boolean isFresh(long timestamp) {
+		return System.currentTimeMillis() - timestamp < revalidateAfterMillis;
+	}
+
+	/**
+	 * Check if contents of the supplied size can be cached
+	 */
+	boolean canStore(long size) {
+		// A mapped buffer is limited to 2GB
+		return size >= 0 && size <= maxBytes && size <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Get the file contents with the supplied SHA-1
+	 * @return A read-only buffer over the contents, positioned at the start, or null if they are not cached
+	 */
+	ByteBuffer getContent(String sha1) throws IOException {
+		Content content = sha1 == null ? null : contents.getIfPresent(sha1);
+		if(content == null) {
+			return null;
+		}
+		if(!content.file.isFile()) {
+			contents.invalidate(sha1);
+			return null;
+		}
+		return content.read();
+	}
+
+	/**
+	 * Create a temporary file in the cache directory to download contents to, before they are {@link #putContent(String, File) stored}
+	 */
+	File createTempFile() throws IOException {
+		return File.createTempFile("download-", TEMP_FILE_SUFFIX, directory);
+	}
+
+	/**
+	 * Store downloaded file contents. The downloaded file is moved into the cache, or deleted if the contents were cached already.
+	 * @param sha1 The SHA-1 Box reported for the contents
+	 * @return A read-only buffer over the contents, positioned at the start
+	 * @throws IOException If the contents do not match the SHA-1, or could not be stored
+	 */
+	ByteBuffer putContent(String sha1, File downloaded) throws IOException {
+		try {
+			String actual = Files.hash(downloaded, Hashing.sha1()).toString();
+			if(!actual.equalsIgnoreCase(sha1)) {
+				throw new IOException("Downloaded contents have SHA-1 " + actual + ", expected " + sha1);
+			}
+			ByteBuffer existing = getContent(actual);
+			if(existing != null) {
+				return existing;
+			}
+			File file = new File(directory, actual);
+			java.nio.file.Files.move(downloaded.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			Content content = new Content(file, file.length());
+			// Map the contents before they are visible to the eviction
+			ByteBuffer buffer = content.read();
+			Content previous = contents.asMap().putIfAbsent(actual, content);
+			if(previous != null) {
+				return previous.read();
+			}
+			added(content);
+			return buffer;
+		} finally {
+			delete(downloaded);
+		}
+	}
+
+	/**
+	 * Drop the entry of a file. Its contents stay cached for other files with the same contents.
+	 */
+	public void invalidate(String fileId) {
+		entries.invalidate(fileId);
+	}
+
+	/**
+	 * Drop all the entries and delete all the cached contents
+	 */
+	public void invalidateAll() {
+		entries.invalidateAll();
+		contents.invalidateAll();
+	}
+
+	void recordHit(long bytes) {
+		hits.incrementAndGet();
+		bytesSaved.addAndGet(bytes);
+	}
+
+	void recordMiss(long bytes) {
+		misses.incrementAndGet();
+		bytesDownloaded.addAndGet(bytes);
+	}
+
+	void recordMetadataHit() {
+		metadataHits.incrementAndGet();
+	}
+
+	void recordMetadataMiss() {
+		metadataMisses.incrementAndGet();
+	}
+
+	void recordRevalidation(boolean modified) {
+		revalidations.incrementAndGet();
+		if(!modified) {
+			notModified.incrementAndGet();
+		}
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	@Override
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	@Override
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	@Override
+	public double getHitRatio() {
+		long hitCount = hits.get();
+		long total = hitCount + misses.get();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	@Override
+	public long getMetadataHitCount() {
+		return metadataHits.get();
+	}
+
+	@Override
+	public long getMetadataMissCount() {
+		return metadataMisses.get();
+	}
+
+	@Override
+	public long getBytesSaved() {
+		return bytesSaved.get();
+	}
+
+	@Override
+	public long getBytesDownloaded() {
+		return bytesDownloaded.get();
+	}
+
+	@Override
+	public long getRevalidationCount() {
+		return revalidations.get();
+	}
+
+	@Override
+	public long getNotModifiedCount() {
+		return notModified.get();
+	}
+
+	@Override
+	public long getContentCount() {
+		return contents.size();
+	}
+
+	@Override
+	public long getContentBytes() {
+		return contentBytes.get();
+	}
+
+	@Override
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	@Override
+	public void reset() {
+		hits.set(0);
+		misses.set(0);
+		metadataHits.set(0);
+		metadataMisses.set(0);
+		bytesSaved.set(0);
+		bytesDownloaded.set(0);
+		revalidations.set(0);
+		notModified.set(0);
+	}
+
+	private void load() {
+		File[] files = directory.listFiles();
+		if(files == null) {
+			return;
+		}
+		for(File file : files) {
+			if(file.getName().endsWith(TEMP_FILE_SUFFIX)) {
+				// Left over from an interrupted download
+				delete(file);
+			} else if(file.isFile() && SHA1_FILE_NAME.matcher(file.getName()).matches()) {
+				Content content = new Content(file, file.length());
+				if(contents.asMap().putIfAbsent(file.getName(), content) == null) {
+					added(content);
+				}
+			}
+		}
+		if(logger.isDebugEnabled()) {
+			logger.debug("Loaded " + contents.size() + " cached Box file contents from " + directory);
+		}
+	}
+
+	private void added(Content content) {
+		contentBytes.addAndGet(content.size);
+	}
+
+	private void removed(Content content) {
+		contentBytes.addAndGet(-content.size);
+		delete(content.file);
+	}
+
+	private static void delete(File file) {
+		// A file that is still mapped cannot be deleted on some platforms, it is then cleaned up on the next restart
+		if(file.exists() && !file.delete() && logger.isDebugEnabled()) {
+			logger.debug("Could not delete " + file);
+		}
+	}
+
+	/**
+	 * The contents of a file, stored on disk and mapped into memory when first read
+	 */
+	private static final class Content {
+		private final File file;
+		private final long size;
+		private MappedByteBuffer buffer;
+
+		Content(File file, long size) {
+			this.file = file;
+			this.size = size;
+		}
+
+		synchronized ByteBuffer read() throws IOException {
+			if(buffer == null) {
+				try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+					buffer = channel.map(MapMode.READ_ONLY, 0, size);
+				}
+			}
+			return buffer.duplicate();
+		}
+	}
+
+	/**
+	 * What is known about a file: the version last seen and its metadata
+	 */
+	static final class Entry {
+		// The entry of a file that was never seen
+		static final Entry NONE = new Entry(null, null, 0, null, 0);
+		
+		private final String etag;
+		private final String sha1;
+		private final long validatedAt;
+		private final BoxMetadataResponse metadata;
+		private final long metadataFetchedAt;
+
+		Entry(String etag, String sha1, long validatedAt, BoxMetadataResponse metadata, long metadataFetchedAt) {
+			this.etag = etag;
+			this.sha1 = sha1;
+			this.validatedAt = validatedAt;
+			this.metadata = metadata;
+			this.metadataFetchedAt = metadataFetchedAt;
+		}
+
+		/**
+		 * Get the etag of the version last seen, null if the contents were never read
+		 */
+		String getEtag() {
+			return etag;
+		}
+
+		String getSha1() {
+			return sha1;
+		}
+
+		long getValidatedAt() {
+			return validatedAt;
+		}
+
+		/**
+		 * Get the cached metadata, null if none
+		 */
+		BoxMetadataResponse getMetadata() {
+			return metadata;
+		}
+
+		long getMetadataFetchedAt() {
+			return metadataFetchedAt;
+		}
+
+		Entry withVersion(String etag, String sha1, long validatedAt) {
+			// The metadata may have changed along with the file
+			boolean sameVersion = etag != null && etag.equals(this.etag);
+			return new Entry(etag, sha1, validatedAt, sameVersion ? metadata : null, sameVersion ? metadataFetchedAt : 0);
+		}
+
+		Entry withMetadata(BoxMetadataResponse metadata, long fetchedAt) {
+			return new Entry(etag, sha1, validatedAt, metadata, fetchedAt);
+		}
+	}
+}
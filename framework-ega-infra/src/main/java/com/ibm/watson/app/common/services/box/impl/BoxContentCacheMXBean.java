@@ -0,0 +1,86 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box.impl;
+
+/**
+ * The effectiveness of a {@link BoxContentCache}, as exposed over JMX
+ * @see BoxContentCache
+ */
+public interface BoxContentCacheMXBean {
+	/**
+	 * Get the number of file content reads served from the cache
+	 */
+	long getHitCount();
+
+	/**
+	 * Get the number of file content reads that had to download the file contents
+	 */
+	long getMissCount();
+
+	/**
+	 * Get the fraction of file content reads served from the cache
+	 */
+	double getHitRatio();
+
+	/**
+	 * Get the number of metadata reads served from the cache
+	 */
+	long getMetadataHitCount();
+
+	/**
+	 * Get the number of metadata reads that had to fetch the metadata from Box
+	 */
+	long getMetadataMissCount();
+
+	/**
+	 * Get the number of file content bytes served from the cache instead of being downloaded
+	 */
+	long getBytesSaved();
+
+	/**
+	 * Get the number of file content bytes downloaded into the cache
+	 */
+	long getBytesDownloaded();
+
+	/**
+	 * Get the number of times a cached file was checked against Box because it was no longer fresh
+	 */
+	long getRevalidationCount();
+
+	/**
+	 * Get the number of revalidations that found the cached file unchanged
+	 */
+	long getNotModifiedCount();
+
+	/**
+	 * Get the number of distinct file contents stored on disk
+	 */
+	long getContentCount();
+
+	/**
+	 * Get the number of bytes of file contents stored on disk
+	 */
+	long getContentBytes();
+
+	/**
+	 * Get the maximum number of bytes of file contents stored on disk before the least recently used are evicted
+	 */
+	long getMaxBytes();
+
+	/**
+	 * Reset the counters, the cached contents are kept
+	 */
+	void reset();
+}
@@ -0,0 +1,436 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.ibm.watson.app.common.services.box.BoxMetadataIndex;
+import com.ibm.watson.app.common.services.box.BoxResultSink;
+import com.ibm.watson.app.common.services.box.model.BoxEventsResponse;
+import com.ibm.watson.app.common.services.box.model.BoxEventsResponse.Event;
+import com.ibm.watson.app.common.services.box.model.BoxEventsResponse.Item;
+import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse;
+import com.ibm.watson.app.common.services.box.model.BoxRealtimeServerResponse;
+import com.ibm.watson.app.common.util.rest.MessageKey;
+
+/**
+ * Keeps a {@link BoxMetadataIndex} up to date by following the Box event stream, rather than crawling every file again.
+ * <p>{@link #sync()} reads the events since the last stream position, refreshes the metadata of the files that changed 
+ * with one bulk request per chunk of events, and removes the files that were trashed or moved out of the folder. 
+ * The position is saved after every chunk, so a restarted sync carries on where it stopped. 
+ * A changed file that Box no longer finds, or no longer lets the user read, is removed as well; 
+ * any other error stops the sync before the chunk, which is read again by the next sync. 
+ * A file that keeps failing for as many syncs as the client's retry policy has attempts is skipped, with an error logged, 
+ * so that it cannot hold the stream position forever; it is refreshed again the next time it changes. 
+ * {@link #run()} keeps syncing, long-polling Box in between so that changes are picked up as soon as they are made.</p>
+ * <p>Without a saved position, the first sync only records the current position of the stream. 
+ * To build the index from scratch, call {@link #sync()} once, then crawl the folder, then {@link #run()}: 
+ * changes made during the crawl are replayed, which is harmless as the index is only ever refreshed from Box.</p>
+ * <p>Box reports trashing or moving a folder as a single event for the folder, not for the files in it, 
+ * so those files stay in the index until they change.</p>
+ */
+public class BoxFolderSync implements Runnable, Closeable {
+	private static final Logger logger = LogManager.getLogger();
+	
+	private static final String FILE = "file";
+	private static final Set<String> REMOVAL_EVENTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("ITEM_TRASH")));
+	// Box can send an event more than once, the ids of the latest ones are kept to skip those
+	private static final int MAX_RECENT_EVENT_IDS = 10000;
+	
+	private final BoxRestClient client;
+	private final BoxMetadataIndex index;
+	private final String folderId;
+	private final File positionFile;
+	private final Random random = new Random();
+	private final CountDownLatch closed = new CountDownLatch(1);
+	
+	private final Map<String, Boolean> recentEventIds = new LinkedHashMap<String, Boolean>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > MAX_RECENT_EVENT_IDS;
+		}
+	};
+	
+	// The number of syncs in a row the metadata of a file of the current chunk failed in
+	private final Map<String, Integer> failedAttempts = new HashMap<>();
+	
+	private volatile String streamPosition;
+	private volatile int eventsPerRequest = BoxRestClient.MAX_EVENTS_LIMIT;
+	private volatile ListenableFuture<String> poll;
+	
+	private final AtomicLong eventCount = new AtomicLong();
+	private final AtomicLong duplicateCount = new AtomicLong();
+	private final AtomicLong updatedCount = new AtomicLong();
+	private final AtomicLong removedCount = new AtomicLong();
+	private final AtomicLong skippedCount = new AtomicLong();
+	
+	/**
+	 * @param client - client to call Box with
+	 * @param index - index to keep up to date
+	 * @param folderId - id of the folder whose files are indexed, including those in sub folders, or null for all the files the user can access
+	 * @param positionFile - file the stream position is saved to, or null to not save it
+	 * @throws IOException if the saved position could not be read
+	 */
+	public BoxFolderSync(BoxRestClient client, BoxMetadataIndex index, String folderId, File positionFile) throws IOException {
+		this.client = client;
+		this.index = index;
+		this.folderId = folderId;
+		this.positionFile = positionFile;
+		if(positionFile != null && positionFile.exists()) {
+			String saved = Files.toString(positionFile, StandardCharsets.UTF_8).trim();
+			this.streamPosition = saved.isEmpty() ? null : saved;
+		}
+	}
+	
+	/**
+	 * Apply the events received since the last sync to the index
+	 * 
+	 * @return the number of files updated or removed, or -1 if the sync stopped on an error, 
+	 * in which case the events that were not applied are read again by the next sync
+	 */
+	public synchronized int sync() {
+		if(streamPosition == null) {
+			String position = client.getCurrentStreamPosition();
+			if(position == null) {
+				return -1;
+			}
+			savePosition(position);
+			return 0;
+		}
+		
+		int applied = 0;
+		while(!isClosed()) {
+			BoxEventsResponse events = client.getEvents(streamPosition, eventsPerRequest);
+			if(events == null) {
+				return -1;
+			}
+			if(events.getEntries().isEmpty()) {
+				break;
+			}
+			int count = apply(events.getEntries());
+			if(count < 0) {
+				return -1;
+			}
+			applied += count;
+			savePosition(events.getNextStreamPosition());
+		}
+		return applied;
+	}
+	
+	/**
+	 * Apply a chunk of events, refreshing each changed file once however many events it has
+	 * 
+	 * @return the number of files updated or removed, or -1 if the metadata of a file could not be retrieved because of an error that may go away 
+	 * and the file was not yet retried as many times as the retry policy allows
+	 */
+	private int apply(List<Event> events) {
+		final Set<String> changed = new LinkedHashSet<>();
+		final Set<String> removed = new LinkedHashSet<>();
+		int duplicates = 0;
+		for(Event event : events) {
+			if(event.getEventId() != null && recentEventIds.containsKey(event.getEventId())) {
+				duplicates++;
+				continue;
+			}
+			Item source = event.getSource();
+			if(source == null || source.getId() == null || !FILE.equals(source.getType())) {
+				continue;
+			}
+			if(REMOVAL_EVENTS.contains(event.getEventType()) || !isInFolder(source)) {
+				changed.remove(source.getId());
+				removed.add(source.getId());
+			} else {
+				removed.remove(source.getId());
+				changed.add(source.getId());
+			}
+		}
+		
+		final int[] failures = {0};
+		final Set<String> gone = new LinkedHashSet<>();
+		final Set<String> skipped = new LinkedHashSet<>();
+		if(!changed.isEmpty()) {
+			final int maxAttempts = client.getRetryPolicy().getMaxAttempts();
+			client.getMetadata(changed, new BoxResultSink<BoxMetadataResponse>() {
+				@Override
+				public void onResult(String fileId, BoxMetadataResponse metadata) {
+					index.put(fileId, metadata);
+				}
+
+				@Override
+				public void onFailure(String fileId, Throwable error) {
+					if(isPermanent(error)) {
+						gone.add(fileId);
+						return;
+					}
+					Integer previous = failedAttempts.get(fileId);
+					int attempts = previous == null ? 1 : previous + 1;
+					if(attempts >= maxAttempts) {
+						logger.error(MessageKey.AQWEGA14208E_error_box_sync_file_skipped_3.getMessage(fileId, attempts, error.getMessage()));
+						logger.catching(error);
+						skipped.add(fileId);
+					} else {
+						failedAttempts.put(fileId, attempts);
+						failures[0]++;
+					}
+				}
+			});
+		}
+		if(failures[0] > 0) {
+			return -1;
+		}
+		failedAttempts.keySet().removeAll(changed);
+		if(!skipped.isEmpty()) {
+			changed.removeAll(skipped);
+			skippedCount.addAndGet(skipped.size());
+		}
+		if(!gone.isEmpty()) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("Removing files that can no longer be retrieved: " + gone);
+			}
+			changed.removeAll(gone);
+			removed.addAll(gone);
+		}
+		
+		int applied = changed.size();
+		updatedCount.addAndGet(changed.size());
+		for(String fileId : removed) {
+			if(index.contains(fileId)) {
+				index.remove(fileId);
+				removedCount.incrementAndGet();
+				applied++;
+			}
+		}
+		for(Event event : events) {
+			if(event.getEventId() != null) {
+				recentEventIds.put(event.getEventId(), Boolean.TRUE);
+			}
+		}
+		eventCount.addAndGet(events.size() - duplicates);
+		duplicateCount.addAndGet(duplicates);
+		return applied;
+	}
+	
+	/**
+	 * Check whether Box refused a file for good, because it was deleted or the user lost access to it, 
+	 * rather than because of an error that may go away, like a timeout or a server error
+	 */
+	private static boolean isPermanent(Throwable error) {
+		if(!(error instanceof HttpResponseException)) {
+			return false;
+		}
+		int status = ((HttpResponseException) error).getStatusCode();
+		return status == HttpStatus.SC_NOT_FOUND || status == HttpStatus.SC_FORBIDDEN || status == HttpStatus.SC_GONE;
+	}
+	
+	private boolean isInFolder(Item item) {
+		if(folderId == null) {
+			return true;
+		}
+		if(item.getParent() != null && folderId.equals(item.getParent().getId())) {
+			return true;
+		}
+		if(item.getPathCollection() != null && item.getPathCollection().getEntries() != null) {
+			for(Item folder : item.getPathCollection().getEntries()) {
+				if(folderId.equals(folder.getId())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	private void savePosition(String position) {
+		streamPosition = position;
+		if(positionFile == null) {
+			return;
+		}
+		try {
+			File temp = File.createTempFile(positionFile.getName(), ".tmp", positionFile.getAbsoluteFile().getParentFile());
+			try {
+				Files.write(position, temp, StandardCharsets.UTF_8);
+				java.nio.file.Files.move(temp.toPath(), positionFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				if(temp.exists() && !temp.delete() && logger.isDebugEnabled()) {
+					logger.debug("Could not delete temporary file " + temp);
+				}
+			}
+		} catch(IOException e) {
+			// the sync carries on from the position in memory, after a restart it replays events, which is harmless
+			logger.error(MessageKey.AQWEGA14207E_error_box_sync_position_2.getMessage(positionFile, e.getMessage()));
+			logger.catching(e);
+		}
+	}
+	
+	/**
+	 * Keep syncing until closed, long-polling Box for new events in between. 
+	 * Failed syncs and long-polls are retried with the backoff of the client's retry policy.
+	 */
+	@Override
+	public void run() {
+		int failures = 0;
+		while(!isClosed()) {
+			if(sync() >= 0 && waitForEvents()) {
+				failures = 0;
+			} else if(!isClosed()) {
+				failures++;
+				long delay = client.getRetryPolicy().getBackoffMillis(failures, random);
+				if( logger.isDebugEnabled() ) {
+					logger.debug("Box sync failed " + failures + " time(s) in a row, retrying in " + delay + "ms");
+				}
+				try {
+					closed.await(delay, TimeUnit.MILLISECONDS);
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					close();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Long-poll Box until there are new events, getting a new server URL once it was used as many times as allowed
+	 * 
+	 * @return false if the long-poll failed
+	 */
+	private boolean waitForEvents() {
+		BoxRealtimeServerResponse.Server server = client.getRealtimeServer();
+		if(server == null) {
+			return false;
+		}
+		for(int i = 0; i < Math.max(1, server.getMaxRetries()) && !isClosed(); i++) {
+			String message = poll(server);
+			if(message == null) {
+				return false;
+			}
+			if(!BoxRealtimeServerResponse.Message.RECONNECT.equals(message)) {
+				return true;
+			}
+		}
+		return true;
+	}
+	
+	private String poll(BoxRealtimeServerResponse.Server server) {
+		final ListenableFuture<String> future = client.longPoll(server, streamPosition);
+		poll = future;
+		try {
+			if(isClosed()) {
+				future.cancel(true);
+			}
+			return future.get();
+		} catch(CancellationException e) {
+			return null;
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+			return null;
+		} catch(ExecutionException e) {
+			logger.catching(e);
+			return null;
+		} finally {
+			poll = null;
+		}
+	}
+	
+	/**
+	 * Stop {@link #run()}, aborting the long-poll in flight
+	 */
+	@Override
+	public void close() {
+		closed.countDown();
+		ListenableFuture<String> future = poll;
+		if(future != null) {
+			future.cancel(true);
+		}
+	}
+	
+	public boolean isClosed() {
+		return closed.getCount() == 0;
+	}
+	
+	/**
+	 * Get the position in the event stream the next sync reads from, or null if no sync ran yet
+	 */
+	public String getStreamPosition() {
+		return streamPosition;
+	}
+	
+	public int getEventsPerRequest() {
+		return eventsPerRequest;
+	}
+	
+	/**
+	 * Set the maximum number of events read with each request, and so the number of files refreshed with each bulk request
+	 */
+	public void setEventsPerRequest(int eventsPerRequest) {
+		if(eventsPerRequest < 1 || eventsPerRequest > BoxRestClient.MAX_EVENTS_LIMIT) {
+			throw new IllegalArgumentException("eventsPerRequest must be between 1 and " + BoxRestClient.MAX_EVENTS_LIMIT + ": " + eventsPerRequest);
+		}
+		this.eventsPerRequest = eventsPerRequest;
+	}
+	
+	/**
+	 * Get the number of events applied, not counting duplicates
+	 */
+	public long getEventCount() {
+		return eventCount.get();
+	}
+	
+	public long getDuplicateCount() {
+		return duplicateCount.get();
+	}
+	
+	public long getUpdatedCount() {
+		return updatedCount.get();
+	}
+	
+	public long getRemovedCount() {
+		return removedCount.get();
+	}
+	
+	/**
+	 * Get the number of changed files that were skipped because their metadata kept failing
+	 */
+	public long getSkippedCount() {
+		return skippedCount.get();
+	}
+}
@@ -16,39 +16,82 @@
 
 package com.ibm.watson.app.common.services.box.impl;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InvalidObjectException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
 
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpOptions;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.message.BasicHeader;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.escape.Escaper;
 import com.google.common.net.HttpHeaders;
+import com.google.common.net.UrlEscapers;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonSyntaxException;
+import com.ibm.watson.app.common.services.box.BoxResultSink;
+import com.ibm.watson.app.common.services.box.BoxSearchIterator;
+import com.ibm.watson.app.common.services.box.model.BoxEventsResponse;
+import com.ibm.watson.app.common.services.box.model.BoxFileInfo;
 import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse;
 import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse.Entry;
+import com.ibm.watson.app.common.services.box.model.BoxRealtimeServerResponse;
 import com.ibm.watson.app.common.services.box.model.BoxSearchResponse;
+import com.ibm.watson.app.common.util.rest.ChannelResponseHandler;
+import com.ibm.watson.app.common.util.rest.HttpStatusAwareResponseHandler;
 import com.ibm.watson.app.common.util.rest.JSONResponseHandler;
 import com.ibm.watson.app.common.util.rest.MessageKey;
+import com.ibm.watson.app.common.util.rest.RateLimitAwareResponseHandler;
 import com.ibm.watson.app.common.util.rest.SimpleRestClient;
+import com.ibm.watson.app.common.util.rest.StrictResponseHandler;
 import com.ibm.watson.app.common.util.rest.StringResponseHandler;
 
 public class BoxRestClient extends SimpleRestClient {
 	private static final Logger logger = LogManager.getLogger();
 
 	private static final String BASE_URL = "https://api.box.com/2.0";
-	private static final String SEARCH_ENDPOINT = "/search?query=%22${query_string}%22&content_types=name&fields=name";
+	private static final String SEARCH_ENDPOINT = "/search?query=%22${query_string}%22&content_types=name&fields=${fields}";
     private static final String DOWNLOAD_ENDPOINT = "/files/${file_id}/content";
     private static final String METADATA_ENDPOINT = "/files/${file_id}/metadata";
+	public static final int MAX_SEARCH_PAGE_SIZE = 200;
+	public static final String DEFAULT_SEARCH_FIELDS = "name";
+	
+	private static final String FILE_INFO_ENDPOINT = "/files/${file_id}?fields=etag,sha1,size";
+	private static final String EVENTS_ENDPOINT = "/events?stream_type=changes&stream_position=${stream_position}&limit=${limit}";
+	private static final String REALTIME_SERVER_ENDPOINT = "/events";
+	public static final int MAX_EVENTS_LIMIT = 500;
+	public static final int DEFAULT_BULK_CONCURRENCY = 8;
+	/**
+	 * The stream position to request to get the current position of the event stream, without any event
+	 */
+	public static final String STREAM_POSITION_NOW = "now";
+	// the long-poll server holds the request for up to retry_timeout seconds, the socket must stay open for longer
+	private static final int LONG_POLL_GRACE_MILLIS = 30000;
+	private static final int LONG_POLL_CONNECT_TIMEOUT = 10000;
 
 	private final Gson gsonUnderscores = new GsonBuilder()
 		.setVersion(1.0)
@@ -61,15 +104,21 @@ public class BoxRestClient extends SimpleRestClient {
 	
 	protected final String accessToken;
 	
+	private volatile int bulkConcurrency = DEFAULT_BULK_CONCURRENCY;
+	private volatile long bulkDeadlineMillis = 0;
+	
+	{
+		addEndpointTemplates(SEARCH_ENDPOINT, DOWNLOAD_ENDPOINT, METADATA_ENDPOINT, FILE_INFO_ENDPOINT, EVENTS_ENDPOINT);
+	}
+	
     /**
      * Creates the REST client to call Box API using the access token passed in
      * 
      * @param token - access token used to make the API calls
      */
 	public BoxRestClient(String accessToken) {
-		// we create our own client to pass in because there is no super() constructor
-		// that will take the access token or just a url
-		super(BASE_URL, HttpClients.createDefault());
+		// the access token is sent as a header, so the pooled clients shared for the Box host can be used
+		super(BASE_URL);
 		this.accessToken = accessToken;
 	}
 	
@@ -78,6 +127,11 @@ public class BoxRestClient extends SimpleRestClient {
 		this.accessToken = accessToken;
 	}
 	
+	public BoxRestClient(String accessToken, CloseableHttpClient client, CloseableHttpAsyncClient asyncClient) {
+		super(BASE_URL, client, asyncClient);
+		this.accessToken = accessToken;
+	}
+	
 	/**
 	 * We need to add the access token as an auth header to every call
 	 */
@@ -86,6 +140,15 @@ public class BoxRestClient extends SimpleRestClient {
 		httpget.addHeader(new BasicHeader(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken));
 		return super.doGet(httpget, responseHandler);
 	}
+	
+	/**
+	 * We need to add the access token as an auth header to every call
+	 */
+	@Override
+	protected <T> ListenableFuture<T> doGetAsync(HttpGet httpget, ResponseHandler<? extends T> responseHandler) {
+		httpget.addHeader(new BasicHeader(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken));
+		return super.doGetAsync(httpget, responseHandler);
+	}
 
 	/**
 	 * Response handler for handling response from the search API call
@@ -104,15 +167,6 @@ public class BoxRestClient extends SimpleRestClient {
 			return super.acceptStatusCode(status);
 		}
 
-		// this method is here only for debug
-		@Override
-		protected BoxSearchResponse parseJSON(String jsonString) throws JsonSyntaxException {
-			if( logger.isDebugEnabled() ) {
-			    logger.debug("Search JSON response: " + jsonString);
-			}
-			return super.parseJSON(jsonString);
-		}
-
 		@Override
 		public BoxSearchResponse getDefaultReturnValue() {
 			BoxSearchResponse response = new BoxSearchResponse();
@@ -128,8 +182,42 @@ public class BoxRestClient extends SimpleRestClient {
 	 * @return
 	 */
 	public BoxSearchResponse search(String query) {
+		return doSearch(getSearchEndpoint(query, -1, -1));
+	}
+	
+	/**
+	 * Calls the Box API to search for a document and return one page of the results
+	 * 
+	 * @param query - the query string to search for
+	 * @param offset - the offset of the first result to return
+	 * @param limit - the maximum number of results to return, at most {@value #MAX_SEARCH_PAGE_SIZE}
+	 * @param fields - the file fields to return, {@value #DEFAULT_SEARCH_FIELDS} if none
+	 * @return the page of results, with a total count of -1 if the search failed
+	 */
+	public BoxSearchResponse search(String query, int offset, int limit, String... fields) {
+		return doSearch(getSearchEndpoint(query, offset, checkPageSize(limit), fields));
+	}
+	
+	/**
+	 * Calls the Box API to search for documents, returning an iterator that requests the pages of results as they are needed
+	 * 
+	 * @param query - the query string to search for
+	 * @param pageSize - the number of results to request at once, at most {@value #MAX_SEARCH_PAGE_SIZE}
+	 * @param fields - the file fields to return, {@value #DEFAULT_SEARCH_FIELDS} if none
+	 * @return an iterator over all the results, which should be closed if it is not used up
+	 */
+	public BoxSearchIterator searchAll(final String query, final int pageSize, final String... fields) {
+		checkPageSize(pageSize);
+		return new BoxSearchIterator(new AsyncFunction<Integer, BoxSearchResponse>() {
+			@Override
+			public ListenableFuture<BoxSearchResponse> apply(Integer offset) {
+				return doSearchAsync(getSearchEndpoint(query, offset.intValue(), pageSize, fields));
+			}
+		}, pageSize);
+	}
+	
+	private BoxSearchResponse doSearch(String endpoint) {
 		try {
-			String endpoint = getSearchEndpoint(query);
 			if( logger.isDebugEnabled()) {
 			    logger.debug("Search endpoint: " + endpoint);
 			}
@@ -141,6 +229,11 @@ public class BoxRestClient extends SimpleRestClient {
 		return searchResponseHandler.getDefaultReturnValue();
 	}
 
+	/**
+	 * Response handler for handling response from the download API call
+	 */
+	private final StringResponseHandler contentResponseHandler = new StringResponseHandler(StandardCharsets.UTF_8);
+
 	/**
 	 * Calls the Box API to retrieve the contents of a file
 	 * 
@@ -153,7 +246,7 @@ public class BoxRestClient extends SimpleRestClient {
 			if( logger.isDebugEnabled() ) {
 			  logger.debug("Download endpoint: " + endpoint);
 			}
-			return get(endpoint, new StringResponseHandler(StandardCharsets.UTF_8));
+			return get(endpoint, contentResponseHandler);
 		} catch(IOException e) {
 			logger.error(MessageKey.AQWEGA14202E_error_box_content_request_1.getMessage(e.getMessage()));
 			logger.catching(e);
@@ -161,6 +254,107 @@ public class BoxRestClient extends SimpleRestClient {
 		return "";
 	}
 	
+	/**
+	 * Calls the Box API to stream the contents of a file into the target channel, without holding the file in memory.
+	 * The channel is not closed.
+	 * 
+	 * @param fileId - id of the file to retrieve the content for
+	 * @param target - channel to write the content to
+	 * @return the number of bytes written, or -1 if the content could not be retrieved
+	 */
+	public long getContent(String fileId, WritableByteChannel target) {
+		return getContent(fileId, 0, -1, target);
+	}
+	
+	/**
+	 * Calls the Box API to stream a byte range of the contents of a file into the target channel, using an HTTP range request.
+	 * The channel is not closed.
+	 * 
+	 * @param fileId - id of the file to retrieve the content for
+	 * @param offset - offset of the first byte to retrieve
+	 * @param length - number of bytes to retrieve, or -1 for everything up to the end of the file
+	 * @param target - channel to write the content to
+	 * @return the number of bytes written, 0 if the offset is past the end of the file, or -1 if the content could not be retrieved
+	 */
+	public long getContent(String fileId, long offset, long length, WritableByteChannel target) {
+		return download(fileId, new ChannelResponseHandler(target, offset, length));
+	}
+	
+	/**
+	 * Calls the Box API to stream the contents of a file into the output stream, without holding the file in memory.
+	 * The stream is not closed.
+	 * 
+	 * @param fileId - id of the file to retrieve the content for
+	 * @param out - stream to write the content to
+	 * @return the number of bytes written, or -1 if the content could not be retrieved
+	 */
+	public long getContent(String fileId, OutputStream out) {
+		return getContent(fileId, Channels.newChannel(out));
+	}
+	
+	/**
+	 * Calls the Box API to download a file to disk. If the file already exists, the download resumes from its current length, 
+	 * so an interrupted download can be completed by calling this method again.
+	 * 
+	 * @param fileId - id of the file to download
+	 * @param file - local file to download to
+	 * @return the number of bytes written by this call (0 if the file was already complete), or -1 if the content could not be retrieved
+	 */
+	public long download(String fileId, File file) {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			final long offset = channel.size();
+			channel.position(offset);
+			if(offset > 0 && logger.isDebugEnabled()) {
+				logger.debug("Resuming download of file " + fileId + " at offset " + offset);
+			}
+			return download(fileId, new ChannelResponseHandler(channel, offset, -1));
+		} catch(IOException e) {
+			logger.error(MessageKey.AQWEGA14202E_error_box_content_request_1.getMessage(e.getMessage()));
+			logger.catching(e);
+		}
+		return -1;
+	}
+	
+	/**
+	 * Calls the Box API to download a file to a new temporary file. The caller is responsible for deleting the file.
+	 * 
+	 * @param fileId - id of the file to download
+	 * @return the temporary file, or null if the content could not be retrieved
+	 */
+	public File downloadToTempFile(String fileId) {
+		final File file;
+		try {
+			file = File.createTempFile("box-", ".tmp");
+		} catch(IOException e) {
+			logger.error(MessageKey.AQWEGA14202E_error_box_content_request_1.getMessage(e.getMessage()));
+			logger.catching(e);
+			return null;
+		}
+		if(download(fileId, file) < 0) {
+			if(!file.delete() && logger.isDebugEnabled()) {
+				logger.debug("Could not delete temporary file " + file);
+			}
+			return null;
+		}
+		return file;
+	}
+	
+	private long download(String fileId, ChannelResponseHandler handler) {
+		try {
+			String endpoint = getFileIdEndpoint(DOWNLOAD_ENDPOINT, fileId);
+			if( logger.isDebugEnabled() ) {
+				logger.debug("Download endpoint: " + endpoint);
+			}
+			HttpGet httpget = new HttpGet(url + endpoint);
+			handler.addRangeHeader(httpget);
+			return doGet(httpget, handler).longValue();
+		} catch(IOException e) {
+			logger.error(MessageKey.AQWEGA14202E_error_box_content_request_1.getMessage(e.getMessage()));
+			logger.catching(e);
+		}
+		return handler.getDefaultReturnValue().longValue();
+	}
+	
 	/**
 	 * Response handler for handling response from the search API call
 	 */
@@ -177,15 +371,6 @@ public class BoxRestClient extends SimpleRestClient {
 			}
 			return super.acceptStatusCode(status);
 		}
-		
-		// this is here for debug purposes only
-		@Override
-		protected BoxMetadataResponse parseJSON(String jsonString) throws JsonSyntaxException {
-			if( logger.isDebugEnabled() ) {
-			   logger.debug("Metadata JSON Response: " + jsonString);
-			}
-			return super.parseJSON(jsonString);
-		}
 
 		@Override
 		public BoxMetadataResponse getDefaultReturnValue() {
@@ -209,8 +394,321 @@ public class BoxRestClient extends SimpleRestClient {
 		return metadataResponseHandler.getDefaultReturnValue();
 	}
 	
-	private String getSearchEndpoint( String query) {
-		return SEARCH_ENDPOINT.replace("${query_string}", query);
+	/**
+	 * Response handler for handling response from the file information API call
+	 */
+	private final JSONResponseHandler<BoxFileInfo> fileInfoResponseHandler = new JSONResponseHandler<BoxFileInfo>(gsonUnderscores, BoxFileInfo.class) {
+		@Override
+		protected void validate(BoxFileInfo object) throws InvalidObjectException {
+			if(object.getEtag() == null || object.getSha1() == null) {
+				throw new InvalidObjectException("File information is missing the etag or sha1");
+			}
+		}
+		
+		@Override
+		protected boolean acceptStatusCode(int status) {
+			return status == HttpStatus.SC_NOT_MODIFIED || super.acceptStatusCode(status);
+		}
+		
+		@Override
+		protected BoxFileInfo doHandleResponse(HttpResponse response) throws IOException {
+			if(response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+				return BoxFileInfo.notModified();
+			}
+			return super.doHandleResponse(response);
+		}
+	};
+	
+	/**
+	 * Calls the Box API to retrieve the etag, sha1 and size of a file
+	 * 
+	 * @param fileId - id of the file to retrieve the information for
+	 * @return the file information, or null if it could not be retrieved
+	 */
+	public BoxFileInfo getFileInfo(String fileId) {
+		return getFileInfo(fileId, null);
+	}
+	
+	/**
+	 * Calls the Box API to retrieve the etag, sha1 and size of a file, unless it still has the supplied etag
+	 * 
+	 * @param fileId - id of the file to retrieve the information for
+	 * @param etag - etag of the version of the file already known to the caller, may be null
+	 * @return the file information, one that {@link BoxFileInfo#isNotModified() is not modified} if the file still has the etag, 
+	 * or null if it could not be retrieved
+	 */
+	public BoxFileInfo getFileInfo(String fileId, String etag) {
+		try {
+			String endpoint = getFileIdEndpoint(FILE_INFO_ENDPOINT, fileId);
+			if( logger.isDebugEnabled() ) {
+				logger.debug("File info endpoint: " + endpoint + (etag == null ? "" : ", etag " + etag));
+			}
+			HttpGet httpget = new HttpGet(url + endpoint);
+			if(etag != null) {
+				httpget.setHeader(HttpHeaders.IF_NONE_MATCH, etag);
+			}
+			return doGet(httpget, fileInfoResponseHandler);
+		} catch(IOException e) {
+			logger.error(MessageKey.AQWEGA14203E_error_box_file_info_request_1.getMessage(e.getMessage()));
+			logger.catching(e);
+		}
+		return fileInfoResponseHandler.getDefaultReturnValue();
+	}
+	
+	/**
+	 * Response handler for handling response from the events API call
+	 */
+	private final JSONResponseHandler<BoxEventsResponse> eventsResponseHandler = new JSONResponseHandler<BoxEventsResponse>(gsonUnderscores, BoxEventsResponse.class) {
+		@Override
+		protected void validate(BoxEventsResponse object) throws InvalidObjectException {
+			if(object.getNextStreamPosition() == null) {
+				throw new InvalidObjectException("Events response is missing the next stream position");
+			}
+			if(object.getEntries() == null) {
+				object.setEntries(new ArrayList<BoxEventsResponse.Event>());
+			}
+		}
+	};
+	
+	/**
+	 * Calls the Box API to retrieve the changes made to the files the user can access, starting at a position in the event stream
+	 * 
+	 * @param streamPosition - position to read from, the next stream position of a previous call or {@link #STREAM_POSITION_NOW}
+	 * @param limit - maximum number of events to return, at most {@value #MAX_EVENTS_LIMIT}
+	 * @return the events and the position to read the following ones from, or null if they could not be retrieved
+	 */
+	public BoxEventsResponse getEvents(String streamPosition, int limit) {
+		if(limit < 1 || limit > MAX_EVENTS_LIMIT) {
+			throw new IllegalArgumentException("Events limit must be between 1 and " + MAX_EVENTS_LIMIT + ": " + limit);
+		}
+		try {
+			String endpoint = EVENTS_ENDPOINT
+					.replace("${stream_position}", UrlEscapers.urlFormParameterEscaper().escape(streamPosition))
+					.replace("${limit}", String.valueOf(limit));
+			if( logger.isDebugEnabled() ) {
+				logger.debug("Events endpoint: " + endpoint);
+			}
+			return get(endpoint, eventsResponseHandler);
+		} catch(IOException e) {
+			logger.error(MessageKey.AQWEGA14206E_error_box_events_request_1.getMessage(e.getMessage()));
+			logger.catching(e);
+		}
+		return eventsResponseHandler.getDefaultReturnValue();
+	}
+	
+	/**
+	 * Calls the Box API to retrieve the current position of the event stream
+	 * 
+	 * @return the position, or null if it could not be retrieved
+	 */
+	public String getCurrentStreamPosition() {
+		BoxEventsResponse events = getEvents(STREAM_POSITION_NOW, 1);
+		return events == null ? null : events.getNextStreamPosition();
+	}
+	
+	/**
+	 * Response handler for handling response from the realtime server API call
+	 */
+	private final JSONResponseHandler<BoxRealtimeServerResponse> realtimeServerResponseHandler = new JSONResponseHandler<BoxRealtimeServerResponse>(gsonUnderscores, BoxRealtimeServerResponse.class) {
+		@Override
+		protected void validate(BoxRealtimeServerResponse object) throws InvalidObjectException {
+			if(object.getEntries() == null || object.getEntries().isEmpty() || object.getEntries().get(0).getUrl() == null) {
+				throw new InvalidObjectException("Realtime server response has no server URL");
+			}
+		}
+	};
+	
+	/**
+	 * Calls the Box API to retrieve the server to long-poll for new events
+	 * 
+	 * @return the server, or null if it could not be retrieved
+	 */
+	public BoxRealtimeServerResponse.Server getRealtimeServer() {
+		try {
+			HttpOptions httpoptions = new HttpOptions(url + REALTIME_SERVER_ENDPOINT);
+			httpoptions.addHeader(new BasicHeader(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken));
+			BoxRealtimeServerResponse response = execute(httpoptions, realtimeServerResponseHandler);
+			if(response != null) {
+				return response.getEntries().get(0);
+			}
+		} catch(IOException e) {
+			logger.error(MessageKey.AQWEGA14206E_error_box_events_request_1.getMessage(e.getMessage()));
+			logger.catching(e);
+		}
+		return null;
+	}
+	
+	/**
+	 * Response handler for handling response from a long-poll
+	 */
+	private final JSONResponseHandler<BoxRealtimeServerResponse.Message> longPollResponseHandler = new JSONResponseHandler<BoxRealtimeServerResponse.Message>(gsonUnderscores, BoxRealtimeServerResponse.Message.class) {
+		@Override
+		protected void validate(BoxRealtimeServerResponse.Message object) throws InvalidObjectException {
+		}
+	};
+	
+	/**
+	 * Long-poll a realtime server until there are events after the stream position.
+	 * The request does not hold a thread while it waits, cancel the future to stop waiting.
+	 * 
+	 * @param server - the server, from {@link #getRealtimeServer()}
+	 * @param streamPosition - position after which to wait for events
+	 * @return a future completing with {@value BoxRealtimeServerResponse.Message#NEW_CHANGE} once there are events, 
+	 * {@value BoxRealtimeServerResponse.Message#RECONNECT} if the server timed out or must be polled again, or null if the request failed
+	 */
+	public ListenableFuture<String> longPoll(BoxRealtimeServerResponse.Server server, String streamPosition) {
+		String pollUrl = server.getUrl() + (server.getUrl().indexOf('?') < 0 ? "?" : "&") 
+				+ "stream_position=" + UrlEscapers.urlFormParameterEscaper().escape(streamPosition);
+		if( logger.isDebugEnabled() ) {
+			logger.debug("Long-poll URL: " + pollUrl);
+		}
+		HttpGet httpget = new HttpGet(pollUrl);
+		httpget.setConfig(RequestConfig.custom()
+				.setConnectTimeout(LONG_POLL_CONNECT_TIMEOUT)
+				.setConnectionRequestTimeout(LONG_POLL_CONNECT_TIMEOUT)
+				.setSocketTimeout(server.getRetryTimeout() * 1000 + LONG_POLL_GRACE_MILLIS)
+				.build());
+		ListenableFuture<BoxRealtimeServerResponse.Message> poll = withDefaultOnFailure(doGetAsync(httpget, longPollResponseHandler), 
+				null, MessageKey.AQWEGA14206E_error_box_events_request_1);
+		return Futures.transform(poll, new Function<BoxRealtimeServerResponse.Message, String>() {
+			@Override
+			public String apply(BoxRealtimeServerResponse.Message message) {
+				return message == null ? null : message.getMessage();
+			}
+		});
+	}
+	
+	// Asynchronous variants. Like their blocking counterparts, these never fail: 
+	// any error is logged and the future completes with the default value.
+	
+	public ListenableFuture<BoxSearchResponse> searchAsync(String query) {
+		return doSearchAsync(getSearchEndpoint(query, -1, -1));
+	}
+	
+	private ListenableFuture<BoxSearchResponse> doSearchAsync(String endpoint) {
+		return withDefaultOnFailure(getAsync(endpoint, searchResponseHandler), 
+				searchResponseHandler.getDefaultReturnValue(), MessageKey.AQWEGA14200E_error_box_search_request_1);
+	}
+	
+	public ListenableFuture<String> getContentAsync(String fileId) {
+		return withDefaultOnFailure(getAsync(getFileIdEndpoint(DOWNLOAD_ENDPOINT, fileId), contentResponseHandler), 
+				"", MessageKey.AQWEGA14202E_error_box_content_request_1);
+	}
+	
+	public ListenableFuture<BoxMetadataResponse> getMetadataAsync(String fileId) {
+		return withDefaultOnFailure(getAsync(getFileIdEndpoint(METADATA_ENDPOINT, fileId), metadataResponseHandler), 
+				metadataResponseHandler.getDefaultReturnValue(), MessageKey.AQWEGA14201E_error_box_metadata_request_1);
+	}
+	
+	// Bulk variants. The requests are sent asynchronously, with the same response handlers as the single file methods, 
+	// keeping at most getBulkConcurrency() in flight and fewer while Box is limiting the request rate.
+	// With a deadline set, they give up on the files left once it passes.
+	// A file Box answers with an error status is reported as failed with an HttpResponseException carrying the status.
+	
+	/**
+	 * Calls the Box API to retrieve the metadata of many files in parallel
+	 * 
+	 * @param fileIds - ids of the files to retrieve the metadata for
+	 * @return the metadata by file id, in the order of the ids; a file whose metadata could not be retrieved has empty metadata
+	 */
+	public Map<String, BoxMetadataResponse> getMetadata(Collection<String> fileIds) {
+		BoxBulkFetch.MapSink<BoxMetadataResponse> sink = new BoxBulkFetch.MapSink<>(fileIds, getDefaultMetadata());
+		getMetadata(fileIds, sink);
+		return sink.getResults();
+	}
+	
+	/**
+	 * Calls the Box API to retrieve the metadata of many files in parallel, handing each one to the sink as soon as it is received
+	 * 
+	 * @param fileIds - ids of the files to retrieve the metadata for
+	 * @param sink - receives the metadata of each file, on the calling thread
+	 */
+	public void getMetadata(Collection<String> fileIds, BoxResultSink<? super BoxMetadataResponse> sink) {
+		fetchAll(fileIds, METADATA_ENDPOINT, metadataResponseHandler, sink);
+	}
+	
+	/**
+	 * Calls the Box API to retrieve the contents of many files in parallel, handing each one to the sink as soon as it is received
+	 * 
+	 * @param fileIds - ids of the files to retrieve the contents for
+	 * @param sink - receives the contents of each file, on the calling thread
+	 */
+	public void getContent(Collection<String> fileIds, BoxResultSink<? super String> sink) {
+		fetchAll(fileIds, DOWNLOAD_ENDPOINT, contentResponseHandler, sink);
+	}
+	
+	public int getBulkConcurrency() {
+		return bulkConcurrency;
+	}
+	
+	/**
+	 * Set the maximum number of requests a bulk method keeps in flight at once
+	 */
+	public void setBulkConcurrency(int bulkConcurrency) {
+		if(bulkConcurrency < 1) {
+			throw new IllegalArgumentException("bulkConcurrency must be at least 1: " + bulkConcurrency);
+		}
+		this.bulkConcurrency = bulkConcurrency;
+	}
+	
+	public long getBulkDeadlineMillis() {
+		return bulkDeadlineMillis;
+	}
+	
+	/**
+	 * Set the longest a bulk method may take overall, after which the files without a result are reported as failed.
+	 * Off (0) by default: each request is still bounded by the socket timeout of the HTTP client, which only limits inactivity, 
+	 * so large files that keep streaming are not cut off.
+	 */
+	public void setBulkDeadlineMillis(long bulkDeadlineMillis) {
+		if(bulkDeadlineMillis < 0) {
+			throw new IllegalArgumentException("bulkDeadlineMillis cannot be negative: " + bulkDeadlineMillis);
+		}
+		this.bulkDeadlineMillis = bulkDeadlineMillis;
+	}
+	
+	BoxMetadataResponse getDefaultMetadata() {
+		return metadataResponseHandler.getDefaultReturnValue();
+	}
+	
+	private <T> void fetchAll(Collection<String> fileIds, final String endpointTemplate, HttpStatusAwareResponseHandler<T> responseHandler, BoxResultSink<? super T> sink) {
+		final RateLimitAwareResponseHandler<T> handler = new RateLimitAwareResponseHandler<T>(new StrictResponseHandler<T>(responseHandler));
+		AsyncFunction<String, T> request = new AsyncFunction<String, T>() {
+			@Override
+			public ListenableFuture<T> apply(String fileId) {
+				return getAsync(getFileIdEndpoint(endpointTemplate, fileId), handler);
+			}
+		};
+		new BoxBulkFetch<T>(request, sink, bulkConcurrency, getRetryPolicy(), bulkDeadlineMillis).run(fileIds);
+	}
+	
+	private <T> ListenableFuture<T> withDefaultOnFailure(ListenableFuture<T> future, final T defaultValue, final MessageKey errorMessage) {
+		return Futures.withFallback(future, new FutureFallback<T>() {
+			@Override
+			public ListenableFuture<T> create(Throwable t) {
+				logger.error(errorMessage.getMessage(t.getMessage()));
+				logger.catching(t);
+				return Futures.immediateFuture(defaultValue);
+			}
+		});
+	}
+	
+	private String getSearchEndpoint(String query, int offset, int limit, String... fields) {
+		final Escaper escaper = UrlEscapers.urlFormParameterEscaper();
+		String endpoint = SEARCH_ENDPOINT
+				.replace("${query_string}", escaper.escape(query))
+				.replace("${fields}", escaper.escape(fields.length == 0 ? DEFAULT_SEARCH_FIELDS : Joiner.on(',').join(fields)));
+		if(limit > 0) {
+			endpoint += "&offset=" + offset + "&limit=" + limit;
+		}
+		return endpoint;
+	}
+	
+	private static int checkPageSize(int pageSize) {
+		if(pageSize < 1 || pageSize > MAX_SEARCH_PAGE_SIZE) {
+			throw new IllegalArgumentException("Search page size must be between 1 and " + MAX_SEARCH_PAGE_SIZE + ": " + pageSize);
+		}
+		return pageSize;
 	}
 
 	private String getFileIdEndpoint(String endpoint, String fileId) {
@@ -16,6 +16,14 @@
 
 package com.ibm.watson.app.common.services.box.impl;
 
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.Map;
+
+import com.ibm.watson.app.common.services.box.BoxResultSink;
+import com.ibm.watson.app.common.services.box.BoxSearchIterator;
 import com.ibm.watson.app.common.services.box.BoxService;
 import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse;
 import com.ibm.watson.app.common.services.box.model.BoxSearchResponse;
@@ -41,14 +49,64 @@ public class BoxServiceImpl implements BoxService {
 		return client.getContent(fileId);
 	}
 
+	@Override
+	public long writeFileContents(String fileId, OutputStream out) {
+		return client.getContent(fileId, out);
+	}
+
+	@Override
+	public long writeFileContents(String fileId, WritableByteChannel target) {
+		return client.getContent(fileId, target);
+	}
+
+	@Override
+	public long writeFileContents(String fileId, long offset, long length, WritableByteChannel target) {
+		return client.getContent(fileId, offset, length, target);
+	}
+
+	@Override
+	public long downloadFile(String fileId, File file) {
+		return client.download(fileId, file);
+	}
+
+	@Override
+	public File downloadToTempFile(String fileId) {
+		return client.downloadToTempFile(fileId);
+	}
+
+	@Override
+	public void getFileContents(Collection<String> fileIds, BoxResultSink<? super String> sink) {
+		client.getContent(fileIds, sink);
+	}
+
 	@Override
 	public BoxSearchResponse search(String query) {
 		return client.search(query);
 	}
 
+	@Override
+	public BoxSearchResponse search(String query, int offset, int limit, String... fields) {
+		return client.search(query, offset, limit, fields);
+	}
+
+	@Override
+	public BoxSearchIterator searchAll(String query, int pageSize, String... fields) {
+		return client.searchAll(query, pageSize, fields);
+	}
+
 	@Override
 	public BoxMetadataResponse getMetadata(String fileId) {
 		return client.getMetadata(fileId);
 	}
 
+	@Override
+	public Map<String, BoxMetadataResponse> getMetadata(Collection<String> fileIds) {
+		return client.getMetadata(fileIds);
+	}
+
+	@Override
+	public void getMetadata(Collection<String> fileIds, BoxResultSink<? super BoxMetadataResponse> sink) {
+		client.getMetadata(fileIds, sink);
+	}
+
 }
@@ -0,0 +1,326 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ibm.watson.app.common.services.box.BoxResultSink;
+import com.ibm.watson.app.common.services.box.BoxSearchIterator;
+import com.ibm.watson.app.common.services.box.BoxService;
+import com.ibm.watson.app.common.services.box.impl.BoxContentCache.Entry;
+import com.ibm.watson.app.common.services.box.model.BoxFileInfo;
+import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse;
+import com.ibm.watson.app.common.services.box.model.BoxSearchResponse;
+import com.ibm.watson.app.common.util.metrics.JmxMetricsExporter;
+import com.ibm.watson.app.common.util.rest.MessageKey;
+
+/**
+ * A {@link BoxService} that serves file contents and metadata from a {@link BoxContentCache}.
+ * <p>A file read again while its entry is fresh is served without calling Box. Once the entry is stale, the file information 
+ * is requested with the cached etag in an {@code If-None-Match} header, and the contents are only downloaded if Box reports 
+ * a SHA-1 that is not cached yet. Metadata is cached until the entry is stale, or the file changes.</p>
+ * <p>Whenever the cache cannot be used, for example because Box could not be reached or the file is too large, 
+ * the request is passed on to Box as if there was no cache. Searches are never cached.</p>
+ * <p>The bulk metadata methods serve the cached metadata first, then fetch the rest in parallel. 
+ * The bulk contents method reads the files one at a time through the cache, so that they can be cached.</p>
+ */
+public class CachingBoxService implements BoxService {
+	private static final Logger logger = LogManager.getLogger();
+
+	private final BoxRestClient client;
+	private final BoxContentCache cache;
+
+	public CachingBoxService(BoxRestClient client, BoxContentCache cache) {
+		this.client = client;
+		this.cache = cache;
+	}
+
+	@Override
+	public String getFileContents(String fileId) {
+		ByteBuffer content = getCachedContent(fileId);
+		return content == null ? client.getContent(fileId) : StandardCharsets.UTF_8.decode(content).toString();
+	}
+
+	@Override
+	public long writeFileContents(String fileId, OutputStream out) {
+		return writeFileContents(fileId, Channels.newChannel(out));
+	}
+
+	@Override
+	public long writeFileContents(String fileId, WritableByteChannel target) {
+		return writeFileContents(fileId, 0, -1, target);
+	}
+
+	@Override
+	public long writeFileContents(String fileId, long offset, long length, WritableByteChannel target) {
+		ByteBuffer content = getCachedContent(fileId);
+		if(content == null) {
+			return client.getContent(fileId, offset, length, target);
+		}
+		try {
+			return write(content, offset, length, target);
+		} catch(IOException e) {
+			logger.error(MessageKey.AQWEGA14202E_error_box_content_request_1.getMessage(e.getMessage()));
+			logger.catching(e);
+		}
+		return -1;
+	}
+
+	@Override
+	public long downloadFile(String fileId, File file) {
+		ByteBuffer content = getCachedContent(fileId);
+		if(content == null) {
+			return client.download(fileId, file);
+		}
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			final long offset = channel.size();
+			channel.position(offset);
+			return write(content, offset, -1, channel);
+		} catch(IOException e) {
+			logger.error(MessageKey.AQWEGA14202E_error_box_content_request_1.getMessage(e.getMessage()));
+			logger.catching(e);
+		}
+		return -1;
+	}
+
+	@Override
+	public File downloadToTempFile(String fileId) {
+		final File file;
+		try {
+			file = File.createTempFile("box-", ".tmp");
+		} catch(IOException e) {
+			logger.error(MessageKey.AQWEGA14202E_error_box_content_request_1.getMessage(e.getMessage()));
+			logger.catching(e);
+			return null;
+		}
+		if(downloadFile(fileId, file) < 0) {
+			if(!file.delete() && logger.isDebugEnabled()) {
+				logger.debug("Could not delete temporary file " + file);
+			}
+			return null;
+		}
+		return file;
+	}
+
+	@Override
+	public void getFileContents(Collection<String> fileIds, BoxResultSink<? super String> sink) {
+		for(String fileId : fileIds) {
+			sink.onResult(fileId, getFileContents(fileId));
+		}
+	}
+
+	@Override
+	public BoxSearchResponse search(String query) {
+		return client.search(query);
+	}
+
+	@Override
+	public BoxSearchResponse search(String query, int offset, int limit, String... fields) {
+		return client.search(query, offset, limit, fields);
+	}
+
+	@Override
+	public BoxSearchIterator searchAll(String query, int pageSize, String... fields) {
+		return client.searchAll(query, pageSize, fields);
+	}
+
+	@Override
+	public BoxMetadataResponse getMetadata(String fileId) {
+		BoxMetadataResponse metadata = getCachedMetadata(fileId);
+		if(metadata == null) {
+			metadata = client.getMetadata(fileId);
+			putMetadata(fileId, metadata);
+		}
+		return metadata;
+	}
+
+	private BoxMetadataResponse getCachedMetadata(String fileId) {
+		Entry entry = cache.getEntry(fileId);
+		if(entry != null && entry.getMetadata() != null && cache.isFresh(entry.getMetadataFetchedAt())) {
+			cache.recordMetadataHit();
+			return entry.getMetadata();
+		}
+		return null;
+	}
+
+	private void putMetadata(String fileId, BoxMetadataResponse metadata) {
+		cache.recordMetadataMiss();
+		// Errors also return an empty response, which should not be cached
+		if(metadata != null && metadata.getEntries() != null && !metadata.getEntries().isEmpty()) {
+			Entry entry = cache.getEntry(fileId);
+			cache.putEntry(fileId, (entry == null ? Entry.NONE : entry).withMetadata(metadata, System.currentTimeMillis()));
+		}
+	}
+
+	@Override
+	public Map<String, BoxMetadataResponse> getMetadata(Collection<String> fileIds) {
+		BoxBulkFetch.MapSink<BoxMetadataResponse> sink = new BoxBulkFetch.MapSink<>(fileIds, client.getDefaultMetadata());
+		getMetadata(fileIds, sink);
+		return sink.getResults();
+	}
+
+	@Override
+	public void getMetadata(Collection<String> fileIds, final BoxResultSink<? super BoxMetadataResponse> sink) {
+		List<String> missing = new ArrayList<>();
+		for(String fileId : fileIds) {
+			BoxMetadataResponse metadata = getCachedMetadata(fileId);
+			if(metadata != null) {
+				sink.onResult(fileId, metadata);
+			} else {
+				missing.add(fileId);
+			}
+		}
+		if(missing.isEmpty()) {
+			return;
+		}
+		
+		client.getMetadata(missing, new BoxResultSink<BoxMetadataResponse>() {
+			@Override
+			public void onResult(String fileId, BoxMetadataResponse result) {
+				putMetadata(fileId, result);
+				sink.onResult(fileId, result);
+			}
+
+			@Override
+			public void onFailure(String fileId, Throwable error) {
+				cache.recordMetadataMiss();
+				sink.onFailure(fileId, error);
+			}
+		});
+	}
+
+	public BoxContentCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Register the cache metrics as an MXBean named {@code com.ibm.watson.app.common:type=BoxContentCache,name="<cache directory>"}
+	 * @return The name the metrics were registered under
+	 */
+	public ObjectName registerMetrics(MBeanServer server) throws JMException {
+		ObjectName name = new ObjectName(JmxMetricsExporter.DOMAIN + ":type=BoxContentCache,name=" + ObjectName.quote(cache.getDirectory().getPath()));
+		server.registerMBean(cache, name);
+		return name;
+	}
+
+	/**
+	 * Get the contents of a file from the cache, checking with Box whether it changed and downloading it as needed
+	 * @return A buffer over the contents, or null if the cache could not be used
+	 */
+	private ByteBuffer getCachedContent(String fileId) {
+		try {
+			Entry entry = cache.getEntry(fileId);
+			if(entry != null && cache.isFresh(entry.getValidatedAt())) {
+				ByteBuffer content = cache.getContent(entry.getSha1());
+				if(content != null) {
+					cache.recordHit(content.remaining());
+					return content;
+				}
+			}
+
+			final String etag = entry == null ? null : entry.getEtag();
+			BoxFileInfo info = client.getFileInfo(fileId, etag);
+			if(info == null) {
+				cache.invalidate(fileId);
+				return null;
+			}
+			if(etag != null) {
+				cache.recordRevalidation(!info.isNotModified());
+			}
+
+			final long now = System.currentTimeMillis();
+			if(info.isNotModified()) {
+				entry = entry.withVersion(etag, entry.getSha1(), now);
+			} else {
+				if(!cache.canStore(info.getSize())) {
+					if(logger.isDebugEnabled()) {
+						logger.debug("Not caching file " + fileId + " of " + info.getSize() + " bytes");
+					}
+					return null;
+				}
+				if(info.getSha1() == null || info.getSha1().isEmpty()) {
+					// The contents are stored by SHA-1, without one they can only be downloaded straight from Box
+					if(logger.isDebugEnabled()) {
+						logger.debug("Not caching file " + fileId + " without a SHA-1");
+					}
+					return null;
+				}
+				entry = (entry == null ? Entry.NONE : entry).withVersion(info.getEtag(), info.getSha1(), now);
+			}
+
+			ByteBuffer content = cache.getContent(entry.getSha1());
+			if(content != null) {
+				cache.recordHit(content.remaining());
+			} else {
+				content = download(fileId, entry.getSha1());
+				if(content == null) {
+					return null;
+				}
+				cache.recordMiss(content.remaining());
+			}
+			cache.putEntry(fileId, entry);
+			return content;
+		} catch(IOException e) {
+			logger.error(MessageKey.AQWEGA14204E_error_box_content_cache_2.getMessage(fileId, e.getMessage()));
+			logger.catching(e);
+		}
+		return null;
+	}
+
+	private ByteBuffer download(String fileId, String sha1) throws IOException {
+		File downloaded = cache.createTempFile();
+		if(client.download(fileId, downloaded) < 0) {
+			if(!downloaded.delete() && logger.isDebugEnabled()) {
+				logger.debug("Could not delete " + downloaded);
+			}
+			return null;
+		}
+		return cache.putContent(sha1, downloaded);
+	}
+
+	private static long write(ByteBuffer content, long offset, long length, WritableByteChannel target) throws IOException {
+		if(offset >= content.limit()) {
+			return 0;
+		}
+		content.position((int) offset);
+		if(length >= 0 && offset + length < content.limit()) {
+			content.limit((int) (offset + length));
+		}
+		long written = 0;
+		while(content.hasRemaining()) {
+			written += target.write(content);
+		}
+		return written;
+	}
+}
@@ -0,0 +1,174 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box.model;
+
+import java.util.List;
+
+import com.google.gson.annotations.Since;
+
+public class BoxEventsResponse {
+	
+	/**
+	 * A file or folder, as reported in the source of an event
+	 */
+	public static class Item {
+		@Since(1.0)
+		String type;
+		
+		@Since(1.0)
+		String id;
+		
+		@Since(1.0)
+		String name;
+		
+		@Since(1.0)
+		String etag;
+		
+		@Since(1.0)
+		Item parent;
+		
+		@Since(1.0)
+		ItemCollection pathCollection;
+		
+		public Item() {}
+		
+		public Item(String type, String id, String name, Item parent) {
+			this.type = type;
+			this.id = id;
+			this.name = name;
+			this.parent = parent;
+		}
+		
+		public String getType() {
+			return type;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+
+		public Item getParent() {
+			return parent;
+		}
+
+		/**
+		 * Get the folders from the root down to the parent of this item
+		 */
+		public ItemCollection getPathCollection() {
+			return pathCollection;
+		}
+
+		public void setPathCollection(ItemCollection pathCollection) {
+			this.pathCollection = pathCollection;
+		}
+	}
+	
+	public static class ItemCollection {
+		@Since(1.0)
+		int totalCount;
+		
+		@Since(1.0)
+		List<Item> entries;
+		
+		public ItemCollection() {}
+		
+		public ItemCollection(List<Item> entries) {
+			this.totalCount = entries.size();
+			this.entries = entries;
+		}
+
+		public int getTotalCount() {
+			return totalCount;
+		}
+
+		public List<Item> getEntries() {
+			return entries;
+		}
+	}
+	
+	public static class Event {
+		@Since(1.0)
+		String eventId;
+		
+		@Since(1.0)
+		String eventType;
+		
+		@Since(1.0)
+		Item source;
+		
+		public Event() {}
+		
+		public Event(String eventId, String eventType, Item source) {
+			this.eventId = eventId;
+			this.eventType = eventType;
+			this.source = source;
+		}
+
+		public String getEventId() {
+			return eventId;
+		}
+
+		public String getEventType() {
+			return eventType;
+		}
+
+		public Item getSource() {
+			return source;
+		}
+	}
+	
+	@Since(1.0)
+	int chunkSize;
+	
+	// Box sends the position as a number, it is kept as a String since it is only ever sent back
+	@Since(1.0)
+	String nextStreamPosition;
+	
+	@Since(1.0)
+	List<Event> entries;
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	public String getNextStreamPosition() {
+		return nextStreamPosition;
+	}
+
+	public void setNextStreamPosition(String nextStreamPosition) {
+		this.nextStreamPosition = nextStreamPosition;
+	}
+
+	public List<Event> getEntries() {
+		return entries;
+	}
+
+	public void setEntries(List<Event> entries) {
+		this.entries = entries;
+	}
+
+}
@@ -0,0 +1,80 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box.model;
+
+import com.google.gson.annotations.Since;
+
+/**
+ * The fields of a Box file that identify its current version
+ */
+public class BoxFileInfo {
+	
+	@Since(1.0)
+	String id;
+	
+	@Since(1.0)
+	String etag;
+	
+	@Since(1.0)
+	String sha1;
+	
+	@Since(1.0)
+	long size;
+	
+	// Not part of the Box response, set when a conditional request found the file unchanged
+	transient boolean notModified;
+	
+	public BoxFileInfo() {}
+	
+	public BoxFileInfo(String id, String etag, String sha1, long size) {
+		this.id = id;
+		this.etag = etag;
+		this.sha1 = sha1;
+		this.size = size;
+	}
+	
+	/**
+	 * Create the info returned when the file has not changed since the etag sent with the request
+	 */
+	public static BoxFileInfo notModified() {
+		BoxFileInfo info = new BoxFileInfo();
+		info.notModified = true;
+		return info;
+	}
+	
+	public String getId() {
+		return id;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	public String getSha1() {
+		return sha1;
+	}
+
+	public long getSize() {
+		return size;
+	}
+	
+	/**
+	 * Check if the file has not changed since the etag sent with the request, in which case no other field is set
+	 */
+	public boolean isNotModified() {
+		return notModified;
+	}
+
+}
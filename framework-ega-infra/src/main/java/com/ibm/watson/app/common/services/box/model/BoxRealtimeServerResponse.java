@@ -0,0 +1,98 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box.model;
+
+import java.util.List;
+
+import com.google.gson.annotations.Since;
+
+/**
+ * The servers to long-poll for new events, as returned by an {@code OPTIONS} request to the events endpoint
+ */
+public class BoxRealtimeServerResponse {
+	
+	public static class Server {
+		@Since(1.0)
+		String url;
+		
+		@Since(1.0)
+		int retryTimeout;
+		
+		@Since(1.0)
+		int maxRetries;
+		
+		public Server() {}
+		
+		public Server(String url, int retryTimeout, int maxRetries) {
+			this.url = url;
+			this.retryTimeout = retryTimeout;
+			this.maxRetries = maxRetries;
+		}
+
+		/**
+		 * Get the URL to long-poll, to which the stream position is added
+		 */
+		public String getUrl() {
+			return url;
+		}
+
+		/**
+		 * Get the number of seconds after which the server answers a long-poll with {@code reconnect} if nothing changed
+		 */
+		public int getRetryTimeout() {
+			return retryTimeout;
+		}
+
+		/**
+		 * Get the number of times the URL can be long-polled before a new one must be requested
+		 */
+		public int getMaxRetries() {
+			return maxRetries;
+		}
+	}
+	
+	/**
+	 * The answer to a long-poll
+	 */
+	public static class Message {
+		public static final String NEW_CHANGE = "new_change";
+		public static final String RECONNECT = "reconnect";
+		
+		@Since(1.0)
+		String message;
+		
+		public Message() {}
+		
+		public Message(String message) {
+			this.message = message;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+	}
+	
+	@Since(1.0)
+	List<Server> entries;
+
+	public List<Server> getEntries() {
+		return entries;
+	}
+
+	public void setEntries(List<Server> entries) {
+		this.entries = entries;
+	}
+
+}
@@ -60,6 +60,12 @@ public class BoxSearchResponse {
 	@Since(1.0)
 	List<FileInfo> entries;
 
+	@Since(1.0)
+	int offset;
+	
+	@Since(1.0)
+	int limit;
+
 	public int getTotalCount() {
 		return totalCount;
 	}
@@ -76,4 +82,20 @@ public class BoxSearchResponse {
 		this.entries = entries;
 	}
 
+	public int getOffset() {
+		return offset;
+	}
+
+	public void setOffset(int offset) {
+		this.offset = offset;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
 }
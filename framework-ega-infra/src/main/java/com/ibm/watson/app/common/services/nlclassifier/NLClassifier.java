@@ -16,10 +16,13 @@
 package com.ibm.watson.app.common.services.nlclassifier;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierBatchResult;
 
 public interface NLClassifier {
 	/**
@@ -66,6 +69,14 @@ public interface NLClassifier {
 	 */
 	public NLClassiferClassifyResponse classify(String text);
 
+	/**
+	 * Submit classify requests to the classifier service for each of the given texts
+	 * <p>Requests are sent concurrently. A failure classifying one text is reported in that text's result and does not affect the others.</p>
+	 * @param texts The texts to classify
+	 * @return List&lt;NLClassifierBatchResult&gt; One result per text, in the same order as the input
+	 */
+	public List<NLClassifierBatchResult> classifyAll(Collection<String> texts);
+
 	/**
 	 * Delete this classifier instance
 	 * @return boolean true on success, false on failure
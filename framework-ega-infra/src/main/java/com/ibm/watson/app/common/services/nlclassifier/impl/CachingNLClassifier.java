@@ -0,0 +1,113 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierBatchResult;
+
+/**
+ * An {@link NLClassifier} that answers repeated classify requests from a {@link NLClassifierResultCache}
+ * and only goes to the classifier service on a cache miss.
+ * The responses of a retrained or deleted classifier are dropped when {@link #getStatus()} notices, 
+ * or when the status tracker the {@link CachingNLClassifierService} subscribed the cache to does.
+ */
+public class CachingNLClassifier implements NLClassifier {
+	private final NLClassifier delegate;
+	private final NLClassifierResultCache cache;
+
+	public CachingNLClassifier(NLClassifier delegate, NLClassifierResultCache cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	@Override
+	public String getId() {
+		return delegate.getId();
+	}
+
+	@Override
+	public Status getStatus() {
+		Status status = delegate.getStatus();
+		cache.statusUpdated(getId(), status);
+		return status;
+	}
+
+	@Override
+	public NLClassiferClassifyResponse classify(String text) {
+		NLClassiferClassifyResponse response = cache.get(getId(), text);
+		if(response == null) {
+			response = delegate.classify(text);
+			cache.put(getId(), text, response);
+		}
+		return response;
+	}
+
+	@Override
+	public List<NLClassifierBatchResult> classifyAll(Collection<String> texts) {
+		List<NLClassifierBatchResult> results = new ArrayList<>(texts.size());
+		List<Integer> missIndexes = new ArrayList<>();
+		List<String> misses = new ArrayList<>();
+		for(String text : texts) {
+			NLClassiferClassifyResponse response = cache.get(getId(), text);
+			if(response == null) {
+				missIndexes.add(results.size());
+				misses.add(text);
+			}
+			results.add(response == null ? null : NLClassifierBatchResult.success(text, response));
+		}
+		
+		if(!misses.isEmpty()) {
+			List<NLClassifierBatchResult> missResults = delegate.classifyAll(misses);
+			for(int i = 0; i < missResults.size(); i++) {
+				NLClassifierBatchResult result = missResults.get(i);
+				if(result.isSuccessful()) {
+					cache.put(getId(), result.getText(), result.getResponse());
+				}
+				results.set(missIndexes.get(i), result);
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public boolean delete() {
+		boolean deleted = delegate.delete();
+		if(deleted) {
+			if(delegate instanceof NLClassifierImpl && ((NLClassifierImpl) delegate).getRestClient() != null) {
+				((NLClassifierImpl) delegate).removeStatusListener(cache);
+			}
+			cache.invalidate(getId());
+		}
+		return deleted;
+	}
+
+	/**
+	 * Get the classifier this object wraps
+	 */
+	public NLClassifier getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public String toString() {
+		return delegate.toString();
+	}
+}
@@ -0,0 +1,128 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier;
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifierService;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierTrainingData;
+
+/**
+ * An {@link NLClassifierService} that wraps every classifier it hands out in a {@link CachingNLClassifier}.
+ * All classifiers share the same {@link NLClassifierResultCache}.
+ * <p>The first time a classifier served by a {@link NLClassifierRestClient} is handed out, the cache is subscribed to 
+ * its status tracker, so the responses of a retrained or deleted classifier are dropped even if nobody calls 
+ * {@link NLClassifier#getStatus()}. The tracker polls the classifier until it is deleted or {@link #shutdown()} is called.</p>
+ */
+public class CachingNLClassifierService implements NLClassifierService {
+	private final NLClassifierService delegate;
+	private final NLClassifierResultCache cache;
+	// The classifiers the cache is subscribed to, by ID
+	private final ConcurrentMap<String, NLClassifierImpl> subscribed = new ConcurrentHashMap<>();
+
+	public CachingNLClassifierService(NLClassifierService delegate) {
+		this(delegate, new NLClassifierResultCache());
+	}
+
+	public CachingNLClassifierService(NLClassifierService delegate, NLClassifierResultCache cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	@Override
+	public NLClassifier createClassifier(NLClassifierTrainingData trainingData) {
+		return wrap(delegate.createClassifier(trainingData));
+	}
+
+	@Override
+	public List<NLClassifier> getClassifiers() {
+		List<NLClassifier> classifiers = delegate.getClassifiers();
+		List<NLClassifier> wrapped = new ArrayList<>(classifiers.size());
+		for(NLClassifier classifier : classifiers) {
+			wrapped.add(wrap(classifier));
+		}
+		return wrapped;
+	}
+
+	@Override
+	public NLClassifier getClassifier(String classifierId) {
+		return wrap(delegate.getClassifier(classifierId));
+	}
+
+	public NLClassifierResultCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Unsubscribe the cache from the status of every classifier, which stops their background polling
+	 */
+	public void shutdown() {
+		for(NLClassifierImpl classifier : subscribed.values()) {
+			classifier.removeStatusListener(cache);
+		}
+		subscribed.clear();
+	}
+
+	@Override
+	public void initialize() {
+		delegate.initialize();
+	}
+
+	@Override
+	public void setConfig(Object object) {
+		delegate.setConfig(object);
+	}
+
+	@Override
+	public Class<?> getConfigurationClass() {
+		return delegate.getConfigurationClass();
+	}
+
+	@Override
+	public String getName() {
+		return delegate.getName();
+	}
+
+	@Override
+	public String getLabel() {
+		return delegate.getLabel();
+	}
+
+	@Override
+	public List<String> getTags() {
+		return delegate.getTags();
+	}
+
+	@Override
+	public String getPlan() {
+		return delegate.getPlan();
+	}
+
+	private NLClassifier wrap(NLClassifier classifier) {
+		if(classifier == null) {
+			return null;
+		}
+		if(classifier instanceof NLClassifierImpl && ((NLClassifierImpl) classifier).getRestClient() != null 
+				&& subscribed.putIfAbsent(classifier.getId(), (NLClassifierImpl) classifier) == null) {
+			((NLClassifierImpl) classifier).addStatusListener(cache);
+		}
+		return new CachingNLClassifier(classifier, cache);
+	}
+}
@@ -0,0 +1,70 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+
+/**
+ * The answer of one classifier of a {@link NLClassifierEnsemble}
+ */
+public class EnsembleAnswer {
+	private final String classifierId;
+	private final double weight;
+	private final NLClassiferClassifyResponse response;
+
+	EnsembleAnswer(String classifierId, double weight, NLClassiferClassifyResponse response) {
+		this.classifierId = classifierId;
+		this.weight = weight;
+		this.response = response;
+	}
+
+	public String getClassifierId() {
+		return classifierId;
+	}
+
+	/**
+	 * Get the weight the classifier was added to the ensemble with
+	 */
+	public double getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Get the response of the classifier, or {@code null} if it failed
+	 */
+	public NLClassiferClassifyResponse getResponse() {
+		return response;
+	}
+
+	/**
+	 * Check if the classifier returned at least one class
+	 */
+	public boolean hasClasses() {
+		return response != null && response.getClasses() != null && !response.getClasses().isEmpty();
+	}
+
+	/**
+	 * Get the confidence of the top class, or 0 if there are no classes
+	 */
+	public double getTopConfidence() {
+		return hasClasses() ? response.getClasses().get(0).getConfidence() : 0;
+	}
+
+	@Override
+	public String toString() {
+		return "EnsembleAnswer [classifierId=" + classifierId + ", weight=" + weight + ", topConfidence=" + getTopConfidence() + "]";
+	}
+}
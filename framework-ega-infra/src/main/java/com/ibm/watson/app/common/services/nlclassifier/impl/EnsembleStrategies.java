@@ -0,0 +1,155 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse.NLClassifiedClass;
+
+/**
+ * Common {@link EnsembleStrategy ensemble strategies}
+ */
+public final class EnsembleStrategies {
+	private static final Comparator<NLClassifiedClass> BY_CONFIDENCE = new Comparator<NLClassifiedClass>() {
+		@Override
+		public int compare(NLClassifiedClass o1, NLClassifiedClass o2) {
+			return Double.compare(o2.getConfidence(), o1.getConfidence());
+		}
+	};
+
+	/**
+	 * Waits for every classifier, and gives each class the highest confidence any classifier gave it
+	 */
+	public static final EnsembleStrategy MAX = new EnsembleStrategy() {
+		@Override
+		public boolean isDecided(List<EnsembleAnswer> answers) {
+			return false;
+		}
+
+		@Override
+		public NLClassiferClassifyResponse merge(List<EnsembleAnswer> answers) {
+			Map<String, Double> confidences = new LinkedHashMap<>();
+			for(EnsembleAnswer answer : answers) {
+				if(answer.hasClasses()) {
+					for(NLClassifiedClass c : answer.getResponse().getClasses()) {
+						Double confidence = confidences.get(c.getClassName());
+						if(confidence == null || c.getConfidence() > confidence) {
+							confidences.put(c.getClassName(), c.getConfidence());
+						}
+					}
+				}
+			}
+			return createResponse(confidences);
+		}
+	};
+
+	/**
+	 * Waits for every classifier, and averages the confidences of each class weighted by the classifier weights.
+	 * Classifiers that answered without the class count as a confidence of 0, classifiers that failed are left out
+	 */
+	public static final EnsembleStrategy WEIGHTED_AVERAGE = new EnsembleStrategy() {
+		@Override
+		public boolean isDecided(List<EnsembleAnswer> answers) {
+			return false;
+		}
+
+		@Override
+		public NLClassiferClassifyResponse merge(List<EnsembleAnswer> answers) {
+			Map<String, Double> confidences = new LinkedHashMap<>();
+			double totalWeight = 0;
+			for(EnsembleAnswer answer : answers) {
+				if(answer.hasClasses()) {
+					totalWeight += answer.getWeight();
+					for(NLClassifiedClass c : answer.getResponse().getClasses()) {
+						Double confidence = confidences.get(c.getClassName());
+						confidences.put(c.getClassName(), (confidence == null ? 0 : confidence) + answer.getWeight() * c.getConfidence());
+					}
+				}
+			}
+			if(totalWeight > 0) {
+				for(Map.Entry<String, Double> entry : confidences.entrySet()) {
+					entry.setValue(entry.getValue() / totalWeight);
+				}
+			}
+			return createResponse(confidences);
+		}
+	};
+
+	private EnsembleStrategies() {
+	}
+
+	/**
+	 * Answers with the first classifier whose top class reaches the threshold, without waiting for the others.
+	 * When none does, the answer with the most confident top class is used
+	 */
+	public static EnsembleStrategy firstAbove(final double threshold) {
+		return new EnsembleStrategy() {
+			@Override
+			public boolean isDecided(List<EnsembleAnswer> answers) {
+				return firstAbove(answers, threshold) != null;
+			}
+
+			@Override
+			public NLClassiferClassifyResponse merge(List<EnsembleAnswer> answers) {
+				EnsembleAnswer best = firstAbove(answers, threshold);
+				if(best == null) {
+					for(EnsembleAnswer answer : answers) {
+						if(answer.hasClasses() && (best == null || answer.getTopConfidence() > best.getTopConfidence())) {
+							best = answer;
+						}
+					}
+				}
+				return best == null ? createResponse(Collections.<String, Double>emptyMap()) : best.getResponse();
+			}
+
+			@Override
+			public String toString() {
+				return "firstAbove(" + threshold + ")";
+			}
+		};
+	}
+
+	private static EnsembleAnswer firstAbove(List<EnsembleAnswer> answers, double threshold) {
+		for(EnsembleAnswer answer : answers) {
+			if(answer.hasClasses() && answer.getTopConfidence() >= threshold) {
+				return answer;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Build a response holding the merged confidences, sorted from most to least confident
+	 */
+	static NLClassiferClassifyResponse createResponse(Map<String, Double> confidences) {
+		List<NLClassifiedClass> classes = new ArrayList<>(confidences.size());
+		for(Map.Entry<String, Double> entry : confidences.entrySet()) {
+			classes.add(new NLClassifiedClass(entry.getKey(), entry.getValue()));
+		}
+		Collections.sort(classes, BY_CONFIDENCE);
+
+		NLClassiferClassifyResponse response = new NLClassiferClassifyResponse();
+		response.setTopClass(classes.isEmpty() ? null : classes.get(0).getClassName());
+		response.setClasses(classes);
+		return response;
+	}
+}
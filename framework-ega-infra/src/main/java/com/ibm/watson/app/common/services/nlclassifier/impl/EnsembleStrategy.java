@@ -0,0 +1,38 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.List;
+
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+
+/**
+ * Merges the answers of the classifiers in a {@link NLClassifierEnsemble} into a single response
+ * @see EnsembleStrategies
+ */
+public interface EnsembleStrategy {
+	/**
+	 * Check if the answers received so far are enough, so the ensemble can answer without waiting for the other classifiers
+	 * @param answers The answers received so far, in the order they arrived
+	 */
+	public boolean isDecided(List<EnsembleAnswer> answers);
+
+	/**
+	 * Merge the answers received, which may be all of them or only those received before the deadline
+	 * @param answers The answers received, in the order they arrived, never empty
+	 */
+	public NLClassiferClassifyResponse merge(List<EnsembleAnswer> answers);
+}
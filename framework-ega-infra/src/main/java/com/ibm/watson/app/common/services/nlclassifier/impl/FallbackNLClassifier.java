@@ -0,0 +1,283 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierBatchResult;
+import com.ibm.watson.app.common.util.rest.MessageKey;
+
+/**
+ * An {@link NLClassifier} that combines a classifier from the classifier service with a {@link LocalNLClassifier}
+ * trained from the same data. How the two are combined is decided by the {@link Mode}.
+ * <p>Every routing decision is recorded in a {@link NLClassifierRoutingMetrics}, which also holds the threshold
+ * used in {@link Mode#FIRST_PASS FIRST_PASS} mode, so it can be tuned while the application runs.</p>
+ * <p>In {@code FIRST_PASS} mode a sample of the confident local answers, see {@link NLClassifierRoutingMetrics#getShadowRate()}, 
+ * is also sent to the service in the background and compared, so the agreement above the threshold is known as well. 
+ * Shadow requests are best effort: they are dropped when too many are waiting.</p>
+ */
+public class FallbackNLClassifier implements NLClassifier {
+	private static final Logger logger = LogManager.getLogger();
+
+	// Shared by all fallback classifiers, a single thread so shadow requests never add much load to the service
+	private static final Executor DEFAULT_SHADOW_EXECUTOR = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, 
+			new ArrayBlockingQueue<Runnable>(64), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("nlclassifier-shadow-%d").build(), 
+			new ThreadPoolExecutor.DiscardPolicy());
+
+	/**
+	 * How classify requests are split between the service and the local classifier
+	 */
+	public enum Mode {
+		/**
+		 * Ask the service, and only use the local classifier when the service fails or returns no classes
+		 */
+		FALLBACK,
+		/**
+		 * Ask the local classifier, and only go to the service when the local top class is not confident enough.
+		 * The service answer is then returned, and compared with the local one
+		 */
+		FIRST_PASS,
+		/**
+		 * Never go to the service
+		 */
+		LOCAL_ONLY;
+	}
+
+	private final NLClassifier remote;
+	private final LocalNLClassifier local;
+	private final Mode mode;
+	private final NLClassifierRoutingMetrics metrics;
+	private volatile Executor shadowExecutor = DEFAULT_SHADOW_EXECUTOR;
+
+	/**
+	 * @param remote The classifier on the service
+	 * @param local The local classifier trained with the same data
+	 * @param mode How to combine the two classifiers
+	 * @param threshold The confidence the local top class needs in {@link Mode#FIRST_PASS FIRST_PASS} mode to be returned without asking the service
+	 */
+	public FallbackNLClassifier(NLClassifier remote, LocalNLClassifier local, Mode mode, double threshold) {
+		this(remote, local, mode, new NLClassifierRoutingMetrics(threshold));
+	}
+
+	/**
+	 * @param remote The classifier on the service
+	 * @param local The local classifier trained with the same data
+	 * @param mode How to combine the two classifiers
+	 * @param metrics Holds the threshold, and records the routing decisions
+	 */
+	public FallbackNLClassifier(NLClassifier remote, LocalNLClassifier local, Mode mode, NLClassifierRoutingMetrics metrics) {
+		this.remote = remote;
+		this.local = local;
+		this.mode = mode;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public String getId() {
+		return remote.getId();
+	}
+
+	/**
+	 * Get the status of the classifier on the service, 
+	 * unless it cannot take requests and the local classifier can stand in for it
+	 */
+	@Override
+	public Status getStatus() {
+		if(mode == Mode.LOCAL_ONLY) {
+			return local.getStatus();
+		}
+		Status status = remote.getStatus();
+		return status == Status.AVAILABLE ? status : local.getStatus();
+	}
+
+	@Override
+	public NLClassiferClassifyResponse classify(String text) {
+		final long start = System.nanoTime();
+		NLClassiferClassifyResponse localResponse = null;
+		if(mode != Mode.FALLBACK) {
+			localResponse = local.classify(text);
+			if(mode == Mode.LOCAL_ONLY || metrics.isConfident(topConfidence(localResponse))) {
+				metrics.answeredLocally(System.nanoTime() - start);
+				if(mode == Mode.FIRST_PASS && metrics.shouldShadow()) {
+					shadow(Collections.singletonList(text), Collections.singletonList(localResponse));
+				}
+				return localResponse;
+			}
+		}
+
+		Throwable error = null;
+		NLClassiferClassifyResponse response = null;
+		try {
+			response = remote.classify(text);
+		} catch(RuntimeException e) {
+			error = e;
+		}
+		metrics.sentRemotely(System.nanoTime() - start);
+		return resolve(text, response, error, localResponse);
+	}
+
+	@Override
+	public List<NLClassifierBatchResult> classifyAll(Collection<String> texts) {
+		final List<NLClassifierBatchResult> results = new ArrayList<>(texts.size());
+		final List<Integer> remoteIndexes = new ArrayList<>();
+		final List<String> remoteTexts = new ArrayList<>();
+		final List<NLClassiferClassifyResponse> localResponses = new ArrayList<>();
+		final List<String> shadowTexts = new ArrayList<>();
+		final List<NLClassiferClassifyResponse> shadowResponses = new ArrayList<>();
+		for(String text : texts) {
+			NLClassiferClassifyResponse localResponse = null;
+			if(mode != Mode.FALLBACK) {
+				localResponse = local.classify(text);
+				if(mode == Mode.LOCAL_ONLY || metrics.isConfident(topConfidence(localResponse))) {
+					metrics.answeredLocally(-1);
+					results.add(NLClassifierBatchResult.success(text, localResponse));
+					if(mode == Mode.FIRST_PASS && metrics.shouldShadow()) {
+						shadowTexts.add(text);
+						shadowResponses.add(localResponse);
+					}
+					continue;
+				}
+			}
+			remoteIndexes.add(results.size());
+			remoteTexts.add(text);
+			localResponses.add(localResponse);
+			results.add(null);
+		}
+
+		if(!remoteTexts.isEmpty()) {
+			final List<NLClassifierBatchResult> remoteResults = remote.classifyAll(remoteTexts);
+			for(int i = 0; i < remoteResults.size(); i++) {
+				NLClassifierBatchResult result = remoteResults.get(i);
+				metrics.sentRemotely(-1);
+				NLClassiferClassifyResponse response = resolve(result.getText(), result.getResponse(), result.getError(), localResponses.get(i));
+				results.set(remoteIndexes.get(i), response == result.getResponse() ? result : NLClassifierBatchResult.success(result.getText(), response));
+			}
+		}
+		if(!shadowTexts.isEmpty()) {
+			shadow(shadowTexts, shadowResponses);
+		}
+		return results;
+	}
+
+	@Override
+	public boolean delete() {
+		return remote.delete();
+	}
+
+	/**
+	 * Get the metrics this classifier records its routing decisions in
+	 */
+	public NLClassifierRoutingMetrics getRoutingMetrics() {
+		return metrics;
+	}
+
+	public NLClassifier getRemote() {
+		return remote;
+	}
+
+	public LocalNLClassifier getLocal() {
+		return local;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Set the executor shadow requests are sent from, by default a single background thread shared by all fallback classifiers
+	 */
+	public void setShadowExecutor(Executor shadowExecutor) {
+		this.shadowExecutor = shadowExecutor;
+	}
+
+	/**
+	 * Send texts already answered locally to the service in the background, only to compare the answers
+	 */
+	private void shadow(final List<String> texts, final List<NLClassiferClassifyResponse> localResponses) {
+		shadowExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					List<NLClassifierBatchResult> results = texts.size() == 1 
+							? Collections.singletonList(NLClassifierBatchResult.success(texts.get(0), remote.classify(texts.get(0)))) 
+							: remote.classifyAll(texts);
+					for(int i = 0; i < results.size(); i++) {
+						NLClassiferClassifyResponse response = results.get(i).getResponse();
+						if(results.get(i).getError() == null && hasClasses(response)) {
+							metrics.shadowCompared(topConfidence(localResponses.get(i)), topClass(localResponses.get(i)).equals(topClass(response)));
+						}
+					}
+				} catch(RuntimeException e) {
+					// Nobody is waiting for the answer, and the failure says nothing about the local classifier
+					logger.catching(Level.DEBUG, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Pick the answer for a text that was sent to the service, falling back to the local classification when the service failed
+	 * @param localResponse The local classification, if it was already computed
+	 */
+	private NLClassiferClassifyResponse resolve(String text, NLClassiferClassifyResponse response, Throwable error, NLClassiferClassifyResponse localResponse) {
+		if(error == null && hasClasses(response)) {
+			if(localResponse != null) {
+				metrics.compared(topConfidence(localResponse), topClass(localResponse).equals(topClass(response)));
+			}
+			return response;
+		}
+
+		if(logger.isWarnEnabled()) {
+			logger.warn(MessageKey.AQWEGA02005W_classifier_using_local_fallback_2.getMessage(getId(), error == null ? "no classes" : error.toString()));
+		}
+		if(error != null) {
+			logger.catching(error);
+		}
+		metrics.fellBack();
+		return localResponse != null ? localResponse : local.classify(text);
+	}
+
+	private static double topConfidence(NLClassiferClassifyResponse response) {
+		return response.getClasses().get(0).getConfidence();
+	}
+
+	private static String topClass(NLClassiferClassifyResponse response) {
+		return response.getTopClass() != null ? response.getTopClass() : response.getClasses().get(0).getClassName();
+	}
+
+	private static boolean hasClasses(NLClassiferClassifyResponse response) {
+		return response != null && response.getClasses() != null && !response.getClasses().isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return remote.toString();
+	}
+}
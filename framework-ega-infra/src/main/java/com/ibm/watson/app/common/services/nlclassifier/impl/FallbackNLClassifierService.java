@@ -0,0 +1,190 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier;
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifierService;
+import com.ibm.watson.app.common.services.nlclassifier.impl.FallbackNLClassifier.Mode;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierTrainingData;
+import com.ibm.watson.app.common.util.metrics.JmxMetricsExporter;
+
+/**
+ * An {@link NLClassifierService} that keeps a {@link LocalNLClassifier} next to the classifiers on the service.
+ * <p>Classifiers created through this service get a local classifier trained from the same data. 
+ * Classifiers that were created elsewhere get one once their training data is passed to {@link #train(String, NLClassifierTrainingData)}. 
+ * Every classifier with a local classifier is handed out as a {@link FallbackNLClassifier}, all others are returned as they are. 
+ * A local classifier without a classifier from the service, in {@link Mode#LOCAL_ONLY LOCAL_ONLY} mode or while the service 
+ * cannot be reached, is handed out as a {@code LOCAL_ONLY} fallback classifier, so its answers are counted in the metrics too.</p>
+ * <p>All fallback classifiers share one {@link NLClassifierRoutingMetrics}, see {@link #registerMetrics(MBeanServer)} to expose it over JMX.</p>
+ */
+public class FallbackNLClassifierService implements NLClassifierService {
+	/**
+	 * The default confidence the local top class needs in {@link Mode#FIRST_PASS FIRST_PASS} mode
+	 */
+	public static final double DEFAULT_THRESHOLD = 0.9;
+
+	private final NLClassifierService delegate;
+	private final Mode mode;
+	private final NLClassifierRoutingMetrics metrics;
+	private final ConcurrentMap<String, LocalNLClassifier> localClassifiers = new ConcurrentHashMap<>();
+
+	public FallbackNLClassifierService(NLClassifierService delegate) {
+		this(delegate, Mode.FALLBACK, DEFAULT_THRESHOLD);
+	}
+
+	public FallbackNLClassifierService(NLClassifierService delegate, Mode mode, double threshold) {
+		this.delegate = delegate;
+		this.mode = mode;
+		this.metrics = new NLClassifierRoutingMetrics(threshold);
+	}
+
+	/**
+	 * Train a local classifier for the classifier with the given ID, replacing any previous one
+	 * @param classifierId The ID of the classifier on the service
+	 * @param trainingData The data the classifier on the service was trained with
+	 * @return The local classifier
+	 * @throws IllegalArgumentException if the training data has no instances with both text and classes
+	 */
+	public LocalNLClassifier train(String classifierId, NLClassifierTrainingData trainingData) {
+		LocalNLClassifier local = new LocalNLClassifier(classifierId, trainingData);
+		localClassifiers.put(classifierId, local);
+		return local;
+	}
+
+	/**
+	 * Get the local classifier for the classifier with the given ID
+	 * @return The local classifier, or {@code null} if none was trained
+	 */
+	public LocalNLClassifier getLocalClassifier(String classifierId) {
+		return localClassifiers.get(classifierId);
+	}
+
+	/**
+	 * Forget the local classifier for the classifier with the given ID
+	 */
+	public void removeLocalClassifier(String classifierId) {
+		localClassifiers.remove(classifierId);
+	}
+
+	@Override
+	public NLClassifier createClassifier(NLClassifierTrainingData trainingData) {
+		NLClassifier classifier = delegate.createClassifier(trainingData);
+		if(classifier != null) {
+			train(classifier.getId(), trainingData);
+		}
+		return wrap(classifier);
+	}
+
+	@Override
+	public List<NLClassifier> getClassifiers() {
+		List<NLClassifier> classifiers = delegate.getClassifiers();
+		List<NLClassifier> wrapped = new ArrayList<>(classifiers.size());
+		for(NLClassifier classifier : classifiers) {
+			wrapped.add(wrap(classifier));
+		}
+		return wrapped;
+	}
+
+	/**
+	 * Get the classifier identified by a given ID.
+	 * When the service does not return it, for instance because it cannot be reached, the local classifier is returned if there is one.
+	 */
+	@Override
+	public NLClassifier getClassifier(String classifierId) {
+		NLClassifier classifier = mode == Mode.LOCAL_ONLY ? null : delegate.getClassifier(classifierId);
+		return classifier == null ? wrapLocal(localClassifiers.get(classifierId)) : wrap(classifier);
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Get the metrics shared by all the fallback classifiers of this service
+	 */
+	public NLClassifierRoutingMetrics getRoutingMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Register the routing metrics as an MXBean named {@code com.ibm.watson.app.common:type=NLClassifierRouting,name="<service name>"}
+	 * @return The name the metrics were registered under
+	 */
+	public ObjectName registerMetrics(MBeanServer server) throws JMException {
+		ObjectName name = new ObjectName(JmxMetricsExporter.DOMAIN + ":type=NLClassifierRouting,name=" + ObjectName.quote(String.valueOf(getName())));
+		server.registerMBean(metrics, name);
+		return name;
+	}
+
+	@Override
+	public void initialize() {
+		delegate.initialize();
+	}
+
+	@Override
+	public void setConfig(Object object) {
+		delegate.setConfig(object);
+	}
+
+	@Override
+	public Class<?> getConfigurationClass() {
+		return delegate.getConfigurationClass();
+	}
+
+	@Override
+	public String getName() {
+		return delegate.getName();
+	}
+
+	@Override
+	public String getLabel() {
+		return delegate.getLabel();
+	}
+
+	@Override
+	public List<String> getTags() {
+		return delegate.getTags();
+	}
+
+	@Override
+	public String getPlan() {
+		return delegate.getPlan();
+	}
+
+	private NLClassifier wrap(NLClassifier classifier) {
+		if(classifier == null) {
+			return null;
+		}
+		LocalNLClassifier local = localClassifiers.get(classifier.getId());
+		return local == null ? classifier : new FallbackNLClassifier(classifier, local, mode, metrics);
+	}
+
+	/**
+	 * Wrap a local classifier that has no classifier on the service to go with it
+	 */
+	private NLClassifier wrapLocal(LocalNLClassifier local) {
+		return local == null ? null : new FallbackNLClassifier(local, local, Mode.LOCAL_ONLY, metrics);
+	}
+}
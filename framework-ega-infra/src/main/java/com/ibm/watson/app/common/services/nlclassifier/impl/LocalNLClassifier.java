@@ -0,0 +1,129 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse.NLClassifiedClass;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierBatchResult;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierTrainingData;
+
+/**
+ * An {@link NLClassifier} that is trained and runs inside the JVM.
+ * <p>The classifier is trained from the same {@link NLClassifierTrainingData} as the classifier service, 
+ * when it is constructed, and classifies text in microseconds without any network round trip. 
+ * It is much less accurate than the service, and is meant as a fallback when the service cannot be reached,
+ * or as a first pass filter in front of it, see {@link FallbackNLClassifier}.</p>
+ */
+public class LocalNLClassifier implements NLClassifier {
+	// The classifier service never returns more than 10 classes
+	private static final int MAX_CLASSES = 10;
+
+	private static final Comparator<NLClassifiedClass> BY_CONFIDENCE = new Comparator<NLClassifiedClass>() {
+		@Override
+		public int compare(NLClassifiedClass o1, NLClassifiedClass o2) {
+			return Double.compare(o2.getConfidence(), o1.getConfidence());
+		}
+	};
+
+	private final String id;
+	private final NaiveBayesModel model;
+
+	/**
+	 * Train a local classifier
+	 * @param id The ID reported by this classifier, typically the ID of the service classifier trained with the same data
+	 * @param trainingData The data with which to train the classifier
+	 * @throws IllegalArgumentException if the training data has no instances with both text and classes
+	 */
+	public LocalNLClassifier(String id, NLClassifierTrainingData trainingData) {
+		this.id = id;
+		this.model = NaiveBayesModel.train(trainingData.getTrainingData());
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Local classifiers are trained when they are created, so they are always {@link NLClassifier.Status#AVAILABLE AVAILABLE}
+	 */
+	@Override
+	public Status getStatus() {
+		return Status.AVAILABLE;
+	}
+
+	@Override
+	public NLClassiferClassifyResponse classify(String text) {
+		final String[] classNames = model.getClasses();
+		final double[] confidences = model.classify(text);
+		List<NLClassifiedClass> classes = new ArrayList<>(classNames.length);
+		for(int c = 0; c < classNames.length; c++) {
+			classes.add(new NLClassifiedClass(classNames[c], confidences[c]));
+		}
+		Collections.sort(classes, BY_CONFIDENCE);
+		if(classes.size() > MAX_CLASSES) {
+			classes = new ArrayList<>(classes.subList(0, MAX_CLASSES));
+		}
+
+		NLClassiferClassifyResponse response = new NLClassiferClassifyResponse();
+		response.setClassifierId(id);
+		response.setText(text);
+		response.setTopClass(classes.get(0).getClassName());
+		response.setClasses(classes);
+		return response;
+	}
+
+	@Override
+	public List<NLClassifierBatchResult> classifyAll(Collection<String> texts) {
+		List<NLClassifierBatchResult> results = new ArrayList<>(texts.size());
+		for(String text : texts) {
+			try {
+				results.add(NLClassifierBatchResult.success(text, classify(text)));
+			} catch(RuntimeException e) {
+				results.add(NLClassifierBatchResult.failure(text, e));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * A local classifier has nothing to delete on the service, drop the reference to it instead
+	 * @return always false
+	 */
+	@Override
+	public boolean delete() {
+		return false;
+	}
+
+	/**
+	 * Get the number of distinct terms, unigrams and bigrams, this classifier was trained with
+	 */
+	public int getVocabularySize() {
+		return model.getVocabularySize();
+	}
+
+	@Override
+	public String toString() {
+		return "LocalNLClassifier [id=" + id + ", classes=" + model.getClasses().length + ", terms=" + model.getVocabularySize() + "]";
+	}
+}
@@ -0,0 +1,303 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier;
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifierService;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.util.rest.MessageKey;
+
+/**
+ * Sends the same text to several classifiers at once, and merges their answers with an {@link EnsembleStrategy}.
+ * <p>Classifiers served by the classifier service are asked through {@link NLClassifierImpl#classifyAsync(String)},
+ * so all requests share the connection pool of the asynchronous client and are in flight at the same time.
+ * Any other classifier is run on the {@link #setExecutor(Executor) executor}, by default a bounded pool of daemon 
+ * threads shared by all ensembles.
+ * The ensemble answers as soon as every classifier has answered, or the strategy has decided, or the deadline passes,
+ * so its latency stays close to that of the slowest classifier it needs rather than the sum of all of them. 
+ * Once it has answered, the requests still outstanding are cancelled.</p>
+ */
+public class NLClassifierEnsemble {
+	private static final Logger logger = LogManager.getLogger();
+
+	/**
+	 * The number of threads of the default executor
+	 */
+	public static final int DEFAULT_THREADS = 8;
+
+	private static final Executor DEFAULT_EXECUTOR = createDefaultExecutor();
+
+	private static class Member {
+		private final NLClassifier classifier;
+		private final double weight;
+
+		Member(NLClassifier classifier, double weight) {
+			this.classifier = classifier;
+			this.weight = weight;
+		}
+	}
+
+	private final EnsembleStrategy strategy;
+	private final List<Member> members = new CopyOnWriteArrayList<>();
+	private volatile Executor executor = DEFAULT_EXECUTOR;
+
+	public NLClassifierEnsemble(EnsembleStrategy strategy) {
+		this.strategy = strategy;
+	}
+
+	/**
+	 * Create an ensemble of the given classifiers, all with a weight of 1
+	 */
+	public NLClassifierEnsemble(EnsembleStrategy strategy, Collection<? extends NLClassifier> classifiers) {
+		this(strategy);
+		for(NLClassifier classifier : classifiers) {
+			add(classifier);
+		}
+	}
+
+	/**
+	 * Create an ensemble of all the classifiers of a service, all with a weight of 1
+	 */
+	public static NLClassifierEnsemble of(NLClassifierService service, EnsembleStrategy strategy) {
+		return new NLClassifierEnsemble(strategy, service.getClassifiers());
+	}
+
+	/**
+	 * Add a classifier with a weight of 1
+	 */
+	public NLClassifierEnsemble add(NLClassifier classifier) {
+		return add(classifier, 1);
+	}
+
+	/**
+	 * Add a classifier
+	 * @param weight The weight of the classifier, used by strategies such as {@link EnsembleStrategies#WEIGHTED_AVERAGE}
+	 */
+	public NLClassifierEnsemble add(NLClassifier classifier, double weight) {
+		if(weight < 0) {
+			throw new IllegalArgumentException("weight must not be negative: " + weight);
+		}
+		members.add(new Member(classifier, weight));
+		return this;
+	}
+
+	public List<NLClassifier> getClassifiers() {
+		List<NLClassifier> classifiers = new ArrayList<>(members.size());
+		for(Member member : members) {
+			classifiers.add(member.classifier);
+		}
+		return classifiers;
+	}
+
+	public EnsembleStrategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * Set the executor running the classifiers that cannot classify asynchronously. 
+	 * With an executor running them on the calling thread, they run one after the other and the deadline is only 
+	 * checked once they have all answered.
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Classify the text, waiting until every classifier has answered or the strategy has decided
+	 */
+	public NLClassiferClassifyResponse classify(String text) {
+		return Futures.getUnchecked(classifyAsync(text));
+	}
+
+	/**
+	 * Classify the text, waiting at most until the deadline. 
+	 * When the deadline passes first, the answers received so far are merged, 
+	 * and the response has no classes if there are none.
+	 */
+	public NLClassiferClassifyResponse classify(String text, long timeout, TimeUnit unit) {
+		Request request = send(text);
+		try {
+			return request.result.get(timeout, unit);
+		} catch(TimeoutException e) {
+			return request.finish();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return request.finish();
+		} catch(ExecutionException e) {
+			throw new UncheckedExecutionException(e.getCause());
+		}
+	}
+
+	/**
+	 * Classify the text without blocking.
+	 * The future completes once every classifier has answered or the strategy has decided
+	 */
+	public ListenableFuture<NLClassiferClassifyResponse> classifyAsync(String text) {
+		return send(text).result;
+	}
+
+	private Request send(final String text) {
+		final List<Member> members = new ArrayList<>(this.members);
+		final Request request = new Request(text, members.size());
+		if(members.isEmpty()) {
+			request.finish();
+		}
+		for(final Member member : members) {
+			if(request.result.isDone()) {
+				// Decided by the classifiers already asked
+				break;
+			}
+			ListenableFuture<NLClassiferClassifyResponse> future;
+			if(member.classifier instanceof NLClassifierImpl) {
+				future = ((NLClassifierImpl) member.classifier).classifyAsync(text);
+			} else {
+				ListenableFutureTask<NLClassiferClassifyResponse> task = ListenableFutureTask.create(new Callable<NLClassiferClassifyResponse>() {
+					@Override
+					public NLClassiferClassifyResponse call() throws Exception {
+						return member.classifier.classify(text);
+					}
+				});
+				executor.execute(task);
+				future = task;
+			}
+			request.track(future);
+			Futures.addCallback(future, new FutureCallback<NLClassiferClassifyResponse>() {
+				@Override
+				public void onSuccess(NLClassiferClassifyResponse response) {
+					request.answer(new EnsembleAnswer(member.classifier.getId(), member.weight, response));
+				}
+
+				@Override
+				public void onFailure(Throwable t) {
+					if(request.result.isDone()) {
+						// Cancelled, or too late to matter
+						return;
+					}
+					logger.error(MessageKey.AQWEGA14010E_error_when_trying_classify_text_1.getMessage(t.getMessage()));
+					logger.catching(t);
+					request.answer(new EnsembleAnswer(member.classifier.getId(), member.weight, null));
+				}
+			});
+		}
+		return request;
+	}
+
+	/**
+	 * Collects the answers to one text until the ensemble answers. Later answers are ignored
+	 */
+	private class Request {
+		private final String text;
+		private final int expected;
+		private final List<EnsembleAnswer> answers = new ArrayList<>();
+		private final SettableFuture<NLClassiferClassifyResponse> result = SettableFuture.create();
+		private final List<Future<?>> outstanding = new CopyOnWriteArrayList<>();
+
+		Request(String text, int expected) {
+			this.text = text;
+			this.expected = expected;
+			result.addListener(new Runnable() {
+				@Override
+				public void run() {
+					for(Future<?> future : outstanding) {
+						future.cancel(true);
+					}
+				}
+			}, MoreExecutors.directExecutor());
+		}
+
+		/**
+		 * Cancel the request to a classifier once the ensemble has answered
+		 */
+		void track(Future<?> future) {
+			outstanding.add(future);
+			if(result.isDone()) {
+				future.cancel(true);
+			}
+		}
+
+		synchronized void answer(EnsembleAnswer answer) {
+			if(result.isDone()) {
+				return;
+			}
+			answers.add(answer);
+			try {
+				if(answers.size() == expected || strategy.isDecided(Collections.unmodifiableList(answers))) {
+					result.set(merge());
+				}
+			} catch(RuntimeException e) {
+				result.setException(e);
+			}
+		}
+
+		/**
+		 * Answer with what has been received so far, unless the ensemble already answered
+		 */
+		synchronized NLClassiferClassifyResponse finish() {
+			if(!result.isDone()) {
+				result.set(merge());
+			}
+			return Futures.getUnchecked(result);
+		}
+
+		private NLClassiferClassifyResponse merge() {
+			NLClassiferClassifyResponse response = answers.isEmpty() 
+					? EnsembleStrategies.createResponse(Collections.<String, Double>emptyMap()) 
+					: strategy.merge(Collections.unmodifiableList(answers));
+			if(response.getText() == null) {
+				// The strategy may hand back the response of a classifier, which is not ours to change
+				response = response.copy();
+				response.setText(text);
+			}
+			return response;
+		}
+	}
+
+	private static Executor createDefaultExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS, 60, TimeUnit.SECONDS, 
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("nlclassifier-ensemble-%d").build());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+}
@@ -15,10 +15,15 @@
 
 package com.ibm.watson.app.common.services.nlclassifier.impl;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.ibm.watson.app.common.services.nlclassifier.NLClassifier;
+import com.ibm.watson.app.common.services.nlclassifier.impl.NLClassifierStatusTracker.StatusListener;
 import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierBatchResult;
 import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierStatusResponse;
 import com.ibm.watson.app.common.util.rest.MessageKey;
 
@@ -44,11 +49,16 @@ public class NLClassifierImpl implements NLClassifier {
 		this.client = client;
 	}
 	
+	NLClassifierRestClient getRestClient() {
+		return client;
+	}
+	
 	/**
-	 * Update the status details of this NLClassifier object
+	 * Update the status details of this NLClassifier object.
+	 * The status is shared with all other objects for this classifier, and only fetched again once it is no longer fresh.
 	 */
 	private void updateStatus() {
-		NLClassifierStatusResponse statusPayload = client.getClassifierStatus(getId());
+		NLClassifierStatusResponse statusPayload = client.getStatusTracker().getStatus(getId());
 		status = statusPayload.getStatus();
 		statusDescription = statusPayload.getStatusDescription();
 	}
@@ -62,6 +72,25 @@ public class NLClassifierImpl implements NLClassifier {
 		return client.classify(getId(), text);
 	}
 
+	/* (non-Javadoc)
+	 * @see com.ibm.watson.app.common.services.nlclassifier.NLClassifier#classifyAll(java.util.Collection)
+	 */
+	@Override
+	public List<NLClassifierBatchResult> classifyAll(Collection<String> texts) {
+		Objects.requireNonNull(client, MessageKey.AQWEGA14101E_rest_clien_not_established.getMessage().getFormattedMessage());
+		return client.classifyAll(getId(), texts);
+	}
+
+	/**
+	 * Submit a classify request without blocking the calling thread.
+	 * @param text The text to classify
+	 * @return A future holding the classification results, or the default (empty) response if the request failed
+	 */
+	public ListenableFuture<NLClassiferClassifyResponse> classifyAsync(String text) {
+		Objects.requireNonNull(client, MessageKey.AQWEGA14101E_rest_clien_not_established.getMessage().getFormattedMessage());
+		return client.classifyAsync(getId(), text);
+	}
+
 	/* (non-Javadoc)
 	 * @see com.ibm.watson.app.common.services.nlclassifier.NLClassifier#delete()
 	 */
@@ -92,6 +121,20 @@ public class NLClassifierImpl implements NLClassifier {
 		return status;
 	}
 
+	/**
+	 * Be notified when the status of this classifier changes, instead of polling {@link #getStatus()}
+	 * @param listener The listener to notify
+	 */
+	public void addStatusListener(StatusListener listener) {
+		Objects.requireNonNull(client, MessageKey.AQWEGA14101E_rest_clien_not_established.getMessage().getFormattedMessage());
+		client.getStatusTracker().subscribe(getId(), listener);
+	}
+
+	public void removeStatusListener(StatusListener listener) {
+		Objects.requireNonNull(client, MessageKey.AQWEGA14101E_rest_clien_not_established.getMessage().getFormattedMessage());
+		client.getStatusTracker().unsubscribe(getId(), listener);
+	}
+
 	public String getStatusDescription() {
 		return statusDescription;
 	}
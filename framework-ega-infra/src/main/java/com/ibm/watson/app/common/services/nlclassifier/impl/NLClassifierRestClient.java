@@ -15,38 +15,60 @@
 
 package com.ibm.watson.app.common.services.nlclassifier.impl;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InvalidObjectException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import com.ibm.watson.app.common.services.nlclassifier.NLClassifier;
 import com.ibm.watson.app.common.services.nlclassifier.NLClassifier.Status;
 import com.ibm.watson.app.common.services.nlclassifier.impl.NLClassifierConfiguration.NLClassifierCredentials;
 import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
 import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse.NLClassifiedClass;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierBatchResult;
 import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierClassifyRequest;
 import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierStatusResponse;
 import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierTrainingData;
+import com.ibm.watson.app.common.services.nlclassifier.model.TrainingDataReader;
 import com.ibm.watson.app.common.util.rest.BooleanResponseHandler;
+import com.ibm.watson.app.common.util.rest.HttpStatusAwareResponseHandler;
 import com.ibm.watson.app.common.util.rest.JSONEntity;
 import com.ibm.watson.app.common.util.rest.JSONResponseHandler;
+import com.ibm.watson.app.common.util.rest.MultipartEntity;
 import com.ibm.watson.app.common.util.rest.SimpleRestClient;
+import com.ibm.watson.app.common.util.rest.StrictResponseHandler;
+import com.ibm.watson.app.common.util.rest.UploadProgressListener;
 import com.ibm.watson.app.common.util.rest.MessageKey;
 
 public class NLClassifierRestClient extends SimpleRestClient {
@@ -56,6 +78,8 @@ public class NLClassifierRestClient extends SimpleRestClient {
 	public static final String CLASSIFIER_ENDPOINT = "/v1/classifiers/${classifier_id}";
 	public static final String CLASSIFY_ENDPOINT = "/v1/classifiers/${classifier_id}/classify";
 	
+	public static final int DEFAULT_BATCH_CONCURRENCY = 10;
+	
 	private final JsonParser jsonParser = new JsonParser();
 	private final Gson gson = new GsonBuilder()
 		.setVersion(1.0)
@@ -64,17 +88,17 @@ public class NLClassifierRestClient extends SimpleRestClient {
 	
 	private final JSONResponseHandler<List<NLClassifier>> classifiersResponseHandler = new NLClassifierJsonResponseHandler<List<NLClassifier>>(this) {		
 		@Override
-		protected List<NLClassifier> parseJSON(String jsonString) throws JsonSyntaxException {
-			JsonElement json = jsonParser.parse(jsonString);
+		protected List<NLClassifier> parseJSON(JsonReader reader) throws JsonSyntaxException, JsonIOException {
+			JsonElement json = jsonParser.parse(reader);
 			if(!json.isJsonObject()) {
 				logger.error(MessageKey.AQWEGA14003E_expected_object_when_parse_json_response.getMessage());
-				return getDefaultReturnValue();
+				return fallback();
 			}
 			
 			JsonObject jsonObject = json.getAsJsonObject();
 			if(!jsonObject.has("classifiers")) {
 				logger.error(MessageKey.AQWEGA14004E_missing_key_classifiers.getMessage());
-				return getDefaultReturnValue();
+				return fallback();
 			}
 			
 			final Type classifierListType = new TypeToken<List<NLClassifierImpl>>() {}.getType();
@@ -102,8 +126,8 @@ public class NLClassifierRestClient extends SimpleRestClient {
 	};
 	private final JSONResponseHandler<NLClassifier> classifierResponseHandler = new NLClassifierJsonResponseHandler<NLClassifier>(this) {
 		@Override
-		protected NLClassifier parseJSON(String jsonString) throws JsonSyntaxException {
-			NLClassifierImpl classifier = gson.fromJson(jsonString, NLClassifierImpl.class);
+		protected NLClassifier parseJSON(JsonReader reader) throws JsonSyntaxException, JsonIOException {
+			NLClassifierImpl classifier = gson.fromJson(reader, NLClassifierImpl.class);
 			classifier.setRestClient(classifierClient);
 			return classifier;
 		}
@@ -125,6 +149,19 @@ public class NLClassifierRestClient extends SimpleRestClient {
 			}
 		}
 		
+		// The service answers 404 once the classifier is deleted, which is a definite answer rather than an error
+		@Override
+		public NLClassifierStatusResponse handleResponse(HttpResponse response) throws IOException {
+			if(response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+				EntityUtils.consume(response.getEntity());
+				NLClassifierStatusResponse nonExistent = new NLClassifierStatusResponse();
+				nonExistent.setStatus(Status.NON_EXISTENT);
+				nonExistent.setStatusDescription("The classifier does not exist");
+				return nonExistent;
+			}
+			return super.handleResponse(response);
+		}
+		
 		@Override
 		public NLClassifierStatusResponse getDefaultReturnValue() {
 			NLClassifierStatusResponse response = new NLClassifierStatusResponse();
@@ -148,8 +185,19 @@ public class NLClassifierRestClient extends SimpleRestClient {
 			return response;
 		}
 	};	
+	private final StrictResponseHandler<NLClassiferClassifyResponse> strictClassifyResponseHandler = new StrictResponseHandler<NLClassiferClassifyResponse>(classifyResponseHandler);
 	private final BooleanResponseHandler booleanHTTPStatusResponseHandler = new BooleanResponseHandler();
 	
+	private volatile int batchConcurrency = DEFAULT_BATCH_CONCURRENCY;
+	private volatile boolean compressUploads;
+	
+	private final NLClassifierStatusTracker statusTracker = new NLClassifierStatusTracker(this);
+	private final NLClassifyRequestCoalescer requestCoalescer = new NLClassifyRequestCoalescer(this);
+	
+	{
+		addEndpointTemplates(CLASSIFIERS_ENDPOINT, CLASSIFIER_ENDPOINT, CLASSIFY_ENDPOINT);
+	}
+	
 	public NLClassifierRestClient(NLClassifierCredentials creds) {
 		this(creds.getUrl(), creds.getUsername(), creds.getPassword());
 	}
@@ -163,12 +211,79 @@ public class NLClassifierRestClient extends SimpleRestClient {
 		super(url, client);
 	}
 	
+	// Used in testing
+	NLClassifierRestClient(String url, CloseableHttpClient client, CloseableHttpAsyncClient asyncClient) {
+		super(url, client, asyncClient);
+	}
+	
+	/**
+	 * Create a classifier and start training it with the supplied data.
+	 * The data is sent as CSV, written straight to the connection.
+	 * @return The classifier, or {@code null} if it could not be created
+	 */
 	public NLClassifier createClassifier(NLClassifierTrainingData trainingData) {
-		// the classifier is currently trained using cURL commands
-		// for now return a default value until we have a need for this to be implemented
+		return createClassifier(NLClassifierTrainingUpload.create(trainingData), null);
+	}
+	
+	/**
+	 * Create a classifier and start training it with the data in a file, which is streamed from disk.
+	 * CSV files, the native format of the service, are sent as they are. 
+	 * Other files are read as {@link NLClassifierTrainingData} JSON, and converted to CSV while they are sent.
+	 * @param file The training data file
+	 * @param language The language of the training data, or {@code null} to use the one in a JSON file, or English
+	 * @param name The name of the classifier, or {@code null} to use the one in a JSON file, or the file name
+	 * @param progressListener Notified as the data is sent, may be {@code null}
+	 * @return The classifier, or {@code null} if it could not be created
+	 */
+	public NLClassifier createClassifier(File file, String language, String name, UploadProgressListener progressListener) {
+		try {
+			return createClassifier(NLClassifierTrainingUpload.create(file, language, name), progressListener);
+		} catch(IOException e) {
+			logger.error(MessageKey.AQWEGA14008E_error_when_trying_create_classifier_1.getMessage(e.getMessage()));
+			logger.catching(e);
+		}
+		return classifierResponseHandler.getDefaultReturnValue();
+	}
+	
+	/**
+	 * Create a classifier and start training it with the instances of a reader, which are converted to CSV while they are sent.
+	 * The reader is consumed and closed, so the request is never retried.
+	 * @param reader The training data
+	 * @param language The language of the training data, or {@code null} for English
+	 * @param name The name of the classifier, may be {@code null}
+	 * @param progressListener Notified as the data is sent, may be {@code null}
+	 * @return The classifier, or {@code null} if it could not be created
+	 */
+	public NLClassifier createClassifier(TrainingDataReader reader, String language, String name, UploadProgressListener progressListener) {
+		return createClassifier(NLClassifierTrainingUpload.create(reader, language, name), progressListener);
+	}
+	
+	private NLClassifier createClassifier(MultipartEntity entity, UploadProgressListener progressListener) {
+		entity.setGzip(compressUploads);
+		entity.setProgressListener(progressListener);
+		try {
+			return post(CLASSIFIERS_ENDPOINT, entity, classifierResponseHandler);
+		} catch(IOException e) {
+			logger.error(MessageKey.AQWEGA14008E_error_when_trying_create_classifier_1.getMessage(e.getMessage()));
+			logger.catching(e);
+		}
 		return classifierResponseHandler.getDefaultReturnValue();
 	}
 	
+	/**
+	 * Check if training data uploads are compressed with gzip
+	 */
+	public boolean isCompressUploads() {
+		return compressUploads;
+	}
+	
+	/**
+	 * Choose whether training data uploads are compressed with gzip. Only enable this for endpoints that accept a gzip {@code Content-Encoding}
+	 */
+	public void setCompressUploads(boolean compressUploads) {
+		this.compressUploads = compressUploads;
+	}
+	
 	public List<NLClassifier> getClassifiers() {
 		try {
 			return get(CLASSIFIERS_ENDPOINT, classifiersResponseHandler);
@@ -179,7 +294,14 @@ public class NLClassifierRestClient extends SimpleRestClient {
 		return classifiersResponseHandler.getDefaultReturnValue();
 	}
 	
+	/**
+	 * Classify the text. Concurrent calls for the same classifier and text share one request, see {@link #getRequestCoalescer()}.
+	 */
 	public NLClassiferClassifyResponse classify(String id, String text) {
+		return requestCoalescer.classify(id, text);
+	}
+	
+	NLClassiferClassifyResponse sendClassify(String id, String text) {
 		try {
 			HttpEntity entity = JSONEntity.create(new NLClassifierClassifyRequest(text));
 			return post( getEndpoint(CLASSIFY_ENDPOINT, id), entity, classifyResponseHandler);
@@ -190,9 +312,102 @@ public class NLClassifierRestClient extends SimpleRestClient {
 		return classifyResponseHandler.getDefaultReturnValue();
 	}
 	
+	/**
+	 * Classify a batch of texts, keeping at most {@link #getBatchConcurrency()} requests in flight at once.
+	 * @see #classifyAll(String, Collection, int)
+	 */
+	public List<NLClassifierBatchResult> classifyAll(String id, Collection<String> texts) {
+		return classifyAll(id, texts, batchConcurrency);
+	}
+	
+	/**
+	 * Classify a batch of texts, keeping at most <code>maxConcurrency</code> requests in flight at once.
+	 * <p>Unlike {@link #classify(String, String)}, a failed request does not fall back to the default response.
+	 * Each text gets its own result, in the same order as the input, which either holds the response or the error.</p>
+	 * @param id The classifier ID
+	 * @param texts The texts to classify
+	 * @param maxConcurrency The maximum number of outstanding requests
+	 * @return One result per input text, in input order
+	 */
+	public List<NLClassifierBatchResult> classifyAll(String id, Collection<String> texts, int maxConcurrency) {
+		if(maxConcurrency < 1) {
+			throw new IllegalArgumentException("maxConcurrency must be at least 1: " + maxConcurrency);
+		}
+		final String endpoint = getEndpoint(CLASSIFY_ENDPOINT, id);
+		final Semaphore permits = new Semaphore(maxConcurrency);
+		final Runnable releasePermit = new Runnable() {
+			@Override
+			public void run() {
+				permits.release();
+			}
+		};
+		
+		List<ListenableFuture<NLClassiferClassifyResponse>> futures = new ArrayList<>(texts.size());
+		Iterator<String> iterator = texts.iterator();
+		try {
+			while(iterator.hasNext()) {
+				String text = iterator.next();
+				permits.acquire();
+				ListenableFuture<NLClassiferClassifyResponse> future;
+				try {
+					HttpEntity entity = JSONEntity.create(new NLClassifierClassifyRequest(text));
+					future = postAsync(endpoint, entity, strictClassifyResponseHandler);
+				} catch(IOException | RuntimeException e) {
+					// e.g. the shared clients were closed, fail this text and give the permit back through the listener
+					future = Futures.immediateFailedFuture(e);
+				}
+				future.addListener(releasePermit, MoreExecutors.directExecutor());
+				futures.add(future);
+			}
+		} catch(InterruptedException e) {
+			// Stop submitting, the remaining texts are reported as failed below
+			Thread.currentThread().interrupt();
+			while(futures.size() < texts.size()) {
+				futures.add(Futures.<NLClassiferClassifyResponse>immediateFailedFuture(e));
+			}
+		}
+		
+		List<NLClassifierBatchResult> results = new ArrayList<>(futures.size());
+		int index = 0;
+		for(String text : texts) {
+			results.add(getBatchResult(index, text, futures.get(index)));
+			index++;
+		}
+		return results;
+	}
+	
+	private NLClassifierBatchResult getBatchResult(int index, String text, ListenableFuture<NLClassiferClassifyResponse> future) {
+		Throwable error;
+		try {
+			return NLClassifierBatchResult.success(text, Futures.getUnchecked(future));
+		} catch(UncheckedExecutionException e) {
+			error = e.getCause();
+		} catch(CancellationException e) {
+			error = e;
+		}
+		logger.error(MessageKey.AQWEGA14020E_error_when_trying_classify_batch_item_2.getMessage(index, error.getMessage()));
+		logger.catching(error);
+		return NLClassifierBatchResult.failure(text, error);
+	}
+	
+	public int getBatchConcurrency() {
+		return batchConcurrency;
+	}
+	
+	public void setBatchConcurrency(int batchConcurrency) {
+		if(batchConcurrency < 1) {
+			throw new IllegalArgumentException("batchConcurrency must be at least 1: " + batchConcurrency);
+		}
+		this.batchConcurrency = batchConcurrency;
+	}
+	
 	public boolean deleteClassifier(String id) {
 		try {
-			return delete( getEndpoint(CLASSIFIER_ENDPOINT, id), booleanHTTPStatusResponseHandler);
+			boolean deleted = delete( getEndpoint(CLASSIFIER_ENDPOINT, id), booleanHTTPStatusResponseHandler);
+			if(deleted) {
+				statusTracker.invalidate(id);
+			}
+			return deleted;
 		} catch(IOException e) {
 			logger.error(MessageKey.AQWEGA14011E_error_when_trying_delete_classifier_1.getMessage(e.getMessage()));
 			logger.catching(e);
@@ -210,6 +425,26 @@ public class NLClassifierRestClient extends SimpleRestClient {
 		return classifierResponseHandler.getDefaultReturnValue();
 	}
 	
+	/**
+	 * Get the tracker that caches and coalesces status requests for the classifiers served by this client
+	 */
+	public NLClassifierStatusTracker getStatusTracker() {
+		return statusTracker;
+	}
+	
+	/**
+	 * Get the coalescer that lets concurrent identical classify requests share a single request
+	 */
+	public NLClassifyRequestCoalescer getRequestCoalescer() {
+		return requestCoalescer;
+	}
+
+	@Override
+	public void close() throws IOException {
+		statusTracker.shutdown();
+		super.close();
+	}
+
 	public NLClassifierStatusResponse getClassifierStatus(String id) {
 		try {
 			return get( getEndpoint(CLASSIFIER_ENDPOINT, id), classifierStatusResponseHandler);
@@ -220,6 +455,45 @@ public class NLClassifierRestClient extends SimpleRestClient {
 		return classifierStatusResponseHandler.getDefaultReturnValue();
 	}
 	
+	// Asynchronous variants. Like their blocking counterparts, these never fail: 
+	// any error is logged and the future completes with the response handler's default value.
+	
+	public ListenableFuture<List<NLClassifier>> getClassifiersAsync() {
+		return withDefaultOnFailure(getAsync(CLASSIFIERS_ENDPOINT, classifiersResponseHandler), 
+				classifiersResponseHandler, MessageKey.AQWEGA14009E_error_when_trying_fetch_classifiers_1);
+	}
+	
+	public ListenableFuture<NLClassiferClassifyResponse> classifyAsync(String id, String text) {
+		return requestCoalescer.classifyAsync(id, text);
+	}
+	
+	ListenableFuture<NLClassiferClassifyResponse> sendClassifyAsync(String id, String text) {
+		ListenableFuture<NLClassiferClassifyResponse> future;
+		try {
+			HttpEntity entity = JSONEntity.create(new NLClassifierClassifyRequest(text));
+			future = postAsync( getEndpoint(CLASSIFY_ENDPOINT, id), entity, classifyResponseHandler);
+		} catch(IOException e) {
+			future = Futures.immediateFailedFuture(e);
+		}
+		return withDefaultOnFailure(future, classifyResponseHandler, MessageKey.AQWEGA14010E_error_when_trying_classify_text_1);
+	}
+	
+	public ListenableFuture<NLClassifierStatusResponse> getClassifierStatusAsync(String id) {
+		return withDefaultOnFailure(getAsync( getEndpoint(CLASSIFIER_ENDPOINT, id), classifierStatusResponseHandler), 
+				classifierStatusResponseHandler, MessageKey.AQWEGA14013E_error_when_trying_fetch_classifier_status_1);
+	}
+	
+	private <T> ListenableFuture<T> withDefaultOnFailure(ListenableFuture<T> future, final HttpStatusAwareResponseHandler<T> handler, final MessageKey errorMessage) {
+		return Futures.withFallback(future, new FutureFallback<T>() {
+			@Override
+			public ListenableFuture<T> create(Throwable t) {
+				logger.error(errorMessage.getMessage(t.getMessage()));
+				logger.catching(t);
+				return Futures.immediateFuture(handler.getDefaultReturnValue());
+			}
+		});
+	}
+	
 	private String getEndpoint( String endpoint, String id) {
 		return endpoint.replace("${classifier_id}", id);
 	}
@@ -237,6 +511,6 @@ public class NLClassifierRestClient extends SimpleRestClient {
 		}
 		
 		@Override
-		protected abstract T parseJSON(String jsonString) throws JsonSyntaxException; // Force subclasses to not use the default impl of this
+		protected abstract T parseJSON(JsonReader reader) throws JsonSyntaxException, JsonIOException; // Force subclasses to not use the default impl of this
 	}
 }
@@ -0,0 +1,181 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier.Status;
+import com.ibm.watson.app.common.services.nlclassifier.impl.NLClassifierStatusTracker.StatusListener;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierStatusResponse;
+
+/**
+ * A bounded cache of classify responses, keyed on the classifier ID and the normalized text that was classified.
+ * <p>A single instance is shared by all the {@link CachingNLClassifier} objects handed out by a {@link CachingNLClassifierService}.
+ * Entries for a classifier are dropped as soon as a status update shows it was retrained or deleted. 
+ * Status updates come from {@link CachingNLClassifier#getStatus()}, and from the {@link NLClassifierStatusTracker} 
+ * of the classifier, which the {@link CachingNLClassifierService} subscribes this cache to as a {@link StatusListener}.</p>
+ * <p>By default only whitespace is normalized in the keys, because the service may tell texts differing in case apart; 
+ * see {@link #setNormalizer(TextNormalizer)}.</p>
+ * <p>Responses are copied on the way in and out, so callers can change the responses they get without affecting the cache.</p>
+ */
+public class NLClassifierResultCache implements StatusListener {
+	public static final long DEFAULT_MAX_SIZE = 10000;
+	public static final long DEFAULT_TTL_MINUTES = 60;
+
+	/**
+	 * Controls how the time-to-live of an entry is measured
+	 */
+	public enum EvictionPolicy {
+		// The TTL is reset every time the entry is read
+		LEAST_RECENTLY_USED,
+		// The TTL is counted from when the entry was added
+		FIRST_IN_FIRST_OUT;
+	}
+
+	private final Cache<Key, NLClassiferClassifyResponse> cache;
+	private final ConcurrentMap<String, Status> lastKnownStatus = new ConcurrentHashMap<>();
+	private volatile TextNormalizer normalizer = TextNormalizers.WHITESPACE;
+
+	public NLClassifierResultCache() {
+		this(DEFAULT_MAX_SIZE, DEFAULT_TTL_MINUTES, TimeUnit.MINUTES, EvictionPolicy.LEAST_RECENTLY_USED);
+	}
+
+	public NLClassifierResultCache(long maxSize, long ttl, TimeUnit unit, EvictionPolicy policy) {
+		CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats();
+		switch(policy) {
+		case LEAST_RECENTLY_USED:
+			builder.expireAfterAccess(ttl, unit);
+			break;
+		case FIRST_IN_FIRST_OUT:
+			builder.expireAfterWrite(ttl, unit);
+			break;
+		}
+		cache = builder.build();
+	}
+
+	/**
+	 * Get the cached response for some text
+	 * @return The cached response, or null if there is none
+	 */
+	public NLClassiferClassifyResponse get(String classifierId, String text) {
+		NLClassiferClassifyResponse response = cache.getIfPresent(new Key(classifierId, normalizer.normalize(text)));
+		return response == null ? null : response.copy();
+	}
+
+	/**
+	 * Cache a response, unless it is the empty response returned when classification failed
+	 */
+	public void put(String classifierId, String text, NLClassiferClassifyResponse response) {
+		if(response != null && response.getClasses() != null && !response.getClasses().isEmpty()) {
+			cache.put(new Key(classifierId, normalizer.normalize(text)), response.copy());
+		}
+	}
+
+	/**
+	 * Record the latest known status of a classifier.
+	 * If the classifier is no longer usable, or its status changed since it was last seen, its cached responses are dropped.
+	 */
+	public void statusUpdated(String classifierId, Status status) {
+		if(status == null || status == Status.UNKNOWN) {
+			return;
+		}
+		Status previous = lastKnownStatus.put(classifierId, status);
+		if(status != Status.AVAILABLE || (previous != null && previous != status)) {
+			invalidate(classifierId);
+		}
+	}
+
+	@Override
+	public void statusChanged(String classifierId, NLClassifierStatusResponse status) {
+		statusUpdated(classifierId, status.getStatus());
+	}
+
+	/**
+	 * Drop all cached responses of a classifier
+	 */
+	public void invalidate(String classifierId) {
+		Iterator<Key> keys = cache.asMap().keySet().iterator();
+		while(keys.hasNext()) {
+			if(keys.next().classifierId.equals(classifierId)) {
+				keys.remove();
+			}
+		}
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+		lastKnownStatus.clear();
+	}
+
+	public TextNormalizer getNormalizer() {
+		return normalizer;
+	}
+
+	/**
+	 * Set how texts are normalized before looking them up, e.g. {@link TextNormalizers#DEFAULT} to ignore case as well. 
+	 * Only fold case if the classifiers don't tell such texts apart. Entries cached before the change are kept under their old keys.
+	 */
+	public void setNormalizer(TextNormalizer normalizer) {
+		this.normalizer = Objects.requireNonNull(normalizer);
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+	public long getHitCount() {
+		return cache.stats().hitCount();
+	}
+
+	public long getMissCount() {
+		return cache.stats().missCount();
+	}
+
+	public long getEvictionCount() {
+		return cache.stats().evictionCount();
+	}
+
+	private static final class Key {
+		private final String classifierId;
+		private final String text;
+
+		Key(String classifierId, String text) {
+			this.classifierId = Objects.requireNonNull(classifierId);
+			this.text = text;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return classifierId.equals(other.classifierId) && text.equals(other.text);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(classifierId, text);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.ibm.watson.app.common.util.metrics.LatencyHistogram;
+
+/**
+ * Holds the routing threshold of {@link FallbackNLClassifier fallback classifiers}, and counts where their texts went.
+ * <p>Whenever both the local classifier and the service classified a text, their top classes are compared. 
+ * The agreement rate per local confidence range shows how low the threshold can go before 
+ * the texts answered locally start getting a different answer than the service would give. 
+ * Texts above the threshold are only compared for the sample sent as shadow requests, see {@link #setShadowRate(double)}.</p>
+ * <p>One instance is normally shared by all the classifiers handed out by a {@link FallbackNLClassifierService}.</p>
+ */
+public class NLClassifierRoutingMetrics implements NLClassifierRoutingMetricsMXBean {
+	private static final int CONFIDENCE_BUCKETS = 10;
+
+	/**
+	 * The default fraction of confident local answers that are also sent to the service to compare them
+	 */
+	public static final double DEFAULT_SHADOW_RATE = 0.01;
+
+	// Indexes into counts
+	private static final int LOCAL = 0, REMOTE = 1, FALLBACK = 2, AGREED = 3, DISAGREED = 4, SHADOWED = 5;
+
+	private volatile double threshold;
+	private volatile double shadowRate = DEFAULT_SHADOW_RATE;
+	private volatile AtomicLongArray counts;
+	private volatile AtomicLongArray comparisons;
+	private volatile AtomicLongArray agreements;
+	private volatile LatencyHistogram localLatency;
+	private volatile LatencyHistogram remoteLatency;
+
+	public NLClassifierRoutingMetrics(double threshold) {
+		this.threshold = threshold;
+		reset();
+	}
+
+	@Override
+	public double getThreshold() {
+		return threshold;
+	}
+
+	@Override
+	public void setThreshold(double threshold) {
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Check if a local classification is confident enough to be returned without asking the service
+	 */
+	public boolean isConfident(double confidence) {
+		return confidence >= threshold;
+	}
+
+	@Override
+	public double getShadowRate() {
+		return shadowRate;
+	}
+
+	@Override
+	public void setShadowRate(double shadowRate) {
+		this.shadowRate = shadowRate;
+	}
+
+	/**
+	 * Decide whether a confident local answer is also sent to the service, to compare the answers
+	 */
+	public boolean shouldShadow() {
+		final double rate = shadowRate;
+		return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+	}
+
+	/**
+	 * Record a text answered by the local classifier without asking the service
+	 * @param nanos The time it took to answer, or a negative value if it was not measured
+	 */
+	public void answeredLocally(long nanos) {
+		counts.incrementAndGet(LOCAL);
+		if(nanos >= 0) {
+			localLatency.record(nanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Record a text sent to the service
+	 * @param nanos The time it took to answer, or a negative value if it was not measured
+	 */
+	public void sentRemotely(long nanos) {
+		counts.incrementAndGet(REMOTE);
+		if(nanos >= 0) {
+			remoteLatency.record(nanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Record a text the service could not classify, which was answered by the local classifier
+	 */
+	public void fellBack() {
+		counts.incrementAndGet(FALLBACK);
+	}
+
+	/**
+	 * Record the comparison of a local and a service classification of the same text
+	 * @param localConfidence The confidence of the local top class
+	 * @param agreed Whether both have the same top class
+	 */
+	public void compared(double localConfidence, boolean agreed) {
+		final int bucket = Math.min(CONFIDENCE_BUCKETS - 1, Math.max(0, (int) (localConfidence * CONFIDENCE_BUCKETS)));
+		counts.incrementAndGet(agreed ? AGREED : DISAGREED);
+		comparisons.incrementAndGet(bucket);
+		if(agreed) {
+			agreements.incrementAndGet(bucket);
+		}
+	}
+
+	/**
+	 * Record the comparison of a confident local classification with the service classification of a shadow request
+	 */
+	public void shadowCompared(double localConfidence, boolean agreed) {
+		counts.incrementAndGet(SHADOWED);
+		compared(localConfidence, agreed);
+	}
+
+	@Override
+	public long getShadowCount() {
+		return counts.get(SHADOWED);
+	}
+
+	@Override
+	public long getLocalCount() {
+		return counts.get(LOCAL);
+	}
+
+	@Override
+	public long getRemoteCount() {
+		return counts.get(REMOTE);
+	}
+
+	@Override
+	public long getFallbackCount() {
+		return counts.get(FALLBACK);
+	}
+
+	@Override
+	public long getAgreementCount() {
+		return counts.get(AGREED);
+	}
+
+	@Override
+	public long getDisagreementCount() {
+		return counts.get(DISAGREED);
+	}
+
+	@Override
+	public double getLocalRate() {
+		return rate(getLocalCount(), getLocalCount() + getRemoteCount());
+	}
+
+	@Override
+	public double getAgreementRate() {
+		return rate(getAgreementCount(), getAgreementCount() + getDisagreementCount());
+	}
+
+	@Override
+	public Map<String, Double> getAgreementRateByConfidence() {
+		final AtomicLongArray comparisons = this.comparisons, agreements = this.agreements;
+		final Map<String, Double> rates = new LinkedHashMap<>();
+		for(int i = 0; i < CONFIDENCE_BUCKETS; i++) {
+			long compared = comparisons.get(i);
+			if(compared > 0) {
+				String range = String.format(Locale.ROOT, "%.1f-%.1f", (double) i / CONFIDENCE_BUCKETS, (double) (i + 1) / CONFIDENCE_BUCKETS);
+				rates.put(range, rate(agreements.get(i), compared));
+			}
+		}
+		return rates;
+	}
+
+	@Override
+	public double getP50LocalLatencyMillis() {
+		return localLatency.getPercentile(0.5, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public double getP99LocalLatencyMillis() {
+		return localLatency.getPercentile(0.99, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public double getP50RemoteLatencyMillis() {
+		return remoteLatency.getPercentile(0.5, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public double getP99RemoteLatencyMillis() {
+		return remoteLatency.getPercentile(0.99, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void reset() {
+		counts = new AtomicLongArray(6);
+		comparisons = new AtomicLongArray(CONFIDENCE_BUCKETS);
+		agreements = new AtomicLongArray(CONFIDENCE_BUCKETS);
+		localLatency = new LatencyHistogram();
+		remoteLatency = new LatencyHistogram();
+	}
+
+	private static double rate(long count, long total) {
+		return total == 0 ? 0 : (double) count / total;
+	}
+
+	@Override
+	public String toString() {
+		return "NLClassifierRoutingMetrics [threshold=" + threshold + ", local=" + getLocalCount() + ", remote=" + getRemoteCount() 
+				+ ", fallbacks=" + getFallbackCount() + ", agreementRate=" + getAgreementRate() + "]";
+	}
+}
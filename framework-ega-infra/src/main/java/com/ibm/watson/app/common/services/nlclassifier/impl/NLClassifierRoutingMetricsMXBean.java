@@ -0,0 +1,102 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.Map;
+
+/**
+ * The routing decisions of {@link FallbackNLClassifier fallback classifiers}, as exposed over JMX
+ * @see NLClassifierRoutingMetrics
+ */
+public interface NLClassifierRoutingMetricsMXBean {
+	/**
+	 * Get the confidence the local top class needs to answer without asking the classifier service
+	 */
+	double getThreshold();
+
+	/**
+	 * Change the confidence the local top class needs to answer without asking the classifier service
+	 */
+	void setThreshold(double threshold);
+
+	/**
+	 * Get the fraction of confident local answers also sent to the service in the background, to compare the answers
+	 */
+	double getShadowRate();
+
+	/**
+	 * Change the fraction of confident local answers sent as shadow requests, 0 to send none
+	 */
+	void setShadowRate(double shadowRate);
+
+	/**
+	 * Get the number of shadow requests the service answered, which are also counted as agreements or disagreements
+	 */
+	long getShadowCount();
+
+	/**
+	 * Get the number of texts answered by the local classifier without asking the service
+	 */
+	long getLocalCount();
+
+	/**
+	 * Get the number of texts sent to the classifier service
+	 */
+	long getRemoteCount();
+
+	/**
+	 * Get the number of texts the service could not classify, which were answered by the local classifier instead
+	 */
+	long getFallbackCount();
+
+	/**
+	 * Get the number of service answers with the same top class as the local classifier
+	 */
+	long getAgreementCount();
+
+	/**
+	 * Get the number of service answers with a different top class than the local classifier
+	 */
+	long getDisagreementCount();
+
+	/**
+	 * Get the fraction of texts answered without asking the service
+	 */
+	double getLocalRate();
+
+	/**
+	 * Get the fraction of service answers with the same top class as the local classifier
+	 */
+	double getAgreementRate();
+
+	/**
+	 * Get the agreement rate per range of local top class confidence, such as "0.8-0.9", to help pick a threshold
+	 */
+	Map<String, Double> getAgreementRateByConfidence();
+
+	double getP50LocalLatencyMillis();
+
+	double getP99LocalLatencyMillis();
+
+	double getP50RemoteLatencyMillis();
+
+	double getP99RemoteLatencyMillis();
+
+	/**
+	 * Drop all counts gathered so far, keeping the threshold
+	 */
+	void reset();
+}
@@ -0,0 +1,265 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier.Status;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierStatusResponse;
+import com.ibm.watson.app.common.util.rest.MessageKey;
+
+/**
+ * Keeps track of the status of the classifiers served by a {@link NLClassifierRestClient}.
+ * <p>A status is fetched from the service at most once per freshness window, and concurrent callers asking for 
+ * the status of the same classifier share a single request. Callers interested in status changes can 
+ * {@link #subscribe(String, StatusListener) subscribe} instead of polling; the status of a subscribed classifier 
+ * is refreshed in the background until the last listener unsubscribes, or until the classifier turns out to be 
+ * {@link Status#NON_EXISTENT non existent}: the listeners are told, then dropped.</p>
+ */
+public class NLClassifierStatusTracker {
+	private static final Logger logger = LogManager.getLogger();
+	
+	public static final long DEFAULT_FRESHNESS_MILLIS = 5000;
+	public static final long DEFAULT_POLL_INTERVAL_MILLIS = 30000;
+	
+	/**
+	 * Notified whenever the status of a classifier changes
+	 */
+	public interface StatusListener {
+		public void statusChanged(String classifierId, NLClassifierStatusResponse status);
+	}
+	
+	private final NLClassifierRestClient client;
+	private final Ticker ticker;
+	
+	private final ConcurrentMap<String, CachedStatus> statuses = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, SettableFuture<NLClassifierStatusResponse>> inFlight = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Set<StatusListener>> listeners = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, ScheduledFuture<?>> pollers = new ConcurrentHashMap<>();
+	
+	private volatile long freshnessNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_FRESHNESS_MILLIS);
+	private volatile long pollIntervalMillis = DEFAULT_POLL_INTERVAL_MILLIS;
+	private ScheduledExecutorService scheduler;
+	
+	public NLClassifierStatusTracker(NLClassifierRestClient client) {
+		this(client, Ticker.systemTicker());
+	}
+	
+	// Used in testing
+	NLClassifierStatusTracker(NLClassifierRestClient client, Ticker ticker) {
+		this.client = client;
+		this.ticker = ticker;
+	}
+	
+	/**
+	 * Get the status of a classifier, only contacting the service if the last known status is older than the freshness window.
+	 * @param classifierId The classifier ID
+	 * @return The status, or a status of {@link Status#UNKNOWN UNKNOWN} if it could not be fetched
+	 */
+	public NLClassifierStatusResponse getStatus(String classifierId) {
+		CachedStatus cached = statuses.get(classifierId);
+		if(cached != null && ticker.read() - cached.readAt < freshnessNanos) {
+			return cached.response;
+		}
+		return refresh(classifierId);
+	}
+	
+	/**
+	 * Fetch the status of a classifier from the service, regardless of how fresh the last known status is.
+	 * If a request for this classifier is already in flight, wait for its result instead of sending another one.
+	 * @param classifierId The classifier ID
+	 * @return The status, or a status of {@link Status#UNKNOWN UNKNOWN} if it could not be fetched
+	 */
+	public NLClassifierStatusResponse refresh(String classifierId) {
+		SettableFuture<NLClassifierStatusResponse> future = SettableFuture.create();
+		SettableFuture<NLClassifierStatusResponse> pending = inFlight.putIfAbsent(classifierId, future);
+		if(pending != null) {
+			return Futures.getUnchecked(pending);
+		}
+		
+		final NLClassifierStatusResponse response;
+		final boolean changed;
+		try {
+			response = client.getClassifierStatus(classifierId);
+			changed = update(classifierId, response);
+			future.set(response);
+		} catch(RuntimeException e) {
+			future.setException(e);
+			throw e;
+		} finally {
+			inFlight.remove(classifierId, future);
+		}
+		
+		// The waiting callers already have the status, listeners can't hold them up or fail them
+		if(changed) {
+			notifyListeners(classifierId, response);
+		}
+		if(response.getStatus() == Status.NON_EXISTENT) {
+			// A deleted classifier never comes back, stop polling it
+			cancelSubscriptions(classifierId);
+		}
+		return response;
+	}
+	
+	/**
+	 * Forget the last known status of a classifier, so the next call to {@link #getStatus(String)} goes to the service
+	 */
+	public void invalidate(String classifierId) {
+		statuses.remove(classifierId);
+	}
+	
+	public synchronized void subscribe(String classifierId, StatusListener listener) {
+		Set<StatusListener> classifierListeners = listeners.get(classifierId);
+		if(classifierListeners == null) {
+			classifierListeners = new CopyOnWriteArraySet<>();
+			listeners.put(classifierId, classifierListeners);
+		}
+		classifierListeners.add(listener);
+		
+		if(!pollers.containsKey(classifierId)) {
+			pollers.put(classifierId, getScheduler().scheduleWithFixedDelay(new Poller(classifierId), 0, pollIntervalMillis, TimeUnit.MILLISECONDS));
+		}
+	}
+	
+	public synchronized void unsubscribe(String classifierId, StatusListener listener) {
+		Set<StatusListener> classifierListeners = listeners.get(classifierId);
+		if(classifierListeners == null) {
+			return;
+		}
+		classifierListeners.remove(listener);
+		if(classifierListeners.isEmpty()) {
+			cancelSubscriptions(classifierId);
+		}
+	}
+	
+	/**
+	 * Stop all background polling and drop all subscriptions
+	 */
+	public synchronized void shutdown() {
+		listeners.clear();
+		pollers.clear();
+		if(scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+	
+	public long getFreshness(TimeUnit unit) {
+		return unit.convert(freshnessNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	public void setFreshness(long freshness, TimeUnit unit) {
+		this.freshnessNanos = unit.toNanos(freshness);
+	}
+	
+	public long getPollInterval(TimeUnit unit) {
+		return unit.convert(pollIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Set how often the status of subscribed classifiers is refreshed.
+	 * Only affects classifiers subscribed to after this call.
+	 */
+	public void setPollInterval(long pollInterval, TimeUnit unit) {
+		this.pollIntervalMillis = unit.toMillis(pollInterval);
+	}
+	
+	/**
+	 * Record the status of a classifier
+	 * @return Whether the status changed
+	 */
+	private boolean update(String classifierId, NLClassifierStatusResponse response) {
+		if(response.getStatus() == Status.UNKNOWN) {
+			// The status could not be determined, don't let that mask the last known good status for the freshness window
+			return false;
+		}
+		CachedStatus previous = statuses.put(classifierId, new CachedStatus(response, ticker.read()));
+		return previous == null || previous.response.getStatus() != response.getStatus();
+	}
+	
+	private void notifyListeners(String classifierId, NLClassifierStatusResponse response) {
+		Set<StatusListener> classifierListeners = listeners.get(classifierId);
+		if(classifierListeners == null) {
+			return;
+		}
+		for(StatusListener listener : classifierListeners) {
+			try {
+				listener.statusChanged(classifierId, response);
+			} catch(RuntimeException e) {
+				logger.error(MessageKey.AQWEGA14021E_error_in_classifier_status_listener_2.getMessage(classifierId, e.getMessage()));
+				logger.catching(e);
+			}
+		}
+	}
+	
+	private synchronized void cancelSubscriptions(String classifierId) {
+		listeners.remove(classifierId);
+		ScheduledFuture<?> poller = pollers.remove(classifierId);
+		if(poller != null) {
+			poller.cancel(false);
+		}
+	}
+	
+	private synchronized ScheduledExecutorService getScheduler() {
+		if(scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(
+					new ThreadFactoryBuilder().setDaemon(true).setNameFormat("nlclassifier-status-%d").build());
+		}
+		return scheduler;
+	}
+	
+	private class Poller implements Runnable {
+		private final String classifierId;
+		
+		Poller(String classifierId) {
+			this.classifierId = classifierId;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				refresh(classifierId);
+			} catch(RuntimeException e) {
+				// Never let an exception cancel the periodic task
+				logger.catching(e);
+			}
+		}
+	}
+	
+	private static final class CachedStatus {
+		private final NLClassifierStatusResponse response;
+		private final long readAt;
+		
+		CachedStatus(NLClassifierStatusResponse response, long readAt) {
+			this.response = response;
+			this.readAt = readAt;
+		}
+	}
+}
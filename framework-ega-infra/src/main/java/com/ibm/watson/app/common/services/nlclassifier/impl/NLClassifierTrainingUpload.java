@@ -0,0 +1,188 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.http.entity.ContentType;
+
+import com.google.gson.JsonObject;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierTrainingData;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierTrainingData.TrainingInstance;
+import com.ibm.watson.app.common.services.nlclassifier.model.TrainingDataReader;
+import com.ibm.watson.app.common.util.rest.MultipartEntity;
+import com.ibm.watson.app.common.util.rest.MultipartEntity.PartWriter;
+
+/**
+ * Builds the {@code multipart/form-data} body of a create classifier request: 
+ * a {@code training_metadata} JSON part with the language and name, and a {@code training_data} CSV part.
+ * <p>The CSV is produced while the request is sent, straight from a file or from a {@link TrainingDataReader},
+ * so training data of any size is uploaded without holding it in memory.</p>
+ */
+final class NLClassifierTrainingUpload {
+	static final String METADATA_PART = "training_metadata";
+	static final String DATA_PART = "training_data";
+	static final String DEFAULT_LANGUAGE = "en";
+
+	private static final ContentType CSV = ContentType.create("text/csv", StandardCharsets.UTF_8);
+
+	private NLClassifierTrainingUpload() {
+	}
+
+	/**
+	 * Upload training data held in memory
+	 */
+	static MultipartEntity create(final NLClassifierTrainingData data) {
+		return create(data.getLanguage(), data.getName(), new CsvPartWriter() {
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				CSVPrinter printer = printer(out);
+				if(data.getTrainingData() != null) {
+					for(TrainingInstance instance : data.getTrainingData()) {
+						print(printer, instance);
+					}
+				}
+				printer.flush();
+			}
+
+			@Override
+			public boolean isRepeatable() {
+				return true;
+			}
+		});
+	}
+
+	/**
+	 * Upload a training file. CSV files are sent as they are, other files are read as JSON and converted to CSV while they are sent
+	 * @param language The language, or {@code null} to use the one in a JSON file, or English
+	 * @param name The name, or {@code null} to use the one in a JSON file, or the file name
+	 */
+	static MultipartEntity create(final File file, String language, String name) throws IOException {
+		if(file.getName().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+			MultipartEntity entity = create(language, name == null ? file.getName() : name, null);
+			return entity.addFile(DATA_PART, file, CSV);
+		}
+
+		if(language == null || name == null) {
+			// The metadata is written first, peek at the head of the file for it
+			try(TrainingDataReader reader = TrainingDataReader.open(file)) {
+				reader.read();
+				language = language == null ? reader.getLanguage() : language;
+				name = name == null ? reader.getName() : name;
+			}
+		}
+		return create(language, name == null ? file.getName() : name, new CsvPartWriter() {
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				try(TrainingDataReader reader = TrainingDataReader.open(file)) {
+					copy(reader, out);
+				}
+			}
+
+			@Override
+			public boolean isRepeatable() {
+				return true;
+			}
+		});
+	}
+
+	/**
+	 * Upload the remaining instances of a reader. The resulting entity can only be written once, and the reader is closed once it has been
+	 */
+	static MultipartEntity create(final TrainingDataReader reader, String language, String name) {
+		final AtomicBoolean written = new AtomicBoolean();
+		return create(language, name, new CsvPartWriter() {
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				if(written.getAndSet(true)) {
+					throw new IOException("The training data reader has already been consumed");
+				}
+				try(TrainingDataReader source = reader) {
+					copy(source, out);
+				}
+			}
+
+			@Override
+			public boolean isRepeatable() {
+				return false;
+			}
+		});
+	}
+
+	/**
+	 * Create the entity with the metadata part, and the data part if a writer is given
+	 */
+	private static MultipartEntity create(String language, String name, PartWriter data) {
+		JsonObject metadata = new JsonObject();
+		metadata.addProperty("language", language == null ? DEFAULT_LANGUAGE : language);
+		if(name != null) {
+			metadata.addProperty("name", name);
+		}
+		MultipartEntity entity = new MultipartEntity();
+		entity.addText(METADATA_PART, metadata.toString(), ContentType.APPLICATION_JSON);
+		if(data != null) {
+			entity.addPart(DATA_PART, "training.csv", CSV, data);
+		}
+		return entity;
+	}
+
+	private static void copy(TrainingDataReader reader, OutputStream out) throws IOException {
+		CSVPrinter printer = printer(out);
+		for(TrainingInstance instance = reader.read(); instance != null; instance = reader.read()) {
+			print(printer, instance);
+		}
+		printer.flush();
+	}
+
+	/**
+	 * Create a printer over the part. It must be flushed, not closed, which would close the connection stream
+	 */
+	private static CSVPrinter printer(OutputStream out) throws IOException {
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		return new CSVPrinter(writer, CSVFormat.DEFAULT);
+	}
+
+	private static void print(CSVPrinter printer, TrainingInstance instance) throws IOException {
+		printer.print(instance.getText());
+		List<String> classes = instance.getClasses();
+		if(classes != null) {
+			for(String className : classes) {
+				printer.print(className);
+			}
+		}
+		printer.println();
+	}
+
+	/**
+	 * A CSV part, whose length is only known once it is written
+	 */
+	private static abstract class CsvPartWriter implements PartWriter {
+		@Override
+		public long getContentLength() {
+			return -1;
+		}
+	}
+}
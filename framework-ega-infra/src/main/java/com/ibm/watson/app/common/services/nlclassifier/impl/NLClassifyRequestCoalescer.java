@@ -0,0 +1,216 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+
+/**
+ * Lets concurrent classify calls of a {@link NLClassifierRestClient} for the same classifier and the same 
+ * normalized text share a single request. By default only whitespace is normalized, because the service may tell 
+ * texts differing in case apart; see {@link #setNormalizer(TextNormalizer)}.
+ * <p>The first caller sends the request, and everyone asking while it is in flight receives the same response object, 
+ * which must therefore not be modified. By default the text of the first caller is sent as it is; with 
+ * {@link #setSendNormalizedText(boolean)} the normalized text is sent instead.</p>
+ */
+public class NLClassifyRequestCoalescer {
+	private final NLClassifierRestClient client;
+	private final ConcurrentMap<Key, SettableFuture<NLClassiferClassifyResponse>> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+
+	private volatile boolean enabled = true;
+	private volatile boolean sendNormalizedText = false;
+	private volatile TextNormalizer normalizer = TextNormalizers.WHITESPACE;
+
+	public NLClassifyRequestCoalescer(NLClassifierRestClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * Classify the text, or wait for the response to an identical request already in flight
+	 */
+	public NLClassiferClassifyResponse classify(String classifierId, String text) {
+		if(!enabled) {
+			sent.incrementAndGet();
+			return client.sendClassify(classifierId, text);
+		}
+		final Key key = new Key(classifierId, normalizer.normalize(text));
+		final SettableFuture<NLClassiferClassifyResponse> future = SettableFuture.create();
+		final SettableFuture<NLClassiferClassifyResponse> pending = inFlight.putIfAbsent(key, future);
+		if(pending != null) {
+			coalesced.incrementAndGet();
+			return Futures.getUnchecked(pending);
+		}
+		
+		sent.incrementAndGet();
+		try {
+			NLClassiferClassifyResponse response = client.sendClassify(classifierId, sendNormalizedText ? key.text : text);
+			future.set(response);
+			return response;
+		} catch(Throwable t) {
+			// Errors too, or the callers waiting for this request would wait forever
+			future.setException(t);
+			throw t;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	/**
+	 * Classify the text asynchronously, or share the response to an identical request already in flight
+	 */
+	public ListenableFuture<NLClassiferClassifyResponse> classifyAsync(String classifierId, String text) {
+		if(!enabled) {
+			sent.incrementAndGet();
+			return client.sendClassifyAsync(classifierId, text);
+		}
+		final Key key = new Key(classifierId, normalizer.normalize(text));
+		final SettableFuture<NLClassiferClassifyResponse> future = SettableFuture.create();
+		final SettableFuture<NLClassiferClassifyResponse> pending = inFlight.putIfAbsent(key, future);
+		if(pending != null) {
+			coalesced.incrementAndGet();
+			return forCaller(pending);
+		}
+		
+		sent.incrementAndGet();
+		ListenableFuture<NLClassiferClassifyResponse> response;
+		try {
+			response = client.sendClassifyAsync(classifierId, sendNormalizedText ? key.text : text);
+		} catch(RuntimeException e) {
+			response = Futures.immediateFailedFuture(e);
+		} catch(Error e) {
+			inFlight.remove(key, future);
+			future.setException(e);
+			throw e;
+		}
+		Futures.addCallback(response, new FutureCallback<NLClassiferClassifyResponse>() {
+			@Override
+			public void onSuccess(NLClassiferClassifyResponse result) {
+				inFlight.remove(key, future);
+				future.set(result);
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				inFlight.remove(key, future);
+				future.setException(t);
+			}
+		}, MoreExecutors.directExecutor());
+		return forCaller(future);
+	}
+
+	/**
+	 * Give each caller its own future, so one caller cancelling doesn't cancel the shared request for the others
+	 */
+	private static ListenableFuture<NLClassiferClassifyResponse> forCaller(ListenableFuture<NLClassiferClassifyResponse> shared) {
+		final SettableFuture<NLClassiferClassifyResponse> own = SettableFuture.create();
+		Futures.addCallback(shared, new FutureCallback<NLClassiferClassifyResponse>() {
+			@Override
+			public void onSuccess(NLClassiferClassifyResponse result) {
+				own.set(result);
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				own.setException(t);
+			}
+		}, MoreExecutors.directExecutor());
+		return own;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Choose whether identical requests are coalesced, when disabled every call sends its own request
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public TextNormalizer getNormalizer() {
+		return normalizer;
+	}
+
+	/**
+	 * Set how texts are normalized before comparing them, e.g. {@link TextNormalizers#DEFAULT} to ignore case as well, 
+	 * or {@link TextNormalizers#chain(TextNormalizer...) TextNormalizers.chain(TextNormalizers.DEFAULT, TextNormalizers.PUNCTUATION)} 
+	 * to ignore punctuation too. Only fold case if the classifier doesn't tell such texts apart.
+	 */
+	public void setNormalizer(TextNormalizer normalizer) {
+		this.normalizer = Objects.requireNonNull(normalizer);
+	}
+
+	public boolean isSendNormalizedText() {
+		return sendNormalizedText;
+	}
+
+	/**
+	 * Choose whether the normalized text is sent to the service, rather than the text of the first caller
+	 */
+	public void setSendNormalizedText(boolean sendNormalizedText) {
+		this.sendNormalizedText = sendNormalizedText;
+	}
+
+	/**
+	 * Get the number of classify requests sent to the service
+	 */
+	public long getSentCount() {
+		return sent.get();
+	}
+
+	/**
+	 * Get the number of classify calls answered by a request sent for another call
+	 */
+	public long getCoalescedCount() {
+		return coalesced.get();
+	}
+
+	private static final class Key {
+		private final String classifierId;
+		private final String text;
+
+		Key(String classifierId, String text) {
+			this.classifierId = Objects.requireNonNull(classifierId);
+			this.text = text;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return classifierId.equals(other.classifierId) && Objects.equals(text, other.text);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(classifierId, text);
+		}
+	}
+}
@@ -0,0 +1,287 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierTrainingData.TrainingInstance;
+
+/**
+ * A multinomial naive Bayes model over TF-IDF weighted unigrams and bigrams.
+ * <p>Documents are turned into sparse vectors of sorted term ids and float weights, and the per class
+ * log probabilities are kept in a single term-major array, so scoring a text is one vocabulary lookup per term
+ * and a pass over a short run of floats. Instances are immutable once trained and safe to share between threads.</p>
+ */
+final class NaiveBayesModel {
+	// Additive smoothing applied to every term count
+	private static final double ALPHA = 0.1;
+
+	private final String[] classes;
+	private final Map<String, Integer> vocabulary;
+	private final float[] idf;
+	private final float[] weights;
+	private final double[] priors;
+
+	private NaiveBayesModel(String[] classes, Map<String, Integer> vocabulary, float[] idf, float[] weights, double[] priors) {
+		this.classes = classes;
+		this.vocabulary = vocabulary;
+		this.idf = idf;
+		this.weights = weights;
+		this.priors = priors;
+	}
+
+	/**
+	 * Train a model from the supplied instances.
+	 * Instances without text or classes are skipped, an instance with several classes counts towards each of them.
+	 * @throws IllegalArgumentException if there is nothing to train on
+	 */
+	static NaiveBayesModel train(List<TrainingInstance> instances) {
+		final Map<String, Integer> vocabulary = new HashMap<>();
+		final Map<String, Integer> classIds = new LinkedHashMap<>();
+		final List<SparseVector> documents = new ArrayList<>();
+		final List<int[]> documentClasses = new ArrayList<>();
+
+		if(instances != null) {
+			for(TrainingInstance instance : instances) {
+				if(instance == null || instance.getText() == null || instance.getClasses() == null || instance.getClasses().isEmpty()) {
+					continue;
+				}
+				int[] ids = new int[instance.getClasses().size()];
+				for(int i = 0; i < ids.length; i++) {
+					ids[i] = idOf(classIds, instance.getClasses().get(i));
+				}
+				documents.add(SparseVector.count(termIds(instance.getText(), vocabulary, true)));
+				documentClasses.add(ids);
+			}
+		}
+		if(documents.isEmpty()) {
+			throw new IllegalArgumentException("No training instances with text and classes");
+		}
+
+		final int termCount = vocabulary.size();
+		final int classCount = classIds.size();
+
+		final int[] documentFrequency = new int[termCount];
+		for(SparseVector document : documents) {
+			for(int i = 0; i < document.size; i++) {
+				documentFrequency[document.ids[i]]++;
+			}
+		}
+		final float[] idf = new float[termCount];
+		for(int t = 0; t < termCount; t++) {
+			idf[t] = (float) (Math.log((documents.size() + 1.0) / (documentFrequency[t] + 1.0)) + 1.0);
+		}
+
+		final double[] termTotals = new double[termCount * classCount];
+		final double[] classTotals = new double[classCount];
+		final int[] classDocuments = new int[classCount];
+		int labels = 0;
+		for(int d = 0; d < documents.size(); d++) {
+			SparseVector document = documents.get(d);
+			document.weigh(idf);
+			document.normalize();
+			for(int c : documentClasses.get(d)) {
+				for(int i = 0; i < document.size; i++) {
+					termTotals[document.ids[i] * classCount + c] += document.values[i];
+					classTotals[c] += document.values[i];
+				}
+				classDocuments[c]++;
+				labels++;
+			}
+		}
+
+		final float[] weights = new float[termCount * classCount];
+		for(int t = 0; t < termCount; t++) {
+			for(int c = 0; c < classCount; c++) {
+				weights[t * classCount + c] = (float) Math.log((termTotals[t * classCount + c] + ALPHA) / (classTotals[c] + ALPHA * termCount));
+			}
+		}
+		final double[] priors = new double[classCount];
+		for(int c = 0; c < classCount; c++) {
+			priors[c] = Math.log((double) classDocuments[c] / labels);
+		}
+
+		return new NaiveBayesModel(classIds.keySet().toArray(new String[classCount]), vocabulary, idf, weights, priors);
+	}
+
+	/**
+	 * Get the names of the classes this model knows, indexed the same way as the confidences from {@link #classify(String)}
+	 */
+	String[] getClasses() {
+		return classes.clone();
+	}
+
+	int getVocabularySize() {
+		return vocabulary.size();
+	}
+
+	/**
+	 * Compute the confidence of each class for the supplied text.
+	 * The confidences add up to 1, terms that were not seen during training are ignored.
+	 */
+	double[] classify(String text) {
+		final int classCount = classes.length;
+		final double[] scores = priors.clone();
+		final SparseVector vector = SparseVector.count(termIds(text, vocabulary, false));
+		// Weighted and normalized the same way as the training documents, so only the mix of terms matters and not the length
+		vector.weigh(idf);
+		vector.normalize();
+		for(int i = 0; i < vector.size; i++) {
+			final int offset = vector.ids[i] * classCount;
+			final float value = vector.values[i];
+			for(int c = 0; c < classCount; c++) {
+				scores[c] += value * weights[offset + c];
+			}
+		}
+
+		// Softmax, shifted by the highest score so the exponents cannot overflow
+		double max = Double.NEGATIVE_INFINITY;
+		for(double score : scores) {
+			max = Math.max(max, score);
+		}
+		double sum = 0;
+		for(int c = 0; c < classCount; c++) {
+			scores[c] = Math.exp(scores[c] - max);
+			sum += scores[c];
+		}
+		for(int c = 0; c < classCount; c++) {
+			scores[c] /= sum;
+		}
+		return scores;
+	}
+
+	private static int idOf(Map<String, Integer> ids, String key) {
+		Integer id = ids.get(key);
+		if(id == null) {
+			id = ids.size();
+			ids.put(key, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Split the text into lower case runs of letters and digits, and look up the id of every unigram and bigram.
+	 * Unknown terms are added to the vocabulary when {@code grow} is set, and dropped otherwise.
+	 */
+	static IntList termIds(String text, Map<String, Integer> vocabulary, boolean grow) {
+		final IntList ids = new IntList();
+		final StringBuilder token = new StringBuilder();
+		String previous = null;
+		for(int i = 0, length = text.length(); i <= length; i++) {
+			final char ch = i < length ? text.charAt(i) : ' ';
+			if(Character.isLetterOrDigit(ch)) {
+				token.append(Character.toLowerCase(ch));
+			} else if(token.length() > 0) {
+				final String current = token.toString();
+				token.setLength(0);
+				addTerm(ids, current, vocabulary, grow);
+				if(previous != null) {
+					addTerm(ids, previous + ' ' + current, vocabulary, grow);
+				}
+				previous = current;
+			}
+		}
+		return ids;
+	}
+
+	private static void addTerm(IntList ids, String term, Map<String, Integer> vocabulary, boolean grow) {
+		Integer id = grow ? Integer.valueOf(idOf(vocabulary, term)) : vocabulary.get(term);
+		if(id != null) {
+			ids.add(id);
+		}
+	}
+
+	/**
+	 * A growable list of primitive ints
+	 */
+	static final class IntList {
+		int[] values = new int[16];
+		int size;
+
+		void add(int value) {
+			if(size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+	}
+
+	/**
+	 * Parallel arrays of ascending term ids and their weights
+	 */
+	static final class SparseVector {
+		final int[] ids;
+		final float[] values;
+		final int size;
+
+		private SparseVector(int[] ids, float[] values, int size) {
+			this.ids = ids;
+			this.values = values;
+			this.size = size;
+		}
+
+		/**
+		 * Build a vector holding how often each term id occurs
+		 */
+		static SparseVector count(IntList termIds) {
+			final int[] sorted = Arrays.copyOf(termIds.values, termIds.size);
+			Arrays.sort(sorted);
+			final int[] ids = new int[sorted.length];
+			final float[] values = new float[sorted.length];
+			int size = 0;
+			for(int i = 0; i < sorted.length; i++) {
+				if(size > 0 && ids[size - 1] == sorted[i]) {
+					values[size - 1]++;
+				} else {
+					ids[size] = sorted[i];
+					values[size] = 1;
+					size++;
+				}
+			}
+			return new SparseVector(ids, values, size);
+		}
+
+		/**
+		 * Replace every term count with its sublinear TF-IDF weight, (1 + log tf) * idf
+		 */
+		void weigh(float[] idf) {
+			for(int i = 0; i < size; i++) {
+				values[i] = (float) ((1 + Math.log(values[i])) * idf[ids[i]]);
+			}
+		}
+
+		/**
+		 * Scale the vector to unit length, so long documents do not dominate training
+		 */
+		void normalize() {
+			double norm = 0;
+			for(int i = 0; i < size; i++) {
+				norm += values[i] * values[i];
+			}
+			if(norm > 0) {
+				final float scale = (float) (1 / Math.sqrt(norm));
+				for(int i = 0; i < size; i++) {
+					values[i] *= scale;
+				}
+			}
+		}
+	}
+}
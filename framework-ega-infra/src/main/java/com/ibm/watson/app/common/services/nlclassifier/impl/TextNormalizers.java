@@ -0,0 +1,92 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Common {@link TextNormalizer text normalizers}
+ */
+public final class TextNormalizers {
+	private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+	private static final Pattern PUNCTUATION_PATTERN = Pattern.compile("\\p{P}+");
+
+	/**
+	 * Leaves the text as it is
+	 */
+	public static final TextNormalizer NONE = new TextNormalizer() {
+		@Override
+		public String normalize(String text) {
+			return text;
+		}
+	};
+
+	/**
+	 * Trims the text and collapses every run of whitespace into a single space
+	 */
+	public static final TextNormalizer WHITESPACE = new TextNormalizer() {
+		@Override
+		public String normalize(String text) {
+			return WHITESPACE_PATTERN.matcher(text.trim()).replaceAll(" ");
+		}
+	};
+
+	/**
+	 * Lower cases the text
+	 */
+	public static final TextNormalizer CASE = new TextNormalizer() {
+		@Override
+		public String normalize(String text) {
+			return text.toLowerCase(Locale.ROOT);
+		}
+	};
+
+	/**
+	 * Removes punctuation, so "What's Watson?" becomes "Whats Watson"
+	 */
+	public static final TextNormalizer PUNCTUATION = new TextNormalizer() {
+		@Override
+		public String normalize(String text) {
+			return PUNCTUATION_PATTERN.matcher(text).replaceAll("");
+		}
+	};
+
+	/**
+	 * Normalizes whitespace and case, for callers that know the classifier doesn't tell texts differing in case apart
+	 */
+	public static final TextNormalizer DEFAULT = chain(WHITESPACE, CASE);
+
+	private TextNormalizers() {
+	}
+
+	/**
+	 * Apply several normalizers, in order
+	 */
+	public static TextNormalizer chain(TextNormalizer... normalizers) {
+		final TextNormalizer[] chain = Arrays.copyOf(normalizers, normalizers.length);
+		return new TextNormalizer() {
+			@Override
+			public String normalize(String text) {
+				for(TextNormalizer normalizer : chain) {
+					text = normalizer.normalize(text);
+				}
+				return text;
+			}
+		};
+	}
+}
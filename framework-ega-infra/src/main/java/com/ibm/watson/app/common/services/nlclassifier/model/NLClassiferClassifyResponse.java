@@ -15,6 +15,7 @@
 
 package com.ibm.watson.app.common.services.nlclassifier.model;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -81,6 +82,24 @@ public class NLClassiferClassifyResponse {
 		this.classes = classes;
 	}
 
+	/**
+	 * Create a deep copy of this response, that can be changed without affecting this one
+	 */
+	public NLClassiferClassifyResponse copy() {
+		NLClassiferClassifyResponse copy = new NLClassiferClassifyResponse();
+		copy.classifierId = classifierId;
+		copy.url = url;
+		copy.text = text;
+		copy.topClass = topClass;
+		if(classes != null) {
+			copy.classes = new ArrayList<>(classes.size());
+			for(NLClassifiedClass clazz : classes) {
+				copy.classes.add(clazz == null ? null : new NLClassifiedClass(clazz.className, clazz.confidence));
+			}
+		}
+		return copy;
+	}
+
 	public static class NLClassifiedClass {
 		private String className;
 		private Double confidence;
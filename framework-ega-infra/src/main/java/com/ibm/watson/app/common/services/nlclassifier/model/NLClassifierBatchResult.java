@@ -0,0 +1,56 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.model;
+
+/**
+ * The outcome of classifying a single text as part of a batch.
+ * Exactly one of {@link #getResponse()} and {@link #getError()} is non-null.
+ */
+public class NLClassifierBatchResult {
+	private final String text;
+	private final NLClassiferClassifyResponse response;
+	private final Throwable error;
+
+	private NLClassifierBatchResult(String text, NLClassiferClassifyResponse response, Throwable error) {
+		this.text = text;
+		this.response = response;
+		this.error = error;
+	}
+
+	public static NLClassifierBatchResult success(String text, NLClassiferClassifyResponse response) {
+		return new NLClassifierBatchResult(text, response, null);
+	}
+
+	public static NLClassifierBatchResult failure(String text, Throwable error) {
+		return new NLClassifierBatchResult(text, null, error);
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public NLClassiferClassifyResponse getResponse() {
+		return response;
+	}
+
+	public Throwable getError() {
+		return error;
+	}
+
+	public boolean isSuccessful() {
+		return error == null;
+	}
+}
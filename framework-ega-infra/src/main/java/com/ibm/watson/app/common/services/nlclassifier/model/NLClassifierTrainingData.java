@@ -25,6 +25,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSetter;
@@ -52,7 +53,16 @@ public class NLClassifierTrainingData {
 		return gson.toJson(this);
 	}
 
+	/**
+	 * Read training data from a file, as CSV when its name ends with {@code .csv} and as JSON otherwise.
+	 * To process large files without reading them into memory, use a {@link TrainingDataReader} instead.
+	 */
 	public static NLClassifierTrainingData fromFile(File file) throws IOException {
+		if(file.getName().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+			try(TrainingDataReader reader = TrainingDataReader.open(file)) {
+				return reader.readAll();
+			}
+		}
 		try(InputStream stream = new FileInputStream(file)) {
 			return fromStream(stream);
 		}
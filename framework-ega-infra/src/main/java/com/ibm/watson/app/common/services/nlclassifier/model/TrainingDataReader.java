@@ -0,0 +1,322 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierTrainingData.TrainingInstance;
+
+/**
+ * Reads training instances one at a time, so training files of any size can be processed with constant memory.
+ * <p>Two formats are supported: the JSON written by {@link NLClassifierTrainingData#toJson()}, and the CSV format 
+ * the classifier service accepts natively, where each record holds the text followed by one or more classes.
+ * Class labels are interned per reader, so the instances of a large file share a single copy of each label.</p>
+ */
+public abstract class TrainingDataReader implements Closeable {
+	private final Map<String, String> labels = new HashMap<>();
+	private long recordNumber;
+
+	/**
+	 * Open a training file, as CSV when its name ends with {@code .csv} and as JSON otherwise
+	 */
+	public static TrainingDataReader open(File file) throws IOException {
+		InputStream stream = new FileInputStream(file);
+		try {
+			return file.getName().toLowerCase(Locale.ROOT).endsWith(".csv") ? csv(stream) : json(stream);
+		} catch(IOException | RuntimeException e) {
+			stream.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Read UTF-8 JSON training data from the stream, which is closed with the reader
+	 */
+	public static TrainingDataReader json(InputStream stream) {
+		return new Json(new InputStreamReader(stream, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Read UTF-8 CSV training data from the stream, which is closed with the reader
+	 */
+	public static TrainingDataReader csv(InputStream stream) throws IOException {
+		return new Csv(new InputStreamReader(stream, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Read the next training instance
+	 * @return The instance, or {@code null} once all instances have been read
+	 * @throws IOException if the data could not be read or is malformed
+	 */
+	public final TrainingInstance read() throws IOException {
+		TrainingInstance instance = readInstance();
+		if(instance != null) {
+			recordNumber++;
+		}
+		return instance;
+	}
+
+	/**
+	 * Get the number of instances read so far, which is also the 1-based position of the last instance returned by {@link #read()}
+	 */
+	public long getRecordNumber() {
+		return recordNumber;
+	}
+
+	/**
+	 * Get the language of the training data, if the format holds it and it appeared before the instances
+	 */
+	public String getLanguage() {
+		return null;
+	}
+
+	/**
+	 * Get the name of the training data, if the format holds it and it appeared before the instances
+	 */
+	public String getName() {
+		return null;
+	}
+
+	/**
+	 * Read all remaining instances into memory
+	 */
+	public NLClassifierTrainingData readAll() throws IOException {
+		List<TrainingInstance> instances = new ArrayList<>();
+		for(TrainingInstance instance = read(); instance != null; instance = read()) {
+			instances.add(instance);
+		}
+		NLClassifierTrainingData data = new NLClassifierTrainingData();
+		data.setLanguage(getLanguage());
+		data.setName(getName());
+		data.setTrainingData(instances);
+		return data;
+	}
+
+	protected abstract TrainingInstance readInstance() throws IOException;
+
+	/**
+	 * Build an instance, sharing the class labels with all other instances of this reader
+	 */
+	protected TrainingInstance createInstance(String text, List<String> classes) {
+		TrainingInstance instance = new TrainingInstance();
+		instance.setText(text);
+		if(classes != null) {
+			if(classes.size() == 1) {
+				instance.setClasses(Collections.singletonList(intern(classes.get(0))));
+			} else {
+				String[] interned = new String[classes.size()];
+				for(int i = 0; i < interned.length; i++) {
+					interned[i] = intern(classes.get(i));
+				}
+				instance.setClasses(Arrays.asList(interned));
+			}
+		}
+		return instance;
+	}
+
+	private String intern(String label) {
+		if(label == null) {
+			return null;
+		}
+		String interned = labels.get(label);
+		if(interned == null) {
+			labels.put(label, label);
+			interned = label;
+		}
+		return interned;
+	}
+
+	private static final class Json extends TrainingDataReader {
+		private final JsonReader reader;
+		private final List<String> classes = new ArrayList<>();
+		private String language, name;
+		private boolean inInstances, done;
+
+		Json(Reader reader) {
+			this.reader = new JsonReader(reader);
+			// Same as NLClassifierTrainingData.fromStream()
+			this.reader.setLenient(true);
+		}
+
+		@Override
+		public String getLanguage() {
+			return language;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		protected TrainingInstance readInstance() throws IOException {
+			if(done) {
+				return null;
+			}
+			if(!inInstances && !advanceToInstances()) {
+				done = true;
+				return null;
+			}
+			while(reader.hasNext()) {
+				if(reader.peek() == JsonToken.NULL) {
+					reader.nextNull();
+				} else {
+					return readObject();
+				}
+			}
+			reader.endArray();
+			inInstances = false;
+			return readInstance();
+		}
+
+		/**
+		 * Move to the first element of the next training_data array
+		 * @return false if the document has no more instances
+		 */
+		private boolean advanceToInstances() throws IOException {
+			if(reader.peek() == JsonToken.BEGIN_OBJECT) {
+				reader.beginObject();
+			}
+			while(reader.hasNext()) {
+				String field = reader.nextName();
+				if(reader.peek() == JsonToken.NULL) {
+					reader.nextNull();
+				} else if(field.equals("language")) {
+					language = reader.nextString();
+				} else if(field.equals("name")) {
+					name = reader.nextString();
+				} else if(field.equals("training_data")) {
+					reader.beginArray();
+					inInstances = true;
+					return true;
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+			return false;
+		}
+
+		private TrainingInstance readObject() throws IOException {
+			String text = null;
+			boolean hasClasses = false;
+			classes.clear();
+			reader.beginObject();
+			while(reader.hasNext()) {
+				String field = reader.nextName();
+				if(reader.peek() == JsonToken.NULL) {
+					reader.nextNull();
+				} else if(field.equals("text")) {
+					text = reader.nextString();
+				} else if(field.equals("classes")) {
+					hasClasses = true;
+					reader.beginArray();
+					while(reader.hasNext()) {
+						if(reader.peek() == JsonToken.NULL) {
+							reader.nextNull();
+							classes.add(null);
+						} else {
+							classes.add(reader.nextString());
+						}
+					}
+					reader.endArray();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+			return createInstance(text, hasClasses ? classes : null);
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+	private static final class Csv extends TrainingDataReader {
+		private final CSVParser parser;
+		private final Iterator<CSVRecord> records;
+		private final List<String> classes = new ArrayList<>();
+
+		Csv(Reader reader) throws IOException {
+			this.parser = new CSVParser(reader, CSVFormat.DEFAULT);
+			this.records = parser.iterator();
+		}
+
+		@Override
+		protected TrainingInstance readInstance() throws IOException {
+			while(true) {
+				final CSVRecord record;
+				try {
+					if(!records.hasNext()) {
+						return null;
+					}
+					record = records.next();
+				} catch(RuntimeException e) {
+					// The parser reports malformed input as an IllegalStateException wrapping the IOException
+					throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e);
+				}
+				if(record.size() == 1 && record.get(0).isEmpty()) {
+					continue; // Blank line
+				}
+				classes.clear();
+				for(int i = 1; i < record.size(); i++) {
+					// Trailing empty columns are padding, not classes
+					if(!record.get(i).isEmpty() || hasValueAfter(record, i)) {
+						classes.add(record.get(i));
+					}
+				}
+				return createInstance(record.get(0), classes);
+			}
+		}
+
+		private static boolean hasValueAfter(CSVRecord record, int index) {
+			for(int i = index + 1; i < record.size(); i++) {
+				if(!record.get(i).isEmpty()) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void close() throws IOException {
+			parser.close();
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The outcome of a {@link TrainingDataValidator} pass over training data: the problems found, and statistics per class
+ */
+public class TrainingDataReport {
+	/**
+	 * The kinds of problem the validator looks for
+	 */
+	public enum ProblemType {
+		EMPTY_TEXT,
+		TEXT_TOO_LONG,
+		NO_CLASSES,
+		EMPTY_CLASS,
+		TOO_MANY_CLASSES_PER_INSTANCE,
+		DUPLICATE_TEXT,
+		TOO_FEW_INSTANCES,
+		TOO_MANY_INSTANCES,
+		TOO_MANY_CLASSES;
+	}
+
+	/**
+	 * A single problem found in the training data
+	 */
+	public static class Problem {
+		private final ProblemType type;
+		private final long recordNumber;
+		private final String detail;
+
+		Problem(ProblemType type, long recordNumber, String detail) {
+			this.type = type;
+			this.recordNumber = recordNumber;
+			this.detail = detail;
+		}
+
+		public ProblemType getType() {
+			return type;
+		}
+
+		/**
+		 * Get the 1-based position of the offending instance, or 0 if the problem concerns the data as a whole
+		 */
+		public long getRecordNumber() {
+			return recordNumber;
+		}
+
+		public String getDetail() {
+			return detail;
+		}
+
+		@Override
+		public String toString() {
+			return (recordNumber > 0 ? "Instance " + recordNumber + ": " : "") + type + (detail == null ? "" : " (" + detail + ")");
+		}
+	}
+
+	/**
+	 * Statistics of the instances labelled with one class
+	 */
+	public static class ClassStatistics {
+		private long instanceCount;
+		private long totalTextLength;
+		private int minTextLength = Integer.MAX_VALUE;
+		private int maxTextLength;
+
+		void add(int textLength) {
+			instanceCount++;
+			totalTextLength += textLength;
+			minTextLength = Math.min(minTextLength, textLength);
+			maxTextLength = Math.max(maxTextLength, textLength);
+		}
+
+		public long getInstanceCount() {
+			return instanceCount;
+		}
+
+		public double getMeanTextLength() {
+			return instanceCount == 0 ? 0 : (double) totalTextLength / instanceCount;
+		}
+
+		public int getMinTextLength() {
+			return instanceCount == 0 ? 0 : minTextLength;
+		}
+
+		public int getMaxTextLength() {
+			return maxTextLength;
+		}
+
+		@Override
+		public String toString() {
+			return "ClassStatistics [instances=" + instanceCount + ", meanTextLength=" + getMeanTextLength() + "]";
+		}
+	}
+
+	private final int maxProblems;
+	private final List<Problem> problems = new ArrayList<>();
+	private final Map<ProblemType, Long> problemCounts = new EnumMap<>(ProblemType.class);
+	private final Map<String, ClassStatistics> classes = new TreeMap<>();
+	private long instanceCount;
+
+	TrainingDataReport(int maxProblems) {
+		this.maxProblems = maxProblems;
+	}
+
+	void addProblem(ProblemType type, long recordNumber, String detail) {
+		Long count = problemCounts.get(type);
+		problemCounts.put(type, count == null ? 1 : count + 1);
+		if(problems.size() < maxProblems) {
+			problems.add(new Problem(type, recordNumber, detail));
+		}
+	}
+
+	ClassStatistics getOrCreateClass(String className) {
+		ClassStatistics statistics = classes.get(className);
+		if(statistics == null) {
+			statistics = new ClassStatistics();
+			classes.put(className, statistics);
+		}
+		return statistics;
+	}
+
+	void setInstanceCount(long instanceCount) {
+		this.instanceCount = instanceCount;
+	}
+
+	/**
+	 * Check that no problems were found
+	 */
+	public boolean isValid() {
+		return problemCounts.isEmpty();
+	}
+
+	public long getInstanceCount() {
+		return instanceCount;
+	}
+
+	/**
+	 * Get the problems found, in the order they were found. Only the first few are kept, see {@link #getProblemCounts()} for the totals
+	 */
+	public List<Problem> getProblems() {
+		return Collections.unmodifiableList(problems);
+	}
+
+	/**
+	 * Get the number of problems found of each type
+	 */
+	public Map<ProblemType, Long> getProblemCounts() {
+		return Collections.unmodifiableMap(problemCounts);
+	}
+
+	/**
+	 * Get the statistics of each class, sorted by class name
+	 */
+	public Map<String, ClassStatistics> getClasses() {
+		return Collections.unmodifiableMap(classes);
+	}
+
+	@Override
+	public String toString() {
+		return "TrainingDataReport [instances=" + instanceCount + ", classes=" + classes.size() + ", problems=" + problemCounts + "]";
+	}
+}
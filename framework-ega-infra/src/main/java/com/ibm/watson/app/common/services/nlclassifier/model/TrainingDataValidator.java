@@ -0,0 +1,240 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.model;
+
+import java.io.IOException;
+
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierTrainingData.TrainingInstance;
+import com.ibm.watson.app.common.services.nlclassifier.model.TrainingDataReport.ProblemType;
+
+/**
+ * Checks training data against the limits of the classifier service, and gathers statistics per class, in a single pass.
+ * <p>Apart from the statistics per class, the only state kept is a 64 bit hash of every text seen, to find duplicates,
+ * so files with millions of instances can be validated straight from a {@link TrainingDataReader}.</p>
+ */
+public class TrainingDataValidator {
+	public static final int DEFAULT_MIN_INSTANCES = 5;
+	public static final int DEFAULT_MAX_INSTANCES = 15000;
+	public static final int DEFAULT_MAX_TEXT_LENGTH = 1024;
+	public static final int DEFAULT_MAX_PROBLEMS = 100;
+
+	private long minInstances = DEFAULT_MIN_INSTANCES;
+	private long maxInstances = DEFAULT_MAX_INSTANCES;
+	private int maxTextLength = DEFAULT_MAX_TEXT_LENGTH;
+	private int maxClasses = Integer.MAX_VALUE;
+	private int maxClassesPerInstance = Integer.MAX_VALUE;
+	private int maxProblems = DEFAULT_MAX_PROBLEMS;
+
+	/**
+	 * Read and validate all the remaining instances of the reader. The reader is not closed
+	 * @throws IOException if the data could not be read or is malformed
+	 */
+	public TrainingDataReport validate(TrainingDataReader reader) throws IOException {
+		final TrainingDataReport report = new TrainingDataReport(maxProblems);
+		final LongHashSet texts = new LongHashSet();
+		for(TrainingInstance instance = reader.read(); instance != null; instance = reader.read()) {
+			validate(instance, reader.getRecordNumber(), texts, report);
+		}
+		return finish(reader.getRecordNumber(), report);
+	}
+
+	/**
+	 * Validate training data that is already in memory
+	 */
+	public TrainingDataReport validate(NLClassifierTrainingData data) {
+		final TrainingDataReport report = new TrainingDataReport(maxProblems);
+		final LongHashSet texts = new LongHashSet();
+		long recordNumber = 0;
+		if(data.getTrainingData() != null) {
+			for(TrainingInstance instance : data.getTrainingData()) {
+				validate(instance, ++recordNumber, texts, report);
+			}
+		}
+		return finish(recordNumber, report);
+	}
+
+	private void validate(TrainingInstance instance, long recordNumber, LongHashSet texts, TrainingDataReport report) {
+		final String text = instance == null ? null : instance.getText();
+		if(text == null || text.trim().isEmpty()) {
+			report.addProblem(ProblemType.EMPTY_TEXT, recordNumber, null);
+		} else {
+			if(text.length() > maxTextLength) {
+				report.addProblem(ProblemType.TEXT_TOO_LONG, recordNumber, text.length() + " > " + maxTextLength);
+			}
+			if(!texts.add(hash(text))) {
+				report.addProblem(ProblemType.DUPLICATE_TEXT, recordNumber, text);
+			}
+		}
+
+		if(instance == null || instance.getClasses() == null || instance.getClasses().isEmpty()) {
+			report.addProblem(ProblemType.NO_CLASSES, recordNumber, null);
+			return;
+		}
+		if(instance.getClasses().size() > maxClassesPerInstance) {
+			report.addProblem(ProblemType.TOO_MANY_CLASSES_PER_INSTANCE, recordNumber, instance.getClasses().size() + " > " + maxClassesPerInstance);
+		}
+		final int textLength = text == null ? 0 : text.length();
+		for(String className : instance.getClasses()) {
+			if(className == null || className.trim().isEmpty()) {
+				report.addProblem(ProblemType.EMPTY_CLASS, recordNumber, null);
+			} else {
+				report.getOrCreateClass(className).add(textLength);
+			}
+		}
+	}
+
+	private TrainingDataReport finish(long instanceCount, TrainingDataReport report) {
+		report.setInstanceCount(instanceCount);
+		if(instanceCount < minInstances) {
+			report.addProblem(ProblemType.TOO_FEW_INSTANCES, 0, instanceCount + " < " + minInstances);
+		}
+		if(instanceCount > maxInstances) {
+			report.addProblem(ProblemType.TOO_MANY_INSTANCES, 0, instanceCount + " > " + maxInstances);
+		}
+		if(report.getClasses().size() > maxClasses) {
+			report.addProblem(ProblemType.TOO_MANY_CLASSES, 0, report.getClasses().size() + " > " + maxClasses);
+		}
+		return report;
+	}
+
+	/**
+	 * 64 bit FNV-1a over the UTF-16 code units of the text
+	 */
+	static long hash(String text) {
+		long hash = 0xcbf29ce484222325L;
+		for(int i = 0; i < text.length(); i++) {
+			hash ^= text.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	public long getMinInstances() {
+		return minInstances;
+	}
+
+	public void setMinInstances(long minInstances) {
+		this.minInstances = minInstances;
+	}
+
+	public long getMaxInstances() {
+		return maxInstances;
+	}
+
+	public void setMaxInstances(long maxInstances) {
+		this.maxInstances = maxInstances;
+	}
+
+	public int getMaxTextLength() {
+		return maxTextLength;
+	}
+
+	public void setMaxTextLength(int maxTextLength) {
+		this.maxTextLength = maxTextLength;
+	}
+
+	public int getMaxClasses() {
+		return maxClasses;
+	}
+
+	/**
+	 * Set the number of distinct classes allowed, unlimited by default
+	 */
+	public void setMaxClasses(int maxClasses) {
+		this.maxClasses = maxClasses;
+	}
+
+	public int getMaxClassesPerInstance() {
+		return maxClassesPerInstance;
+	}
+
+	/**
+	 * Set the number of classes allowed on a single instance, unlimited by default
+	 */
+	public void setMaxClassesPerInstance(int maxClassesPerInstance) {
+		this.maxClassesPerInstance = maxClassesPerInstance;
+	}
+
+	public int getMaxProblems() {
+		return maxProblems;
+	}
+
+	/**
+	 * Set how many problems the report lists, the problems beyond that are only counted
+	 */
+	public void setMaxProblems(int maxProblems) {
+		this.maxProblems = maxProblems;
+	}
+
+	/**
+	 * An open addressing set of primitive longs
+	 */
+	static final class LongHashSet {
+		// Marks a free slot, the hash that happens to equal it is tracked separately
+		private static final long FREE = 0;
+
+		private long[] slots = new long[1024];
+		private int size;
+		private boolean containsFree;
+
+		/**
+		 * @return false if the value was already in the set
+		 */
+		boolean add(long value) {
+			if(value == FREE) {
+				boolean added = !containsFree;
+				containsFree = true;
+				return added;
+			}
+			if(size * 2 >= slots.length) {
+				grow();
+			}
+			if(!insert(slots, value)) {
+				return false;
+			}
+			size++;
+			return true;
+		}
+
+		private static boolean insert(long[] slots, long value) {
+			final int mask = slots.length - 1;
+			int index = (int) (value ^ (value >>> 32)) & mask;
+			while(slots[index] != FREE) {
+				if(slots[index] == value) {
+					return false;
+				}
+				index = (index + 1) & mask;
+			}
+			slots[index] = value;
+			return true;
+		}
+
+		private void grow() {
+			long[] grown = new long[slots.length * 2];
+			for(long value : slots) {
+				if(value != FREE) {
+					insert(grown, value);
+				}
+			}
+			slots = grown;
+		}
+
+		@Override
+		public String toString() {
+			return "LongHashSet [size=" + (size + (containsFree ? 1 : 0)) + ", capacity=" + slots.length + "]";
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent;
+
+/**
+ * What a {@link TagEventPipeline} does with a new record while its buffer is full
+ */
+public enum BackpressurePolicy {
+   /**
+    * Wait for room in the buffer, slowing the logging thread down but never losing a record
+    */
+   BLOCK,
+   /**
+    * Drop the record, so logging never waits
+    */
+   DROP,
+   /**
+    * Keep one in every {@code sampleRate} records, waiting for room like {@link #BLOCK}, and drop the others
+    */
+   SAMPLE;
+
+   /**
+    * Parse the policy name, ignoring case
+    * @param name The name, may be null
+    * @param defaultPolicy The policy to use if the name is null or unknown
+    */
+   public static BackpressurePolicy fromString(String name, BackpressurePolicy defaultPolicy) {
+      if ( name != null ) {
+         for ( BackpressurePolicy policy : values() ) {
+            if ( policy.name().equalsIgnoreCase(name.trim()) ) {
+               return policy;
+            }
+         }
+      }
+      return defaultPolicy;
+   }
+}
@@ -43,7 +43,7 @@ public abstract class EventTagRecord extends TagRecord {
      */
     @Override
     public Iterator<String> iterator() {
-        return Arrays.asList(getType(), dateFormatter.get().format(getTimestamp()), getUser()).iterator();
+        return Arrays.asList(getType(), formatDate(getTimestamp()), getUser()).iterator();
     }
 
     public Date getTimestamp() {
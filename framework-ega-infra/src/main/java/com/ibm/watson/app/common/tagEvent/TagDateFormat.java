@@ -0,0 +1,113 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats dates as {@value TagRecord#dateFormatString}, giving the same text as {@link SimpleDateFormat} without 
+ * creating any objects for dates within the same second as the previous one.
+ * Thread-safe.
+ */
+final class TagDateFormat {
+   private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+   // Outside these years the result would differ from the Julian/Gregorian calendar of SimpleDateFormat
+   private static final int MIN_YEAR = 1600, MAX_YEAR = 9999;
+
+   private static final class Second {
+      final long second;
+      final String text;
+
+      Second(long second, String text) {
+         this.second = second;
+         this.text = text;
+      }
+   }
+
+   private final TimeZone zone;
+   private final SimpleDateFormat fallback;
+   private volatile Second last;
+
+   TagDateFormat(TimeZone zone) {
+      this.zone = (TimeZone) zone.clone();
+      this.fallback = new SimpleDateFormat(TagRecord.dateFormatString, Locale.US);
+      this.fallback.setTimeZone(this.zone);
+   }
+
+   String format(Date date) {
+      final long millis = date.getTime();
+      final long second = floorDiv(millis, 1000);
+      Second cached = last;
+      if ( cached != null && cached.second == second ) {
+         return cached.text;
+      }
+      cached = new Second(second, format(millis));
+      last = cached;
+      return cached.text;
+   }
+
+   private String format(long millis) {
+      final int offset = zone.getOffset(millis);
+      final long local = millis + offset;
+      final long days = floorDiv(local, MILLIS_PER_DAY);
+      final int secondOfDay = (int) ((local - days * MILLIS_PER_DAY) / 1000);
+
+      // Civil date from days since 1970-01-01 in the proleptic Gregorian calendar
+      final long shifted = days + 719468;
+      final long era = floorDiv(shifted, 146097);
+      final int dayOfEra = (int) (shifted - era * 146097);
+      final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+      final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+      final int shiftedMonth = (5 * dayOfYear + 2) / 153;
+      final int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+      final int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+      final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+      if ( year < MIN_YEAR || year > MAX_YEAR ) {
+         synchronized ( fallback ) {
+            return fallback.format(new Date(millis));
+         }
+      }
+
+      final char[] text = new char[19];
+      appendDigits(text, 0, (int) year, 4);
+      appendDigits(text, 4, month, 2);
+      appendDigits(text, 6, day, 2);
+      appendDigits(text, 8, secondOfDay / 3600, 2);
+      appendDigits(text, 10, secondOfDay / 60 % 60, 2);
+      appendDigits(text, 12, secondOfDay % 60, 2);
+      final int offsetMinutes = offset / 60000;
+      text[14] = offsetMinutes < 0 ? '-' : '+';
+      appendDigits(text, 15, Math.abs(offsetMinutes) / 60, 2);
+      appendDigits(text, 17, Math.abs(offsetMinutes) % 60, 2);
+      return new String(text);
+   }
+
+   private static void appendDigits(char[] text, int start, int value, int width) {
+      for ( int i = start + width - 1; i >= start; i-- ) {
+         text[i] = (char) ('0' + value % 10);
+         value /= 10;
+      }
+   }
+
+   private static long floorDiv(long x, long y) {
+      final long q = x / y;
+      return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+   }
+}
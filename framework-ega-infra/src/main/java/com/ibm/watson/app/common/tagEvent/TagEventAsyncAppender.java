@@ -0,0 +1,156 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.AppenderControl;
+import org.apache.logging.log4j.core.config.AppenderRef;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginConfiguration;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.SimpleMessage;
+
+/**
+ * Serializes tag events on a background thread, in batches, and forwards each batch to the referenced appenders 
+ * as a single event marked with {@link TagEventMarkers#TAG_EVENT_BATCH_MARKER}. 
+ * {@link TagEventLayout} writes such events as they are.
+ * <p>Example:</p>
+ * <pre>
+ * &lt;TagEventAsync name="tagEvents" format="csv" bufferSize="8192" batchSize="256" backpressure="DROP"&gt;
+ *    &lt;AppenderRef ref="tagEventFile"/&gt;
+ * &lt;/TagEventAsync&gt;
+ * </pre>
+ * <p>Tag records are serialized after the logging call returns, so they must not be modified once logged.</p>
+ */
+@Plugin(name = "TagEventAsync", category = "Core", elementType = "appender", printObject = true)
+public class TagEventAsyncAppender extends AbstractAppender {
+   private static final long serialVersionUID = 1L;
+   private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+   @PluginFactory
+   public static TagEventAsyncAppender createAppender(
+         @PluginAttribute("name") String name,
+         @PluginAttribute(value = "format", defaultString = "json") String format,
+         @PluginAttribute(value = "bufferSize", defaultInt = TagEventPipeline.DEFAULT_BUFFER_SIZE) int bufferSize,
+         @PluginAttribute(value = "batchSize", defaultInt = TagEventPipeline.DEFAULT_BATCH_SIZE) int batchSize,
+         @PluginAttribute(value = "backpressure", defaultString = "BLOCK") String backpressure,
+         @PluginAttribute(value = "sampleRate", defaultInt = TagEventPipeline.DEFAULT_SAMPLE_RATE) int sampleRate,
+         @PluginAttribute(value = "ignoreExceptions", defaultBoolean = true) boolean ignoreExceptions,
+         @PluginElement("AppenderRef") AppenderRef[] appenderRefs,
+         @PluginElement("Filter") Filter filter,
+         @PluginConfiguration Configuration config ) {
+      if ( name == null ) {
+         LOGGER.error("No name provided for TagEventAsyncAppender");
+         return null;
+      }
+      if ( appenderRefs == null || appenderRefs.length == 0 ) {
+         LOGGER.error("No appender references provided to TagEventAsyncAppender " + name);
+         return null;
+      }
+      BackpressurePolicy policy = BackpressurePolicy.fromString(backpressure, BackpressurePolicy.BLOCK);
+      return new TagEventAsyncAppender(name, filter, "csv".equalsIgnoreCase(format), bufferSize, Math.max(1, batchSize), 
+            policy, Math.max(1, sampleRate), appenderRefs, config, ignoreExceptions);
+   }
+
+   private final AppenderRef[] appenderRefs;
+   private final Configuration config;
+   private final TagEventPipeline pipeline;
+   private final List<AppenderControl> appenders = new ArrayList<>();
+
+   protected TagEventAsyncAppender(String name, Filter filter, boolean csv, int bufferSize, int batchSize, 
+         BackpressurePolicy policy, int sampleRate, AppenderRef[] appenderRefs, Configuration config, boolean ignoreExceptions) {
+      super(name, filter, null, ignoreExceptions);
+      this.appenderRefs = appenderRefs;
+      this.config = config;
+      this.pipeline = new TagEventPipeline(name, csv, bufferSize, batchSize, policy, sampleRate, new TagEventPipeline.BatchHandler() {
+         @Override
+         public void handleBatch(CharSequence batch, int records) {
+            forward(batch);
+         }
+      });
+   }
+
+   @Override
+   public void start() {
+      for ( AppenderRef ref : appenderRefs ) {
+         Appender appender = config.getAppender(ref.getRef());
+         if ( appender == null ) {
+            LOGGER.error("No appender named " + ref.getRef() + " was configured for TagEventAsyncAppender " + getName());
+         } else {
+            appenders.add(new AppenderControl(appender, ref.getLevel(), ref.getFilter()));
+         }
+      }
+      if ( appenders.isEmpty() ) {
+         LOGGER.error("No appenders are available to TagEventAsyncAppender " + getName());
+         return;
+      }
+      pipeline.start();
+      super.start();
+   }
+
+   @Override
+   public void stop() {
+      super.stop();
+      if ( !pipeline.stop(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS) ) {
+         LOGGER.warn("TagEventAsyncAppender " + getName() + " stopped with " + pipeline.getQueued() + " tag events unwritten");
+      }
+   }
+
+   @Override
+   public void append( LogEvent event ) {
+      if ( event.getMessage() instanceof TagEventMessage && event.getMarker() != null 
+            && event.getMarker().isInstanceOf(TagEventMarkers.TAG_EVENT_MARKER) ) {
+         pipeline.offer(((TagEventMessage) event.getMessage()).record);
+      }
+   }
+
+   private void forward( CharSequence batch ) {
+      // The batch buffer is reused once this returns, so the event needs its own copy
+      LogEvent event = new Log4jLogEvent.Builder()
+            .setLoggerName(getName())
+            .setLoggerFqcn(TagEventAsyncAppender.class.getName())
+            .setLevel(Level.INFO)
+            .setMarker(TagEventMarkers.TAG_EVENT_BATCH_MARKER)
+            .setMessage(new SimpleMessage(batch.toString()))
+            .build();
+      for ( AppenderControl control : appenders ) {
+         try {
+            control.callAppender(event);
+         } catch ( RuntimeException e ) {
+            error("Unable to forward tag events to " + control.getAppender().getName(), event, e);
+         }
+      }
+   }
+
+   /**
+    * Get the pipeline, to monitor how many events were written or dropped
+    */
+   public TagEventPipeline getPipeline() {
+      return pipeline;
+   }
+}
@@ -58,6 +58,10 @@ public class TagEventLayout extends AbstractStringLayout {
          if ( logEvent.getMessage() instanceof TagEventMessage ) {
             return ((TagEventMessage)logEvent.getMessage()).getFormattedMessage(messageFormat);
          }
+         if ( logEvent.getMarker().isInstanceOf(TagEventMarkers.TAG_EVENT_BATCH_MARKER) ) {
+            // Already serialized by TagEventAsyncAppender
+            return logEvent.getMessage().getFormattedMessage();
+         }
       }
       return "";
    }
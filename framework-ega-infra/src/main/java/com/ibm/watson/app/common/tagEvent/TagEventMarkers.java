@@ -24,6 +24,8 @@ public class TagEventMarkers {
    public  static final Marker TAG_EVENT_MARKER = MarkerManager.getMarker("tagEvent");
    public  static final Marker ARTCLE_CLICK_MARKER = MarkerManager.getMarker("tagEvent_articleClick").setParents(TAG_EVENT_MARKER);
    public  static final Marker CALL_AGENT_MARKER = MarkerManager.getMarker("tagEvent_agent").setParents(TAG_EVENT_MARKER);
+   /** Marks an event carrying tag events that are already serialized, see {@link TagEventAsyncAppender} */
+   public  static final Marker TAG_EVENT_BATCH_MARKER = MarkerManager.getMarker("tagEvent_batch").setParents(TAG_EVENT_MARKER);
 
 
 }
@@ -34,6 +34,10 @@ public class TagEventMessage extends ObjectMessage implements MultiformatMessage
       record = tag;
    }
    
+   public TagRecord getRecord() {
+      return record;
+   }
+
    @Override
    public String[] getFormats() {
       return FORMATS;
@@ -0,0 +1,309 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.status.StatusLogger;
+
+/**
+ * Moves the serialization of tag records off the logging thread.
+ * <p>{@link #offer(TagRecord)} only puts the record in a lock-free ring buffer. A background thread takes the records 
+ * out in batches of up to {@code batchSize}, serializes each batch into one reusable buffer, and hands it to the 
+ * {@link BatchHandler}. While the buffer is full, new records are handled according to the {@link BackpressurePolicy}, 
+ * and the records that had to be dropped are counted.</p>
+ * <p>Records are serialized some time after they were offered, so they must not be modified once offered.</p>
+ */
+public class TagEventPipeline {
+   // Logging through the regular loggers from inside the logging pipeline could recurse, use the status logger
+   private static final Logger logger = StatusLogger.getLogger();
+
+   public static final int DEFAULT_BUFFER_SIZE = 8192;
+   public static final int DEFAULT_BATCH_SIZE = 256;
+   public static final int DEFAULT_SAMPLE_RATE = 10;
+
+   private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+   private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+   /**
+    * Receives the serialized batches, on the pipeline thread
+    */
+   public interface BatchHandler {
+      /**
+       * @param batch The serialized records, only valid until this method returns
+       * @param records The number of records in the batch
+       */
+      void handleBatch(CharSequence batch, int records);
+   }
+
+   private final String name;
+   private final TagEventRingBuffer<TagRecord> buffer;
+   private final TagRecordBatchWriter writer;
+   private final BatchHandler handler;
+   private final BackpressurePolicy policy;
+   private final int batchSize;
+   private final int sampleRate;
+
+   private final AtomicLong enqueued = new AtomicLong();
+   private final AtomicLong dropped = new AtomicLong();
+   private final AtomicLong sampled = new AtomicLong();
+   private final AtomicLong rejectedWhileFull = new AtomicLong();
+   private final AtomicLong written = new AtomicLong();
+   private final AtomicLong failed = new AtomicLong();
+   private final AtomicLong batches = new AtomicLong();
+
+   private volatile Thread worker;
+   private volatile boolean workerParked;
+   private volatile boolean stopped;
+
+   public TagEventPipeline(String name, boolean csv, BatchHandler handler) {
+      this(name, csv, DEFAULT_BUFFER_SIZE, DEFAULT_BATCH_SIZE, BackpressurePolicy.BLOCK, DEFAULT_SAMPLE_RATE, handler);
+   }
+
+   /**
+    * @param name The name of the pipeline thread
+    * @param csv Whether to serialize the records as CSV rather than JSON
+    * @param bufferSize The number of records that can be waiting for serialization, rounded up to a power of two
+    * @param batchSize The maximum number of records per batch
+    * @param policy What to do with new records while the buffer is full
+    * @param sampleRate With {@link BackpressurePolicy#SAMPLE}, keep one in this many records while the buffer is full
+    * @param handler Receives the serialized batches
+    */
+   public TagEventPipeline(String name, boolean csv, int bufferSize, int batchSize, BackpressurePolicy policy, int sampleRate, BatchHandler handler) {
+      if ( batchSize < 1 || sampleRate < 1 ) {
+         throw new IllegalArgumentException("batchSize and sampleRate must be at least 1");
+      }
+      this.name = name;
+      this.buffer = new TagEventRingBuffer<>(bufferSize);
+      this.writer = new TagRecordBatchWriter(csv, batchSize * 128);
+      this.handler = handler;
+      this.policy = policy;
+      this.batchSize = batchSize;
+      this.sampleRate = sampleRate;
+   }
+
+   public synchronized void start() {
+      if ( worker != null ) {
+         return;
+      }
+      stopped = false;
+      Thread thread = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            processRecords();
+         }
+      }, "TagEventPipeline-" + name);
+      thread.setDaemon(true);
+      worker = thread;
+      thread.start();
+   }
+
+   /**
+    * Stop accepting records, and wait for the ones already accepted to be written
+    * @return boolean true if all records were written in time
+    */
+   public boolean stop(long timeout, TimeUnit unit) {
+      final Thread thread;
+      synchronized ( this ) {
+         stopped = true;
+         thread = worker;
+         worker = null;
+      }
+      if ( thread == null ) {
+         return buffer.isEmpty();
+      }
+      LockSupport.unpark(thread);
+      try {
+         thread.join(unit.toMillis(timeout));
+      } catch ( InterruptedException e ) {
+         Thread.currentThread().interrupt();
+      }
+      return !thread.isAlive();
+   }
+
+   /**
+    * Hand a record over for serialization
+    * @return boolean true if the record was accepted, false if it was dropped
+    */
+   public boolean offer(TagRecord record) {
+      if ( !stopped && buffer.offer(record) ) {
+         return accepted();
+      }
+      if ( stopped ) {
+         return drop();
+      }
+
+      rejectedWhileFull.incrementAndGet();
+      switch ( policy ) {
+         case DROP:
+            return drop();
+         case SAMPLE:
+            if ( rejectedWhileFull.get() % sampleRate != 0 ) {
+               return drop();
+            }
+            sampled.incrementAndGet();
+            return awaitRoom(record);
+         case BLOCK:
+         default:
+            return awaitRoom(record);
+      }
+   }
+
+   private boolean awaitRoom(TagRecord record) {
+      if ( Thread.currentThread() == worker ) {
+         // A batch handler logging tag events would wait on itself
+         return drop();
+      }
+      while ( !buffer.offer(record) ) {
+         if ( stopped || Thread.currentThread().isInterrupted() ) {
+            return drop();
+         }
+         wakeWorker();
+         LockSupport.parkNanos(this, FULL_PARK_NANOS);
+      }
+      return accepted();
+   }
+
+   private boolean accepted() {
+      enqueued.incrementAndGet();
+      wakeWorker();
+      return true;
+   }
+
+   private boolean drop() {
+      dropped.incrementAndGet();
+      return false;
+   }
+
+   private void wakeWorker() {
+      if ( workerParked ) {
+         Thread thread = worker;
+         if ( thread != null ) {
+            LockSupport.unpark(thread);
+         }
+      }
+   }
+
+   private void processRecords() {
+      while ( true ) {
+         if ( writeBatch() > 0 ) {
+            continue;
+         }
+         if ( stopped && buffer.isEmpty() ) {
+            return;
+         }
+         workerParked = true;
+         if ( buffer.isEmpty() && !stopped ) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+         }
+         workerParked = false;
+      }
+   }
+
+   /**
+    * Serialize and hand over the next batch
+    * @return int The number of records taken from the buffer
+    */
+   private int writeBatch() {
+      int taken = 0, serialized = 0;
+      TagRecord record;
+      while ( taken < batchSize && (record = buffer.poll()) != null ) {
+         taken++;
+         try {
+            writer.write(record);
+            serialized++;
+         } catch ( IOException | RuntimeException e ) {
+            failed.incrementAndGet();
+            logger.error("Unable to serialize tag record " + record.getType(), e);
+         }
+      }
+      if ( serialized > 0 ) {
+         try {
+            handler.handleBatch(writer.getBatch(), serialized);
+            written.addAndGet(serialized);
+            batches.incrementAndGet();
+         } catch ( RuntimeException e ) {
+            failed.addAndGet(serialized);
+            logger.error("Unable to write batch of " + serialized + " tag records", e);
+         } finally {
+            writer.reset();
+         }
+      }
+      return taken;
+   }
+
+   public String getName() {
+      return name;
+   }
+
+   public BackpressurePolicy getPolicy() {
+      return policy;
+   }
+
+   /**
+    * Get the number of records accepted into the buffer
+    */
+   public long getEnqueued() {
+      return enqueued.get();
+   }
+
+   /**
+    * Get the number of records dropped because the buffer was full or the pipeline was stopped
+    */
+   public long getDropped() {
+      return dropped.get();
+   }
+
+   /**
+    * Get the number of records kept by {@link BackpressurePolicy#SAMPLE} while the buffer was full
+    */
+   public long getSampled() {
+      return sampled.get();
+   }
+
+   /**
+    * Get the number of records serialized and handed to the batch handler
+    */
+   public long getWritten() {
+      return written.get();
+   }
+
+   /**
+    * Get the number of records that could not be serialized or written
+    */
+   public long getFailed() {
+      return failed.get();
+   }
+
+   public long getBatches() {
+      return batches.get();
+   }
+
+   /**
+    * Get the number of records waiting for serialization
+    */
+   public int getQueued() {
+      return buffer.size();
+   }
+
+   public int getCapacity() {
+      return buffer.capacity();
+   }
+}
@@ -0,0 +1,107 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free ring buffer for many producers and a single consumer.
+ * <p>Every slot carries a sequence number telling producers whether it is free for the current lap 
+ * and the consumer whether it has been published, so neither side ever takes a lock. 
+ * Only one thread at a time may call {@link #poll()}.</p>
+ */
+class TagEventRingBuffer<E> {
+   private final int mask;
+   private final AtomicReferenceArray<E> elements;
+   private final AtomicLongArray sequences;
+   private final AtomicLong tail = new AtomicLong();
+   private volatile long head;
+
+   /**
+    * @param capacity The number of slots, rounded up to a power of two
+    */
+   TagEventRingBuffer(int capacity) {
+      if ( capacity < 1 ) {
+         throw new IllegalArgumentException("capacity must be at least 1");
+      }
+      int size = Integer.highestOneBit(capacity);
+      if ( size < capacity ) {
+         size <<= 1;
+      }
+      mask = size - 1;
+      elements = new AtomicReferenceArray<>(size);
+      sequences = new AtomicLongArray(size);
+      for ( int i = 0; i < size; i++ ) {
+         sequences.set(i, i);
+      }
+   }
+
+   /**
+    * Add an element, unless the buffer is full
+    * @return boolean true if the element was added
+    */
+   boolean offer(E element) {
+      if ( element == null ) {
+         throw new NullPointerException();
+      }
+      while ( true ) {
+         long position = tail.get();
+         int index = (int) position & mask;
+         long available = sequences.get(index) - position;
+         if ( available == 0 ) {
+            if ( tail.compareAndSet(position, position + 1) ) {
+               elements.lazySet(index, element);
+               sequences.set(index, position + 1);
+               return true;
+            }
+         } else if ( available < 0 ) {
+            return false;
+         }
+         // Another producer claimed the slot first, try the next one
+      }
+   }
+
+   /**
+    * Take the oldest element, to be called from the consumer thread only
+    * @return E The element, or null if the buffer is empty
+    */
+   E poll() {
+      long position = head;
+      int index = (int) position & mask;
+      if ( sequences.get(index) != position + 1 ) {
+         return null;
+      }
+      E element = elements.get(index);
+      elements.lazySet(index, null);
+      sequences.set(index, position + mask + 1);
+      head = position + 1;
+      return element;
+   }
+
+   int size() {
+      return (int) Math.max(0, Math.min(tail.get() - head, capacity()));
+   }
+
+   boolean isEmpty() {
+      return size() == 0;
+   }
+
+   int capacity() {
+      return mask + 1;
+   }
+}
@@ -18,13 +18,12 @@ package com.ibm.watson.app.common.tagEvent;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
+import java.util.Date;
+import java.util.TimeZone;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
+import com.ibm.watson.app.common.tagEvent.TagRecordFields.Accessor;
 
 public abstract class TagRecord implements Iterable<String> {
 
@@ -37,6 +36,12 @@ public abstract class TagRecord implements Iterable<String> {
       .setVersion(1.0)
       .create();
 
+   static final TagDateFormat dateFormat = new TagDateFormat(TimeZone.getDefault());
+
+   /**
+    * @deprecated Use {@link #formatDate(Date)}, which doesn't create a formatter per thread
+    */
+   @Deprecated
    static protected ThreadLocal<DateFormat> dateFormatter = new ThreadLocal<DateFormat>() {
 
       @Override
@@ -60,25 +65,110 @@ public abstract class TagRecord implements Iterable<String> {
 
    abstract protected void prepareForFormat();
 
+   /**
+    * Format the date the same way as it is in the JSON and CSV output
+    */
+   static protected String formatDate( Date date ) {
+      return dateFormat.format(date);
+   }
+
    public String asJson( ) {
-      prepareForFormat();
-      JsonObject json = new JsonObject();
-      json.add(type, gson.toJsonTree(this));
-      return gson.toJson(json);
+      StringBuilder sb = new StringBuilder();
+      try {
+         writeJson(sb);
+      } catch ( IOException e) {
+         
+      }
+      return sb.toString();
    }
    
    public String asCsv() {
-      prepareForFormat();
       StringBuilder sb = new StringBuilder();
       try {
-         CSVPrinter printer = new CSVPrinter(sb, CSVFormat.DEFAULT);
-         printer.printRecord( this );
-         printer.close();
+         writeCsv(sb);
       } catch ( IOException e) {
          
       }
       return sb.toString();
       
    }
+
+   /**
+    * Write the record as a JSON object with the type as its only key, and the exposed fields as its value.
+    * Gives the same text as serializing the record with {@link #gson}, without building a tree of the record first.
+    */
+   public void writeJson( Appendable out ) throws IOException {
+      prepareForFormat();
+      out.append('{');
+      TagRecordFields.appendJsonString(out, String.valueOf(type));
+      out.append(":{");
+      boolean first = true;
+      for ( Accessor field : TagRecordFields.of(getClass()).json ) {
+         final Object value = field.get(this);
+         if ( value == null ) {
+            continue;
+         }
+         if ( !first ) {
+            out.append(',');
+         }
+         first = false;
+         out.append(field.jsonName);
+         switch ( field.kind ) {
+            case STRING:
+               TagRecordFields.appendJsonString(out, (String) value);
+               break;
+            case DATE:
+               out.append('"').append(formatDate((Date) value)).append('"');
+               break;
+            case ENUM:
+               out.append(field.enumNames[((Enum<?>) value).ordinal()]);
+               break;
+            case PLAIN:
+               out.append(value.toString());
+               break;
+            case OTHER:
+            default:
+               out.append(gson.toJson(value));
+               break;
+         }
+      }
+      out.append("}}");
+   }
+
+   /**
+    * Write the record as one CSV line, with the values of {@link #iterator()}.
+    * The records of this package are written straight from their fields, without iterating.
+    */
+   public void writeCsv( Appendable out ) throws IOException {
+      prepareForFormat();
+      final Accessor[] fields = TagRecordFields.of(getClass()).csv;
+      if ( fields == null ) {
+         boolean first = true;
+         for ( String value : this ) {
+            TagRecordFields.appendCsvField(out, value == null ? "" : value, first);
+            first = false;
+         }
+      } else {
+         TagRecordFields.appendCsvField(out, type == null ? "" : type, true);
+         for ( Accessor field : fields ) {
+            TagRecordFields.appendCsvField(out, csvValue(field, field.get(this)), false);
+         }
+      }
+      out.append("\r\n");
+   }
+
+   private static String csvValue( Accessor field, Object value ) {
+      if ( value == null ) {
+         return "";
+      }
+      switch ( field.kind ) {
+         case STRING:
+            return (String) value;
+         case DATE:
+            return formatDate((Date) value);
+         default:
+            return value.toString();
+      }
+   }
    
 }
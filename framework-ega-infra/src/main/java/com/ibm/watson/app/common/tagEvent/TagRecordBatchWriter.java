@@ -0,0 +1,72 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent;
+
+import java.io.IOException;
+
+/**
+ * Serializes records one after another into a single reusable buffer, in the same format as {@link TagEventMessage}.
+ * Not thread-safe, each {@link TagEventPipeline} has its own.
+ */
+class TagRecordBatchWriter {
+   // Don't hold on to the memory of an exceptionally large batch
+   private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+   private final boolean csv;
+   private StringBuilder buffer;
+
+   TagRecordBatchWriter(boolean csv, int initialCapacity) {
+      this.csv = csv;
+      this.buffer = new StringBuilder(initialCapacity);
+   }
+
+   /**
+    * Append the record to the batch. If it cannot be serialized, the batch is left as it was.
+    */
+   void write(TagRecord record) throws IOException {
+      final int mark = buffer.length();
+      try {
+         if ( csv ) {
+            record.writeCsv(buffer);
+         } else {
+            record.writeJson(buffer);
+            buffer.append('\n');
+         }
+      } catch ( IOException | RuntimeException e ) {
+         buffer.setLength(mark);
+         throw e;
+      }
+   }
+
+   /**
+    * Get the records written since the last {@link #reset()}
+    */
+   CharSequence getBatch() {
+      return buffer;
+   }
+
+   boolean isEmpty() {
+      return buffer.length() == 0;
+   }
+
+   void reset() {
+      if ( buffer.capacity() > MAX_RETAINED_CAPACITY ) {
+         buffer = new StringBuilder(MAX_RETAINED_CAPACITY / 4);
+      } else {
+         buffer.setLength(0);
+      }
+   }
+}
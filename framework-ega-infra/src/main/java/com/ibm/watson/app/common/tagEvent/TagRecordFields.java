@@ -0,0 +1,291 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.annotations.Since;
+import com.google.gson.annotations.Until;
+
+/**
+ * The fields of a {@link TagRecord} class that are written by {@link TagRecord#writeJson(Appendable)} and 
+ * {@link TagRecord#writeCsv(Appendable)}, looked up once per class.
+ * The fields are chosen and ordered the way {@link TagRecord#gson} serializes them.
+ */
+final class TagRecordFields {
+   private static final double GSON_VERSION = 1.0;
+
+   // These classes list the type followed by their exposed fields from their iterator(), superclass fields first
+   private static final List<Class<?>> FIELD_ORDERED_ITERATORS = Arrays.<Class<?>>asList(EventTagRecord.class, QueryTagRecord.class);
+
+   private static final ConcurrentMap<Class<?>, TagRecordFields> fieldsByClass = new ConcurrentHashMap<>();
+
+   enum Kind {
+      STRING, DATE, ENUM, PLAIN, OTHER
+   }
+
+   static final class Accessor {
+      final Field field;
+      final Kind kind;
+      /** The quoted JSON name followed by a colon */
+      final String jsonName;
+      /** The JSON names of the constants of an enum field, by ordinal */
+      final String[] enumNames;
+
+      Accessor(Field field) {
+         this.field = field;
+         this.kind = kindOf(field.getType());
+         SerializedName serializedName = field.getAnnotation(SerializedName.class);
+         this.jsonName = quote(serializedName == null ? field.getName() : serializedName.value()) + ':';
+         this.enumNames = kind == Kind.ENUM ? enumNames(field.getType()) : null;
+      }
+
+      Object get(Object record) {
+         try {
+            return field.get(record);
+         } catch ( IllegalAccessException e ) {
+            throw new IllegalStateException(e);
+         }
+      }
+   }
+
+   /** Fields in the order of the JSON object */
+   final Accessor[] json;
+   /** Fields in the order of the CSV columns following the type, or null if the columns come from the iterator */
+   final Accessor[] csv;
+
+   private TagRecordFields(Class<?> recordClass) {
+      List<Accessor> fields = new ArrayList<>();
+      List<Class<?>> declaringClasses = new ArrayList<>();
+      for ( Class<?> c = recordClass; c != Object.class; c = c.getSuperclass() ) {
+         for ( Field field : c.getDeclaredFields() ) {
+            if ( isSerialized(field) ) {
+               field.setAccessible(true);
+               fields.add(new Accessor(field));
+               declaringClasses.add(c);
+            }
+         }
+      }
+      json = fields.toArray(new Accessor[fields.size()]);
+      csv = hasFieldOrderedIterator(recordClass, declaringClasses) ? reverseByClass(fields, declaringClasses) : null;
+   }
+
+   static TagRecordFields of(Class<? extends TagRecord> recordClass) {
+      TagRecordFields fields = fieldsByClass.get(recordClass);
+      if ( fields == null ) {
+         fields = new TagRecordFields(recordClass);
+         TagRecordFields existing = fieldsByClass.putIfAbsent(recordClass, fields);
+         if ( existing != null ) {
+            fields = existing;
+         }
+      }
+      return fields;
+   }
+
+   private static boolean isSerialized(Field field) {
+      if ( (field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) != 0 || field.isSynthetic() ) {
+         return false;
+      }
+      Expose expose = field.getAnnotation(Expose.class);
+      if ( expose == null || !expose.serialize() ) {
+         return false;
+      }
+      Since since = field.getAnnotation(Since.class);
+      Until until = field.getAnnotation(Until.class);
+      return (since == null || since.value() <= GSON_VERSION) && (until == null || until.value() > GSON_VERSION);
+   }
+
+   /**
+    * Check that the iterator of the class is one of ours, and that no subclass added fields it doesn't know about
+    */
+   private static boolean hasFieldOrderedIterator(Class<?> recordClass, List<Class<?>> declaringClasses) {
+      final Class<?> iteratorClass;
+      try {
+         Method iterator = recordClass.getMethod("iterator");
+         iteratorClass = iterator.getDeclaringClass();
+      } catch ( NoSuchMethodException e ) {
+         return false;
+      }
+      if ( !FIELD_ORDERED_ITERATORS.contains(iteratorClass) ) {
+         return false;
+      }
+      for ( Class<?> c : declaringClasses ) {
+         if ( c != iteratorClass && iteratorClass.isAssignableFrom(c) ) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Order the fields from the topmost superclass down, keeping the declaration order within each class
+    */
+   private static Accessor[] reverseByClass(List<Accessor> fields, List<Class<?>> declaringClasses) {
+      List<Accessor> ordered = new ArrayList<>(fields.size());
+      int end = fields.size();
+      while ( end > 0 ) {
+         int start = end - 1;
+         while ( start > 0 && declaringClasses.get(start - 1) == declaringClasses.get(end - 1) ) {
+            start--;
+         }
+         ordered.addAll(fields.subList(start, end));
+         end = start;
+      }
+      return ordered.toArray(new Accessor[ordered.size()]);
+   }
+
+   private static Kind kindOf(Class<?> type) {
+      if ( type == String.class ) {
+         return Kind.STRING;
+      }
+      if ( type == Date.class ) {
+         return Kind.DATE;
+      }
+      if ( type.isEnum() ) {
+         return Kind.ENUM;
+      }
+      if ( type == boolean.class || type == int.class || type == long.class || type == short.class || type == byte.class 
+            || type == Boolean.class || type == Integer.class || type == Long.class || type == Short.class || type == Byte.class 
+            || type == BigInteger.class ) {
+         return Kind.PLAIN;
+      }
+      return Kind.OTHER;
+   }
+
+   private static String[] enumNames(Class<?> enumClass) {
+      Object[] constants = enumClass.getEnumConstants();
+      String[] names = new String[constants.length];
+      for ( int i = 0; i < constants.length; i++ ) {
+         String name = ((Enum<?>) constants[i]).name();
+         try {
+            SerializedName serializedName = enumClass.getField(name).getAnnotation(SerializedName.class);
+            names[i] = quote(serializedName == null ? name : serializedName.value());
+         } catch ( NoSuchFieldException e ) {
+            names[i] = quote(name);
+         }
+      }
+      return names;
+   }
+
+   private static String quote(String value) {
+      StringBuilder sb = new StringBuilder(value.length() + 2);
+      try {
+         appendJsonString(sb, value);
+      } catch ( IOException e ) {
+         // StringBuilder doesn't throw
+      }
+      return sb.toString();
+   }
+
+   /**
+    * Append the value as a quoted JSON string, escaped the same as by {@link TagRecord#gson}
+    */
+   static void appendJsonString(Appendable out, CharSequence value) throws IOException {
+      out.append('"');
+      int start = 0;
+      final int length = value.length();
+      for ( int i = 0; i < length; i++ ) {
+         final char c = value.charAt(i);
+         final String replacement;
+         if ( c < 0x20 ) {
+            replacement = CONTROL_REPLACEMENTS[c];
+         } else if ( c == '"' ) {
+            replacement = "\\\"";
+         } else if ( c == '\\' ) {
+            replacement = "\\\\";
+         } else if ( c == '\u2028' ) {
+            replacement = "\\u2028";
+         } else if ( c == '\u2029' ) {
+            replacement = "\\u2029";
+         } else {
+            continue;
+         }
+         out.append(value, start, i).append(replacement);
+         start = i + 1;
+      }
+      out.append(value, start, length).append('"');
+   }
+
+   private static final String[] CONTROL_REPLACEMENTS = new String[0x20];
+   static {
+      for ( int i = 0; i < CONTROL_REPLACEMENTS.length; i++ ) {
+         CONTROL_REPLACEMENTS[i] = String.format("\\u%04x", i);
+      }
+      CONTROL_REPLACEMENTS['\t'] = "\\t";
+      CONTROL_REPLACEMENTS['\b'] = "\\b";
+      CONTROL_REPLACEMENTS['\n'] = "\\n";
+      CONTROL_REPLACEMENTS['\r'] = "\\r";
+      CONTROL_REPLACEMENTS['\f'] = "\\f";
+   }
+
+   /**
+    * Append the value as a CSV field, quoted the same as by {@link org.apache.commons.csv.CSVFormat#DEFAULT}
+    * @param first Whether this is the first field of the record
+    */
+   static void appendCsvField(Appendable out, CharSequence value, boolean first) throws IOException {
+      if ( !first ) {
+         out.append(',');
+      }
+      final int length = value.length();
+      if ( !needsQuotes(value, first) ) {
+         out.append(value, 0, length);
+         return;
+      }
+      out.append('"');
+      int start = 0;
+      for ( int i = 0; i < length; i++ ) {
+         if ( value.charAt(i) == '"' ) {
+            out.append(value, start, i + 1);
+            start = i;
+         }
+      }
+      out.append(value, start, length).append('"');
+   }
+
+   private static boolean needsQuotes(CharSequence value, boolean first) {
+      final int length = value.length();
+      if ( length == 0 ) {
+         // An empty first field would otherwise be an empty line
+         return first;
+      }
+      char c = value.charAt(0);
+      if ( first && (c < '0' || c > '9' && c < 'A' || c > 'Z' && c < 'a' || c > 'z') ) {
+         return true;
+      }
+      if ( c <= '#' ) {
+         return true;
+      }
+      for ( int i = 0; i < length; i++ ) {
+         c = value.charAt(i);
+         if ( c == '\n' || c == '\r' || c == '"' || c == ',' ) {
+            return true;
+         }
+      }
+      return value.charAt(length - 1) <= ' ';
+   }
+}
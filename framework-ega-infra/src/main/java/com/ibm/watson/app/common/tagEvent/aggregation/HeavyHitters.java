@@ -0,0 +1,158 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.aggregation;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Finds the most frequent values over a {@link SlidingWindow}.
+ * <p>Each bucket has a count-min sketch, which estimates how often any value was added, never less than it really was.
+ * Next to the sketches a bounded set of candidate values is kept. New values are always admitted, and once the set 
+ * has grown to twice its capacity the values with the lowest estimates are evicted. A frequent value is added again
+ * soon after being evicted, and by then its estimate is high enough to stay.</p>
+ * <p>Adding a value only takes atomic increments, a new sketch once per bucket and, for a value that is not a candidate, 
+ * a map insert.</p>
+ */
+final class HeavyHitters {
+   private static final int DEPTH = 4;
+   private static final int WIDTH = 1024;
+
+   private final SlidingWindow window;
+   private final int capacity;
+   private final SlidingWindow.Buckets<AtomicLongArray> sketches;
+   private final ConcurrentMap<String, Boolean> candidates = new ConcurrentHashMap<>();
+   private final AtomicInteger candidateCount = new AtomicInteger();
+   private final AtomicBoolean evicting = new AtomicBoolean();
+
+   /**
+    * @param capacity The number of candidate values to keep, a few times the number of values that will be asked for
+    */
+   HeavyHitters( SlidingWindow window, int capacity ) {
+      this.window = window;
+      this.capacity = capacity;
+      this.sketches = new SlidingWindow.Buckets<AtomicLongArray>(window) {
+         @Override
+         protected AtomicLongArray newContents() {
+            return new AtomicLongArray(DEPTH * WIDTH);
+         }
+      };
+   }
+
+   void add( String value ) {
+      final AtomicLongArray sketch = sketches.claim(window.currentBucket());
+      final int hash = mix(value.hashCode()), step = mix(hash) | 1;
+      for ( int row = 0; row < DEPTH; row++ ) {
+         sketch.getAndIncrement(row * WIDTH + ((hash + row * step) & (WIDTH - 1)));
+      }
+
+      if ( !candidates.containsKey(value) && candidates.putIfAbsent(value, Boolean.TRUE) == null 
+            && candidateCount.incrementAndGet() > capacity * 2 ) {
+         evict();
+      }
+   }
+
+   /**
+    * Get the values with the highest estimates within the time span, highest first
+    */
+   Map<String, Long> top( int limit, long millis ) {
+      List<Map.Entry<String, Long>> estimates = estimates(millis);
+      Map<String, Long> top = new LinkedHashMap<>();
+      for ( Map.Entry<String, Long> entry : estimates.subList(0, Math.min(limit, estimates.size())) ) {
+         top.put(entry.getKey(), entry.getValue());
+      }
+      return top;
+   }
+
+   /**
+    * Get the estimated number of times the value was added within the time span
+    */
+   long estimate( String value, long millis ) {
+      final int hash = mix(value.hashCode()), step = mix(hash) | 1;
+      final long current = window.currentBucket();
+      long estimate = 0;
+      for ( long bucket = current - window.bucketsFor(millis) + 1; bucket <= current; bucket++ ) {
+         final AtomicLongArray sketch = bucket < 0 ? null : sketches.get(bucket);
+         if ( sketch == null ) {
+            continue;
+         }
+         long min = Long.MAX_VALUE;
+         for ( int row = 0; row < DEPTH; row++ ) {
+            min = Math.min(min, sketch.get(row * WIDTH + ((hash + row * step) & (WIDTH - 1))));
+         }
+         estimate += min;
+      }
+      return estimate;
+   }
+
+   private List<Map.Entry<String, Long>> estimates( long millis ) {
+      List<Map.Entry<String, Long>> estimates = new ArrayList<>(candidates.size());
+      for ( String value : candidates.keySet() ) {
+         long estimate = estimate(value, millis);
+         if ( estimate > 0 ) {
+            estimates.add(new AbstractMap.SimpleImmutableEntry<>(value, estimate));
+         }
+      }
+      Collections.sort(estimates, BY_ESTIMATE_DESCENDING);
+      return estimates;
+   }
+
+   private void evict() {
+      if ( !evicting.compareAndSet(false, true) ) {
+         return;
+      }
+      try {
+         List<Map.Entry<String, Long>> estimates = estimates(window.getWindowMillis());
+         Set<String> keep = new HashSet<>();
+         for ( Map.Entry<String, Long> entry : estimates.subList(0, Math.min(capacity, estimates.size())) ) {
+            keep.add(entry.getKey());
+         }
+         for ( String value : candidates.keySet() ) {
+            if ( !keep.contains(value) && candidates.remove(value) != null ) {
+               candidateCount.decrementAndGet();
+            }
+         }
+      } finally {
+         evicting.set(false);
+      }
+   }
+
+   private static int mix( int hash ) {
+      hash *= 0x85EBCA6B;
+      hash ^= hash >>> 13;
+      hash *= 0xC2B2AE35;
+      return hash ^ (hash >>> 16);
+   }
+
+   private static final Comparator<Map.Entry<String, Long>> BY_ESTIMATE_DESCENDING = new Comparator<Map.Entry<String, Long>>() {
+      @Override
+      public int compare( Map.Entry<String, Long> first, Map.Entry<String, Long> second ) {
+         return second.getValue().compareTo(first.getValue());
+      }
+   };
+}
@@ -0,0 +1,124 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.aggregation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.base.Ticker;
+
+/**
+ * Divides time into buckets, of which the most recent {@link #getBuckets()} make up the window.
+ * A counter or sketch keeps one slot per bucket, and reuses the slot of a bucket once it has left the window.
+ */
+final class SlidingWindow {
+   private final Ticker ticker;
+   private final long origin;
+   private final long bucketNanos;
+   private final int buckets;
+
+   SlidingWindow( long windowMillis, int buckets, Ticker ticker ) {
+      if ( windowMillis < buckets || buckets < 1 ) {
+         throw new IllegalArgumentException("The window must be at least one millisecond per bucket");
+      }
+      this.ticker = ticker;
+      this.origin = ticker.read();
+      this.bucketNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis) / buckets;
+      this.buckets = buckets;
+   }
+
+   int getBuckets() {
+      return buckets;
+   }
+
+   long getWindowMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(bucketNanos * buckets);
+   }
+
+   /**
+    * Get the number of the current bucket, counting from the creation of the window
+    */
+   long currentBucket() {
+      return (ticker.read() - origin) / bucketNanos;
+   }
+
+   int slot( long bucket ) {
+      return (int) (bucket % buckets);
+   }
+
+   /**
+    * Get the number of most recent buckets covering the time span, at most the whole window
+    */
+   int bucketsFor( long millis ) {
+      long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+      return (int) Math.max(1, Math.min(buckets, (nanos + bucketNanos - 1) / bucketNanos));
+   }
+
+   /**
+    * The contents of each bucket in the window, one slot per bucket.
+    * <p>A slot is reused by replacing it with fresh contents tagged with the new bucket in a single atomic step, 
+    * so an event is never added to contents that are about to be reset.</p>
+    */
+   abstract static class Buckets<T> {
+      private final SlidingWindow window;
+      private final AtomicReferenceArray<Bucket<T>> slots;
+
+      Buckets( SlidingWindow window ) {
+         this.window = window;
+         this.slots = new AtomicReferenceArray<>(window.getBuckets());
+      }
+
+      /**
+       * Create the empty contents of a bucket
+       */
+      protected abstract T newContents();
+
+      /**
+       * Get the contents of the bucket to add to, taking over its slot if it still belongs to an older bucket
+       */
+      T claim( long bucket ) {
+         final int slot = window.slot(bucket);
+         while ( true ) {
+            final Bucket<T> current = slots.get(slot);
+            if ( current != null && current.bucket >= bucket ) {
+               return current.contents;
+            }
+            final Bucket<T> fresh = new Bucket<>(bucket, newContents());
+            if ( slots.compareAndSet(slot, current, fresh) ) {
+               return fresh.contents;
+            }
+         }
+      }
+
+      /**
+       * Get the contents of the bucket, or null if its slot is empty or was taken over by another bucket
+       */
+      T get( long bucket ) {
+         final Bucket<T> current = slots.get(window.slot(bucket));
+         return current != null && current.bucket == bucket ? current.contents : null;
+      }
+   }
+
+   private static final class Bucket<T> {
+      final long bucket;
+      final T contents;
+
+      Bucket( long bucket, T contents ) {
+         this.bucket = bucket;
+         this.contents = contents;
+      }
+   }
+}
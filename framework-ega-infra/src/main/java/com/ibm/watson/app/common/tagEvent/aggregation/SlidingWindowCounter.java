@@ -0,0 +1,55 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.aggregation;
+
+/**
+ * Counts events over a {@link SlidingWindow}, with a {@link StripedCounter} per bucket.
+ */
+final class SlidingWindowCounter {
+   private final SlidingWindow window;
+   private final SlidingWindow.Buckets<StripedCounter> counters;
+
+   SlidingWindowCounter( SlidingWindow window ) {
+      this.window = window;
+      this.counters = new SlidingWindow.Buckets<StripedCounter>(window) {
+         @Override
+         protected StripedCounter newContents() {
+            return new StripedCounter();
+         }
+      };
+   }
+
+   void increment() {
+      counters.claim(window.currentBucket()).increment();
+   }
+
+   /**
+    * Get the number of events in the most recent buckets covering the time span
+    */
+   long sum( long millis ) {
+      final long current = window.currentBucket();
+      long sum = 0;
+      for ( long bucket = current - window.bucketsFor(millis) + 1; bucket <= current; bucket++ ) {
+         if ( bucket >= 0 ) {
+            final StripedCounter counter = counters.get(bucket);
+            if ( counter != null ) {
+               sum += counter.sum();
+            }
+         }
+      }
+      return sum;
+   }
+}
@@ -0,0 +1,59 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.aggregation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter spread over several cells, so threads counting at the same time mostly update different cache lines.
+ * Each thread always uses the same cell.
+ */
+final class StripedCounter {
+   // Longs per 64 byte cache line
+   private static final int PADDING = 8;
+   private static final int STRIPES = stripes();
+
+   private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+   void increment() {
+      cells.getAndIncrement(cell());
+   }
+
+   long sum() {
+      long sum = 0;
+      for ( int i = 0; i < STRIPES; i++ ) {
+         sum += cells.get(i * PADDING);
+      }
+      return sum;
+   }
+
+   void reset() {
+      for ( int i = 0; i < STRIPES; i++ ) {
+         cells.set(i * PADDING, 0);
+      }
+   }
+
+   private static int cell() {
+      long id = Thread.currentThread().getId();
+      int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+      return ((hash ^ (hash >>> 16)) & (STRIPES - 1)) * PADDING;
+   }
+
+   private static int stripes() {
+      int processors = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+      return Integer.highestOneBit(Math.max(processors * 2 - 1, 1));
+   }
+}
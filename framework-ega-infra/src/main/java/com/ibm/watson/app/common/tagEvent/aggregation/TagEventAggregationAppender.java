@@ -0,0 +1,131 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.aggregation;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+
+import com.ibm.watson.app.common.tagEvent.TagEventMarkers;
+import com.ibm.watson.app.common.tagEvent.TagEventMessage;
+import com.ibm.watson.app.common.util.metrics.JmxMetricsExporter;
+
+/**
+ * Counts tag events in process instead of writing them, see {@link TagEventAggregator}.
+ * The counts are available from {@link #getAggregator(String)}, and over JMX as 
+ * {@code com.ibm.watson.app.common:type=TagEventAggregation,name="<appender name>"}.
+ * <p>Example:</p>
+ * <pre>
+ * &lt;TagEventAggregation name="tagEventCounts" windowSeconds="300" buckets="60" topQueries="20"/&gt;
+ * </pre>
+ */
+@Plugin(name = "TagEventAggregation", category = "Core", elementType = "appender", printObject = true)
+public class TagEventAggregationAppender extends AbstractAppender {
+   private static final long serialVersionUID = 1L;
+
+   @PluginFactory
+   public static TagEventAggregationAppender createAppender(
+         @PluginAttribute("name") String name,
+         @PluginAttribute(value = "windowSeconds", defaultLong = TagEventAggregator.DEFAULT_WINDOW_SECONDS) long windowSeconds,
+         @PluginAttribute(value = "buckets", defaultInt = TagEventAggregator.DEFAULT_BUCKETS) int buckets,
+         @PluginAttribute(value = "topQueries", defaultInt = TagEventAggregator.DEFAULT_TOP_QUERIES) int topQueries,
+         @PluginAttribute(value = "jmx", defaultBoolean = true) boolean jmx,
+         @PluginElement("Filter") Filter filter ) {
+      if ( name == null ) {
+         LOGGER.error("No name provided for TagEventAggregationAppender");
+         return null;
+      }
+      if ( windowSeconds < 1 || buckets < 1 || windowSeconds * 1000 < buckets ) {
+         LOGGER.error("Invalid window of " + windowSeconds + " seconds in " + buckets + " buckets for TagEventAggregationAppender " + name);
+         return null;
+      }
+      return new TagEventAggregationAppender(name, filter, new TagEventAggregator(windowSeconds, buckets, topQueries), 
+            jmx ? ManagementFactory.getPlatformMBeanServer() : null);
+   }
+
+   /**
+    * Get the aggregator of the appender with this name in the current logging configuration
+    * @return TagEventAggregator, or null if there is no such appender
+    */
+   public static TagEventAggregator getAggregator( String appenderName ) {
+      Appender appender = ((LoggerContext) LogManager.getContext(false)).getConfiguration().getAppender(appenderName);
+      return appender instanceof TagEventAggregationAppender ? ((TagEventAggregationAppender) appender).getAggregator() : null;
+   }
+
+   private final TagEventAggregator aggregator;
+   private final MBeanServer server;
+   private ObjectName objectName;
+
+   protected TagEventAggregationAppender( String name, Filter filter, TagEventAggregator aggregator, MBeanServer server ) {
+      super(name, filter, null, true);
+      this.aggregator = aggregator;
+      this.server = server;
+   }
+
+   @Override
+   public void start() {
+      if ( server != null ) {
+         try {
+            ObjectName name = new ObjectName(JmxMetricsExporter.DOMAIN + ":type=TagEventAggregation,name=" + ObjectName.quote(getName()));
+            if ( !server.isRegistered(name) ) {
+               server.registerMBean(aggregator, name);
+               objectName = name;
+            }
+         } catch ( JMException e ) {
+            LOGGER.warn("Unable to register TagEventAggregationAppender " + getName() + " with JMX", e);
+         }
+      }
+      super.start();
+   }
+
+   @Override
+   public void stop() {
+      super.stop();
+      if ( objectName != null ) {
+         try {
+            server.unregisterMBean(objectName);
+         } catch ( JMException e ) {
+            LOGGER.debug("Unable to unregister " + objectName, e);
+         }
+         objectName = null;
+      }
+   }
+
+   @Override
+   public void append( LogEvent event ) {
+      if ( event.getMarker() != null && event.getMarker().isInstanceOf(TagEventMarkers.TAG_EVENT_MARKER) 
+            && !event.getMarker().isInstanceOf(TagEventMarkers.TAG_EVENT_BATCH_MARKER) ) {
+         aggregator.record(event.getMarker(), event.getMessage() instanceof TagEventMessage ? ((TagEventMessage) event.getMessage()).getRecord() : null);
+      }
+   }
+
+   public TagEventAggregator getAggregator() {
+      return aggregator;
+   }
+}
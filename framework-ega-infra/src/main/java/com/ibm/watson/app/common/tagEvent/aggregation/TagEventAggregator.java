@@ -0,0 +1,166 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.aggregation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Marker;
+
+import com.google.common.base.Ticker;
+import com.ibm.watson.app.common.tagEvent.QueryTagRecord;
+import com.ibm.watson.app.common.tagEvent.QueryTagRecord.InputMethod;
+import com.ibm.watson.app.common.tagEvent.TagEventMarkers;
+import com.ibm.watson.app.common.tagEvent.TagRecord;
+
+/**
+ * Counts tag events over a sliding time window: events per marker, queries per input method, and the most frequent
+ * query strings. Counting doesn't take any locks.
+ * <p>Every event is counted under its own marker and, if that is a more specific marker, under 
+ * {@link TagEventMarkers#TAG_EVENT_MARKER} as well, so that gives the total.
+ * Counts can be asked for over the whole window or the most recent part of it, in steps of one bucket.
+ * The query string counts are estimates, which may be slightly high.</p>
+ */
+public class TagEventAggregator implements TagEventAggregatorMXBean {
+   public static final long DEFAULT_WINDOW_SECONDS = 300;
+   public static final int DEFAULT_BUCKETS = 60;
+   public static final int DEFAULT_TOP_QUERIES = 20;
+
+   // Track more candidates than are reported, so values near the cut-off are ranked correctly
+   private static final int CANDIDATES_PER_TOP_QUERY = 4;
+   private static final InputMethod[] INPUT_METHODS = InputMethod.values();
+
+   private final SlidingWindow window;
+   private final int topQueries;
+   private final ConcurrentMap<String, SlidingWindowCounter> markerCounters = new ConcurrentHashMap<>();
+   private final SlidingWindowCounter[] inputMethodCounters = new SlidingWindowCounter[INPUT_METHODS.length];
+   private final HeavyHitters queryStrings;
+
+   public TagEventAggregator() {
+      this(DEFAULT_WINDOW_SECONDS, DEFAULT_BUCKETS, DEFAULT_TOP_QUERIES);
+   }
+
+   /**
+    * @param windowSeconds The length of the window
+    * @param buckets The number of buckets the window is divided into, the window moves one bucket at a time
+    * @param topQueries The number of query strings reported by {@link #getTopQueries()}
+    */
+   public TagEventAggregator( long windowSeconds, int buckets, int topQueries ) {
+      this(windowSeconds, buckets, topQueries, Ticker.systemTicker());
+   }
+
+   TagEventAggregator( long windowSeconds, int buckets, int topQueries, Ticker ticker ) {
+      this.window = new SlidingWindow(TimeUnit.SECONDS.toMillis(windowSeconds), buckets, ticker);
+      this.topQueries = topQueries;
+      for ( int i = 0; i < INPUT_METHODS.length; i++ ) {
+         inputMethodCounters[i] = new SlidingWindowCounter(window);
+      }
+      this.queryStrings = new HeavyHitters(window, Math.max(1, topQueries) * CANDIDATES_PER_TOP_QUERY);
+   }
+
+   /**
+    * Count a tag event
+    * @param marker The marker the event was logged with
+    * @param record The record that was logged, or null
+    */
+   public void record( Marker marker, TagRecord record ) {
+      counter(marker.getName()).increment();
+      if ( marker != TagEventMarkers.TAG_EVENT_MARKER ) {
+         counter(TagEventMarkers.TAG_EVENT_MARKER.getName()).increment();
+      }
+      if ( record instanceof QueryTagRecord ) {
+         final QueryTagRecord query = (QueryTagRecord) record;
+         if ( query.getMode() != null ) {
+            inputMethodCounters[query.getMode().ordinal()].increment();
+         }
+         if ( query.getString() != null ) {
+            queryStrings.add(query.getString());
+         }
+      }
+   }
+
+   private SlidingWindowCounter counter( String marker ) {
+      SlidingWindowCounter counter = markerCounters.get(marker);
+      if ( counter == null ) {
+         counter = new SlidingWindowCounter(window);
+         SlidingWindowCounter existing = markerCounters.putIfAbsent(marker, counter);
+         if ( existing != null ) {
+            counter = existing;
+         }
+      }
+      return counter;
+   }
+
+   @Override
+   public long getWindowSeconds() {
+      return TimeUnit.MILLISECONDS.toSeconds(window.getWindowMillis());
+   }
+
+   @Override
+   public Map<String, Long> getEventCounts() {
+      return getEventCounts(window.getWindowMillis());
+   }
+
+   /**
+    * Get the number of tag events per marker name within the most recent part of the window
+    */
+   public Map<String, Long> getEventCounts( long millis ) {
+      Map<String, Long> counts = new LinkedHashMap<>();
+      for ( Map.Entry<String, SlidingWindowCounter> entry : markerCounters.entrySet() ) {
+         counts.put(entry.getKey(), entry.getValue().sum(millis));
+      }
+      return counts;
+   }
+
+   /**
+    * Get the number of tag events with the marker within the most recent part of the window
+    */
+   public long getEventCount( Marker marker, long millis ) {
+      SlidingWindowCounter counter = markerCounters.get(marker.getName());
+      return counter == null ? 0 : counter.sum(millis);
+   }
+
+   @Override
+   public Map<String, Long> getInputMethodCounts() {
+      return getInputMethodCounts(window.getWindowMillis());
+   }
+
+   /**
+    * Get the number of queries per input method within the most recent part of the window
+    */
+   public Map<String, Long> getInputMethodCounts( long millis ) {
+      Map<String, Long> counts = new LinkedHashMap<>();
+      for ( InputMethod method : INPUT_METHODS ) {
+         counts.put(method.name(), inputMethodCounters[method.ordinal()].sum(millis));
+      }
+      return counts;
+   }
+
+   @Override
+   public Map<String, Long> getTopQueries() {
+      return getTopQueries(topQueries, window.getWindowMillis());
+   }
+
+   /**
+    * Get the most frequent query strings within the most recent part of the window, most frequent first
+    */
+   public Map<String, Long> getTopQueries( int limit, long millis ) {
+      return queryStrings.top(limit, millis);
+   }
+}
@@ -0,0 +1,41 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.aggregation;
+
+import java.util.Map;
+
+/**
+ * The tag event counts of a {@link TagEventAggregator} over its window, as exposed over JMX
+ * @see TagEventAggregationAppender
+ */
+public interface TagEventAggregatorMXBean {
+   long getWindowSeconds();
+
+   /**
+    * Get the number of tag events per marker name
+    */
+   Map<String, Long> getEventCounts();
+
+   /**
+    * Get the number of queries per input method
+    */
+   Map<String, Long> getInputMethodCounts();
+
+   /**
+    * Get the most frequent query strings with their estimated counts, most frequent first
+    */
+   Map<String, Long> getTopQueries();
+}
@@ -0,0 +1,167 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.segment;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Rolls up the tag events of one or more segments: events per type, and queries per user, per input method and 
+ * per query string.
+ * Each segment is scanned by dictionary code, so only the distinct values of a segment are ever decoded.
+ */
+public class TagEventRollup {
+   public static final String QUERY_TYPE = "query";
+
+   private final Map<String, Long> eventsPerType = new HashMap<>();
+   private final Map<String, Long> queriesPerUser = new HashMap<>();
+   private final Map<String, Long> queriesPerMode = new HashMap<>();
+   private final Map<String, Long> queriesPerString = new HashMap<>();
+   private long events;
+   private long queries;
+   private long firstTimestamp = Long.MAX_VALUE, lastTimestamp = Long.MIN_VALUE;
+
+   /**
+    * Add the events of a segment file
+    */
+   public void add( File segment ) throws IOException {
+      try ( TagSegmentReader reader = TagSegmentReader.open(segment) ) {
+         add(reader);
+      }
+   }
+
+   /**
+    * Add the events of a segment
+    */
+   public void add( TagSegmentReader segment ) {
+      final int rows = segment.getRowCount();
+      final long[] types = new long[segment.getDictionarySize(TagSegmentColumn.TYPE) + 1];
+      final long[] users = new long[segment.getDictionarySize(TagSegmentColumn.USER) + 1];
+      final long[] modes = new long[segment.getDictionarySize(TagSegmentColumn.MODE) + 1];
+      final long[] strings = new long[segment.getDictionarySize(TagSegmentColumn.STRING) + 1];
+      final int queryType = segment.getCode(TagSegmentColumn.TYPE, QUERY_TYPE);
+
+      for ( int row = 0; row < rows; row++ ) {
+         final int type = segment.getCode(TagSegmentColumn.TYPE, row);
+         types[type]++;
+         final long timestamp = segment.getTimestamp(row);
+         if ( timestamp != TagSegmentWriter.NO_TIMESTAMP ) {
+            firstTimestamp = Math.min(firstTimestamp, timestamp);
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+         }
+         if ( type == queryType ) {
+            users[segment.getCode(TagSegmentColumn.USER, row)]++;
+            modes[segment.getCode(TagSegmentColumn.MODE, row)]++;
+            strings[segment.getCode(TagSegmentColumn.STRING, row)]++;
+            queries++;
+         }
+      }
+      events += rows;
+
+      addCounts(eventsPerType, segment, TagSegmentColumn.TYPE, types);
+      addCounts(queriesPerUser, segment, TagSegmentColumn.USER, users);
+      addCounts(queriesPerMode, segment, TagSegmentColumn.MODE, modes);
+      addCounts(queriesPerString, segment, TagSegmentColumn.STRING, strings);
+   }
+
+   private static void addCounts( Map<String, Long> totals, TagSegmentReader segment, TagSegmentColumn column, long[] counts ) {
+      for ( int code = 0; code < counts.length; code++ ) {
+         if ( counts[code] > 0 ) {
+            final String value = segment.getValue(column, code);
+            final Long total = totals.get(value);
+            totals.put(value, total == null ? counts[code] : total + counts[code]);
+         }
+      }
+   }
+
+   public long getEventCount() {
+      return events;
+   }
+
+   public long getQueryCount() {
+      return queries;
+   }
+
+   /**
+    * Get the earliest event time in milliseconds, or {@link TagSegmentWriter#NO_TIMESTAMP} if there were no events with a time
+    */
+   public long getFirstTimestamp() {
+      return firstTimestamp == Long.MAX_VALUE ? TagSegmentWriter.NO_TIMESTAMP : firstTimestamp;
+   }
+
+   /**
+    * Get the latest event time in milliseconds, or {@link TagSegmentWriter#NO_TIMESTAMP} if there were no events with a time
+    */
+   public long getLastTimestamp() {
+      return lastTimestamp;
+   }
+
+   public Map<String, Long> getEventsPerType() {
+      return Collections.unmodifiableMap(eventsPerType);
+   }
+
+   public Map<String, Long> getQueriesPerUser() {
+      return Collections.unmodifiableMap(queriesPerUser);
+   }
+
+   /**
+    * Get the number of queries per input method, e.g. clicked vs typed
+    */
+   public Map<String, Long> getQueriesPerMode() {
+      return Collections.unmodifiableMap(queriesPerMode);
+   }
+
+   /**
+    * Get the most frequent query strings, most frequent first
+    */
+   public List<Entry<String, Long>> getTopStrings( int limit ) {
+      return top(queriesPerString, limit);
+   }
+
+   /**
+    * Get the users with the most queries, most queries first
+    */
+   public List<Entry<String, Long>> getTopUsers( int limit ) {
+      return top(queriesPerUser, limit);
+   }
+
+   private static List<Entry<String, Long>> top( Map<String, Long> counts, int limit ) {
+      final List<Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+      Collections.sort(entries, BY_COUNT_DESCENDING);
+      return Collections.unmodifiableList(entries.subList(0, Math.min(limit, entries.size())));
+   }
+
+   private static final Comparator<Entry<String, Long>> BY_COUNT_DESCENDING = new Comparator<Entry<String, Long>>() {
+      @Override
+      public int compare( Entry<String, Long> first, Entry<String, Long> second ) {
+         final int byCount = second.getValue().compareTo(first.getValue());
+         if ( byCount != 0 || first.getKey() == second.getKey() ) {
+            return byCount;
+         }
+         if ( first.getKey() == null || second.getKey() == null ) {
+            return first.getKey() == null ? 1 : -1;
+         }
+         return first.getKey().compareTo(second.getKey());
+      }
+   };
+}
@@ -0,0 +1,193 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.segment;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.ibm.watson.app.common.tagEvent.TagEventMarkers;
+import com.ibm.watson.app.common.tagEvent.TagEventMessage;
+
+/**
+ * Writes tag events to columnar segment files instead of text, to be scanned with {@link TagSegmentReader} and 
+ * {@link TagEventRollup}. A segment is written every {@code segmentSize} events, and when the appender is stopped.
+ * <p>Example:</p>
+ * <pre>
+ * &lt;TagEventSegments name="tagEventSegments" directory="logs/tagEvents" segmentSize="65536"/&gt;
+ * </pre>
+ * <p>Segment files are named {@code <prefix>-<time in milliseconds>-<sequence>.seg}. They are written under a 
+ * temporary name first, so a file with the final name is always complete.</p>
+ * <p>A full segment is sealed and written by a background thread, so logging threads only wait for a file when 
+ * another full segment is already waiting to be written. Errors writing a segment in the background are reported to the 
+ * status logger but not thrown to the logging thread, whatever {@code ignoreExceptions} says.</p>
+ * <p>Segments are built from {@link TagEventMessage tag event messages}. Batches already serialized by 
+ * {@link com.ibm.watson.app.common.tagEvent.TagEventAsyncAppender} carry text, not records, so this appender 
+ * must be referenced directly and not from a {@code TagEventAsync} appender; such batches are ignored.</p>
+ */
+@Plugin(name = "TagEventSegments", category = "Core", elementType = "appender", printObject = true)
+public class TagEventSegmentAppender extends AbstractAppender {
+   private static final long serialVersionUID = 1L;
+
+   public static final String SEGMENT_SUFFIX = ".seg";
+   public static final int DEFAULT_SEGMENT_SIZE = 65536;
+   private static final long SHUTDOWN_TIMEOUT_MILLIS = 30000;
+
+   @PluginFactory
+   public static TagEventSegmentAppender createAppender(
+         @PluginAttribute("name") String name,
+         @PluginAttribute("directory") String directory,
+         @PluginAttribute(value = "prefix", defaultString = "tagEvents") String prefix,
+         @PluginAttribute(value = "segmentSize", defaultInt = DEFAULT_SEGMENT_SIZE) int segmentSize,
+         @PluginAttribute(value = "ignoreExceptions", defaultBoolean = true) boolean ignoreExceptions,
+         @PluginElement("Filter") Filter filter ) {
+      if ( name == null ) {
+         LOGGER.error("No name provided for TagEventSegmentAppender");
+         return null;
+      }
+      if ( directory == null ) {
+         LOGGER.error("No directory provided for TagEventSegmentAppender " + name);
+         return null;
+      }
+      return new TagEventSegmentAppender(name, filter, new File(directory), prefix, Math.max(1, segmentSize), ignoreExceptions);
+   }
+
+   private final File directory;
+   private final String prefix;
+   private final int segmentSize;
+   private final Object lock = new Object();
+   private final AtomicInteger sequence = new AtomicInteger();
+   private TagSegmentWriter writer = new TagSegmentWriter();
+   private ExecutorService flusher;
+   private boolean batchesReported;
+
+   protected TagEventSegmentAppender( String name, Filter filter, File directory, String prefix, int segmentSize, boolean ignoreExceptions ) {
+      super(name, filter, null, ignoreExceptions);
+      this.directory = directory;
+      this.prefix = prefix;
+      this.segmentSize = segmentSize;
+   }
+
+   @Override
+   public void start() {
+      if ( !directory.isDirectory() && !directory.mkdirs() ) {
+         LOGGER.error("Unable to create directory " + directory + " for TagEventSegmentAppender " + getName());
+         return;
+      }
+      // A single thread and a single waiting segment; beyond that, or once stopped, the logging thread writes it
+      flusher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("tag-event-segments-" + getName() + "-%d").build(),
+            new RejectedExecutionHandler() {
+               @Override
+               public void rejectedExecution( Runnable task, ThreadPoolExecutor executor ) {
+                  task.run();
+               }
+            });
+      super.start();
+   }
+
+   @Override
+   public void stop() {
+      super.stop();
+      synchronized ( lock ) {
+         if ( flusher == null ) {
+            return;
+         }
+         if ( !writer.isEmpty() ) {
+            seal();
+         }
+         flusher.shutdown();
+      }
+      try {
+         if ( !flusher.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS) ) {
+            LOGGER.warn("TagEventSegmentAppender " + getName() + " stopped before all segments were written");
+         }
+      } catch ( InterruptedException e ) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   @Override
+   public void append( LogEvent event ) {
+      if ( event.getMessage() instanceof TagEventMessage && event.getMarker() != null 
+            && event.getMarker().isInstanceOf(TagEventMarkers.TAG_EVENT_MARKER) ) {
+         synchronized ( lock ) {
+            writer.add(((TagEventMessage) event.getMessage()).getRecord());
+            if ( writer.size() >= segmentSize ) {
+               seal();
+            }
+         }
+      } else if ( event.getMarker() != null && event.getMarker().isInstanceOf(TagEventMarkers.TAG_EVENT_BATCH_MARKER) ) {
+         synchronized ( lock ) {
+            if ( !batchesReported ) {
+               batchesReported = true;
+               LOGGER.warn("TagEventSegmentAppender " + getName() + " ignores serialized tag event batches, reference it directly instead of from TagEventAsync");
+            }
+         }
+      }
+   }
+
+   /**
+    * Hand the events collected so far to the background thread and start a new segment. The caller holds the lock.
+    */
+   private void seal() {
+      final TagSegmentWriter sealed = writer;
+      writer = new TagSegmentWriter();
+      flusher.execute(new Runnable() {
+         @Override
+         public void run() {
+            write(sealed);
+         }
+      });
+   }
+
+   /**
+    * Write a sealed segment
+    */
+   private void write( TagSegmentWriter writer ) {
+      final String name = prefix + "-" + System.currentTimeMillis() + "-" + sequence.getAndIncrement();
+      final File temporary = new File(directory, name + ".tmp");
+      final File segment = new File(directory, name + SEGMENT_SUFFIX);
+      try {
+         writer.writeTo(temporary);
+         Files.move(temporary.toPath(), segment.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch ( IOException e ) {
+         error("Unable to write " + writer.size() + " tag events to " + segment, e);
+         temporary.delete();
+      }
+   }
+
+   public File getDirectory() {
+      return directory;
+   }
+}
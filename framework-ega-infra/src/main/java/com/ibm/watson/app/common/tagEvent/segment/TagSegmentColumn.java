@@ -0,0 +1,36 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.segment;
+
+/**
+ * The columns of a tag event segment, in the order they are stored
+ */
+public enum TagSegmentColumn {
+   /** The record type, dictionary encoded */
+   TYPE,
+   /** The event time in milliseconds, or {@link TagSegmentWriter#NO_TIMESTAMP} */
+   TIMESTAMP,
+   /** The user of an event record, dictionary encoded */
+   USER,
+   /** The query string of a query record, dictionary encoded */
+   STRING,
+   /** The input method of a query record, dictionary encoded */
+   MODE;
+
+   boolean isDictionaryEncoded() {
+      return this != TIMESTAMP;
+   }
+}
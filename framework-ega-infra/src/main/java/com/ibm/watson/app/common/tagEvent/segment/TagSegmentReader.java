@@ -0,0 +1,216 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.segment;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a segment written by {@link TagSegmentWriter}. The file is memory mapped, and values are read from the 
+ * mapping only when asked for. Dictionary values are decoded once, on first use, so scans should work with codes
+ * ({@link #getCode(TagSegmentColumn, int)}) and only decode the values they report.
+ * <p>Not thread-safe.</p>
+ */
+public class TagSegmentReader implements Closeable {
+   private static final TagSegmentColumn[] COLUMNS = TagSegmentColumn.values();
+
+   private final File file;
+   private final FileChannel channel;
+   private final ByteBuffer data;
+   private final int rows;
+   private final int timestampOffset;
+   private final Dictionary[] dictionaries = new Dictionary[COLUMNS.length];
+
+   private TagSegmentReader( File file, FileChannel channel, ByteBuffer data ) throws IOException {
+      this.file = file;
+      this.channel = channel;
+      this.data = data;
+      if ( data.capacity() < TagSegmentWriter.HEADER_SIZE || data.getInt(0) != TagSegmentWriter.MAGIC ) {
+         throw new IOException("Not a tag event segment: " + file);
+      }
+      if ( data.getShort(4) != TagSegmentWriter.VERSION || data.getShort(6) != COLUMNS.length ) {
+         throw new IOException("Unsupported tag event segment version " + data.getShort(4) + ": " + file);
+      }
+      rows = data.getInt(8);
+
+      int timestamps = -1;
+      for ( TagSegmentColumn column : COLUMNS ) {
+         final int entry = TagSegmentWriter.HEADER_SIZE + column.ordinal() * TagSegmentWriter.COLUMN_HEADER_SIZE;
+         final int encoding = data.getInt(entry);
+         final long offset = data.getLong(entry + 4), length = data.getLong(entry + 12);
+         if ( offset < 0 || offset + length > data.capacity() ) {
+            throw new IOException("Tag event segment is truncated: " + file);
+         }
+         if ( encoding == TagSegmentWriter.ENCODING_DICTIONARY ) {
+            dictionaries[column.ordinal()] = new Dictionary((int) offset);
+         } else {
+            timestamps = (int) offset;
+         }
+      }
+      timestampOffset = timestamps;
+   }
+
+   /**
+    * Map the segment file
+    */
+   public static TagSegmentReader open( File file ) throws IOException {
+      final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      try {
+         if ( channel.size() > Integer.MAX_VALUE ) {
+            throw new IOException("Tag event segment is too large to map: " + file);
+         }
+         final ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+         return new TagSegmentReader(file, channel, data);
+      } catch ( IOException | RuntimeException e ) {
+         channel.close();
+         throw e;
+      }
+   }
+
+   public File getFile() {
+      return file;
+   }
+
+   public int getRowCount() {
+      return rows;
+   }
+
+   /**
+    * Get the dictionary code of the value of a row, 0 if the value is null
+    */
+   public int getCode( TagSegmentColumn column, int row ) {
+      return dictionary(column).code(row);
+   }
+
+   /**
+    * Get the number of distinct values of a column. Codes go from 1 to this number.
+    */
+   public int getDictionarySize( TagSegmentColumn column ) {
+      return dictionary(column).size;
+   }
+
+   /**
+    * Get the value for a dictionary code, null for code 0
+    */
+   public String getValue( TagSegmentColumn column, int code ) {
+      return code == 0 ? null : dictionary(column).values()[code - 1];
+   }
+
+   /**
+    * Get the code of a value, or -1 if no row has it
+    */
+   public int getCode( TagSegmentColumn column, String value ) {
+      if ( value == null ) {
+         return 0;
+      }
+      final String[] values = dictionary(column).values();
+      for ( int i = 0; i < values.length; i++ ) {
+         if ( value.equals(values[i]) ) {
+            return i + 1;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * Get the value of a row
+    */
+   public String getRowValue( TagSegmentColumn column, int row ) {
+      return getValue(column, getCode(column, row));
+   }
+
+   /**
+    * Get the event time of a row in milliseconds, or {@link TagSegmentWriter#NO_TIMESTAMP}
+    */
+   public long getTimestamp( int row ) {
+      checkRow(row);
+      return data.getLong(timestampOffset + row * 8);
+   }
+
+   @Override
+   public void close() throws IOException {
+      // The mapping itself is released once the buffer is garbage collected
+      channel.close();
+   }
+
+   private Dictionary dictionary( TagSegmentColumn column ) {
+      if ( !column.isDictionaryEncoded() ) {
+         throw new IllegalArgumentException(column + " is not dictionary encoded");
+      }
+      return dictionaries[column.ordinal()];
+   }
+
+   private void checkRow( int row ) {
+      if ( row < 0 || row >= rows ) {
+         throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+      }
+   }
+
+   private final class Dictionary {
+      final int size;
+      final int width;
+      final int valuesOffset;
+      final int codesOffset;
+      String[] values;
+
+      Dictionary( int offset ) {
+         size = data.getInt(offset);
+         width = data.getInt(offset + 4);
+         valuesOffset = offset + 8;
+         int position = valuesOffset;
+         for ( int i = 0; i < size; i++ ) {
+            position += 4 + data.getInt(position);
+         }
+         codesOffset = position;
+      }
+
+      int code( int row ) {
+         checkRow(row);
+         switch ( width ) {
+            case 1:
+               return data.get(codesOffset + row) & 0xFF;
+            case 2:
+               return data.getShort(codesOffset + row * 2) & 0xFFFF;
+            default:
+               return data.getInt(codesOffset + row * 4);
+         }
+      }
+
+      String[] values() {
+         if ( values == null ) {
+            final String[] decoded = new String[size];
+            final ByteBuffer view = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            int position = valuesOffset;
+            for ( int i = 0; i < size; i++ ) {
+               final int length = data.getInt(position);
+               final byte[] bytes = new byte[length];
+               view.position(position + 4);
+               view.get(bytes);
+               decoded[i] = new String(bytes, StandardCharsets.UTF_8);
+               position += 4 + length;
+            }
+            values = decoded;
+         }
+         return values;
+      }
+   }
+}
@@ -0,0 +1,231 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.segment;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.watson.app.common.tagEvent.EventTagRecord;
+import com.ibm.watson.app.common.tagEvent.QueryTagRecord;
+import com.ibm.watson.app.common.tagEvent.TagRecord;
+
+/**
+ * Collects tag records column by column, and writes them to a segment file that {@link TagSegmentReader} can map.
+ * <p>All numbers are little-endian. A segment starts with a header:</p>
+ * <pre>
+ * int    magic ("TAGS")
+ * short  version
+ * short  number of columns
+ * int    number of rows
+ * for each column, in the order of {@link TagSegmentColumn}:
+ *    int    encoding (0 = dictionary, 1 = long)
+ *    long   offset of the column from the start of the file
+ *    long   length of the column in bytes
+ * </pre>
+ * <p>A dictionary encoded column holds the number of distinct values and the width in bytes (1, 2 or 4) of a code, 
+ * then each distinct value as a length-prefixed UTF-8 string, then the code of every row. Code 0 is null, and code 
+ * {@code n} is the {@code n}th value of the dictionary. A long column holds one long per row.</p>
+ * <p>Not thread-safe.</p>
+ */
+public class TagSegmentWriter {
+   public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+   static final int MAGIC = 0x53474154;
+   static final short VERSION = 1;
+   static final int ENCODING_DICTIONARY = 0, ENCODING_LONG = 1;
+   static final int HEADER_SIZE = 12, COLUMN_HEADER_SIZE = 20;
+
+   private static final TagSegmentColumn[] COLUMNS = TagSegmentColumn.values();
+   private static final int INITIAL_CAPACITY = 1024;
+
+   private final DictionaryColumn[] dictionaries = new DictionaryColumn[COLUMNS.length];
+   private long[] timestamps = new long[INITIAL_CAPACITY];
+   private int rows;
+
+   public TagSegmentWriter() {
+      for ( TagSegmentColumn column : COLUMNS ) {
+         if ( column.isDictionaryEncoded() ) {
+            dictionaries[column.ordinal()] = new DictionaryColumn();
+         }
+      }
+   }
+
+   /**
+    * Add a row with the values of the record. The record is not referenced afterwards.
+    */
+   public void add( TagRecord record ) {
+      long timestamp = NO_TIMESTAMP;
+      String user = null, string = null, mode = null;
+      if ( record instanceof EventTagRecord ) {
+         final EventTagRecord event = (EventTagRecord) record;
+         final Date date = event.getTimestamp();
+         timestamp = date == null ? NO_TIMESTAMP : date.getTime();
+         user = event.getUser();
+      }
+      if ( record instanceof QueryTagRecord ) {
+         final QueryTagRecord query = (QueryTagRecord) record;
+         string = query.getString();
+         mode = query.getMode() == null ? null : query.getMode().name();
+      }
+
+      if ( rows == timestamps.length ) {
+         timestamps = Arrays.copyOf(timestamps, rows * 2);
+      }
+      timestamps[rows] = timestamp;
+      dictionary(TagSegmentColumn.TYPE).add(rows, record.getType());
+      dictionary(TagSegmentColumn.USER).add(rows, user);
+      dictionary(TagSegmentColumn.STRING).add(rows, string);
+      dictionary(TagSegmentColumn.MODE).add(rows, mode);
+      rows++;
+   }
+
+   public int size() {
+      return rows;
+   }
+
+   public boolean isEmpty() {
+      return rows == 0;
+   }
+
+   /**
+    * Remove all rows, to start the next segment
+    */
+   public void clear() {
+      rows = 0;
+      for ( DictionaryColumn dictionary : dictionaries ) {
+         if ( dictionary != null ) {
+            dictionary.clear();
+         }
+      }
+   }
+
+   /**
+    * Write the rows to the file, replacing it if it exists
+    */
+   public void writeTo( File file ) throws IOException {
+      final ByteBuffer[] buffers = new ByteBuffer[COLUMNS.length + 1];
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + COLUMNS.length * COLUMN_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      header.putInt(MAGIC).putShort(VERSION).putShort((short) COLUMNS.length).putInt(rows);
+      buffers[0] = header;
+
+      long offset = header.capacity();
+      for ( TagSegmentColumn column : COLUMNS ) {
+         final ByteBuffer data = column.isDictionaryEncoded() ? dictionary(column).encode(rows) : encodeTimestamps();
+         header.putInt(column.isDictionaryEncoded() ? ENCODING_DICTIONARY : ENCODING_LONG).putLong(offset).putLong(data.remaining());
+         offset += data.remaining();
+         buffers[column.ordinal() + 1] = data;
+      }
+      header.flip();
+
+      try ( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE) ) {
+         long remaining = offset;
+         while ( remaining > 0 ) {
+            remaining -= channel.write(buffers);
+         }
+      }
+   }
+
+   private DictionaryColumn dictionary( TagSegmentColumn column ) {
+      return dictionaries[column.ordinal()];
+   }
+
+   private ByteBuffer encodeTimestamps() {
+      final ByteBuffer data = ByteBuffer.allocate(rows * 8).order(ByteOrder.LITTLE_ENDIAN);
+      for ( int i = 0; i < rows; i++ ) {
+         data.putLong(timestamps[i]);
+      }
+      data.flip();
+      return data;
+   }
+
+   static int codeWidth( int dictionarySize ) {
+      if ( dictionarySize <= 0xFF ) {
+         return 1;
+      }
+      return dictionarySize <= 0xFFFF ? 2 : 4;
+   }
+
+   private static final class DictionaryColumn {
+      private final Map<String, Integer> codes = new HashMap<>();
+      private final List<String> values = new ArrayList<>();
+      private int[] rowCodes = new int[INITIAL_CAPACITY];
+
+      void add( int row, String value ) {
+         if ( row == rowCodes.length ) {
+            rowCodes = Arrays.copyOf(rowCodes, row * 2);
+         }
+         int code = 0;
+         if ( value != null ) {
+            Integer existing = codes.get(value);
+            if ( existing == null ) {
+               values.add(value);
+               existing = values.size();
+               codes.put(value, existing);
+            }
+            code = existing;
+         }
+         rowCodes[row] = code;
+      }
+
+      void clear() {
+         codes.clear();
+         values.clear();
+      }
+
+      ByteBuffer encode( int rows ) {
+         final byte[][] encoded = new byte[values.size()][];
+         int size = 8;
+         for ( int i = 0; i < encoded.length; i++ ) {
+            encoded[i] = values.get(i).getBytes(StandardCharsets.UTF_8);
+            size += 4 + encoded[i].length;
+         }
+         final int width = codeWidth(encoded.length);
+         size += rows * width;
+
+         final ByteBuffer data = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+         data.putInt(encoded.length).putInt(width);
+         for ( byte[] value : encoded ) {
+            data.putInt(value.length).put(value);
+         }
+         for ( int i = 0; i < rows; i++ ) {
+            switch ( width ) {
+               case 1:
+                  data.put((byte) rowCodes[i]);
+                  break;
+               case 2:
+                  data.putShort((short) rowCodes[i]);
+                  break;
+               default:
+                  data.putInt(rowCodes[i]);
+                  break;
+            }
+         }
+         data.flip();
+         return data;
+      }
+   }
+}
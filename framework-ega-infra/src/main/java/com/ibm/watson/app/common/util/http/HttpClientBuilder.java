@@ -13,20 +13,28 @@
  * limitations under the License.
  */
 
-
 package com.ibm.watson.app.common.util.http;
 
+import java.net.URI;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.net.ssl.SSLContext;
 
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
-import org.apache.http.client.CookieStore;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.config.AuthSchemes;
 import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
@@ -35,65 +43,396 @@ import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.protocol.HttpContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import com.ibm.watson.app.common.util.rest.MessageKey;
 
+import com.ibm.watson.app.common.services.general.ConfigurationService;
+import com.ibm.watson.app.common.services.general.impl.DefaultConfigurationServiceImpl;
+import com.ibm.watson.app.common.util.rest.MessageKey;
 
+/**
+ * Builds the pooled blocking and non-blocking HTTP clients used by the REST clients.
+ * <p>All settings have defaults, and can be overridden with the setters or read from a 
+ * {@link ConfigurationService} with {@link #fromConfiguration(ConfigurationService)}.
+ * Times are in milliseconds. The supported configuration properties are:</p>
+ * <ul>
+ * <li>{@value #MAX_TOTAL} - maximum number of pooled connections</li>
+ * <li>{@value #MAX_PER_ROUTE} - default maximum number of pooled connections per route</li>
+ * <li>{@value #MAX_PER_ROUTE_HOSTS} - per-route overrides, e.g. {@code https://api.box.com=20,https://gateway.watsonplatform.net=100}</li>
+ * <li>{@value #CONNECT_TIMEOUT}, {@value #SOCKET_TIMEOUT}, {@value #CONNECTION_REQUEST_TIMEOUT} - timeouts, 0 means no timeout</li>
+ * <li>{@value #IDLE_TIMEOUT} - pooled connections idle for longer are closed in the background, 0 disables eviction</li>
+ * <li>{@value #EVICTION_INTERVAL} - how often idle and expired connections are evicted, must be greater than 0</li>
+ * <li>{@value #KEEP_ALIVE} - how long to keep a connection alive when the server does not say</li>
+ * <li>{@value #TCP_NO_DELAY} - whether to set TCP_NODELAY on sockets</li>
+ * <li>{@value #TRUST_SELF_SIGNED} - whether to trust self-signed server certificates</li>
+ * </ul>
+ */
 public class HttpClientBuilder {
 
    private static final Logger logger = LogManager.getLogger();
 
+   public static final String MAX_TOTAL = "http.client.max.total";
+   public static final String MAX_PER_ROUTE = "http.client.max.per.route";
+   public static final String MAX_PER_ROUTE_HOSTS = "http.client.max.per.route.hosts";
+   public static final String CONNECT_TIMEOUT = "http.client.connect.timeout";
+   public static final String SOCKET_TIMEOUT = "http.client.socket.timeout";
+   public static final String CONNECTION_REQUEST_TIMEOUT = "http.client.connection.request.timeout";
+   public static final String IDLE_TIMEOUT = "http.client.idle.timeout";
+   public static final String EVICTION_INTERVAL = "http.client.eviction.interval";
+   public static final String KEEP_ALIVE = "http.client.keep.alive";
+   public static final String TCP_NO_DELAY = "http.client.tcp.no.delay";
+   public static final String TRUST_SELF_SIGNED = "http.client.ssl.trust.self.signed";
+
+   private static volatile ConfigurationService defaultConfiguration;
+
+   private Credentials credentials;
+   private int maxTotal = 200;
+   private int maxPerRoute = 50;
+   private final Map<HttpRoute, Integer> maxPerRouteOverrides = new LinkedHashMap<>();
+   private int connectTimeout = 10000;
+   private int socketTimeout = 60000;
+   private int connectionRequestTimeout = 10000;
+   private long idleTimeout = 60000;
+   private long evictionInterval = 30000;
+   private long keepAlive = 30000;
+   private boolean tcpNoDelay = true;
+   private boolean trustSelfSigned = false;
+
    public HttpClientBuilder() {
-      // TODO Auto-generated constructor stub
    }
 
-   
+   /**
+    * Create a builder with the settings read from the supplied configuration, using defaults for anything not configured
+    */
+   public static HttpClientBuilder fromConfiguration(ConfigurationService cfg) {
+      HttpClientBuilder builder = new HttpClientBuilder();
+      builder.maxTotal = getInt(cfg, MAX_TOTAL, builder.maxTotal);
+      builder.maxPerRoute = getInt(cfg, MAX_PER_ROUTE, builder.maxPerRoute);
+      builder.connectTimeout = getInt(cfg, CONNECT_TIMEOUT, builder.connectTimeout);
+      builder.socketTimeout = getInt(cfg, SOCKET_TIMEOUT, builder.socketTimeout);
+      builder.connectionRequestTimeout = getInt(cfg, CONNECTION_REQUEST_TIMEOUT, builder.connectionRequestTimeout);
+      builder.idleTimeout = getLong(cfg, IDLE_TIMEOUT, builder.idleTimeout);
+      long evictionInterval = getLong(cfg, EVICTION_INTERVAL, builder.evictionInterval);
+      if ( evictionInterval > 0 )
+         builder.evictionInterval = evictionInterval;
+      else
+         logger.warn(MessageKey.AQWEGA02002W_invalid_configuration_value_2.getMessage(EVICTION_INTERVAL, evictionInterval));
+      builder.keepAlive = getLong(cfg, KEEP_ALIVE, builder.keepAlive);
+      builder.tcpNoDelay = Boolean.parseBoolean(cfg.getProperty(TCP_NO_DELAY, String.valueOf(builder.tcpNoDelay)));
+      builder.trustSelfSigned = Boolean.parseBoolean(cfg.getProperty(TRUST_SELF_SIGNED, String.valueOf(builder.trustSelfSigned)));
+
+      String hosts = cfg.getProperty(MAX_PER_ROUTE_HOSTS);
+      if ( hosts != null && !hosts.trim().isEmpty() ) {
+         for ( String entry : hosts.split(",") ) {
+            String[] hostAndMax = entry.split("=");
+            try {
+               builder.setMaxPerRoute(hostAndMax[0].trim(), Integer.parseInt(hostAndMax[1].trim()));
+            } catch ( RuntimeException e ) {
+               logger.warn(MessageKey.AQWEGA02002W_invalid_configuration_value_2.getMessage(MAX_PER_ROUTE_HOSTS, entry));
+            }
+         }
+      }
+      return builder;
+   }
+
+   /**
+    * Create a builder from the default configuration, see {@link #setDefaultConfiguration(ConfigurationService)}
+    */
+   public static HttpClientBuilder fromDefaultConfiguration() {
+      ConfigurationService cfg = defaultConfiguration;
+      if ( cfg == null ) {
+         synchronized ( HttpClientBuilder.class ) {
+            cfg = defaultConfiguration;
+            if ( cfg == null ) {
+               cfg = new DefaultConfigurationServiceImpl();
+               defaultConfiguration = cfg;
+            }
+         }
+      }
+      return fromConfiguration(cfg);
+   }
+
+   /**
+    * Set the configuration used by {@link #fromDefaultConfiguration()}.
+    * If this is never called, a {@link DefaultConfigurationServiceImpl} is used.
+    */
+   public static void setDefaultConfiguration(ConfigurationService cfg) {
+      defaultConfiguration = cfg;
+   }
+
    public static CloseableHttpClient buildDefaultHttpClient(Credentials cred ) {
-      
-      // Use custom cookie store if necessary.
-      CookieStore cookieStore = new BasicCookieStore();
-      // Use custom credentials provider if necessary.
+      return new HttpClientBuilder().setCredentials(cred).build();
+   }
+
+   /**
+    * Build a non-blocking HTTP client with the same defaults as {@link #buildDefaultHttpClient(Credentials)}.
+    * The returned client has already been started; callers are responsible for closing it.
+    */
+   public static CloseableHttpAsyncClient buildDefaultHttpAsyncClient(Credentials cred ) {
+      return new HttpClientBuilder().setCredentials(cred).buildAsync();
+   }
+
+   public CloseableHttpClient build() {
+      Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.INSTANCE)
+            .register("https", buildSSLSocketFactory())
+            .build();
+      PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+      connManager.setDefaultSocketConfig(SocketConfig.custom()
+            .setTcpNoDelay(tcpNoDelay)
+            .setSoTimeout(socketTimeout)
+            .build());
+      configurePool(connManager);
+      if ( idleTimeout > 0 )
+         IdleConnectionEvictor.schedule(connManager, idleTimeout, evictionInterval);
+
+      return HttpClients.custom()
+            .setConnectionManager(connManager)
+            .setKeepAliveStrategy(buildKeepAliveStrategy())
+            .setDefaultCookieStore(new BasicCookieStore())
+            .setDefaultCredentialsProvider(buildCredentialsProvider())
+            .setDefaultRequestConfig(buildRequestConfig())
+            .build();
+   }
+
+   /**
+    * Build a non-blocking HTTP client with the settings of this builder.
+    * The returned client has already been started; callers are responsible for closing it.
+    */
+   public CloseableHttpAsyncClient buildAsync() {
+      IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+            .setTcpNoDelay(tcpNoDelay)
+            .setConnectTimeout(connectTimeout)
+            .setSoTimeout(socketTimeout)
+            .build();
+      Registry<SchemeIOSessionStrategy> sessionStrategyRegistry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+            .register("http", NoopIOSessionStrategy.INSTANCE)
+            .register("https", buildSSLSessionStrategy())
+            .build();
+      PoolingNHttpClientConnectionManager connManager;
+      try {
+         connManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig), sessionStrategyRegistry);
+      } catch ( IOReactorException e ) {
+         throw new IllegalStateException(e);
+      }
+      configurePool(connManager);
+      if ( idleTimeout > 0 )
+         IdleConnectionEvictor.schedule(connManager, idleTimeout, evictionInterval);
+
+      CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+            .setConnectionManager(connManager)
+            .setKeepAliveStrategy(buildKeepAliveStrategy())
+            .setDefaultCookieStore(new BasicCookieStore())
+            .setDefaultCredentialsProvider(buildCredentialsProvider())
+            .setDefaultRequestConfig(buildRequestConfig())
+            .build();
+      client.start();
+      return client;
+   }
+
+   public HttpClientBuilder setCredentials(Credentials credentials) {
+      this.credentials = credentials;
+      return this;
+   }
+
+   public HttpClientBuilder setMaxTotal(int maxTotal) {
+      this.maxTotal = maxTotal;
+      return this;
+   }
+
+   public HttpClientBuilder setMaxPerRoute(int maxPerRoute) {
+      this.maxPerRoute = maxPerRoute;
+      return this;
+   }
+
+   /**
+    * Override the maximum number of pooled connections to one host
+    * @param hostUrl The scheme, host and optional port of the host, e.g. {@code https://api.box.com}
+    * @param max The maximum number of connections
+    */
+   public HttpClientBuilder setMaxPerRoute(String hostUrl, int max) {
+      URI uri = URI.create(hostUrl);
+      boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+      int port = uri.getPort() != -1 ? uri.getPort() : (secure ? 443 : 80);
+      HttpHost target = new HttpHost(uri.getHost(), port, uri.getScheme());
+      maxPerRouteOverrides.put(new HttpRoute(target, null, secure), max);
+      return this;
+   }
+
+   public HttpClientBuilder setConnectTimeout(int connectTimeout) {
+      this.connectTimeout = connectTimeout;
+      return this;
+   }
+
+   public HttpClientBuilder setSocketTimeout(int socketTimeout) {
+      this.socketTimeout = socketTimeout;
+      return this;
+   }
+
+   public HttpClientBuilder setConnectionRequestTimeout(int connectionRequestTimeout) {
+      this.connectionRequestTimeout = connectionRequestTimeout;
+      return this;
+   }
+
+   public HttpClientBuilder setIdleTimeout(long idleTimeout) {
+      this.idleTimeout = idleTimeout;
+      return this;
+   }
+
+   /**
+    * Set how often idle and expired connections are evicted, to disable eviction set the idle timeout to 0 instead
+    * @throws IllegalArgumentException if the interval is not greater than 0
+    */
+   public HttpClientBuilder setEvictionInterval(long evictionInterval) {
+      if ( evictionInterval <= 0 )
+         throw new IllegalArgumentException("The eviction interval must be greater than 0: " + evictionInterval);
+      this.evictionInterval = evictionInterval;
+      return this;
+   }
+
+   public HttpClientBuilder setKeepAlive(long keepAlive) {
+      this.keepAlive = keepAlive;
+      return this;
+   }
+
+   public HttpClientBuilder setTcpNoDelay(boolean tcpNoDelay) {
+      this.tcpNoDelay = tcpNoDelay;
+      return this;
+   }
+
+   public HttpClientBuilder setTrustSelfSigned(boolean trustSelfSigned) {
+      this.trustSelfSigned = trustSelfSigned;
+      return this;
+   }
+
+   int getMaxTotal() {
+      return maxTotal;
+   }
+
+   int getMaxPerRoute() {
+      return maxPerRoute;
+   }
+
+   Map<HttpRoute, Integer> getMaxPerRouteOverrides() {
+      return maxPerRouteOverrides;
+   }
+
+   int getConnectTimeout() {
+      return connectTimeout;
+   }
+
+   int getSocketTimeout() {
+      return socketTimeout;
+   }
+
+   long getIdleTimeout() {
+      return idleTimeout;
+   }
+
+   long getEvictionInterval() {
+      return evictionInterval;
+   }
+
+   boolean isTrustSelfSigned() {
+      return trustSelfSigned;
+   }
+
+   private void configurePool(ConnPoolControl<HttpRoute> pool) {
+      pool.setMaxTotal(maxTotal);
+      pool.setDefaultMaxPerRoute(maxPerRoute);
+      for ( Map.Entry<HttpRoute, Integer> override : maxPerRouteOverrides.entrySet() ) {
+         pool.setMaxPerRoute(override.getKey(), override.getValue());
+      }
+   }
+
+   private CredentialsProvider buildCredentialsProvider() {
       CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-      PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager();
-      RequestConfig defaultRequestConfig;
-      
-     //private DefaultHttpClient client;
-     connManager.setMaxTotal(200);
-     connManager.setDefaultMaxPerRoute(50);
-     try {
-         SSLContextBuilder builder = new SSLContextBuilder();
-         builder.loadTrustMaterial(null, new TrustSelfSignedStrategy());
-        
-          // Create a registry of custom connection socket factories for supported
-          // protocol schemes.
-          Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
-              .register("http", PlainConnectionSocketFactory.INSTANCE)
-              .register("https", new SSLConnectionSocketFactory(builder.build()))
-              .build();
-     } catch (Exception e ) {
-        logger.warn(MessageKey.AQWEGA02000W_unable_init_ssl_context.getMessage(), e );
-     }
-       // Create global request configuration
-       defaultRequestConfig = RequestConfig.custom()
-           .setCookieSpec(CookieSpecs.BEST_MATCH)
-           .setExpectContinueEnabled(true)
-           .setTargetPreferredAuthSchemes(Arrays.asList(AuthSchemes.BASIC, AuthSchemes.NTLM, AuthSchemes.DIGEST))
-           .setAuthenticationEnabled(true)
-           .build();
-
-       if ( cred != null )
-          credentialsProvider.setCredentials(AuthScope.ANY,  cred );
-      
-       return HttpClients.custom()
-             .setConnectionManager(connManager)
-             .setDefaultCookieStore(cookieStore)
-             .setDefaultCredentialsProvider(credentialsProvider)
-             .setDefaultRequestConfig(defaultRequestConfig)
-             .build();
-  }
-  
+      if ( credentials != null )
+         credentialsProvider.setCredentials(AuthScope.ANY, credentials);
+      return credentialsProvider;
+   }
+
+   private RequestConfig buildRequestConfig() {
+      return RequestConfig.custom()
+            .setCookieSpec(CookieSpecs.BEST_MATCH)
+            .setExpectContinueEnabled(true)
+            .setTargetPreferredAuthSchemes(Arrays.asList(AuthSchemes.BASIC, AuthSchemes.NTLM, AuthSchemes.DIGEST))
+            .setAuthenticationEnabled(true)
+            .setConnectTimeout(connectTimeout)
+            .setSocketTimeout(socketTimeout)
+            .setConnectionRequestTimeout(connectionRequestTimeout)
+            .build();
+   }
+
+   /**
+    * Honor the Keep-Alive header sent by the server, otherwise keep connections alive for the configured time
+    */
+   private ConnectionKeepAliveStrategy buildKeepAliveStrategy() {
+      final long defaultKeepAlive = keepAlive;
+      return new ConnectionKeepAliveStrategy() {
+         @Override
+         public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? duration : defaultKeepAlive;
+         }
+      };
+   }
+
+   private SSLContext buildSelfSignedSSLContext() throws Exception {
+      SSLContextBuilder builder = new SSLContextBuilder();
+      builder.loadTrustMaterial(null, new TrustSelfSignedStrategy());
+      return builder.build();
+   }
+
+   private ConnectionSocketFactory buildSSLSocketFactory() {
+      if ( trustSelfSigned ) {
+         try {
+            return new SSLConnectionSocketFactory(buildSelfSignedSSLContext());
+         } catch ( Exception e ) {
+            logger.warn(MessageKey.AQWEGA02000W_unable_init_ssl_context.getMessage(), e );
+         }
+      }
+      return SSLConnectionSocketFactory.getSocketFactory();
+   }
 
+   private SchemeIOSessionStrategy buildSSLSessionStrategy() {
+      if ( trustSelfSigned ) {
+         try {
+            return new SSLIOSessionStrategy(buildSelfSignedSSLContext());
+         } catch ( Exception e ) {
+            logger.warn(MessageKey.AQWEGA02000W_unable_init_ssl_context.getMessage(), e );
+         }
+      }
+      return SSLIOSessionStrategy.getDefaultStrategy();
+   }
+
+   private static int getInt(ConfigurationService cfg, String property, int defaultValue) {
+      return (int) getLong(cfg, property, defaultValue);
+   }
+
+   private static long getLong(ConfigurationService cfg, String property, long defaultValue) {
+      String value = cfg.getProperty(property);
+      if ( value == null || value.trim().isEmpty() )
+         return defaultValue;
+      try {
+         return Long.parseLong(value.trim());
+      } catch ( NumberFormatException e ) {
+         logger.warn(MessageKey.AQWEGA02002W_invalid_configuration_value_2.getMessage(property, value));
+         return defaultValue;
+      }
+   }
 }
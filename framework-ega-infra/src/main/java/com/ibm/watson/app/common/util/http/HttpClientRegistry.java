@@ -0,0 +1,212 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Hands out HTTP clients shared by all REST clients talking to the same host, so they share one connection pool.
+ * <p>The shared clients carry no credentials; each REST client supplies its own through the request context.
+ * Clients are reference counted: they are closed once the last {@link Lease} for their host is closed, 
+ * and any clients still open when the JVM exits are closed by a shutdown hook.</p>
+ */
+public final class HttpClientRegistry {
+   private static final Logger logger = LogManager.getLogger();
+
+   private static final Map<String, SharedClients> clients = new HashMap<>();
+
+   static {
+      Runtime.getRuntime().addShutdownHook(new Thread("http-client-registry-shutdown") {
+         @Override
+         public void run() {
+            shutdown();
+         }
+      });
+   }
+
+   private HttpClientRegistry() {
+   }
+
+   /**
+    * Acquire the clients for the host of the given URL, built from the default configuration on first use
+    * @see HttpClientBuilder#fromDefaultConfiguration()
+    */
+   public static Lease acquire(String url) {
+      return acquire(url, null);
+   }
+
+   /**
+    * Acquire the clients for the host of the given URL
+    * @param url Any URL on the host
+    * @param builder Used to build the clients if there are none for this host yet, may be null to use the default configuration
+    */
+   public static synchronized Lease acquire(String url, HttpClientBuilder builder) {
+      String host = getHostKey(url);
+      SharedClients shared = clients.get(host);
+      if ( shared == null ) {
+         shared = new SharedClients(host, builder != null ? builder : HttpClientBuilder.fromDefaultConfiguration());
+         clients.put(host, shared);
+      }
+      shared.references++;
+      return new Lease(shared);
+   }
+
+   /**
+    * Close all shared clients, whether or not they are still leased
+    */
+   public static void shutdown() {
+      List<SharedClients> toClose;
+      synchronized ( HttpClientRegistry.class ) {
+         toClose = new ArrayList<>(clients.values());
+         clients.clear();
+      }
+      for ( SharedClients shared : toClose ) {
+         shared.close();
+      }
+   }
+
+   static synchronized int getReferenceCount(String url) {
+      SharedClients shared = clients.get(getHostKey(url));
+      return shared == null ? 0 : shared.references;
+   }
+
+   private static synchronized void release(SharedClients shared) {
+      shared.references--;
+      if ( shared.references == 0 && clients.get(shared.host) == shared ) {
+         clients.remove(shared.host);
+         shared.close();
+      }
+   }
+
+   static String getHostKey(String url) {
+      URI uri = URI.create(url);
+      String scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase();
+      int port = uri.getPort() != -1 ? uri.getPort() : ("https".equals(scheme) ? 443 : 80);
+      return scheme + "://" + uri.getHost() + ":" + port;
+   }
+
+   /**
+    * The clients shared by everyone talking to one host
+    */
+   private static final class SharedClients {
+      final String host;
+      final HttpClientBuilder builder;
+      final CloseableHttpClient httpClient;
+      volatile CloseableHttpAsyncClient httpAsyncClient;
+      volatile boolean closed;
+      int references;
+
+      SharedClients(String host, HttpClientBuilder builder) {
+         this.host = host;
+         this.builder = builder;
+         this.httpClient = builder.build();
+      }
+
+      CloseableHttpAsyncClient getHttpAsyncClient() {
+         CloseableHttpAsyncClient client = httpAsyncClient;
+         if ( client == null ) {
+            synchronized ( this ) {
+               if ( closed )
+                  throw new IllegalStateException("The clients for " + host + " have been closed");
+               client = httpAsyncClient;
+               if ( client == null ) {
+                  client = builder.buildAsync();
+                  httpAsyncClient = client;
+               }
+            }
+         }
+         return client;
+      }
+
+      void close() {
+         closed = true;
+         closeQuietly(httpClient);
+         synchronized ( this ) {
+            closeQuietly(httpAsyncClient);
+         }
+      }
+
+      private void closeQuietly(Closeable closeable) {
+         if ( closeable == null )
+            return;
+         try {
+            closeable.close();
+         } catch ( IOException e ) {
+            logger.catching(Level.DEBUG, e);
+         }
+      }
+   }
+
+   /**
+    * A reference to the clients of one host. Close it once the clients are no longer needed.
+    */
+   public static final class Lease implements Closeable {
+      private final SharedClients shared;
+      private final AtomicBoolean closed = new AtomicBoolean();
+
+      private Lease(SharedClients shared) {
+         this.shared = shared;
+      }
+
+      public CloseableHttpClient getHttpClient() {
+         return shared.httpClient;
+      }
+
+      /**
+       * Get the non-blocking client for this host, creating and starting it on first use
+       * @throws IllegalStateException if this lease or the shared clients have been closed
+       */
+      public CloseableHttpAsyncClient getHttpAsyncClient() {
+         checkOpen();
+         return shared.getHttpAsyncClient();
+      }
+
+      /**
+       * Check that neither this lease nor the shared clients, which {@link HttpClientRegistry#shutdown()} closes 
+       * whether or not they are leased, have been closed
+       */
+      public boolean isOpen() {
+         return !closed.get() && !shared.closed;
+      }
+
+      /**
+       * @throws IllegalStateException if the lease is not {@link #isOpen() open}
+       */
+      public void checkOpen() {
+         if ( !isOpen() )
+            throw new IllegalStateException("The clients for " + shared.host + " have been closed");
+      }
+
+      @Override
+      public void close() {
+         if ( closed.compareAndSet(false, true) )
+            release(shared);
+      }
+   }
+}
@@ -0,0 +1,98 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.http;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.nio.conn.NHttpClientConnectionManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Periodically closes expired and idle pooled connections on a shared background thread.
+ * <p>Connection managers are only weakly referenced, so a client that is no longer used 
+ * can still be garbage collected; its eviction task is cancelled once that happens.</p>
+ */
+final class IdleConnectionEvictor {
+   private static final Logger logger = LogManager.getLogger();
+
+   private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+         new ThreadFactoryBuilder().setDaemon(true).setNameFormat("http-connection-evictor-%d").build());
+
+   private IdleConnectionEvictor() {
+   }
+
+   static void schedule(HttpClientConnectionManager connManager, final long idleMillis, long intervalMillis) {
+      final WeakReference<HttpClientConnectionManager> ref = new WeakReference<>(connManager);
+      schedule(new EvictionTask() {
+         @Override
+         boolean evict() {
+            HttpClientConnectionManager manager = ref.get();
+            if ( manager == null )
+               return false;
+            manager.closeExpiredConnections();
+            manager.closeIdleConnections(idleMillis, TimeUnit.MILLISECONDS);
+            return true;
+         }
+      }, intervalMillis);
+   }
+
+   static void schedule(NHttpClientConnectionManager connManager, final long idleMillis, long intervalMillis) {
+      final WeakReference<NHttpClientConnectionManager> ref = new WeakReference<>(connManager);
+      schedule(new EvictionTask() {
+         @Override
+         boolean evict() {
+            NHttpClientConnectionManager manager = ref.get();
+            if ( manager == null )
+               return false;
+            manager.closeExpiredConnections();
+            manager.closeIdleConnections(idleMillis, TimeUnit.MILLISECONDS);
+            return true;
+         }
+      }, intervalMillis);
+   }
+
+   private static void schedule(EvictionTask task, long intervalMillis) {
+      task.future = scheduler.scheduleWithFixedDelay(task, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+   }
+
+   private static abstract class EvictionTask implements Runnable {
+      volatile ScheduledFuture<?> future;
+
+      /**
+       * @return false once the connection manager is gone and the task should stop
+       */
+      abstract boolean evict();
+
+      @Override
+      public void run() {
+         try {
+            if ( !evict() && future != null )
+               future.cancel(false);
+         } catch ( RuntimeException e ) {
+            // Never let an exception cancel the periodic task
+            logger.catching(e);
+         }
+      }
+   }
+}
@@ -0,0 +1,152 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The aggregated metrics of one REST endpoint of one client
+ */
+public class EndpointMetrics implements EndpointMetricsMXBean {
+	private final String clientName;
+	private final String method;
+	private final String endpoint;
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong fallbacks = new AtomicLong();
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final ConcurrentMap<Integer, AtomicLong> statusCounts = new ConcurrentHashMap<>();
+
+	public EndpointMetrics(String clientName, String method, String endpoint) {
+		this.clientName = clientName;
+		this.method = method;
+		this.endpoint = endpoint;
+	}
+
+	public void record(RequestSample sample) {
+		latency.record(sample.getLatencyNanos(), TimeUnit.NANOSECONDS);
+		bytesSent.addAndGet(sample.getBytesSent());
+		bytesReceived.addAndGet(sample.getBytesReceived());
+		if(sample.isError()) {
+			errors.incrementAndGet();
+		}
+		if(sample.isFallback()) {
+			fallbacks.incrementAndGet();
+		}
+		if(sample.getStatus() != RequestSample.NO_STATUS) {
+			AtomicLong counter = statusCounts.get(sample.getStatus());
+			if(counter == null) {
+				AtomicLong created = new AtomicLong();
+				counter = statusCounts.putIfAbsent(sample.getStatus(), created);
+				if(counter == null) {
+					counter = created;
+				}
+			}
+			counter.incrementAndGet();
+		}
+	}
+
+	@Override
+	public String getClientName() {
+		return clientName;
+	}
+
+	@Override
+	public String getMethod() {
+		return method;
+	}
+
+	@Override
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	@Override
+	public long getRequestCount() {
+		return latency.getCount();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return errors.get();
+	}
+
+	@Override
+	public long getFallbackCount() {
+		return fallbacks.get();
+	}
+
+	@Override
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	@Override
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	@Override
+	public double getMeanLatencyMillis() {
+		return latency.getMean(TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public double getP50LatencyMillis() {
+		return latency.getPercentile(0.5, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public double getP90LatencyMillis() {
+		return latency.getPercentile(0.9, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public double getP99LatencyMillis() {
+		return latency.getPercentile(0.99, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public long getMaxLatencyMillis() {
+		return latency.getMax(TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public Map<String, Long> getStatusCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		for(Map.Entry<Integer, AtomicLong> entry : statusCounts.entrySet()) {
+			counts.put(String.valueOf(entry.getKey()), entry.getValue().get());
+		}
+		return counts;
+	}
+
+	public LatencyHistogram getLatencyHistogram() {
+		return latency;
+	}
+
+	@Override
+	public String toString() {
+		return "EndpointMetrics [" + clientName + " " + method + " " + endpoint + ", requests=" + getRequestCount() + ", errors=" + getErrorCount() 
+				+ ", fallbacks=" + getFallbackCount() + ", p99=" + getP99LatencyMillis() + "ms, statusCounts=" + getStatusCounts() + "]";
+	}
+}
@@ -0,0 +1,55 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.metrics;
+
+import java.util.Map;
+
+/**
+ * The metrics of one REST endpoint of one client, as exposed over JMX
+ * @see JmxMetricsExporter
+ */
+public interface EndpointMetricsMXBean {
+	String getClientName();
+
+	String getMethod();
+
+	String getEndpoint();
+
+	long getRequestCount();
+
+	long getErrorCount();
+
+	long getFallbackCount();
+
+	long getBytesSent();
+
+	long getBytesReceived();
+
+	double getMeanLatencyMillis();
+
+	double getP50LatencyMillis();
+
+	double getP90LatencyMillis();
+
+	double getP99LatencyMillis();
+
+	long getMaxLatencyMillis();
+
+	/**
+	 * Get the number of responses received per HTTP status code
+	 */
+	Map<String, Long> getStatusCounts();
+}
@@ -0,0 +1,110 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Exposes the {@link EndpointMetrics} of a registry as MXBeans named 
+ * {@code com.ibm.watson.app.common:type=RestEndpoint,client=<client>,method=<method>,endpoint="<template>"}.
+ * Endpoints first seen after {@link #start()} are exported as they appear, and unregistered when the registry is cleared.
+ */
+public class JmxMetricsExporter implements RequestMetricsRegistry.Listener {
+	private static final Logger logger = LogManager.getLogger();
+
+	public static final String DOMAIN = "com.ibm.watson.app.common";
+
+	private final RequestMetricsRegistry registry;
+	private final MBeanServer server;
+	private final List<ObjectName> registered = new ArrayList<>();
+
+	/**
+	 * Export the default registry to the platform MBean server
+	 */
+	public JmxMetricsExporter() {
+		this(RequestMetricsRegistry.getDefault(), ManagementFactory.getPlatformMBeanServer());
+	}
+
+	public JmxMetricsExporter(RequestMetricsRegistry registry, MBeanServer server) {
+		this.registry = registry;
+		this.server = server;
+	}
+
+	public void start() {
+		registry.addListener(this);
+		for(EndpointMetrics metrics : registry.getEndpointMetrics()) {
+			endpointAdded(metrics);
+		}
+	}
+
+	public void stop() {
+		registry.removeListener(this);
+		synchronized(registered) {
+			for(ObjectName name : registered) {
+				try {
+					server.unregisterMBean(name);
+				} catch(JMException e) {
+					logger.catching(Level.DEBUG, e);
+				}
+			}
+			registered.clear();
+		}
+	}
+
+	@Override
+	public void endpointAdded(EndpointMetrics metrics) {
+		try {
+			ObjectName name = getObjectName(metrics);
+			synchronized(registered) {
+				if(!server.isRegistered(name)) {
+					server.registerMBean(metrics, name);
+					registered.add(name);
+				}
+			}
+		} catch(JMException e) {
+			logger.catching(Level.DEBUG, e);
+		}
+	}
+
+	@Override
+	public void endpointRemoved(EndpointMetrics metrics) {
+		try {
+			ObjectName name = getObjectName(metrics);
+			synchronized(registered) {
+				if(registered.remove(name)) {
+					server.unregisterMBean(name);
+				}
+			}
+		} catch(JMException e) {
+			logger.catching(Level.DEBUG, e);
+		}
+	}
+
+	public static ObjectName getObjectName(EndpointMetrics metrics) throws JMException {
+		return new ObjectName(DOMAIN + ":type=RestEndpoint,client=" + ObjectName.quote(metrics.getClientName()) 
+				+ ",method=" + metrics.getMethod() + ",endpoint=" + ObjectName.quote(metrics.getEndpoint()));
+	}
+}
@@ -0,0 +1,103 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with microsecond resolution.
+ * <p>Every power of two is split into {@value #SUB_BUCKETS} buckets, so a reported percentile 
+ * is at most 25% above the true value. Values beyond about 12 days all land in the last bucket.</p>
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 2;
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 40;
+	private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalMicros = new AtomicLong();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	public void record(long duration, TimeUnit unit) {
+		long micros = Math.max(0, unit.toMicros(duration));
+		counts.incrementAndGet(indexOf(micros));
+		count.incrementAndGet();
+		totalMicros.addAndGet(micros);
+		long max = maxMicros.get();
+		while(micros > max && !maxMicros.compareAndSet(max, micros)) {
+			max = maxMicros.get();
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public double getMean(TimeUnit unit) {
+		long n = count.get();
+		return n == 0 ? 0 : (double) totalMicros.get() / n / TimeUnit.MICROSECONDS.convert(1, unit);
+	}
+
+	public long getMax(TimeUnit unit) {
+		return unit.convert(maxMicros.get(), TimeUnit.MICROSECONDS);
+	}
+
+	/**
+	 * Get the value below which the given fraction of the recorded latencies fall
+	 * @param percentile The fraction, between 0 and 1, e.g. 0.99 for the p99
+	 */
+	public double getPercentile(double percentile, TimeUnit unit) {
+		long n = count.get();
+		if(n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(Math.min(1, Math.max(0, percentile)) * n));
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if(seen >= rank) {
+				long micros = Math.min(upperBoundOf(i), maxMicros.get());
+				return (double) micros / TimeUnit.MICROSECONDS.convert(1, unit);
+			}
+		}
+		return (double) maxMicros.get() / TimeUnit.MICROSECONDS.convert(1, unit);
+	}
+
+	static int indexOf(long micros) {
+		if(micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+		if(exponent == MAX_EXPONENT && micros >= (1L << (MAX_EXPONENT + 1))) {
+			return BUCKETS - 1;
+		}
+		int subBucket = (int) ((micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+		return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+	}
+
+	static long upperBoundOf(int index) {
+		if(index < SUB_BUCKETS) {
+			return index;
+		}
+		int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+		int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+}
@@ -0,0 +1,97 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A {@link RequestMetricsSink} aggregating the samples into {@link EndpointMetrics}, one per client, method and endpoint template.
+ * The REST clients report to the {@link #getDefault() default registry} unless told otherwise.
+ */
+public class RequestMetricsRegistry implements RequestMetricsSink {
+	private static final RequestMetricsRegistry DEFAULT = new RequestMetricsRegistry();
+
+	/**
+	 * Notified when the first sample of a new endpoint is recorded, and when the metrics of an endpoint are dropped
+	 */
+	public interface Listener {
+		void endpointAdded(EndpointMetrics metrics);
+		
+		void endpointRemoved(EndpointMetrics metrics);
+	}
+
+	private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	public static RequestMetricsRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	@Override
+	public void record(RequestSample sample) {
+		getEndpointMetrics(sample.getClientName(), sample.getMethod(), sample.getEndpoint()).record(sample);
+	}
+
+	/**
+	 * Get the metrics of the given endpoint, creating them if needed
+	 */
+	public EndpointMetrics getEndpointMetrics(String clientName, String method, String endpoint) {
+		final String key = clientName + ' ' + method + ' ' + endpoint;
+		EndpointMetrics metrics = endpoints.get(key);
+		if(metrics == null) {
+			EndpointMetrics created = new EndpointMetrics(clientName, method, endpoint);
+			metrics = endpoints.putIfAbsent(key, created);
+			if(metrics == null) {
+				metrics = created;
+				for(Listener listener : listeners) {
+					listener.endpointAdded(created);
+				}
+			}
+		}
+		return metrics;
+	}
+
+	public Collection<EndpointMetrics> getEndpointMetrics() {
+		return new ArrayList<>(endpoints.values());
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Drop all metrics gathered so far, the listeners are told about each endpoint removed
+	 */
+	public void clear() {
+		for(String key : new ArrayList<>(endpoints.keySet())) {
+			EndpointMetrics removed = endpoints.remove(key);
+			if(removed != null) {
+				for(Listener listener : listeners) {
+					listener.endpointRemoved(removed);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a single REST request, as reported to a {@link RequestMetricsSink}
+ */
+public class RequestSample {
+	/**
+	 * The status reported when no response was received
+	 */
+	public static final int NO_STATUS = -1;
+
+	private final String clientName;
+	private final String method;
+	private final String endpoint;
+	private final int status;
+	private final long latencyNanos;
+	private final long bytesSent;
+	private final long bytesReceived;
+	private final boolean fallback;
+	private final String error;
+
+	/**
+	 * @param clientName The simple class name of the REST client
+	 * @param method The HTTP method
+	 * @param endpoint The endpoint template, e.g. {@code /v1/classifiers/${classifier_id}}, never the expanded URL
+	 * @param status The HTTP status of the response, or {@link #NO_STATUS}
+	 * @param latencyNanos The time from issuing the request until the response was handled
+	 * @param bytesSent The size of the request entity, 0 if unknown
+	 * @param bytesReceived The number of response entity bytes read
+	 * @param fallback Whether the response handler gave up on the response and returned its default value
+	 * @param error The type of the exception the request failed with, or null
+	 */
+	public RequestSample(String clientName, String method, String endpoint, int status, long latencyNanos, 
+			long bytesSent, long bytesReceived, boolean fallback, String error) {
+		this.clientName = clientName;
+		this.method = method;
+		this.endpoint = endpoint;
+		this.status = status;
+		this.latencyNanos = latencyNanos;
+		this.bytesSent = bytesSent;
+		this.bytesReceived = bytesReceived;
+		this.fallback = fallback;
+		this.error = error;
+	}
+
+	public String getClientName() {
+		return clientName;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public long getLatencyNanos() {
+		return latencyNanos;
+	}
+
+	public long getLatency(TimeUnit unit) {
+		return unit.convert(latencyNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	public boolean isFallback() {
+		return fallback;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public boolean isError() {
+		return error != null;
+	}
+
+	@Override
+	public String toString() {
+		return "RequestSample [clientName=" + clientName + ", method=" + method + ", endpoint=" + endpoint + ", status=" + status 
+				+ ", latencyNanos=" + latencyNanos + ", bytesSent=" + bytesSent + ", bytesReceived=" + bytesReceived 
+				+ ", fallback=" + fallback + ", error=" + error + "]";
+	}
+}
@@ -0,0 +1,88 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.rest;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of requests a client has in flight at once, so one slow service cannot tie up every caller thread
+ */
+public class Bulkhead {
+	public static final int DEFAULT_MAX_CONCURRENT = 50;
+	public static final long DEFAULT_MAX_WAIT = 10000;
+
+	private final String name;
+	private final int maxConcurrent;
+	private final long maxWaitMillis;
+	private final Semaphore permits;
+
+	public Bulkhead(String name) {
+		this(name, DEFAULT_MAX_CONCURRENT, DEFAULT_MAX_WAIT);
+	}
+
+	/**
+	 * @param name The name used in logs and metrics
+	 * @param maxConcurrent The number of requests allowed in flight at once
+	 * @param maxWaitMillis How long a request waits for a slot before it is rejected
+	 */
+	public Bulkhead(String name, int maxConcurrent, long maxWaitMillis) {
+		if(maxConcurrent < 1) {
+			throw new IllegalArgumentException("maxConcurrent must be at least 1");
+		}
+		this.name = name;
+		this.maxConcurrent = maxConcurrent;
+		this.maxWaitMillis = Math.max(0, maxWaitMillis);
+		this.permits = new Semaphore(maxConcurrent, true);
+	}
+
+	/**
+	 * Take a slot, waiting up to the configured time for one to free up
+	 * @return boolean true if a slot was taken and must be {@link #release() released}, false if the bulkhead is full
+	 */
+	public boolean tryAcquire() throws InterruptedIOException {
+		try {
+			return permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(e.getMessage());
+		}
+	}
+
+	public void release() {
+		permits.release();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	public long getMaxWaitMillis() {
+		return maxWaitMillis;
+	}
+
+	/**
+	 * Get the number of requests currently in flight
+	 */
+	public int getInFlight() {
+		return maxConcurrent - permits.availablePermits();
+	}
+}
@@ -0,0 +1,205 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.util.rest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * This response handler streams the response entity into a {@link WritableByteChannel} and returns the number of bytes written.
+ * The entity is never held in memory: it is copied through a fixed size buffer, or transferred straight into the file 
+ * with {@link FileChannel#transferFrom(ReadableByteChannel, long, long)} when the target is a {@link FileChannel}.
+ * <p>The handler can download a byte range of the resource, see {@link #ChannelResponseHandler(WritableByteChannel, long, long)}. 
+ * Use {@link #addRangeHeader(HttpRequestBase)} to ask the server for that range. If the server ignores the range and sends 
+ * the whole resource, the bytes before the range are skipped, so the target receives the same bytes either way.
+ * A range that starts at or past the end of the resource ({@code 416 Range Not Satisfiable}) writes nothing and returns {@code 0}.</p>
+ * <p>Under any error the default return value is {@code -1}. Any bytes already written to the target are left in place.
+ * A handler keeps the state of the response it handles, so it must only be used for a single request.</p>
+ */
+public class ChannelResponseHandler extends HttpStatusAwareResponseHandler<Long> {
+	private static final Logger logger = LogManager.getLogger();
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final long TRANSFER_CHUNK_SIZE = 8L * 1024 * 1024;
+	private static final Pattern CONTENT_RANGE = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)");
+	
+	private final WritableByteChannel target;
+	private final long offset;
+	private final long length;
+	private long rangeStart;
+	
+	/**
+	 * Construct a {@link ChannelResponseHandler} that writes the whole response entity to the target
+	 */
+	public ChannelResponseHandler(WritableByteChannel target) {
+		this(target, 0, -1);
+	}
+	
+	/**
+	 * Construct a {@link ChannelResponseHandler} that writes a range of the resource to the target.
+	 * When the target is a {@link FileChannel}, the bytes are written from its current position.
+	 * @param offset The offset of the first byte of the range
+	 * @param length The number of bytes in the range, or -1 for everything from the offset up to the end of the resource
+	 */
+	public ChannelResponseHandler(WritableByteChannel target, long offset, long length) {
+		if(offset < 0 || length < -1) {
+			throw new IllegalArgumentException("Invalid range offset " + offset + " and length " + length);
+		}
+		this.target = target;
+		this.offset = offset;
+		this.length = length;
+	}
+	
+	/**
+	 * Check if this handler downloads a part of the resource rather than all of it
+	 */
+	public boolean isRange() {
+		return offset > 0 || length >= 0;
+	}
+	
+	/**
+	 * Add the {@code Range} header for the range downloaded by this handler to the request, if any
+	 */
+	public void addRangeHeader(HttpRequestBase request) {
+		if(isRange()) {
+			request.setHeader(HttpHeaders.RANGE, "bytes=" + offset + "-" + (length < 0 ? "" : String.valueOf(offset + length - 1)));
+		}
+	}
+	
+	@Override
+	public Long getDefaultReturnValue() {
+		return Long.valueOf(-1);
+	}
+	
+	@Override
+	protected boolean acceptStatusCode(int status) {
+		return super.acceptStatusCode(status) || (status == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE && isRange());
+	}
+	
+	@Override
+	protected Long doHandleResponse(HttpResponse response) throws IOException {
+		final int status = response.getStatusLine().getStatusCode();
+		if(status == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("Nothing to download from offset " + offset);
+			}
+			return Long.valueOf(0);
+		}
+		
+		rangeStart = 0;
+		if(status == HttpStatus.SC_PARTIAL_CONTENT) {
+			rangeStart = getRangeStart(response.getFirstHeader(HttpHeaders.CONTENT_RANGE));
+		}
+		return super.doHandleResponse(response);
+	}
+	
+	@Override
+	protected Long handleEntity(HttpEntity entity) throws IOException {
+		final InputStream content = entity == null ? null : entity.getContent();
+		if(content == null) {
+			return Long.valueOf(0);
+		}
+		
+		if(rangeStart > offset) {
+			throw new IOException("Received content range starting at " + rangeStart + ", expected " + offset);
+		}
+		if(rangeStart < offset) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("Server did not honor the range request, skipping " + (offset - rangeStart) + " bytes");
+			}
+			skipFully(content, offset - rangeStart);
+		}
+		
+		// No need to close the channel, the entity content is consumed and closed once this handler returns
+		final ReadableByteChannel source = Channels.newChannel(content);
+		final long limit = length < 0 ? Long.MAX_VALUE : length;
+		return Long.valueOf(target instanceof FileChannel ? transfer(source, (FileChannel) target, limit) : copy(source, target, limit));
+	}
+	
+	private static long transfer(ReadableByteChannel source, FileChannel file, long limit) throws IOException {
+		final long start = file.position();
+		long written = 0;
+		while(written < limit) {
+			long transferred = file.transferFrom(source, start + written, Math.min(TRANSFER_CHUNK_SIZE, limit - written));
+			if(transferred <= 0) {
+				break;
+			}
+			written += transferred;
+		}
+		// transferFrom does not move the position of the file channel
+		file.position(start + written);
+		return written;
+	}
+	
+	private static long copy(ReadableByteChannel source, WritableByteChannel target, long limit) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(limit, 1)));
+		long written = 0;
+		while(written < limit) {
+			if(limit - written < buffer.remaining()) {
+				buffer.limit((int) (limit - written));
+			}
+			if(source.read(buffer) < 0) {
+				break;
+			}
+			buffer.flip();
+			while(buffer.hasRemaining()) {
+				written += target.write(buffer);
+			}
+			buffer.clear();
+		}
+		return written;
+	}
+	
+	private static void skipFully(InputStream in, long count) throws IOException {
+		while(count > 0) {
+			long skipped = in.skip(count);
+			if(skipped <= 0) {
+				if(in.read() < 0) {
+					throw new EOFException("Resource ended before the start of the requested range");
+				}
+				skipped = 1;
+			}
+			count -= skipped;
+		}
+	}
+	
+	private static long getRangeStart(Header contentRange) throws IOException {
+		if(contentRange == null || contentRange.getValue() == null) {
+			throw new IOException("Partial content received without a " + HttpHeaders.CONTENT_RANGE + " header");
+		}
+		Matcher matcher = CONTENT_RANGE.matcher(contentRange.getValue().trim());
+		if(!matcher.matches()) {
+			throw new IOException("Unsupported " + HttpHeaders.CONTENT_RANGE + " header '" + contentRange.getValue() + "'");
+		}
+		return Long.parseLong(matcher.group(1));
+	}
+}
@@ -0,0 +1,180 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.rest;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Ticker;
+
+/**
+ * Stops sending requests to a service that keeps failing, so callers fail fast instead of waiting on it.
+ * <p>The breaker opens after {@link #getFailureThreshold()} consecutive failures and rejects every request 
+ * for {@link #getOpenMillis()}. After that a single trial request is let through (half-open): 
+ * if it succeeds the breaker closes again, otherwise it stays open for another period.</p>
+ */
+public class CircuitBreaker {
+	private static final Logger logger = LogManager.getLogger();
+
+	public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+	public static final long DEFAULT_OPEN_MILLIS = 30000;
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	/**
+	 * Notified of every state transition. Invoked on the thread that caused the transition, so it should return quickly.
+	 */
+	public interface Listener {
+		void stateChanged(CircuitBreaker circuitBreaker, State from, State to);
+	}
+
+	private final String name;
+	private final int failureThreshold;
+	private final long openNanos;
+	private final Ticker ticker;
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private boolean trialInFlight;
+
+	public CircuitBreaker(String name) {
+		this(name, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+	}
+
+	/**
+	 * @param name The name used in logs and metrics
+	 * @param failureThreshold The number of consecutive failures that opens the breaker
+	 * @param openMillis How long the breaker stays open before a trial request is let through
+	 */
+	public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+		this(name, failureThreshold, openMillis, Ticker.systemTicker());
+	}
+
+	CircuitBreaker(String name, int failureThreshold, long openMillis, Ticker ticker) {
+		if(failureThreshold < 1) {
+			throw new IllegalArgumentException("failureThreshold must be at least 1");
+		}
+		this.name = name;
+		this.failureThreshold = failureThreshold;
+		this.openNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, openMillis));
+		this.ticker = ticker;
+	}
+
+	/**
+	 * Ask permission to send a request. Every granted request must be followed by 
+	 * {@link #recordSuccess()}, {@link #recordFailure()} or, if it was abandoned before it had an outcome, {@link #release()}.
+	 * @return boolean true if the request may be sent, false if it should be rejected
+	 */
+	public boolean tryAcquire() {
+		State from;
+		synchronized(this) {
+			switch(state) {
+			case CLOSED:
+				return true;
+			case HALF_OPEN:
+				if(trialInFlight) {
+					return false;
+				}
+				trialInFlight = true;
+				return true;
+			default:
+				if(ticker.read() - openedAt < openNanos) {
+					return false;
+				}
+				from = state;
+				state = State.HALF_OPEN;
+				trialInFlight = true;
+			}
+		}
+		fireStateChanged(from, State.HALF_OPEN);
+		return true;
+	}
+
+	/**
+	 * Give back the permission of a request that was abandoned, without recording an outcome
+	 */
+	public synchronized void release() {
+		trialInFlight = false;
+	}
+
+	public void recordSuccess() {
+		State from;
+		synchronized(this) {
+			consecutiveFailures = 0;
+			trialInFlight = false;
+			if(state == State.CLOSED) {
+				return;
+			}
+			from = state;
+			state = State.CLOSED;
+		}
+		fireStateChanged(from, State.CLOSED);
+	}
+
+	public void recordFailure() {
+		State from;
+		synchronized(this) {
+			consecutiveFailures++;
+			trialInFlight = false;
+			if(state == State.OPEN || (state == State.CLOSED && consecutiveFailures < failureThreshold)) {
+				return;
+			}
+			from = state;
+			state = State.OPEN;
+			openedAt = ticker.read();
+		}
+		fireStateChanged(from, State.OPEN);
+	}
+
+	private void fireStateChanged(State from, State to) {
+		logger.warn(MessageKey.AQWEGA02004W_circuit_breaker_state_changed_3.getMessage(name, from, to));
+		for(Listener listener : listeners) {
+			listener.stateChanged(this, from, to);
+		}
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	public long getOpenMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(openNanos);
+	}
+}
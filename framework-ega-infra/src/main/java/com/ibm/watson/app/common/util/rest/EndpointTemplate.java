@@ -0,0 +1,107 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.rest;
+
+/**
+ * A REST endpoint such as {@code /v1/classifiers/{id}/classify}, where a {@code {name}} or {@code ${name}} segment 
+ * matches any single path segment. Any query string is ignored.
+ * By default a template also matches every endpoint below it, so {@code /v1/classifiers} matches {@code /v1/classifiers/123/classify}.
+ */
+class EndpointTemplate {
+	private final String template;
+	private final String path;
+	private final String[] segments;
+
+	EndpointTemplate(String template) {
+		this.template = template;
+		int query = template.indexOf('?');
+		this.path = query < 0 ? template : template.substring(0, query);
+		this.segments = split(template);
+	}
+
+	/**
+	 * Check if the given endpoint matches this template
+	 * @param endpoint The endpoint, relative to the client URL. Any query string is ignored.
+	 */
+	boolean matches(String endpoint) {
+		return matches(endpoint, false);
+	}
+
+	/**
+	 * Check if the given endpoint matches this template
+	 * @param endpoint The endpoint, relative to the client URL. Any query string is ignored.
+	 * @param exact Whether the endpoint must have exactly the segments of the template, rather than start with them
+	 */
+	boolean matches(String endpoint, boolean exact) {
+		String[] path = split(endpoint);
+		if(path.length < segments.length || (exact && path.length != segments.length)) {
+			return false;
+		}
+		for(int i = 0; i < segments.length; i++) {
+			if(!isVariable(segments[i]) && !segments[i].equals(path[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the number of segments in the template, the template with the most segments is the most specific match
+	 */
+	int getSpecificity() {
+		return segments.length;
+	}
+
+	/**
+	 * Get the template without its query string
+	 */
+	String getPath() {
+		return path;
+	}
+
+	private static boolean isVariable(String segment) {
+		int start = segment.startsWith("$") ? 1 : 0;
+		return segment.length() > start + 1 && segment.charAt(start) == '{' && segment.charAt(segment.length() - 1) == '}';
+	}
+
+	private static String[] split(String endpoint) {
+		int query = endpoint.indexOf('?');
+		String path = query < 0 ? endpoint : endpoint.substring(0, query);
+		int start = 0, end = path.length();
+		while(start < end && path.charAt(start) == '/') {
+			start++;
+		}
+		while(end > start && path.charAt(end - 1) == '/') {
+			end--;
+		}
+		return start == end ? new String[0] : path.substring(start, end).split("/+");
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof EndpointTemplate && template.equals(((EndpointTemplate) obj).template);
+	}
+
+	@Override
+	public int hashCode() {
+		return template.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return template;
+	}
+}
@@ -34,10 +34,15 @@ import com.ibm.watson.app.common.util.rest.MessageKey;
  * It accepts the response as valid iff the {@link #acceptStatusCode(int)} method returns {@code true}. 
  * Otherwise, a default return value will be returned (defined as {@code null}, subclasses may override).
  * By default, this handler only considers the response codes in the range {@code 200 - 207} as valid.
+ * Every time the default value is returned in place of a real result, this is noted for the request metrics 
+ * of the calling thread (see {@link #fallback()}).
  */
 public abstract class HttpStatusAwareResponseHandler<T> implements ResponseHandler<T> {
 	private static final Logger logger = LogManager.getLogger();
 	
+	// Set when a handler on this thread fell back to its default value, reported in the request metrics
+	private static final ThreadLocal<Boolean> fellBack = new ThreadLocal<>();
+	
 	private final int[] validStatusCodes = new int[] {
 			HttpStatus.SC_OK,
 			HttpStatus.SC_CREATED,
@@ -61,7 +66,7 @@ public abstract class HttpStatusAwareResponseHandler<T> implements ResponseHandl
 		
 		if(!acceptStatusCode(status)) {
 			logger.warn(MessageKey.AQWEGA02001W_received_invalid_http_status_2.getMessage(status, EnglishReasonPhraseCatalog.INSTANCE.getReason(status, Locale.ENGLISH)));
-			return getDefaultReturnValue();
+			return fallback();
 		}
 		
 		return doHandleResponse(response);
@@ -91,6 +96,29 @@ public abstract class HttpStatusAwareResponseHandler<T> implements ResponseHandl
 		return null;
 	}
 	
+	/**
+	 * Give up on the response and return the {@link #getDefaultReturnValue() default value} in its place, 
+	 * noting the fallback for the request metrics.
+	 * @return T The default return value
+	 */
+	protected T fallback() {
+		markFallback();
+		return getDefaultReturnValue();
+	}
+	
+	static void markFallback() {
+		fellBack.set(Boolean.TRUE);
+	}
+	
+	/**
+	 * Check whether a handler on the calling thread fell back to its default value since the last call, and reset the flag
+	 */
+	static boolean clearFallback() {
+		boolean result = fellBack.get() != null;
+		fellBack.remove();
+		return result;
+	}
+	
 	/**
 	 * Handle the response. This method is invoked after we have considered it valid.
 	 * @param response
@@ -107,7 +135,7 @@ public abstract class HttpStatusAwareResponseHandler<T> implements ResponseHandl
 		} catch(Exception e) {
 			logger.error(MessageKey.AQWEGA04000E_error_while_handling_resoinse_entity_1.getMessage(e.getMessage()));
 			logger.catching(e);
-			return getDefaultReturnValue();
+			return fallback();
 		} finally {
 			EntityUtils.consume(entity);
 		}
@@ -15,22 +15,37 @@
 
 package com.ibm.watson.app.common.util.rest;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.InvalidObjectException;
+import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import com.ibm.watson.app.common.util.rest.MessageKey;
 
 /**
  * This response handler deserializes the HTTP entity as JSON.
+ * By default the entity is parsed straight from its input stream with a {@link JsonReader}.
+ * The body is only read into a String first when trace logging is enabled, so it can be logged,
+ * or when streaming has been turned off with {@link #setStreaming(boolean)}.
+ * Either way the result is produced by {@link #parseJSON(JsonReader)}, the body is decoded with the charset of its Content-Type, UTF-8 if it has none, 
+ * and the same rules apply: an entity that is empty or only whitespace, one that is not valid JSON, 
+ * or one with data after the JSON document {@link #fallback() falls back} to the default return value.
  * 
  * @param <T> The type representing the JSON data
  */
@@ -41,6 +56,8 @@ public abstract class JSONResponseHandler<T> extends HttpStatusAwareResponseHand
 	private static final Charset CHARSET = StandardCharsets.UTF_8; // JSON should always be UTF-8
 	
 	protected Class<T> classOfT;
+	private volatile boolean streaming = true;
+	
 	public JSONResponseHandler(Class<T> classOfT) {
 		this(new Gson(), classOfT);
 	}
@@ -52,16 +69,55 @@ public abstract class JSONResponseHandler<T> extends HttpStatusAwareResponseHand
 
 	@Override
 	protected T handleEntity(HttpEntity entity) throws IOException {
-		final String jsonString = EntityUtils.toString(entity, CHARSET);
+		if(!streaming || logger.isTraceEnabled()) {
+			return handleEntityAsString(entity);
+		}
+		
+		final InputStream content = entity.getContent();
+		if(content == null) {
+			return fallback();
+		}
+		
+		// No need to close the reader, the entity content is consumed and closed once this handler returns
+		final JsonReader reader = new JsonReader(new InputStreamReader(content, getCharset(entity)));
+		try {
+			try {
+				reader.peek();
+			} catch(EOFException e) {
+				if( logger.isDebugEnabled()) {
+					logger.debug("Received empty JSON entity");
+				}
+				return fallback();
+			}
+			T retval = parseJSON(reader);
+			assertFullyConsumed(retval, reader);
+			validate(retval);
+			return retval;
+		} catch(MalformedJsonException e) {
+			return handleSyntaxError(new JsonSyntaxException(e));
+		} catch(JsonIOException e) {
+			// Gson wraps errors reading from the stream, surface those the same way as when reading the String
+			if(e.getCause() instanceof IOException && !(e.getCause() instanceof MalformedJsonException)) {
+				throw (IOException) e.getCause();
+			}
+			return handleSyntaxError(new JsonSyntaxException(e));
+		} catch(JsonSyntaxException e) {
+			return handleSyntaxError(e);
+		}
+	}
+	
+	private T handleEntityAsString(HttpEntity entity) throws IOException {
+		final String jsonString = EntityUtils.toString(entity, getCharset(entity));
 		if(logger.isTraceEnabled()) {
 			logger.trace("Response JSON: " + jsonString);
 		}
 		
-		if(jsonString == null || jsonString.isEmpty()) {
+		// Whitespace only is empty, as when streaming
+		if(jsonString == null || jsonString.trim().isEmpty()) {
 			if( logger.isDebugEnabled()) {
 				logger.debug("Received null or empty JSON string '" + jsonString + "'");
 			}
-			return getDefaultReturnValue();
+			return fallback();
 		}
 		
 		try {
@@ -69,21 +125,72 @@ public abstract class JSONResponseHandler<T> extends HttpStatusAwareResponseHand
 			validate(retval);
 			return retval;
 		} catch(JsonSyntaxException e) {
-			logger.error(MessageKey.AQWEGA04001E_unable_parse_json_1.getMessage(e.getMessage()));
-			logger.catching(e);
-			return getDefaultReturnValue();
+			return handleSyntaxError(e);
+		}
+	}
+	
+	private T handleSyntaxError(JsonSyntaxException e) {
+		logger.error(MessageKey.AQWEGA04001E_unable_parse_json_1.getMessage(e.getMessage()));
+		logger.catching(e);
+		return fallback();
+	}
+	
+	private static Charset getCharset(HttpEntity entity) {
+		ContentType contentType = ContentType.get(entity);
+		Charset charset = contentType == null ? null : contentType.getCharset();
+		return charset == null ? CHARSET : charset;
+	}
+	
+	private static void assertFullyConsumed(Object parsed, JsonReader reader) throws IOException {
+		if(parsed != null && reader.peek() != JsonToken.END_DOCUMENT) {
+			throw new JsonSyntaxException("JSON document was not fully consumed.");
 		}
 	}
 
 	/**
 	 * Parse the supplied string as JSON. 
-	 * This method will never receive a {@code null} or empty string.
+	 * This method will never receive a {@code null}, empty or whitespace only string.
+	 * The default implementation reads the string with {@link #parseJSON(JsonReader)} and rejects data after the document, as when streaming.
 	 * @param jsonString The JSON string
 	 * @return T An object representing the deserialized JSON 
 	 * @throws JsonSyntaxException
 	 */
 	protected T parseJSON(String jsonString) throws JsonSyntaxException {
-		return gson.fromJson(jsonString, classOfT);
+		try(JsonReader reader = new JsonReader(new StringReader(jsonString))) {
+			T retval = parseJSON(reader);
+			assertFullyConsumed(retval, reader);
+			return retval;
+		} catch(IOException e) {
+			throw new JsonSyntaxException(e);
+		}
+	}
+	
+	/**
+	 * Parse the JSON document available from the supplied reader.
+	 * The reader is positioned at the start of a non-empty document and is owned by the caller.
+	 * Subclasses that need custom parsing should override this method rather than {@link #parseJSON(String)},
+	 * so that it also applies when the entity is streamed.
+	 * @param reader The reader
+	 * @return T An object representing the deserialized JSON 
+	 * @throws JsonSyntaxException if the document is not valid JSON for this type
+	 * @throws JsonIOException if the document could not be read
+	 */
+	protected T parseJSON(JsonReader reader) throws JsonSyntaxException, JsonIOException {
+		return gson.fromJson(reader, classOfT);
+	}
+	
+	/**
+	 * Check if the entity is parsed straight from its input stream
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+	
+	/**
+	 * Choose whether the entity is parsed straight from its input stream, or read into a String first
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
 	}
 	
 	/**
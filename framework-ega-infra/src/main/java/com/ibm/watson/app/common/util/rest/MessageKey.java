@@ -51,8 +51,18 @@ public enum MessageKey {
    AQWEGA14200E_error_box_search_request_1(1),
    AQWEGA14201E_error_box_metadata_request_1(1),
    AQWEGA14202E_error_box_content_request_1(1),
+   AQWEGA14203E_error_box_file_info_request_1(1),
+   AQWEGA14204E_error_box_content_cache_2(2),
+   AQWEGA14205E_error_box_bulk_request_2(2),
+   AQWEGA14206E_error_box_events_request_1(1),
+   AQWEGA14207E_error_box_sync_position_2(2),
+   AQWEGA14208E_error_box_sync_file_skipped_3(3),
    AQWEGA02000W_unable_init_ssl_context(0),
    AQWEGA02001W_received_invalid_http_status_2(2),
+   AQWEGA02002W_invalid_configuration_value_2(2),
+   AQWEGA02003W_retrying_request_3(3),
+   AQWEGA02004W_circuit_breaker_state_changed_3(3),
+   AQWEGA02005W_classifier_using_local_fallback_2(2),
    AQWEGA04000E_error_while_handling_resoinse_entity_1(1),
    AQWEGA04001E_unable_parse_json_1(1),
    AQWEGA04002E_multiple_instances_of_service_found_1(1),
@@ -88,8 +98,12 @@ public enum MessageKey {
    AQWEGA10022I_classifier_status_cannot_determined(0),
    AQWEGA04003E_prop_cannot_be_null(0),
    AQWEGA04004E_stream_cannot_be_null(0),
+   AQWEGA04005E_circuit_breaker_open_1(1),
+   AQWEGA04006E_bulkhead_full_2(2),
    AQWEGA14018E_json_string_null(0),
    AQWEGA14019E_json_element_null(0),
+   AQWEGA14020E_error_when_trying_classify_batch_item_2(2),
+   AQWEGA14021E_error_in_classifier_status_listener_2(2),
    AQWEGA14101E_rest_clien_not_established(0),
    
    
@@ -0,0 +1,313 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+/**
+ * A {@code multipart/form-data} entity that writes its parts straight to the connection.
+ * <p>Parts are only produced when the entity is written, so the body is never held in memory, 
+ * and file parts are copied from disk in small chunks. The entity is repeatable as long as all its parts are, 
+ * and its length is known as long as the length of every part is known and it is not compressed.</p>
+ */
+public class MultipartEntity extends AbstractHttpEntity {
+	private static final byte[] CRLF = { '\r', '\n' };
+	private static final byte[] DASHES = { '-', '-' };
+	private static final char[] BOUNDARY_CHARS = "-_1234567890abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+	private static final Random random = new SecureRandom();
+
+	// Minimum number of bytes between two progress notifications
+	private static final int PROGRESS_INTERVAL = 64 * 1024;
+
+	/**
+	 * Produces the content of a part when the entity is written
+	 */
+	public interface PartWriter {
+		void writeTo(OutputStream out) throws IOException;
+
+		/**
+		 * Check if {@link #writeTo(OutputStream)} can be called more than once
+		 */
+		boolean isRepeatable();
+
+		/**
+		 * Get the length of the content, or -1 if it is not known before writing
+		 */
+		long getContentLength();
+	}
+
+	private static class Part {
+		private final byte[] headers;
+		private final PartWriter writer;
+
+		Part(byte[] headers, PartWriter writer) {
+			this.headers = headers;
+			this.writer = writer;
+		}
+	}
+
+	private final String boundary;
+	private final List<Part> parts = new ArrayList<>();
+	private volatile UploadProgressListener progressListener;
+
+	public MultipartEntity() {
+		this(generateBoundary());
+	}
+
+	public MultipartEntity(String boundary) {
+		this.boundary = boundary;
+		setContentType("multipart/form-data; boundary=" + boundary);
+		setChunked(true);
+	}
+
+	/**
+	 * Add a form field holding the text
+	 */
+	public MultipartEntity addText(String name, String text, ContentType contentType) {
+		final byte[] bytes = text.getBytes(contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset());
+		return addPart(name, null, contentType, new PartWriter() {
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				out.write(bytes);
+			}
+
+			@Override
+			public boolean isRepeatable() {
+				return true;
+			}
+
+			@Override
+			public long getContentLength() {
+				return bytes.length;
+			}
+		});
+	}
+
+	/**
+	 * Add a file, which is read in chunks each time the entity is written
+	 */
+	public MultipartEntity addFile(String name, final File file, ContentType contentType) {
+		return addPart(name, file.getName(), contentType, new PartWriter() {
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				try(InputStream in = new FileInputStream(file)) {
+					byte[] buffer = new byte[8192];
+					int n;
+					while((n = in.read(buffer)) != -1) {
+						out.write(buffer, 0, n);
+					}
+				}
+			}
+
+			@Override
+			public boolean isRepeatable() {
+				return true;
+			}
+
+			@Override
+			public long getContentLength() {
+				return file.length();
+			}
+		});
+	}
+
+	/**
+	 * Add a part produced by the writer
+	 * @param filename The filename to report for the part, or {@code null} for a plain form field
+	 */
+	public MultipartEntity addPart(String name, String filename, ContentType contentType, PartWriter writer) {
+		StringBuilder headers = new StringBuilder();
+		headers.append("Content-Disposition: form-data; name=\"").append(escape(name)).append('"');
+		if(filename != null) {
+			headers.append("; filename=\"").append(escape(filename)).append('"');
+		}
+		headers.append("\r\nContent-Type: ").append(contentType.toString()).append("\r\n\r\n");
+		parts.add(new Part(headers.toString().getBytes(StandardCharsets.UTF_8), writer));
+		return this;
+	}
+
+	/**
+	 * Compress the whole body with gzip, for servers that accept a {@code Content-Encoding} of gzip
+	 */
+	public void setGzip(boolean gzip) {
+		setContentEncoding(gzip ? "gzip" : null);
+	}
+
+	public boolean isGzip() {
+		return getContentEncoding() != null && "gzip".equalsIgnoreCase(getContentEncoding().getValue());
+	}
+
+	public void setProgressListener(UploadProgressListener progressListener) {
+		this.progressListener = progressListener;
+	}
+
+	public String getBoundary() {
+		return boundary;
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		for(Part part : parts) {
+			if(!part.writer.isRepeatable()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean isChunked() {
+		return getContentLength() < 0;
+	}
+
+	@Override
+	public long getContentLength() {
+		return isGzip() ? -1 : getUncompressedLength();
+	}
+
+	private long getUncompressedLength() {
+		final byte[] boundaryBytes = boundary.getBytes(StandardCharsets.US_ASCII);
+		long length = 0;
+		for(Part part : parts) {
+			long partLength = part.writer.getContentLength();
+			if(partLength < 0) {
+				return -1;
+			}
+			length += DASHES.length + boundaryBytes.length + CRLF.length + part.headers.length + partLength + CRLF.length;
+		}
+		return length + DASHES.length + boundaryBytes.length + DASHES.length + CRLF.length;
+	}
+
+	/**
+	 * Get the whole body, for instance to log it. The body is written to memory first, 
+	 * so use {@link #writeTo(OutputStream)} to send it.
+	 * @throws UnsupportedOperationException if a part can only be written once
+	 */
+	@Override
+	public InputStream getContent() throws IOException {
+		if(!isRepeatable()) {
+			throw new UnsupportedOperationException("Multipart entities with parts that can only be written once cannot be read");
+		}
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(32, (int) Math.min(getContentLength(), Integer.MAX_VALUE)));
+		// Reading the body is not uploading it, so the progress listener isn't told
+		write(buffer, null);
+		return new ByteArrayInputStream(buffer.toByteArray());
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return !isRepeatable();
+	}
+
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		write(outstream, progressListener);
+	}
+
+	private void write(OutputStream outstream, UploadProgressListener listener) throws IOException {
+		final boolean gzip = isGzip();
+		final OutputStream target = gzip ? new GZIPOutputStream(outstream, 8192) : outstream;
+		final ProgressOutputStream out = new ProgressOutputStream(target, listener, getUncompressedLength());
+		final byte[] boundaryBytes = boundary.getBytes(StandardCharsets.US_ASCII);
+		for(Part part : parts) {
+			out.write(DASHES);
+			out.write(boundaryBytes);
+			out.write(CRLF);
+			out.write(part.headers);
+			part.writer.writeTo(out);
+			out.write(CRLF);
+		}
+		out.write(DASHES);
+		out.write(boundaryBytes);
+		out.write(DASHES);
+		out.write(CRLF);
+		if(gzip) {
+			// Finish rather than close, the connection stream is owned by the caller
+			((GZIPOutputStream) target).finish();
+		}
+		out.flush();
+		out.complete();
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\r", "").replace("\n", "");
+	}
+
+	private static String generateBoundary() {
+		char[] boundary = new char[32];
+		for(int i = 0; i < boundary.length; i++) {
+			boundary[i] = BOUNDARY_CHARS[random.nextInt(BOUNDARY_CHARS.length)];
+		}
+		return new String(boundary);
+	}
+
+	/**
+	 * Counts the bytes passing through and reports them to the listener every {@value #PROGRESS_INTERVAL} bytes
+	 */
+	private static class ProgressOutputStream extends FilterOutputStream {
+		private final UploadProgressListener listener;
+		private final long total;
+		private long written, reported;
+
+		ProgressOutputStream(OutputStream out, UploadProgressListener listener, long total) {
+			super(out);
+			this.listener = listener;
+			this.total = total;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			advance(1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			advance(len);
+		}
+
+		private void advance(int n) {
+			written += n;
+			if(listener != null && written - reported >= PROGRESS_INTERVAL) {
+				reported = written;
+				listener.progress(written, total);
+			}
+		}
+
+		void complete() {
+			if(listener != null) {
+				listener.progress(written, total);
+			}
+		}
+	}
+}
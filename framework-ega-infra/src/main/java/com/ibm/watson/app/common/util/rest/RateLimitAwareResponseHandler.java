@@ -0,0 +1,46 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.util.rest;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Wraps a response handler so that a {@code 429 Too Many Requests} response fails with a {@link RateLimitedException}.
+ * The wrapped handler would otherwise treat it like any other invalid status and return its default value, 
+ * leaving the caller unable to tell that the request should be sent again later.
+ * This is meant for the asynchronous request methods, which are not retried by {@link SimpleRestClient}.
+ */
+public class RateLimitAwareResponseHandler<T> implements ResponseHandler<T> {
+	static final int SC_TOO_MANY_REQUESTS = 429;
+
+	private final ResponseHandler<? extends T> delegate;
+
+	public RateLimitAwareResponseHandler(ResponseHandler<? extends T> delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public T handleResponse(HttpResponse response) throws IOException {
+		if(response.getStatusLine().getStatusCode() == SC_TOO_MANY_REQUESTS) {
+			EntityUtils.consume(response.getEntity());
+			throw new RateLimitedException("Received HTTP status code " + SC_TOO_MANY_REQUESTS, RetryingResponseHandler.getRetryAfterMillis(response));
+		}
+		return delegate.handleResponse(response);
+	}
+}
@@ -0,0 +1,39 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.util.rest;
+
+import java.io.IOException;
+
+/**
+ * Signals that the service rejected a request with {@code 429 Too Many Requests}, so the caller can slow down and send it again
+ * @see RateLimitAwareResponseHandler
+ */
+public class RateLimitedException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	private final long retryAfterMillis;
+
+	public RateLimitedException(String message, long retryAfterMillis) {
+		super(message);
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	/**
+	 * Get the delay requested by the service with the {@code Retry-After} header, 0 if none
+	 */
+	public long getRetryAfterMillis() {
+		return retryAfterMillis;
+	}
+}
@@ -0,0 +1,158 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.rest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ibm.watson.app.common.util.metrics.RequestMetricsSink;
+import com.ibm.watson.app.common.util.metrics.RequestSample;
+
+/**
+ * Measures a single request made by a {@link SimpleRestClient} and reports it to a {@link RequestMetricsSink} once it is done
+ */
+class RequestRecorder {
+	private static final Logger logger = LogManager.getLogger();
+
+	private final RequestMetricsSink sink;
+	private final String clientName;
+	private final String method;
+	private final String endpoint;
+	private final long bytesSent;
+	private final long start = System.nanoTime();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private volatile int status = RequestSample.NO_STATUS;
+
+	RequestRecorder(RequestMetricsSink sink, String clientName, HttpRequest request, String endpoint) {
+		this.sink = sink;
+		this.clientName = clientName;
+		this.method = request.getRequestLine().getMethod();
+		this.endpoint = endpoint;
+		this.bytesSent = getContentLength(request);
+	}
+
+	/**
+	 * Note the response, and count the bytes read from its entity
+	 */
+	void onResponse(HttpResponse response) {
+		status = response.getStatusLine().getStatusCode();
+		HttpEntity entity = response.getEntity();
+		if(entity != null && !(entity instanceof CountingEntity)) {
+			response.setEntity(new CountingEntity(entity, bytesReceived));
+		}
+	}
+
+	/**
+	 * Report the request, to be called on the thread that handled the response
+	 * @param error The exception the request failed with, or null
+	 */
+	void finish(Throwable error) {
+		// Always clear, a fallback must not be attributed to a later request on this thread
+		boolean fallback = HttpStatusAwareResponseHandler.clearFallback();
+		try {
+			sink.record(new RequestSample(clientName, method, endpoint, status, System.nanoTime() - start, 
+					bytesSent, bytesReceived.get(), fallback, error == null ? null : error.getClass().getSimpleName()));
+		} catch(RuntimeException e) {
+			// Metrics must never fail the request
+			logger.catching(Level.DEBUG, e);
+		}
+	}
+
+	private static long getContentLength(HttpRequest request) {
+		if(request instanceof HttpEntityEnclosingRequest) {
+			HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+			if(entity != null) {
+				return Math.max(0, entity.getContentLength());
+			}
+		}
+		return 0;
+	}
+
+	private static class CountingEntity extends HttpEntityWrapper {
+		private final AtomicLong counter;
+
+		CountingEntity(HttpEntity wrapped, AtomicLong counter) {
+			super(wrapped);
+			this.counter = counter;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			InputStream content = super.getContent();
+			return content == null ? null : new CountingInputStream(content, counter);
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException {
+			try(InputStream in = getContent()) {
+				if(in == null) {
+					return;
+				}
+				byte[] buffer = new byte[4096];
+				int n;
+				while((n = in.read(buffer)) != -1) {
+					out.write(buffer, 0, n);
+				}
+			}
+		}
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+		private final AtomicLong counter;
+
+		CountingInputStream(InputStream in, AtomicLong counter) {
+			super(in);
+			this.counter = counter;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if(b != -1) {
+				counter.incrementAndGet();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if(n > 0) {
+				counter.addAndGet(n);
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			counter.addAndGet(skipped);
+			return skipped;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.rest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the retry, circuit breaker and bulkhead decisions taken by a {@link SimpleRestClient}, 
+ * see {@link SimpleRestClient#registerMetrics(javax.management.MBeanServer)} to expose them over JMX
+ */
+public class ResilienceMetrics implements CircuitBreaker.Listener, ResilienceMetricsMXBean {
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong attempts = new AtomicLong();
+	private final AtomicLong retries = new AtomicLong();
+	private final AtomicLong failedAttempts = new AtomicLong();
+	private final AtomicLong rejectedByCircuitBreaker = new AtomicLong();
+	private final AtomicLong rejectedByBulkhead = new AtomicLong();
+	private final AtomicLong circuitOpened = new AtomicLong();
+	private final AtomicLong circuitHalfOpened = new AtomicLong();
+	private final AtomicLong circuitClosed = new AtomicLong();
+
+	@Override
+	public void stateChanged(CircuitBreaker circuitBreaker, CircuitBreaker.State from, CircuitBreaker.State to) {
+		switch(to) {
+		case OPEN:
+			circuitOpened.incrementAndGet();
+			break;
+		case HALF_OPEN:
+			circuitHalfOpened.incrementAndGet();
+			break;
+		default:
+			circuitClosed.incrementAndGet();
+		}
+	}
+
+	void requestStarted() {
+		requests.incrementAndGet();
+	}
+
+	void attemptStarted() {
+		attempts.incrementAndGet();
+	}
+
+	void attemptFailed() {
+		failedAttempts.incrementAndGet();
+	}
+
+	void retried() {
+		retries.incrementAndGet();
+	}
+
+	void rejectedByCircuitBreaker() {
+		rejectedByCircuitBreaker.incrementAndGet();
+	}
+
+	void rejectedByBulkhead() {
+		rejectedByBulkhead.incrementAndGet();
+	}
+
+	@Override
+	public long getRequests() {
+		return requests.get();
+	}
+
+	@Override
+	public long getAttempts() {
+		return attempts.get();
+	}
+
+	@Override
+	public long getRetries() {
+		return retries.get();
+	}
+
+	@Override
+	public long getFailedAttempts() {
+		return failedAttempts.get();
+	}
+
+	@Override
+	public long getRejectedByCircuitBreaker() {
+		return rejectedByCircuitBreaker.get();
+	}
+
+	@Override
+	public long getRejectedByBulkhead() {
+		return rejectedByBulkhead.get();
+	}
+
+	@Override
+	public long getCircuitOpened() {
+		return circuitOpened.get();
+	}
+
+	@Override
+	public long getCircuitHalfOpened() {
+		return circuitHalfOpened.get();
+	}
+
+	@Override
+	public long getCircuitClosed() {
+		return circuitClosed.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ResilienceMetrics [requests=" + requests + ", attempts=" + attempts + ", retries=" + retries + ", failedAttempts=" + failedAttempts
+				+ ", rejectedByCircuitBreaker=" + rejectedByCircuitBreaker + ", rejectedByBulkhead=" + rejectedByBulkhead + ", circuitOpened=" + circuitOpened
+				+ ", circuitHalfOpened=" + circuitHalfOpened + ", circuitClosed=" + circuitClosed + "]";
+	}
+}
@@ -0,0 +1,67 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.util.rest;
+
+/**
+ * The retry, circuit breaker and bulkhead decisions taken by a {@link SimpleRestClient}, as exposed over JMX
+ * @see ResilienceMetrics
+ * @see SimpleRestClient#registerMetrics(javax.management.MBeanServer)
+ */
+public interface ResilienceMetricsMXBean {
+	/**
+	 * Get the number of logical requests, however many attempts they took
+	 */
+	long getRequests();
+
+	/**
+	 * Get the number of requests actually sent, including retries
+	 */
+	long getAttempts();
+
+	/**
+	 * Get the number of attempts sent again after a transient error
+	 */
+	long getRetries();
+
+	/**
+	 * Get the number of attempts that failed with an I/O error or a 429 / 5xx status
+	 */
+	long getFailedAttempts();
+
+	/**
+	 * Get the number of requests failed fast because the circuit breaker was open
+	 */
+	long getRejectedByCircuitBreaker();
+
+	/**
+	 * Get the number of requests rejected because the bulkhead was full
+	 */
+	long getRejectedByBulkhead();
+
+	/**
+	 * Get the number of times the circuit breaker opened
+	 */
+	long getCircuitOpened();
+
+	/**
+	 * Get the number of times the circuit breaker let a trial request through after being open
+	 */
+	long getCircuitHalfOpened();
+
+	/**
+	 * Get the number of times the circuit breaker closed again
+	 */
+	long getCircuitClosed();
+}
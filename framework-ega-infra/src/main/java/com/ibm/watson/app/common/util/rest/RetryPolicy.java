@@ -0,0 +1,190 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.rest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.http.HttpStatus;
+
+/**
+ * Describes if and how often a failed request is retried, and how long to wait in between.
+ * <p>The wait grows exponentially with every retry and is jittered to between half and all of the computed value, 
+ * so that many clients failing at once do not retry in lockstep. A {@code Retry-After} header sent by the 
+ * server is honored as long as it does not exceed {@link #getMaxRetryAfterMillis()}.</p>
+ * <p>Responses with a status in {@link #getRetryableStatusCodes()} are retried for idempotent requests; 
+ * those in {@link #getAlwaysRetryableStatusCodes()} (by default 429 and 503, which indicate the request was not processed) 
+ * are retried for any request. I/O errors are only retried for idempotent requests.</p>
+ */
+public final class RetryPolicy {
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+	public static final long DEFAULT_INITIAL_BACKOFF = 200;
+	public static final long DEFAULT_MAX_BACKOFF = 5000;
+	public static final double DEFAULT_MULTIPLIER = 2.0;
+	public static final long DEFAULT_MAX_RETRY_AFTER = 30000;
+
+	/**
+	 * Never retry
+	 */
+	public static final RetryPolicy NONE = new Builder().setMaxAttempts(1).build();
+
+	/**
+	 * Retry up to {@value #DEFAULT_MAX_ATTEMPTS} attempts on transient errors
+	 */
+	public static final RetryPolicy DEFAULT = new Builder().build();
+
+	private final int maxAttempts;
+	private final long initialBackoffMillis;
+	private final long maxBackoffMillis;
+	private final double multiplier;
+	private final long maxRetryAfterMillis;
+	private final Set<Integer> retryableStatusCodes;
+	private final Set<Integer> alwaysRetryableStatusCodes;
+
+	private RetryPolicy(Builder builder) {
+		this.maxAttempts = builder.maxAttempts;
+		this.initialBackoffMillis = builder.initialBackoffMillis;
+		this.maxBackoffMillis = builder.maxBackoffMillis;
+		this.multiplier = builder.multiplier;
+		this.maxRetryAfterMillis = builder.maxRetryAfterMillis;
+		this.retryableStatusCodes = Collections.unmodifiableSet(new HashSet<>(builder.retryableStatusCodes));
+		this.alwaysRetryableStatusCodes = Collections.unmodifiableSet(new HashSet<>(builder.alwaysRetryableStatusCodes));
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public long getInitialBackoffMillis() {
+		return initialBackoffMillis;
+	}
+
+	public long getMaxBackoffMillis() {
+		return maxBackoffMillis;
+	}
+
+	public double getMultiplier() {
+		return multiplier;
+	}
+
+	public long getMaxRetryAfterMillis() {
+		return maxRetryAfterMillis;
+	}
+
+	public Set<Integer> getRetryableStatusCodes() {
+		return retryableStatusCodes;
+	}
+
+	public Set<Integer> getAlwaysRetryableStatusCodes() {
+		return alwaysRetryableStatusCodes;
+	}
+
+	/**
+	 * Check if a response with the given status should be retried
+	 * @param status The HTTP status code
+	 * @param idempotent Whether the request can safely be sent more than once
+	 */
+	public boolean isRetryableStatus(int status, boolean idempotent) {
+		return alwaysRetryableStatusCodes.contains(status) || (idempotent && retryableStatusCodes.contains(status));
+	}
+
+	/**
+	 * Compute the time to wait before the given retry
+	 * @param retry The retry number, starting at 1
+	 * @param random The source of jitter
+	 */
+	public long getBackoffMillis(int retry, Random random) {
+		double backoff = initialBackoffMillis * Math.pow(multiplier, Math.max(0, retry - 1));
+		long capped = (long) Math.min(backoff, maxBackoffMillis);
+		if(capped <= 1) {
+			return capped;
+		}
+		long half = capped / 2;
+		return half + (long) (random.nextDouble() * (capped - half));
+	}
+
+	@Override
+	public String toString() {
+		return "RetryPolicy [maxAttempts=" + maxAttempts + ", initialBackoffMillis=" + initialBackoffMillis + ", maxBackoffMillis=" + maxBackoffMillis 
+				+ ", multiplier=" + multiplier + ", retryableStatusCodes=" + retryableStatusCodes + ", alwaysRetryableStatusCodes=" + alwaysRetryableStatusCodes + "]";
+	}
+
+	public static class Builder {
+		private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+		private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF;
+		private long maxBackoffMillis = DEFAULT_MAX_BACKOFF;
+		private double multiplier = DEFAULT_MULTIPLIER;
+		private long maxRetryAfterMillis = DEFAULT_MAX_RETRY_AFTER;
+		private Set<Integer> retryableStatusCodes = new HashSet<>(Arrays.asList(
+				HttpStatus.SC_BAD_GATEWAY, HttpStatus.SC_GATEWAY_TIMEOUT));
+		private Set<Integer> alwaysRetryableStatusCodes = new HashSet<>(Arrays.asList(
+				429, HttpStatus.SC_SERVICE_UNAVAILABLE));
+
+		/**
+		 * @param maxAttempts The total number of attempts, including the first one
+		 */
+		public Builder setMaxAttempts(int maxAttempts) {
+			if(maxAttempts < 1) {
+				throw new IllegalArgumentException("maxAttempts must be at least 1");
+			}
+			this.maxAttempts = maxAttempts;
+			return this;
+		}
+
+		public Builder setInitialBackoffMillis(long initialBackoffMillis) {
+			this.initialBackoffMillis = Math.max(0, initialBackoffMillis);
+			return this;
+		}
+
+		public Builder setMaxBackoffMillis(long maxBackoffMillis) {
+			this.maxBackoffMillis = Math.max(0, maxBackoffMillis);
+			return this;
+		}
+
+		public Builder setMultiplier(double multiplier) {
+			if(multiplier < 1) {
+				throw new IllegalArgumentException("multiplier must be at least 1");
+			}
+			this.multiplier = multiplier;
+			return this;
+		}
+
+		/**
+		 * @param maxRetryAfterMillis The longest {@code Retry-After} we are willing to wait, longer ones are not retried
+		 */
+		public Builder setMaxRetryAfterMillis(long maxRetryAfterMillis) {
+			this.maxRetryAfterMillis = Math.max(0, maxRetryAfterMillis);
+			return this;
+		}
+
+		public Builder setRetryableStatusCodes(Integer... statusCodes) {
+			this.retryableStatusCodes = new HashSet<>(Arrays.asList(statusCodes));
+			return this;
+		}
+
+		public Builder setAlwaysRetryableStatusCodes(Integer... statusCodes) {
+			this.alwaysRetryableStatusCodes = new HashSet<>(Arrays.asList(statusCodes));
+			return this;
+		}
+
+		public RetryPolicy build() {
+			return new RetryPolicy(this);
+		}
+	}
+}
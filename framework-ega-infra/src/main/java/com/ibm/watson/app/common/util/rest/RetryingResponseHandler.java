@@ -0,0 +1,121 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.rest;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Wraps the response handler of a single attempt.
+ * Responses that should be retried are discarded with a {@link RetryableStatusException} instead of being handled, 
+ * everything else is passed on to the wrapped handler.
+ */
+class RetryingResponseHandler<T> implements ResponseHandler<T> {
+	private static final int SC_TOO_MANY_REQUESTS = 429;
+
+	private final ResponseHandler<? extends T> delegate;
+	private final RetryPolicy policy;
+	private final boolean idempotent;
+	private final RequestRecorder recorder;
+	private int status = -1;
+
+	/**
+	 * @param policy The policy deciding which responses are retried, or null if this is the last attempt
+	 * @param idempotent Whether the request can safely be sent more than once
+	 * @param recorder Measures the request, may be null
+	 */
+	RetryingResponseHandler(ResponseHandler<? extends T> delegate, RetryPolicy policy, boolean idempotent, RequestRecorder recorder) {
+		this.delegate = delegate;
+		this.policy = policy;
+		this.idempotent = idempotent;
+		this.recorder = recorder;
+	}
+
+	@Override
+	public T handleResponse(HttpResponse response) throws IOException {
+		status = response.getStatusLine().getStatusCode();
+		if(recorder != null) {
+			recorder.onResponse(response);
+		}
+		if(policy != null && policy.isRetryableStatus(status, idempotent)) {
+			long retryAfter = getRetryAfterMillis(response);
+			if(retryAfter <= policy.getMaxRetryAfterMillis()) {
+				EntityUtils.consume(response.getEntity());
+				throw new RetryableStatusException(status, retryAfter);
+			}
+		}
+		return delegate.handleResponse(response);
+	}
+
+	boolean isResponseReceived() {
+		return status != -1;
+	}
+
+	/**
+	 * Check if the response received indicates the service is in trouble, i.e. it was a 429 or any 5xx
+	 */
+	boolean isFailure() {
+		return status == SC_TOO_MANY_REQUESTS || status >= 500;
+	}
+
+	/**
+	 * Get the delay requested with the {@code Retry-After} header, in seconds or as an HTTP date, 0 if none
+	 */
+	static long getRetryAfterMillis(HttpResponse response) {
+		Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+		if(header == null || header.getValue() == null) {
+			return 0;
+		}
+		String value = header.getValue().trim();
+		try {
+			return Math.max(0, Long.parseLong(value) * 1000);
+		} catch(NumberFormatException e) {
+			Date date = DateUtils.parseDate(value);
+			return date == null ? 0 : Math.max(0, date.getTime() - System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Signals a response that should be retried
+	 */
+	static class RetryableStatusException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		private final int status;
+		private final long retryAfterMillis;
+
+		RetryableStatusException(int status, long retryAfterMillis) {
+			super("Received retryable HTTP status code " + status);
+			this.status = status;
+			this.retryAfterMillis = retryAfterMillis;
+		}
+
+		int getStatus() {
+			return status;
+		}
+
+		long getRetryAfterMillis() {
+			return retryAfterMillis;
+		}
+	}
+}
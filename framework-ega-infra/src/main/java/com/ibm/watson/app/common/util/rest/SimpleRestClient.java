@@ -15,11 +15,28 @@
 
 package com.ibm.watson.app.common.util.rest;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
@@ -27,38 +44,141 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.ibm.watson.app.common.util.http.HttpClientBuilder;
+import com.ibm.watson.app.common.util.http.HttpClientRegistry;
+import com.ibm.watson.app.common.util.metrics.JmxMetricsExporter;
+import com.ibm.watson.app.common.util.metrics.RequestMetricsRegistry;
+import com.ibm.watson.app.common.util.metrics.RequestMetricsSink;
 
 /**
  * A simple thread-safe REST client
+ * <p>Every blocking request method has a non-blocking counterpart (e.g. {@link #getAsync(String, ResponseHandler)})
+ * which is executed on a NIO based HTTP client and does not hold a caller thread while the request is in flight.
+ * The same {@link ResponseHandler} instances can be used for both flavors.</p>
+ * <p>Unless a client or builder is supplied, the HTTP clients are shared with every other REST client talking 
+ * to the same host (see {@link HttpClientRegistry}). Credentials and cookies are kept per instance in the 
+ * request context, so instances with different credentials can safely share a connection pool. 
+ * {@link #close()} the client once it is no longer needed to give its share back.</p>
+ * <p>Blocking requests go through a {@link Bulkhead} limiting the requests in flight, a {@link CircuitBreaker} 
+ * failing fast while the service is down, and are retried on transient errors according to the {@link RetryPolicy} 
+ * of their endpoint. Rejected requests fail with a {@link RequestRejectedException}. 
+ * The breaker only counts transport errors, {@code 429} and {@code 5xx} as failures: a response the handler rejects 
+ * was still served. What was decided is counted in the {@link #getResilienceMetrics() resilience metrics}, 
+ * see {@link #registerMetrics(MBeanServer)} to expose them over JMX.</p>
+ * <p>Asynchronous requests go through the same circuit breaker, but are neither retried nor limited by the bulkhead: 
+ * they hold no thread while in flight, and callers sending many of them bound their own concurrency 
+ * and handle rate limiting themselves (see {@link RateLimitAwareResponseHandler}).</p>
+ * <p>Every request is measured and reported to the {@link #setMetricsSink(RequestMetricsSink) metrics sink}, 
+ * by default the {@link RequestMetricsRegistry#getDefault() default registry}. Requests are tagged with the 
+ * endpoint templates registered by the subclass with {@link #addEndpointTemplates(String...)}, 
+ * so that metrics are not split by IDs in the URL. Requests matching none of them are all tagged with 
+ * {@value #UNMATCHED_ENDPOINT}, so that unknown URLs cannot add an endpoint per ID either.</p>
  */
-public abstract class SimpleRestClient {
+public abstract class SimpleRestClient implements Closeable {
 	private static final Logger logger = LogManager.getLogger();
 
 	protected final String url;
 	protected final CloseableHttpClient httpClient;
 
+	// Used to lazily build the async client with the same settings as the blocking one, null if the clients were supplied
+	private final HttpClientBuilder clientBuilder;
+	private volatile CloseableHttpAsyncClient httpAsyncClient;
+	// Whether the async client was built for this instance, and so must be closed with it
+	private volatile boolean ownsAsyncClient;
+	// Our share of the registry's clients for this host, null if the clients are not shared
+	private final HttpClientRegistry.Lease lease;
+
+	private final CredentialsProvider credentialsProvider;
+	private final CookieStore cookieStore = new BasicCookieStore();
+
+	private final ResilienceMetrics resilienceMetrics = new ResilienceMetrics();
+	private volatile RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+	private final Map<EndpointTemplate, RetryPolicy> endpointRetryPolicies = new ConcurrentHashMap<>();
+	private volatile CircuitBreaker circuitBreaker = withMetrics(new CircuitBreaker(getClass().getSimpleName()));
+	private volatile Bulkhead bulkhead = new Bulkhead(getClass().getSimpleName());
+	private final Random random = new Random();
+
+	private volatile RequestMetricsSink metricsSink = RequestMetricsRegistry.getDefault();
+	private final List<EndpointTemplate> endpointTemplates = new CopyOnWriteArrayList<>();
+
+	/**
+	 * The endpoint requests matching none of the registered templates are tagged with
+	 */
+	public static final String UNMATCHED_ENDPOINT = "(unmatched)";
+
 	public static final ResponseHandler<String> DEFAULT_STRING_RESPONSE_HANDLER = new StringResponseHandler(StandardCharsets.UTF_8);
 
+	// Larger request bodies are not logged, even at trace level
+	private static final long MAX_LOGGED_BODY_LENGTH = 64 * 1024;
+
+	/**
+	 * Create a client using the clients shared by everyone talking to the host of the given URL
+	 */
 	public SimpleRestClient(String url) {
-		this(url, HttpClients.createDefault());
+		this(url, null, HttpClientRegistry.acquire(url));
 	}
 
 	public SimpleRestClient(String url, CloseableHttpClient client) {
+		this(url, client, null);
+	}
+
+	public SimpleRestClient(String url, CloseableHttpClient client, CloseableHttpAsyncClient asyncClient) {
 		this.url = url;
 		this.httpClient = client;
+		this.httpAsyncClient = asyncClient;
+		this.clientBuilder = null;
+		this.lease = null;
+		this.credentialsProvider = null;
 	}
 
+	/**
+	 * Create a client authenticating with the given credentials, 
+	 * using the clients shared by everyone talking to the host of the given URL
+	 * @see HttpClientRegistry
+	 */
 	public SimpleRestClient(String url, String username, String password) {
+		this(url, new UsernamePasswordCredentials(username, password), HttpClientRegistry.acquire(url));
+	}
+
+	/**
+	 * Create a client authenticating with the given credentials, with dedicated clients built by the given builder
+	 */
+	public SimpleRestClient(String url, String username, String password, HttpClientBuilder clientBuilder) {
+		UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(username, password);
+		this.url = url;
+		this.clientBuilder = clientBuilder.setCredentials(credentials);
+		this.lease = null;
+		this.credentialsProvider = createCredentialsProvider(credentials);
+
+		httpClient = clientBuilder.build();
+	}
+
+	private SimpleRestClient(String url, UsernamePasswordCredentials credentials, HttpClientRegistry.Lease lease) {
 		this.url = url;
+		this.clientBuilder = null;
+		this.lease = lease;
+		this.credentialsProvider = credentials == null ? null : createCredentialsProvider(credentials);
 
-		httpClient = HttpClientBuilder.buildDefaultHttpClient(new UsernamePasswordCredentials(username, password));
+		httpClient = lease.getHttpClient();
+	}
+
+	private static CredentialsProvider createCredentialsProvider(UsernamePasswordCredentials credentials) {
+		CredentialsProvider provider = new BasicCredentialsProvider();
+		provider.setCredentials(AuthScope.ANY, credentials);
+		return provider;
 	}
 
 	// GET
@@ -89,7 +209,7 @@ public abstract class SimpleRestClient {
 	protected <T> T post(String endpoint, HttpEntity entity, ResponseHandler<? extends T> responseHandler) throws IOException {
 		if(logger.isDebugEnabled()) {
 			logger.debug("Making POST request at endpoint '" + endpoint + "'");
-			if(logger.isTraceEnabled()) {
+			if(logger.isTraceEnabled() && isLoggable(entity)) {
 				logger.trace("POST request body:\n" + EntityUtils.toString(entity));
 			}
 		}
@@ -131,7 +251,7 @@ public abstract class SimpleRestClient {
 	public <T> T put( String endpoint, HttpEntity entity, ResponseHandler<? extends T> responseHandler) throws IOException {
 		if(logger.isDebugEnabled()) {
 			logger.debug("Making PUT request at endpoint '" + endpoint + "'");
-			if(logger.isTraceEnabled()) {
+			if(logger.isTraceEnabled() && isLoggable(entity)) {
 				logger.trace("PUT request body:\n" + EntityUtils.toString(entity));
 			}
 		}
@@ -149,7 +269,487 @@ public abstract class SimpleRestClient {
 	}
 
 
+	/**
+	 * Check if the body can be logged, reading it must not consume or build a large entity
+	 */
+	private static boolean isLoggable(HttpEntity entity) {
+		return entity != null && entity.isRepeatable() && entity.getContentLength() >= 0 && entity.getContentLength() <= MAX_LOGGED_BODY_LENGTH;
+	}
+
 	protected <T> T execute(HttpRequestBase request, ResponseHandler<? extends T> responseHandler) throws IOException {
-		return httpClient.execute(request, responseHandler, HttpClientContext.create());
+		final RequestRecorder recorder = startRecording(request);
+		Throwable error = null;
+		try {
+			return executeInBulkhead(request, responseHandler, recorder);
+		} catch(IOException | RuntimeException e) {
+			error = e;
+			throw e;
+		} finally {
+			if(recorder != null) {
+				recorder.finish(error);
+			}
+		}
+	}
+
+	private <T> T executeInBulkhead(HttpRequestBase request, ResponseHandler<? extends T> responseHandler, RequestRecorder recorder) throws IOException {
+		final Bulkhead bulkhead = this.bulkhead;
+		if(bulkhead != null && !bulkhead.tryAcquire()) {
+			resilienceMetrics.rejectedByBulkhead();
+			throw new RequestRejectedException(MessageKey.AQWEGA04006E_bulkhead_full_2.getMessage(bulkhead.getName(), bulkhead.getInFlight()).getFormattedMessage());
+		}
+		try {
+			return executeWithRetries(request, responseHandler, recorder);
+		} finally {
+			if(bulkhead != null) {
+				bulkhead.release();
+			}
+		}
+	}
+
+	private <T> T executeWithRetries(HttpRequestBase request, ResponseHandler<? extends T> responseHandler, RequestRecorder recorder) throws IOException {
+		final RetryPolicy policy = getRetryPolicy(request);
+		final boolean idempotent = isIdempotent(request);
+		final boolean repeatable = isRepeatable(request);
+		resilienceMetrics.requestStarted();
+
+		for(int attempt = 1; ; attempt++) {
+			final boolean lastAttempt = !repeatable || attempt >= policy.getMaxAttempts();
+			final String reason;
+			long delay = policy.getBackoffMillis(attempt, random);
+			final RetryingResponseHandler<T> attemptHandler = new RetryingResponseHandler<T>(responseHandler, lastAttempt ? null : policy, idempotent, recorder);
+			try {
+				return executeAttempt(request, attemptHandler);
+			} catch(RetryingResponseHandler.RetryableStatusException e) {
+				reason = "HTTP " + e.getStatus();
+				delay = Math.max(delay, e.getRetryAfterMillis());
+			} catch(RequestRejectedException | InterruptedIOException e) {
+				throw e;
+			} catch(IOException e) {
+				// Errors raised while handling a response we did receive are not transient
+				if(lastAttempt || !idempotent || attemptHandler.isResponseReceived()) {
+					throw e;
+				}
+				reason = e.toString();
+			}
+
+			resilienceMetrics.retried();
+			logger.warn(MessageKey.AQWEGA02003W_retrying_request_3.getMessage(request.getMethod() + " " + request.getURI(), reason, delay));
+			request.reset();
+			backoff(delay);
+		}
+	}
+
+	private <T> T executeAttempt(HttpRequestBase request, RetryingResponseHandler<T> responseHandler) throws IOException {
+		final CircuitBreaker circuitBreaker = this.circuitBreaker;
+		if(circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+			resilienceMetrics.rejectedByCircuitBreaker();
+			throw new RequestRejectedException(MessageKey.AQWEGA04005E_circuit_breaker_open_1.getMessage(circuitBreaker.getName()).getFormattedMessage());
+		}
+
+		resilienceMetrics.attemptStarted();
+		try {
+			return httpClient.execute(request, responseHandler, createContext());
+		} finally {
+			// Judge the service on the transport and the status only, a payload the handler rejects says nothing about its health
+			final boolean failed = !responseHandler.isResponseReceived() || responseHandler.isFailure();
+			if(failed) {
+				resilienceMetrics.attemptFailed();
+			}
+			if(circuitBreaker != null) {
+				if(failed) {
+					circuitBreaker.recordFailure();
+				} else {
+					circuitBreaker.recordSuccess();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Wait before retrying a request
+	 */
+	protected void backoff(long millis) throws InterruptedIOException {
+		try {
+			Thread.sleep(millis);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(e.getMessage());
+		}
+	}
+
+	private static boolean isIdempotent(HttpRequestBase request) {
+		String method = request.getMethod();
+		return !HttpPost.METHOD_NAME.equals(method) && !"PATCH".equals(method);
+	}
+
+	private static boolean isRepeatable(HttpRequestBase request) {
+		if(request instanceof HttpEntityEnclosingRequest) {
+			HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+			return entity == null || entity.isRepeatable();
+		}
+		return true;
+	}
+
+	/**
+	 * Get the retry policy of the most specific endpoint template matching the request, or the default policy
+	 */
+	private RetryPolicy getRetryPolicy(HttpRequestBase request) {
+		if(endpointRetryPolicies.isEmpty()) {
+			return retryPolicy;
+		}
+		String endpoint = getEndpoint(request);
+		EndpointTemplate match = null;
+		for(EndpointTemplate template : endpointRetryPolicies.keySet()) {
+			if(template.matches(endpoint) && (match == null || template.getSpecificity() > match.getSpecificity())) {
+				match = template;
+			}
+		}
+		return match == null ? retryPolicy : endpointRetryPolicies.get(match);
+	}
+
+	/**
+	 * Set the retry policy for endpoints without a policy of their own
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy == null ? RetryPolicy.NONE : retryPolicy;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * Set the retry policy for an endpoint and everything below it
+	 * @param endpointTemplate The endpoint, relative to the client URL, where {@code {name}} segments match any value, 
+	 * 	e.g. {@code /v1/classifiers/{id}/classify}
+	 * @param retryPolicy The policy, or null to fall back to the default policy again
+	 */
+	public void setRetryPolicy(String endpointTemplate, RetryPolicy retryPolicy) {
+		EndpointTemplate template = new EndpointTemplate(endpointTemplate);
+		if(retryPolicy == null) {
+			endpointRetryPolicies.remove(template);
+		} else {
+			endpointRetryPolicies.put(template, retryPolicy);
+		}
+	}
+
+	/**
+	 * Replace the circuit breaker guarding the blocking requests
+	 * @param circuitBreaker The circuit breaker, or null to never fail fast
+	 */
+	public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+		this.circuitBreaker = withMetrics(circuitBreaker);
+	}
+
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	private CircuitBreaker withMetrics(CircuitBreaker circuitBreaker) {
+		if(circuitBreaker != null) {
+			circuitBreaker.addListener(resilienceMetrics);
+		}
+		return circuitBreaker;
+	}
+
+	/**
+	 * Replace the bulkhead limiting the blocking requests in flight
+	 * @param bulkhead The bulkhead, or null for no limit
+	 */
+	public void setBulkhead(Bulkhead bulkhead) {
+		this.bulkhead = bulkhead;
+	}
+
+	public Bulkhead getBulkhead() {
+		return bulkhead;
+	}
+
+	public ResilienceMetrics getResilienceMetrics() {
+		return resilienceMetrics;
+	}
+
+	/**
+	 * Register the resilience metrics as an MXBean named {@code com.ibm.watson.app.common:type=RestClientResilience,client=<client>,url="<url>"}
+	 * @return The name the metrics were registered under, to unregister them once the client is closed
+	 */
+	public ObjectName registerMetrics(MBeanServer server) throws JMException {
+		ObjectName name = new ObjectName(JmxMetricsExporter.DOMAIN + ":type=RestClientResilience,client=" + ObjectName.quote(getClass().getSimpleName()) 
+				+ ",url=" + ObjectName.quote(url));
+		server.registerMBean(resilienceMetrics, name);
+		return name;
+	}
+
+	/**
+	 * Get the endpoint of the request relative to the client URL
+	 */
+	private String getEndpoint(HttpRequestBase request) {
+		String uri = request.getURI().toString();
+		return uri.startsWith(url) ? uri.substring(url.length()) : request.getURI().getRawPath();
+	}
+
+	/**
+	 * Start measuring a request, or return null if there is no metrics sink
+	 */
+	private RequestRecorder startRecording(HttpRequestBase request) {
+		final RequestMetricsSink sink = metricsSink;
+		if(sink == null) {
+			return null;
+		}
+		HttpStatusAwareResponseHandler.clearFallback();
+		return new RequestRecorder(sink, getClass().getSimpleName(), request, getEndpointTemplate(request));
+	}
+
+	/**
+	 * Get the registered template matching the endpoint of the request, or {@value #UNMATCHED_ENDPOINT} if none matches
+	 */
+	private String getEndpointTemplate(HttpRequestBase request) {
+		String endpoint = getEndpoint(request);
+		for(EndpointTemplate template : endpointTemplates) {
+			if(template.matches(endpoint, true)) {
+				return template.getPath();
+			}
+		}
+		if(logger.isDebugEnabled()) {
+			logger.debug("No endpoint template matches " + endpoint + ", its metrics are recorded as " + UNMATCHED_ENDPOINT);
+		}
+		return UNMATCHED_ENDPOINT;
+	}
+
+	/**
+	 * Register the endpoints this client calls, so their requests are tagged with the template rather than the expanded URL
+	 * @param templates The endpoints relative to the client URL, where {@code ${name}} or {@code {name}} segments match any value
+	 */
+	protected void addEndpointTemplates(String... templates) {
+		for(String template : templates) {
+			endpointTemplates.add(new EndpointTemplate(template));
+		}
+	}
+
+	/**
+	 * Set where the metrics of every request are reported
+	 * @param metricsSink The sink, or null to not measure requests at all
+	 */
+	public void setMetricsSink(RequestMetricsSink metricsSink) {
+		this.metricsSink = metricsSink;
+	}
+
+	public RequestMetricsSink getMetricsSink() {
+		return metricsSink;
+	}
+
+	/**
+	 * Create the context for a single request, carrying this client's credentials and cookies
+	 */
+	protected HttpClientContext createContext() {
+		HttpClientContext context = HttpClientContext.create();
+		context.setCookieStore(cookieStore);
+		if(credentialsProvider != null) {
+			context.setCredentialsProvider(credentialsProvider);
+		}
+		return context;
+	}
+
+	// Asynchronous variants
+
+	protected <T> ListenableFuture<T> getAsync(String endpoint, ResponseHandler<? extends T> responseHandler) {
+		if(logger.isDebugEnabled()) {
+			logger.debug("Making async GET request at endpoint '" + endpoint + "'");
+		}
+
+		HttpGet httpget = new HttpGet(url + endpoint);
+		return doGetAsync(httpget, responseHandler);
+	}
+
+	protected <T> ListenableFuture<T> doGetAsync(HttpGet httpget, ResponseHandler<? extends T> responseHandler) {
+		// Subclasses can override for additional functionality
+		return executeAsync(httpget, responseHandler);
+	}
+
+	protected <T> ListenableFuture<T> postAsync(String endpoint, HttpEntity entity, ResponseHandler<? extends T> responseHandler) {
+		if(logger.isDebugEnabled()) {
+			logger.debug("Making async POST request at endpoint '" + endpoint + "'");
+		}
+
+		HttpPost httppost = new HttpPost(url + endpoint);
+		if(entity != null) {
+			httppost.setEntity(entity);
+		}
+		return doPostAsync(httppost, responseHandler);
+	}
+
+	protected <T> ListenableFuture<T> doPostAsync(HttpPost httppost, ResponseHandler<? extends T> responseHandler) {
+		// Subclasses can override for additional functionality
+		return executeAsync(httppost, responseHandler);
+	}
+
+	protected <T> ListenableFuture<T> deleteAsync(String endpoint, ResponseHandler<? extends T> responseHandler) {
+		if(logger.isDebugEnabled()) {
+			logger.debug("Making async DELETE request at endpoint '" + endpoint + "'");
+		}
+
+		HttpDelete httpdelete = new HttpDelete(url + endpoint);
+		return doDeleteAsync(httpdelete, responseHandler);
+	}
+
+	protected <T> ListenableFuture<T> doDeleteAsync(HttpDelete httpdelete, ResponseHandler<? extends T> responseHandler) {
+		// Subclasses can override for additional functionality
+		return executeAsync(httpdelete, responseHandler);
+	}
+
+	public <T> ListenableFuture<T> putAsync(String endpoint, HttpEntity entity, ResponseHandler<? extends T> responseHandler) {
+		if(logger.isDebugEnabled()) {
+			logger.debug("Making async PUT request at endpoint '" + endpoint + "'");
+		}
+
+		HttpPut httpput = new HttpPut(url + endpoint);
+		if(entity != null) {
+			httpput.setEntity(entity);
+		}
+		return doPutAsync(httpput, responseHandler);
+	}
+
+	protected <T> ListenableFuture<T> doPutAsync(HttpPut httpput, ResponseHandler<? extends T> responseHandler) {
+		// Subclasses can override for additional functionality
+		return executeAsync(httpput, responseHandler);
+	}
+
+	/**
+	 * Execute the request without blocking the calling thread.
+	 * The response handler is invoked on the I/O dispatch thread once the response has been received, 
+	 * so it should not perform any blocking operations of its own.
+	 * Cancelling the returned future aborts the underlying request.
+	 */
+	protected <T> ListenableFuture<T> executeAsync(final HttpRequestBase request, final ResponseHandler<? extends T> responseHandler) {
+		final CircuitBreaker circuitBreaker = this.circuitBreaker;
+		if(circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+			resilienceMetrics.rejectedByCircuitBreaker();
+			return Futures.immediateFailedFuture(
+					new RequestRejectedException(MessageKey.AQWEGA04005E_circuit_breaker_open_1.getMessage(circuitBreaker.getName()).getFormattedMessage()));
+		}
+		resilienceMetrics.requestStarted();
+		resilienceMetrics.attemptStarted();
+
+		final SettableFuture<T> future = SettableFuture.create();
+		final RequestRecorder recorder = startRecording(request);
+		final AtomicBoolean recorded = new AtomicBoolean();
+		try {
+			getHttpAsyncClient().execute(request, createContext(), new FutureCallback<HttpResponse>() {
+				@Override
+				public void completed(HttpResponse response) {
+					int status = response.getStatusLine().getStatusCode();
+					recordOutcome(circuitBreaker, recorded, status == 429 || status >= 500);
+					Throwable error = null;
+					try {
+						if(recorder != null) {
+							recorder.onResponse(response);
+						}
+						future.set(responseHandler.handleResponse(response));
+					} catch(IOException | RuntimeException e) {
+						error = e;
+						future.setException(e);
+					} finally {
+						if(recorder != null) {
+							recorder.finish(error);
+						}
+					}
+				}
+
+				@Override
+				public void failed(Exception e) {
+					recordOutcome(circuitBreaker, recorded, true);
+					if(recorder != null) {
+						recorder.finish(e);
+					}
+					future.setException(e);
+				}
+
+				@Override
+				public void cancelled() {
+					future.cancel(false);
+				}
+			});
+		} catch(RuntimeException e) {
+			recordOutcome(circuitBreaker, recorded, true);
+			throw e;
+		}
+		future.addListener(new Runnable() {
+			@Override
+			public void run() {
+				if(future.isCancelled()) {
+					request.abort();
+					// An aborted request says nothing about the service, but a trial request must still be given back
+					if(circuitBreaker != null && recorded.compareAndSet(false, true)) {
+						circuitBreaker.release();
+					}
+				}
+			}
+		}, MoreExecutors.directExecutor());
+		return future;
+	}
+
+	/**
+	 * Record the outcome of an asynchronous request in the circuit breaker, once
+	 */
+	private void recordOutcome(CircuitBreaker circuitBreaker, AtomicBoolean recorded, boolean failed) {
+		if(!recorded.compareAndSet(false, true)) {
+			return;
+		}
+		if(failed) {
+			resilienceMetrics.attemptFailed();
+		}
+		if(circuitBreaker != null) {
+			if(failed) {
+				circuitBreaker.recordFailure();
+			} else {
+				circuitBreaker.recordSuccess();
+			}
+		}
+	}
+
+	/**
+	 * Get the non-blocking client used for the asynchronous request methods, creating and starting it on first use.
+	 * @throws IllegalStateException if the client uses shared clients that have been closed
+	 */
+	protected CloseableHttpAsyncClient getHttpAsyncClient() {
+		CloseableHttpAsyncClient client = httpAsyncClient;
+		if(client == null) {
+			synchronized(this) {
+				client = httpAsyncClient;
+				if(client == null) {
+					if(lease != null) {
+						client = lease.getHttpAsyncClient();
+					} else {
+						client = clientBuilder != null ? clientBuilder.buildAsync() : HttpClientBuilder.buildDefaultHttpAsyncClient(null);
+						ownsAsyncClient = true;
+					}
+					httpAsyncClient = client;
+				}
+			}
+		}
+		if(lease != null) {
+			// The shared client is started by the registry, and closed for good once released, never restart it
+			lease.checkOpen();
+		} else if(!client.isRunning()) {
+			client.start();
+		}
+		return client;
+	}
+
+	/**
+	 * Give back the shared clients, or close the clients built for this instance.
+	 * Clients supplied to the constructor are left open, they belong to the caller.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(lease != null) {
+			lease.close();
+		} else if(clientBuilder != null) {
+			httpClient.close();
+		}
+		synchronized(this) {
+			if(ownsAsyncClient && httpAsyncClient != null) {
+				httpAsyncClient.close();
+			}
+		}
 	}
 }
@@ -0,0 +1,68 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.rest;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * This response handler wraps an {@link HttpStatusAwareResponseHandler} and reports invalid responses as errors.
+ * If the wrapped handler does not accept the HTTP status code, an {@link HttpResponseException} is thrown 
+ * instead of silently substituting the default return value.
+ * Otherwise the response is handled by the wrapped handler, and if it {@link HttpStatusAwareResponseHandler#fallback() falls back} 
+ * to its default value, because the entity is empty or cannot be parsed, a {@link ClientProtocolException} is thrown.
+ * 
+ * @param <T> The type returned by the wrapped handler
+ */
+public class StrictResponseHandler<T> implements ResponseHandler<T> {
+	private final HttpStatusAwareResponseHandler<T> delegate;
+	
+	public StrictResponseHandler(HttpStatusAwareResponseHandler<T> delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public T handleResponse(HttpResponse response) throws ClientProtocolException, IOException {
+		int status = response.getStatusLine().getStatusCode();
+		if(!delegate.acceptStatusCode(status)) {
+			EntityUtils.consume(response.getEntity());
+			throw new HttpResponseException(status, EnglishReasonPhraseCatalog.INSTANCE.getReason(status, Locale.ENGLISH));
+		}
+		final boolean fellBack = HttpStatusAwareResponseHandler.clearFallback();
+		try {
+			T result = delegate.handleResponse(response);
+			if(HttpStatusAwareResponseHandler.clearFallback()) {
+				throw new ClientProtocolException("The response entity for HTTP status " + status + " is empty or invalid");
+			}
+			return result;
+		} finally {
+			if(fellBack) {
+				HttpStatusAwareResponseHandler.markFallback();
+			}
+		}
+	}
+	
+	public HttpStatusAwareResponseHandler<T> getDelegate() {
+		return delegate;
+	}
+}
@@ -0,0 +1,28 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.rest;
+
+/**
+ * Notified as the body of a request is written, see {@link MultipartEntity#setProgressListener(UploadProgressListener)}
+ */
+public interface UploadProgressListener {
+	/**
+	 * Called periodically while the body is written, and once more when it is complete
+	 * @param bytesWritten The number of bytes of the body written so far, before any compression
+	 * @param totalBytes The total size of the body before any compression, or -1 if it is not known up front
+	 */
+	void progress(long bytesWritten, long totalBytes);
+}
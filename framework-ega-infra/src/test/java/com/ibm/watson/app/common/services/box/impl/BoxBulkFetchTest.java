@@ -0,0 +1,199 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.ibm.watson.app.common.services.box.BoxResultSink;
+import com.ibm.watson.app.common.util.rest.RateLimitedException;
+import com.ibm.watson.app.common.util.rest.RetryPolicy;
+
+public class BoxBulkFetchTest {
+	@SuppressWarnings("unused")
+	private final BoxBulkFetchTest GIVEN = this, WHEN = this, THEN = this, WITH = this, AND = this;
+
+	private static final RetryPolicy NO_WAIT = new RetryPolicy.Builder().setInitialBackoffMillis(0).build();
+
+	private final ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(16));
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	// The number of times each file is rejected by the rate limit before it succeeds
+	private final Map<String, AtomicInteger> rateLimited = new ConcurrentHashMap<>();
+	// The files Box never responds for
+	private final Set<String> hanging = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final List<SettableFuture<String>> hangingFutures = new ArrayList<>();
+	private long deadlineMillis = 0;
+	private final Map<String, String> results = new HashMap<>();
+	private final Map<String, Throwable> failures = new HashMap<>();
+	private final List<String> fileIds = new ArrayList<>();
+	private BoxBulkFetch<String> fetch;
+
+	@After
+	public void teardown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void test_concurrency_is_bounded() {
+		GIVEN.files(50);
+		WHEN.fetching(4, NO_WAIT);
+		THEN.all_results_are_received();
+		  AND.max_in_flight_is_at_most(4);
+	}
+
+	@Test
+	public void test_rate_limited_requests_are_retried_with_a_smaller_window() {
+		GIVEN.files(20);
+		  AND.file_is_rate_limited("f3", 1);
+		  AND.file_is_rate_limited("f7", 1);
+		WHEN.fetching(8, NO_WAIT);
+		THEN.all_results_are_received();
+		  AND.throttled_count_is(2);
+		assertTrue(fetch.getWindow() < 8);
+	}
+
+	@Test
+	public void test_request_fails_once_attempts_are_used() {
+		GIVEN.files(5);
+		  AND.file_is_rate_limited("f2", RetryPolicy.DEFAULT_MAX_ATTEMPTS);
+		WHEN.fetching(2, NO_WAIT);
+		THEN.results_are_received(4);
+		assertTrue(failures.get("f2") instanceof RateLimitedException);
+	}
+
+	@Test
+	public void test_rate_limit_delay_is_respected() {
+		GIVEN.files(3);
+		  AND.file_is_rate_limited("f0", 1);
+		long start = System.currentTimeMillis();
+		WHEN.fetching(3, new RetryPolicy.Builder().setInitialBackoffMillis(200).setMaxBackoffMillis(200).setMultiplier(1).build());
+		THEN.all_results_are_received();
+		assertTrue(System.currentTimeMillis() - start >= 100);
+	}
+
+	@Test
+	public void test_files_fail_once_the_deadline_passes() {
+		GIVEN.files(6);
+		  AND.file_never_completes("f1");
+		  AND.deadline_is(100);
+		WHEN.fetching(2, NO_WAIT);
+		THEN.results_are_received(5);
+		assertTrue(failures.get("f1") instanceof TimeoutException);
+		assertTrue(hangingFutures.get(0).isCancelled());
+	}
+
+	private void files(int count) {
+		for(int i = 0; i < count; i++) {
+			fileIds.add("f" + i);
+		}
+	}
+
+	private void file_is_rate_limited(String fileId, int times) {
+		rateLimited.put(fileId, new AtomicInteger(times));
+	}
+
+	private void file_never_completes(String fileId) {
+		hanging.add(fileId);
+	}
+
+	private void deadline_is(long millis) {
+		deadlineMillis = millis;
+	}
+
+	private void fetching(int maxConcurrency, RetryPolicy policy) {
+		AsyncFunction<String, String> request = new AsyncFunction<String, String>() {
+			@Override
+			public ListenableFuture<String> apply(final String fileId) {
+				AtomicInteger remaining = rateLimited.get(fileId);
+				if(remaining != null && remaining.getAndDecrement() > 0) {
+					return Futures.immediateFailedFuture(new RateLimitedException("Received HTTP status code 429", 0));
+				}
+				if(hanging.contains(fileId)) {
+					SettableFuture<String> future = SettableFuture.create();
+					hangingFutures.add(future);
+					return future;
+				}
+				int current = inFlight.incrementAndGet();
+				synchronized(maxInFlight) {
+					maxInFlight.set(Math.max(maxInFlight.get(), current));
+				}
+				return executor.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						Thread.sleep(2);
+						inFlight.decrementAndGet();
+						return "contents of " + fileId;
+					}
+				});
+			}
+		};
+		BoxResultSink<String> sink = new BoxResultSink<String>() {
+			@Override
+			public void onResult(String fileId, String result) {
+				results.put(fileId, result);
+			}
+
+			@Override
+			public void onFailure(String fileId, Throwable error) {
+				failures.put(fileId, error);
+			}
+		};
+		fetch = new BoxBulkFetch<>(request, sink, maxConcurrency, policy, deadlineMillis);
+		fetch.run(Collections.unmodifiableList(fileIds));
+	}
+
+	private void all_results_are_received() {
+		results_are_received(fileIds.size());
+		for(String fileId : fileIds) {
+			assertEquals("contents of " + fileId, results.get(fileId));
+		}
+	}
+
+	private void results_are_received(int expected) {
+		assertEquals(expected, results.size());
+		assertEquals(fileIds.size() - expected, failures.size());
+	}
+
+	private void max_in_flight_is_at_most(int expected) {
+		assertTrue("max in flight " + maxInFlight.get(), maxInFlight.get() <= expected);
+		assertTrue(maxInFlight.get() > 1);
+	}
+
+	private void throttled_count_is(int expected) {
+		assertEquals(expected, fetch.getThrottledCount());
+	}
+}
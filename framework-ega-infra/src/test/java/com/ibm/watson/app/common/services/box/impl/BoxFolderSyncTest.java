@@ -0,0 +1,358 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.HttpResponseException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.SettableFuture;
+import com.ibm.watson.app.common.services.box.BoxMetadataIndex;
+import com.ibm.watson.app.common.services.box.BoxResultSink;
+import com.ibm.watson.app.common.services.box.model.BoxEventsResponse;
+import com.ibm.watson.app.common.services.box.model.BoxEventsResponse.Event;
+import com.ibm.watson.app.common.services.box.model.BoxEventsResponse.Item;
+import com.ibm.watson.app.common.services.box.model.BoxEventsResponse.ItemCollection;
+import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse;
+import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse.Entry;
+import com.ibm.watson.app.common.services.box.model.BoxRealtimeServerResponse;
+import com.ibm.watson.app.common.util.rest.RetryPolicy;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BoxFolderSyncTest {
+	@SuppressWarnings("unused")
+	private final BoxFolderSyncTest GIVEN = this, WHEN = this, THEN = this, WITH = this, AND = this;
+
+	private static final String FOLDER_ID = "100";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Mock private BoxRestClient client;
+
+	// The chunks of events by stream position, each one leads to the position of the next
+	private final Map<String, List<Event>> chunks = new HashMap<>();
+	// The files whose metadata fails with a server error, and those Box no longer finds
+	private final Set<String> failingFiles = new HashSet<>();
+	private final Set<String> missingFiles = new HashSet<>();
+	private final List<Collection<String>> metadataRequests = new ArrayList<>();
+	private final Map<String, BoxMetadataResponse> index = new HashMap<>();
+	private String lastPosition = "0";
+	private File positionFile;
+	private BoxFolderSync sync;
+	private int applied;
+
+	@Before
+	public void setup() throws Exception {
+		positionFile = new File(folder.getRoot(), "position");
+		when(client.getRetryPolicy()).thenReturn(RetryPolicy.DEFAULT);
+		when(client.getCurrentStreamPosition()).thenAnswer(new Answer<String>() {
+			@Override
+			public String answer(InvocationOnMock invocation) throws Throwable {
+				return lastPosition;
+			}
+		});
+		when(client.getEvents(anyString(), anyInt())).thenAnswer(new Answer<BoxEventsResponse>() {
+			@Override
+			public BoxEventsResponse answer(InvocationOnMock invocation) throws Throwable {
+				String position = (String) invocation.getArguments()[0];
+				BoxEventsResponse response = new BoxEventsResponse();
+				List<Event> chunk = chunks.get(position);
+				response.setEntries(chunk == null ? new ArrayList<Event>() : chunk);
+				response.setNextStreamPosition(chunk == null ? position : String.valueOf(Integer.parseInt(position) + 1));
+				return response;
+			}
+		});
+		doAnswer(new Answer<Void>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				Collection<String> fileIds = (Collection<String>) invocation.getArguments()[0];
+				BoxResultSink<BoxMetadataResponse> sink = (BoxResultSink<BoxMetadataResponse>) invocation.getArguments()[1];
+				metadataRequests.add(new ArrayList<>(fileIds));
+				for(String fileId : fileIds) {
+					if(failingFiles.contains(fileId)) {
+						sink.onFailure(fileId, new HttpResponseException(503, "Service Unavailable"));
+					} else if(missingFiles.contains(fileId)) {
+						sink.onFailure(fileId, new HttpResponseException(404, "Not Found"));
+					} else {
+						sink.onResult(fileId, metadata(fileId));
+					}
+				}
+				return null;
+			}
+		}).when(client).getMetadata(anyCollectionOf(String.class), any(BoxResultSink.class));
+	}
+
+	@Test
+	public void test_first_sync_records_current_position() throws Exception {
+		GIVEN.current_position_is("41");
+		WHEN.syncing();
+		THEN.applied_is(0);
+		  AND.saved_position_is("41");
+		assertTrue(index.isEmpty());
+	}
+
+	@Test
+	public void test_changed_files_are_refreshed_once_per_chunk() throws Exception {
+		GIVEN.saved_position("0");
+		  AND.chunk("0", event("e1", "ITEM_UPLOAD", file("f1", FOLDER_ID)), 
+				  event("e2", "ITEM_RENAME", file("f1", FOLDER_ID)), 
+				  event("e3", "ITEM_CREATE", file("f2", "200", FOLDER_ID)));
+		  AND.chunk("1", event("e4", "ITEM_UPLOAD", file("f3", FOLDER_ID)));
+		WHEN.syncing();
+		THEN.applied_is(3);
+		  AND.index_contains("f1", "f2", "f3");
+		  AND.metadata_requests_are(Arrays.asList("f1", "f2"), Arrays.asList("f3"));
+		  AND.saved_position_is("2");
+		assertEquals(4, sync.getEventCount());
+	}
+
+	@Test
+	public void test_files_trashed_or_outside_the_folder_are_removed() throws Exception {
+		GIVEN.saved_position("0");
+		  AND.indexed("f1", "f2");
+		  AND.chunk("0", event("e1", "ITEM_TRASH", file("f1", FOLDER_ID)), 
+				  event("e2", "ITEM_MOVE", file("f2", "300")), 
+				  event("e3", "ITEM_CREATE", file("f3", "300")),
+				  event("e4", "ITEM_CREATE", new Item("folder", "400", "sub", new Item("folder", FOLDER_ID, null, null))));
+		WHEN.syncing();
+		THEN.applied_is(2);
+		  AND.index_contains();
+		  AND.metadata_requests_are();
+		assertEquals(2, sync.getRemovedCount());
+	}
+
+	@Test
+	public void test_duplicate_events_are_skipped() throws Exception {
+		GIVEN.saved_position("0");
+		  AND.chunk("0", event("e1", "ITEM_UPLOAD", file("f1", FOLDER_ID)));
+		  AND.chunk("1", event("e1", "ITEM_UPLOAD", file("f1", FOLDER_ID)));
+		WHEN.syncing();
+		THEN.applied_is(1);
+		  AND.metadata_requests_are(Arrays.asList("f1"));
+		assertEquals(1, sync.getDuplicateCount());
+	}
+
+	@Test
+	public void test_position_is_not_advanced_when_metadata_cannot_be_retrieved() throws Exception {
+		GIVEN.saved_position("0");
+		  AND.chunk("0", event("e1", "ITEM_UPLOAD", file("f1", FOLDER_ID)), event("e2", "ITEM_UPLOAD", file("f2", FOLDER_ID)));
+		  AND.failing("f2");
+		WHEN.syncing();
+		THEN.applied_is(-1);
+		  AND.saved_position_is("0");
+		
+		GIVEN.failingFiles.clear();
+		WHEN.syncing();
+		THEN.applied_is(2);
+		  AND.index_contains("f1", "f2");
+		  AND.saved_position_is("1");
+	}
+
+	@Test
+	public void test_position_is_advanced_when_changed_file_is_not_found() throws Exception {
+		GIVEN.saved_position("0");
+		  AND.indexed("f2");
+		  AND.chunk("0", event("e1", "ITEM_UPLOAD", file("f1", FOLDER_ID)), event("e2", "ITEM_UPLOAD", file("f2", FOLDER_ID)));
+		  AND.missing("f2");
+		WHEN.syncing();
+		THEN.applied_is(2);
+		  AND.index_contains("f1");
+		  AND.saved_position_is("1");
+		assertEquals(1, sync.getUpdatedCount());
+		assertEquals(1, sync.getRemovedCount());
+	}
+
+	@Test
+	public void test_file_that_keeps_failing_is_skipped_after_max_attempts() throws Exception {
+		GIVEN.saved_position("0");
+		  AND.indexed("f2");
+		  AND.chunk("0", event("e1", "ITEM_UPLOAD", file("f1", FOLDER_ID)), event("e2", "ITEM_UPLOAD", file("f2", FOLDER_ID)));
+		  AND.failing("f2");
+		for(int i = 1; i < RetryPolicy.DEFAULT_MAX_ATTEMPTS; i++) {
+			WHEN.syncing();
+			THEN.applied_is(-1);
+			  AND.saved_position_is("0");
+		}
+		
+		WHEN.syncing();
+		THEN.applied_is(1);
+		  AND.index_contains("f1", "f2");
+		  AND.saved_position_is("1");
+		assertEquals(1, sync.getUpdatedCount());
+		assertEquals(1, sync.getSkippedCount());
+	}
+
+	@Test
+	public void test_sync_resumes_from_saved_position() throws Exception {
+		GIVEN.saved_position("5");
+		  AND.chunk("5", event("e1", "ITEM_UPLOAD", file("f1", FOLDER_ID)));
+		WHEN.syncing();
+		THEN.applied_is(1);
+		  AND.index_contains("f1");
+		verify(client, times(0)).getCurrentStreamPosition();
+	}
+
+	@Test(timeout = 10000)
+	public void test_close_aborts_long_poll() throws Exception {
+		final SettableFuture<String> poll = SettableFuture.create();
+		final CountDownLatch polling = new CountDownLatch(1);
+		GIVEN.saved_position("0");
+		when(client.getRealtimeServer()).thenReturn(new BoxRealtimeServerResponse.Server("https://realtime.box.test/poll", 600, 10));
+		when(client.longPoll(any(BoxRealtimeServerResponse.Server.class), anyString())).thenAnswer(new Answer<SettableFuture<String>>() {
+			@Override
+			public SettableFuture<String> answer(InvocationOnMock invocation) throws Throwable {
+				polling.countDown();
+				return poll;
+			}
+		});
+		sync = new BoxFolderSync(client, new MapIndex(), FOLDER_ID, positionFile);
+		Thread thread = new Thread(sync);
+		thread.start();
+		assertTrue(polling.await(5, TimeUnit.SECONDS));
+		
+		WHEN.sync.close();
+		thread.join(5000);
+		assertFalse(thread.isAlive());
+		assertTrue(poll.isCancelled());
+	}
+
+	private void current_position_is(String position) throws Exception {
+		lastPosition = position;
+	}
+
+	private void saved_position(String position) throws Exception {
+		Files.write(position, positionFile, StandardCharsets.UTF_8);
+	}
+
+	private void chunk(String position, Event... events) {
+		chunks.put(position, new ArrayList<>(Arrays.asList(events)));
+	}
+
+	private void indexed(String... fileIds) {
+		for(String fileId : fileIds) {
+			index.put(fileId, metadata(fileId));
+		}
+	}
+
+	private void failing(String fileId) {
+		failingFiles.add(fileId);
+	}
+
+	private void missing(String fileId) {
+		missingFiles.add(fileId);
+	}
+
+	private void syncing() throws Exception {
+		if(sync == null) {
+			sync = new BoxFolderSync(client, new MapIndex(), FOLDER_ID, positionFile);
+		}
+		applied = sync.sync();
+	}
+
+	private void applied_is(int expected) {
+		assertEquals(expected, applied);
+	}
+
+	private void saved_position_is(String expected) throws Exception {
+		assertEquals(expected, Files.toString(positionFile, StandardCharsets.UTF_8));
+		assertEquals(expected, sync.getStreamPosition());
+	}
+
+	private void index_contains(String... fileIds) {
+		assertEquals(new HashSet<>(Arrays.asList(fileIds)), index.keySet());
+	}
+
+	@SafeVarargs
+	private final void metadata_requests_are(List<String>... requests) {
+		assertEquals(Arrays.asList(requests), metadataRequests);
+	}
+
+	private static Event event(String eventId, String eventType, Item source) {
+		return new Event(eventId, eventType, source);
+	}
+
+	/**
+	 * A file in the folder with the last id, under the folders with the other ones
+	 */
+	private static Item file(String fileId, String... folderIds) {
+		List<Item> path = new ArrayList<>();
+		path.add(new Item("folder", "0", "All Files", null));
+		for(String folderId : folderIds) {
+			path.add(new Item("folder", folderId, null, null));
+		}
+		Item item = new Item("file", fileId, fileId + ".txt", path.get(path.size() - 1));
+		item.setPathCollection(new ItemCollection(path));
+		return item;
+	}
+
+	private static BoxMetadataResponse metadata(String fileId) {
+		BoxMetadataResponse metadata = new BoxMetadataResponse();
+		metadata.setEntries(new ArrayList<Entry>());
+		return metadata;
+	}
+
+	private class MapIndex implements BoxMetadataIndex {
+		@Override
+		public void put(String fileId, BoxMetadataResponse metadata) {
+			index.put(fileId, metadata);
+		}
+
+		@Override
+		public void remove(String fileId) {
+			index.remove(fileId);
+		}
+
+		@Override
+		public boolean contains(String fileId) {
+			return index.containsKey(fileId);
+		}
+	}
+}
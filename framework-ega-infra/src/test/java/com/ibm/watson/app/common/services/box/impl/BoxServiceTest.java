@@ -16,6 +16,7 @@
 
 package com.ibm.watson.app.common.services.box.impl;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -28,10 +29,20 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.http.Header;
 import org.apache.http.HeaderElement;
@@ -39,12 +50,20 @@ import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.message.BasicHeader;
 import org.apache.http.protocol.HttpContext;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
@@ -58,11 +77,15 @@ import com.google.common.net.HttpHeaders;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.ibm.watson.app.common.services.box.BoxResultSink;
+import com.ibm.watson.app.common.services.box.BoxSearchIterator;
 import com.ibm.watson.app.common.services.box.BoxService;
+import com.ibm.watson.app.common.services.box.model.BoxEventsResponse;
 import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse;
 import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse.Entry;
 import com.ibm.watson.app.common.services.box.model.BoxSearchResponse;
 import com.ibm.watson.app.common.services.box.model.BoxSearchResponse.FileInfo;
+import com.ibm.watson.app.common.util.rest.RetryPolicy;
 
 @RunWith(MockitoJUnitRunner.class)
 public class BoxServiceTest {
@@ -80,6 +103,10 @@ public class BoxServiceTest {
 	@Mock protected CloseableHttpClient httpClient;
 	@Mock protected HttpResponse httpResponse;
 	@Mock protected HttpEntity httpEntity;
+	@Mock protected CloseableHttpAsyncClient httpAsyncClient;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
 
 	protected BoxService boxService;
 	protected BoxRestClient restClient;	
@@ -88,6 +115,17 @@ public class BoxServiceTest {
 	protected BoxSearchResponse expectedSearchResponse, actualSearchResponse;
 	protected BoxMetadataResponse expectedMetadataResponse, actualMetadataResponse;
 	protected String expectedContentResponse, actualContentResponse;
+	protected ByteArrayOutputStream downloadedContent;
+	protected File downloadedFile;
+	protected long bytesWritten;
+	// The responses the async client returns for each file id, in order
+	protected final Map<String, Deque<Object[]>> asyncResponses = new HashMap<>();
+	protected Map<String, BoxMetadataResponse> actualBulkMetadata;
+	protected final Map<String, String> actualBulkContents = new HashMap<>();
+	protected final Map<String, Throwable> actualBulkFailures = new HashMap<>();
+	protected BoxSearchIterator searchIterator;
+	protected BoxEventsResponse actualEventsResponse;
+	protected final List<String> actualSearchAllIds = new ArrayList<>();
 	
 	// SEARCH TESTS
 	@Test
@@ -305,6 +343,219 @@ public class BoxServiceTest {
 		  AND.verify_http_client_execute_invoked();    	
     }
     
+    // STREAMING CONTENT TESTS
+    @Test
+    public void test_write_content_to_stream() throws Exception {
+		GIVEN.mock_rest_client_is_created();
+		  AND.box_service_is_created();
+		GIVEN.http_entity_bytes_are(new byte[] { 0, 1, 2, (byte) 0xff, 3 });
+		WHEN.box_content_is_written("12345");
+		THEN.verify_bytes_written_is(5);
+		  AND.verify_downloaded_content_is(new byte[] { 0, 1, 2, (byte) 0xff, 3 });
+		  AND.verify_auth_header_is_set();
+		  AND.verify_range_header_is(null);
+    }
+    
+    @Test
+    public void test_write_content_range() throws Exception {
+		GIVEN.mock_rest_client_is_created();
+		  AND.box_service_is_created();
+		GIVEN.http_entity_bytes_are("2345".getBytes(StandardCharsets.UTF_8));
+		  AND.http_response_returns(206);
+		  AND.http_response_has_header(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10");
+		WHEN.box_content_range_is_written("12345", 2, 4);
+		THEN.verify_bytes_written_is(4);
+		  AND.verify_downloaded_content_is("2345".getBytes(StandardCharsets.UTF_8));
+		  AND.verify_range_header_is("bytes=2-5");
+    }
+    
+    @Test
+    public void test_write_content_range_ignored_by_server() throws Exception {
+		GIVEN.mock_rest_client_is_created();
+		  AND.box_service_is_created();
+		GIVEN.http_entity_bytes_are("0123456789".getBytes(StandardCharsets.UTF_8));
+		WHEN.box_content_range_is_written("12345", 2, 4);
+		THEN.verify_bytes_written_is(4);
+		  AND.verify_downloaded_content_is("2345".getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    public void test_write_content_not_found() throws Exception {
+		GIVEN.mock_rest_client_is_created();
+		  AND.box_service_is_created();
+		GIVEN.http_entity_bytes_are("{\"type\":\"error\", \"status\":404,\"code\":\"not_found\"}".getBytes(StandardCharsets.UTF_8));
+		  AND.http_response_returns(404);
+		WHEN.box_content_is_written("12345");
+		THEN.verify_bytes_written_is(-1);
+		  AND.verify_downloaded_content_is(new byte[0]);
+    }
+    
+    @Test
+    public void test_download_file_resumes() throws Exception {
+		GIVEN.mock_rest_client_is_created();
+		  AND.box_service_is_created();
+		  AND.a_partially_downloaded_file("01234");
+		GIVEN.http_entity_bytes_are("56789".getBytes(StandardCharsets.UTF_8));
+		  AND.http_response_returns(206);
+		  AND.http_response_has_header(HttpHeaders.CONTENT_RANGE, "bytes 5-9/10");
+		WHEN.box_file_is_downloaded("12345");
+		THEN.verify_bytes_written_is(5);
+		  AND.verify_range_header_is("bytes=5-");
+		  AND.verify_downloaded_file_is("0123456789");
+    }
+    
+    @Test
+    public void test_download_file_already_complete() throws Exception {
+		GIVEN.mock_rest_client_is_created();
+		  AND.box_service_is_created();
+		  AND.a_partially_downloaded_file("0123456789");
+		GIVEN.http_entity_bytes_are(new byte[0]);
+		  AND.http_response_returns(416);
+		WHEN.box_file_is_downloaded("12345");
+		THEN.verify_bytes_written_is(0);
+		  AND.verify_range_header_is("bytes=10-");
+		  AND.verify_downloaded_file_is("0123456789");
+    }
+    
+    @Test
+    public void test_download_to_temp_file() throws Exception {
+		GIVEN.mock_rest_client_is_created();
+		  AND.box_service_is_created();
+		GIVEN.http_entity_bytes_are("0123456789".getBytes(StandardCharsets.UTF_8));
+		WHEN.box_file_is_downloaded_to_temp_file("12345");
+		THEN.verify_downloaded_file_is("0123456789");
+		  AND.verify_range_header_is(null);
+		downloadedFile.delete();
+    }
+    
+    // PAGINATED SEARCH TESTS
+    @Test
+    public void test_search_query_is_url_encoded() throws Exception {
+		GIVEN.mock_rest_client_is_created();
+		  AND.box_service_is_created();
+		GIVEN.a_new_search_response();
+		  AND.response_handler_returns(expectedSearchResponse);
+		WHEN.box_search_is_invoked("what's a b&c?");
+		THEN.verify_request_uri_contains("query=%22what%27s+a+b%26c%3F%22&content_types=name&fields=name");
+    }
+    
+    @Test
+    public void test_search_page_with_fields() throws Exception {
+		GIVEN.mock_rest_client_is_created();
+		  AND.box_service_is_created();
+		GIVEN.a_new_search_response();
+		  AND.a_new_search_result_is_added("1", "first", "tag1", "tag2");
+		  AND.response_handler_returns(expectedSearchResponse);
+		WHEN.box_search_page_is_invoked("first", 20, 10, "name", "tags");
+		THEN.verify_search_result_count_is(1);
+		  AND.verify_request_uri_contains("fields=name%2Ctags&offset=20&limit=10");
+    }
+    
+    @Test
+    public void test_search_all_iterates_over_pages() throws Exception {
+		GIVEN.mock_async_rest_client_is_created();
+		  AND.box_service_is_created();
+		  AND.a_search_page_is_returned(5, "1", "2");
+		  AND.a_search_page_is_returned(5, "3", "4");
+		  AND.a_search_page_is_returned(5, "5");
+		WHEN.box_search_all_is_invoked("first", 2);
+		THEN.verify_search_all_ids_are("1", "2", "3", "4", "5");
+		  AND.verify_search_all_is_not_truncated();
+		  AND.verify_async_request_uris_end_with("&offset=0&limit=2", "&offset=2&limit=2", "&offset=4&limit=2");
+    }
+    
+    @Test
+    public void test_search_all_stops_when_a_page_fails() throws Exception {
+		GIVEN.mock_async_rest_client_is_created();
+		  AND.box_service_is_created();
+		  AND.a_search_page_is_returned(4, "1", "2");
+		  AND.async_box_returns("search", 500, "");
+		WHEN.box_search_all_is_invoked("first", 2);
+		THEN.verify_search_all_ids_are("1", "2");
+		  AND.verify_search_all_is_truncated();
+    }
+    
+    // BULK TESTS
+    @Test
+    public void test_bulk_metadata_in_input_order() throws Exception {
+		GIVEN.mock_async_rest_client_is_created();
+		  AND.box_service_is_created();
+		GIVEN.a_new_metadata_response();
+		  AND.a_new_metadata_result_is_added("myfirstclass", "what is your name?", TEMPLATE, SCOPE);
+		  AND.async_box_returns("3", 200, gson.toJson(expectedMetadataResponse));
+		  AND.async_box_returns("1", 200, gson.toJson(expectedMetadataResponse));
+		  AND.async_box_returns("2", 404, "{\"type\":\"error\", \"status\":404,\"code\":\"not_found\"}");
+		WHEN.box_bulk_metadata_is_invoked("3", "1", "2");
+		THEN.verify_bulk_metadata_ids_are("3", "1", "2");
+		  AND.verify_bulk_metadata_entries_are("3", 1);
+		  AND.verify_bulk_metadata_entries_are("1", 1);
+		  AND.verify_bulk_metadata_entries_are("2", 0);
+		  AND.verify_async_requests_are(3);
+    }
+    
+    @Test
+    public void test_bulk_metadata_retries_rate_limited_request() throws Exception {
+		GIVEN.mock_async_rest_client_is_created();
+		  AND.box_service_is_created();
+		  AND.retries_do_not_wait();
+		GIVEN.a_new_metadata_response();
+		  AND.a_new_metadata_result_is_added("myfirstclass", "what is your name?", TEMPLATE, SCOPE);
+		  AND.async_box_returns("1", 200, gson.toJson(expectedMetadataResponse));
+		  AND.async_box_returns("2", 429, "");
+		  AND.async_box_returns("2", 200, gson.toJson(expectedMetadataResponse));
+		WHEN.box_bulk_metadata_is_invoked("1", "2");
+		THEN.verify_bulk_metadata_entries_are("1", 1);
+		  AND.verify_bulk_metadata_entries_are("2", 1);
+		  AND.verify_async_requests_are(3);
+    }
+    
+    @Test
+    public void test_bulk_content_streams_results_and_failures() throws Exception {
+		GIVEN.mock_async_rest_client_is_created();
+		  AND.box_service_is_created();
+		  AND.retries_do_not_wait();
+		  AND.async_box_returns("1", 200, "<p>first</p>");
+		  AND.async_box_returns("2", 429, "");
+		  AND.async_box_returns("2", 429, "");
+		  AND.async_box_returns("2", 429, "");
+		WHEN.box_bulk_content_is_invoked("1", "2");
+		THEN.verify_bulk_content_is("1", "<p>first</p>");
+		  AND.verify_bulk_failure_for("2");
+		  AND.verify_async_requests_are(1 + RetryPolicy.DEFAULT_MAX_ATTEMPTS);
+    }
+    
+    @Test
+    public void test_bulk_content_reports_error_status_as_failure() throws Exception {
+		GIVEN.mock_async_rest_client_is_created();
+		  AND.box_service_is_created();
+		  AND.async_box_returns("1", 200, "<p>first</p>");
+		  AND.async_box_returns("2", 404, "{\"type\":\"error\", \"status\":404,\"code\":\"not_found\"}");
+		WHEN.box_bulk_content_is_invoked("1", "2");
+		THEN.verify_bulk_content_is("1", "<p>first</p>");
+		  AND.verify_bulk_failure_for("2");
+		assertEquals(404, ((HttpResponseException) actualBulkFailures.get("2")).getStatusCode());
+    }
+    
+    // EVENTS TESTS
+    @Test
+    public void test_events_are_parsed() throws Exception {
+		GIVEN.mock_rest_client_is_created();
+		GIVEN.http_entity_bytes_are(("{\"chunk_size\":1,\"next_stream_position\":1152922976252290886,\"entries\":[{\"type\":\"event\","
+				+ "\"event_id\":\"f82c3ba0\",\"event_type\":\"ITEM_UPLOAD\",\"source\":{\"type\":\"file\",\"id\":\"12345\",\"name\":\"a.txt\","
+				+ "\"parent\":{\"type\":\"folder\",\"id\":\"100\"},\"path_collection\":{\"total_count\":2,\"entries\":["
+				+ "{\"type\":\"folder\",\"id\":\"0\"},{\"type\":\"folder\",\"id\":\"100\"}]}}}]}").getBytes(StandardCharsets.UTF_8));
+		WHEN.box_events_are_invoked("1152922976252290000", 100);
+		THEN.verify_request_uri_contains("/events?stream_type=changes&stream_position=1152922976252290000&limit=100");
+		  AND.verify_auth_header_is_set();
+		assertEquals("1152922976252290886", actualEventsResponse.getNextStreamPosition());
+		assertEquals(1, actualEventsResponse.getEntries().size());
+		BoxEventsResponse.Event event = actualEventsResponse.getEntries().get(0);
+		assertEquals("ITEM_UPLOAD", event.getEventType());
+		assertEquals("12345", event.getSource().getId());
+		assertEquals("100", event.getSource().getParent().getId());
+		assertEquals(2, event.getSource().getPathCollection().getEntries().size());
+    }
+    
 	// HELPER METHODS
 	protected void box_service_is_created() {
 		boxService = new BoxServiceImpl(restClient);
@@ -322,6 +573,76 @@ public class BoxServiceTest {
 		actualContentResponse = boxService.getFileContents(fileId);
 	}
 	
+	protected void box_content_is_written(String fileId) {
+		downloadedContent = new ByteArrayOutputStream();
+		bytesWritten = boxService.writeFileContents(fileId, downloadedContent);
+	}
+	
+	protected void box_content_range_is_written(String fileId, long offset, long length) {
+		downloadedContent = new ByteArrayOutputStream();
+		bytesWritten = boxService.writeFileContents(fileId, offset, length, Channels.newChannel(downloadedContent));
+	}
+	
+	protected void box_file_is_downloaded(String fileId) {
+		bytesWritten = boxService.downloadFile(fileId, downloadedFile);
+	}
+	
+	protected void box_file_is_downloaded_to_temp_file(String fileId) {
+		downloadedFile = boxService.downloadToTempFile(fileId);
+	}
+	
+	protected void a_partially_downloaded_file(String content) throws IOException {
+		downloadedFile = folder.newFile();
+		Files.write(downloadedFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	protected void box_events_are_invoked(String streamPosition, int limit) {
+		actualEventsResponse = restClient.getEvents(streamPosition, limit);
+	}
+	
+	protected void box_search_page_is_invoked(String query, int offset, int limit, String... fields) {
+		actualSearchResponse = boxService.search(query, offset, limit, fields);
+	}
+	
+	protected void box_search_all_is_invoked(String query, int pageSize) {
+		searchIterator = boxService.searchAll(query, pageSize);
+		while(searchIterator.hasNext()) {
+			actualSearchAllIds.add(searchIterator.next().getId());
+		}
+	}
+	
+	protected void a_search_page_is_returned(int totalCount, String... ids) {
+		BoxSearchResponse page = new BoxSearchResponse();
+		page.setEntries(new ArrayList<FileInfo>());
+		for(String id : ids) {
+			page.getEntries().add(new FileInfo(id, "file " + id));
+		}
+		page.setTotalCount(totalCount);
+		async_box_returns("search", 200, gson.toJson(page));
+	}
+	
+	protected void box_bulk_metadata_is_invoked(String... fileIds) {
+		actualBulkMetadata = boxService.getMetadata(Arrays.asList(fileIds));
+	}
+	
+	protected void box_bulk_content_is_invoked(String... fileIds) {
+		boxService.getFileContents(Arrays.asList(fileIds), new BoxResultSink<String>() {
+			@Override
+			public void onResult(String fileId, String result) {
+				actualBulkContents.put(fileId, result);
+			}
+
+			@Override
+			public void onFailure(String fileId, Throwable error) {
+				actualBulkFailures.put(fileId, error);
+			}
+		});
+	}
+	
+	protected void retries_do_not_wait() {
+		restClient.setRetryPolicy(new RetryPolicy.Builder().setInitialBackoffMillis(0).build());
+	}
+	
 	protected void a_new_search_response() {
 		expectedSearchResponse = new BoxSearchResponse();
 		expectedSearchResponse.setEntries(new ArrayList<FileInfo>());
@@ -412,6 +733,81 @@ public class BoxServiceTest {
 		assertTrue(result.equals(actualContentResponse));
 	}
 	
+	private void verify_bytes_written_is(long expected) {
+		assertEquals(expected, bytesWritten);
+	}
+	
+	private void verify_downloaded_content_is(byte[] expected) {
+		assertArrayEquals(expected, downloadedContent.toByteArray());
+	}
+	
+	private void verify_downloaded_file_is(String expected) throws IOException {
+		assertNotNull(downloadedFile);
+		assertEquals(expected, new String(Files.readAllBytes(downloadedFile.toPath()), StandardCharsets.UTF_8));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void verify_range_header_is(String expected) throws IOException {
+		ArgumentCaptor<HttpUriRequest>cap = ArgumentCaptor.forClass(HttpUriRequest.class);
+	    verify( httpClient, times(1) ).execute(cap.capture(), any(ResponseHandler.class), any(HttpContext.class));
+	    Header header = cap.getValue().getFirstHeader(HttpHeaders.RANGE);
+	    assertEquals(expected, header == null ? null : header.getValue());
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void verify_request_uri_contains(String expected) throws IOException {
+		ArgumentCaptor<HttpUriRequest>cap = ArgumentCaptor.forClass(HttpUriRequest.class);
+	    verify( httpClient, times(1) ).execute(cap.capture(), any(ResponseHandler.class), any(HttpContext.class));
+	    String uri = cap.getValue().getURI().toString();
+	    assertTrue(uri, uri.contains(expected));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void verify_async_request_uris_end_with(String... expected) {
+		ArgumentCaptor<HttpUriRequest>cap = ArgumentCaptor.forClass(HttpUriRequest.class);
+		verify(httpAsyncClient, times(expected.length)).execute(cap.capture(), any(HttpContext.class), any(FutureCallback.class));
+		for(int i = 0; i < expected.length; i++) {
+			String uri = cap.getAllValues().get(i).getURI().toString();
+			assertTrue(uri, uri.endsWith(expected[i]));
+		}
+	}
+	
+	private void verify_search_all_ids_are(String... ids) {
+		assertEquals(Arrays.asList(ids), actualSearchAllIds);
+	}
+	
+	private void verify_search_all_is_truncated() {
+		assertTrue(searchIterator.isTruncated());
+	}
+	
+	private void verify_search_all_is_not_truncated() {
+		assertFalse(searchIterator.isTruncated());
+		assertEquals(actualSearchAllIds.size(), searchIterator.getTotalCount());
+	}
+	
+	private void verify_bulk_metadata_ids_are(String... fileIds) {
+		assertEquals(Arrays.asList(fileIds), new ArrayList<>(actualBulkMetadata.keySet()));
+	}
+	
+	private void verify_bulk_metadata_entries_are(String fileId, int expected) {
+		assertNotNull(actualBulkMetadata.get(fileId));
+		assertEquals(expected, actualBulkMetadata.get(fileId).getEntries().size());
+	}
+	
+	private void verify_bulk_content_is(String fileId, String expected) {
+		assertEquals(expected, actualBulkContents.get(fileId));
+	}
+	
+	private void verify_bulk_failure_for(String fileId) {
+		assertFalse(actualBulkContents.containsKey(fileId));
+		assertNotNull(actualBulkFailures.get(fileId));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void verify_async_requests_are(int expected) {
+		verify(httpAsyncClient, times(expected)).execute(any(HttpUriRequest.class), any(HttpContext.class), any(FutureCallback.class));
+	}
+	
 	private void verify_search_response_is_not_null() {
 		assertNotNull(actualSearchResponse);
 	}
@@ -452,6 +848,39 @@ public class BoxServiceTest {
 		restClient = new BoxRestClient(DEFAULT_DEVELOPER_TOKEN, httpClient);
 	}
 
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	protected void mock_async_rest_client_is_created() throws Exception {
+		when(httpAsyncClient.execute(any(HttpUriRequest.class), any(HttpContext.class), any(FutureCallback.class))).thenAnswer(
+				new Answer<Object>() {
+					@Override
+					public Object answer(InvocationOnMock invocation) throws Throwable {
+						// The file id follows /files/ in the request path, searches are keyed on "search"
+						String[] path = ((HttpUriRequest) invocation.getArguments()[0]).getURI().getPath().split("/");
+						Object[] response = asyncResponses.get(path.length > 3 ? path[3] : path[path.length - 1]).poll();
+						((FutureCallback) invocation.getArguments()[2]).completed(async_response((Integer) response[0], (String) response[1]));
+						return null;
+					}
+				});
+
+		restClient = new BoxRestClient(DEFAULT_DEVELOPER_TOKEN, httpClient, httpAsyncClient);
+	}
+	
+	protected void async_box_returns(String fileId, int status, String body) {
+		if(!asyncResponses.containsKey(fileId)) {
+			asyncResponses.put(fileId, new ArrayDeque<Object[]>());
+		}
+		asyncResponses.get(fileId).add(new Object[] { status, body });
+	}
+	
+	protected HttpResponse async_response(int status, String body) {
+		HttpResponse response = mock(HttpResponse.class);
+		StatusLine sl = mock(StatusLine.class);
+		when(sl.getStatusCode()).thenReturn(status);
+		when(response.getStatusLine()).thenReturn(sl);
+		when(response.getEntity()).thenReturn(new StringEntity(body, ContentType.APPLICATION_JSON));
+		return response;
+	}
+
 	protected void response_handler_returns_string(String resp) throws Exception {
 		http_entity_content_is(resp);
 		http_response_returns(200);
@@ -472,6 +901,16 @@ public class BoxServiceTest {
 		http_response_returns(200);
 	}
 
+	protected void http_entity_bytes_are(byte[] content) throws Exception {
+		when(httpEntity.getContent()).thenReturn(new ByteArrayInputStream(content));
+		when(httpEntity.getContentLength()).thenReturn((long) content.length);
+		http_response_returns(200);
+	}
+	
+	protected void http_response_has_header(String name, String value) {
+		when(httpResponse.getFirstHeader(name)).thenReturn(new BasicHeader(name, value));
+	}
+
 	protected void http_entity_content_is(String content) throws Exception {
 		when(httpEntity.getContent()).thenReturn(new ByteArrayInputStream(content.getBytes()));
 		when(httpEntity.getContentLength()).thenReturn((long) content.length());
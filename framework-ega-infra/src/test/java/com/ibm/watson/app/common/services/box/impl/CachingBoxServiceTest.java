@@ -0,0 +1,299 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.services.box.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.hash.Hashing;
+import com.ibm.watson.app.common.services.box.model.BoxFileInfo;
+import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse;
+import com.ibm.watson.app.common.services.box.model.BoxMetadataResponse.Entry;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingBoxServiceTest {
+	@SuppressWarnings("unused")
+	private final CachingBoxServiceTest GIVEN = this, WHEN = this, THEN = this, WITH = this, AND = this;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Mock private BoxRestClient client;
+
+	// The files on Box, by id: their etag and contents
+	private final Map<String, String[]> files = new HashMap<>();
+	private File directory;
+	private BoxContentCache cache;
+	private CachingBoxService service;
+	private String contents;
+
+	@Before
+	public void setup() throws Exception {
+		directory = folder.newFolder();
+		when(client.getFileInfo(anyString(), anyString())).thenAnswer(new Answer<BoxFileInfo>() {
+			@Override
+			public BoxFileInfo answer(InvocationOnMock invocation) throws Throwable {
+				String[] file = files.get(invocation.getArguments()[0]);
+				if(file == null) {
+					return null;
+				}
+				if(file[0].equals(invocation.getArguments()[1])) {
+					return BoxFileInfo.notModified();
+				}
+				byte[] bytes = file[1].getBytes(StandardCharsets.UTF_8);
+				return new BoxFileInfo((String) invocation.getArguments()[0], file[0], Hashing.sha1().hashBytes(bytes).toString(), bytes.length);
+			}
+		});
+		when(client.download(anyString(), any(File.class))).thenAnswer(new Answer<Long>() {
+			@Override
+			public Long answer(InvocationOnMock invocation) throws Throwable {
+				String[] file = files.get(invocation.getArguments()[0]);
+				byte[] bytes = file[1].getBytes(StandardCharsets.UTF_8);
+				Files.write(((File) invocation.getArguments()[1]).toPath(), bytes);
+				return Long.valueOf(bytes.length);
+			}
+		});
+	}
+
+	@Test
+	public void test_second_read_is_served_from_cache() throws Exception {
+		GIVEN.a_cache(1000, 60);
+		  AND.box_has_file("1", "etag1", "<p>This is your answer</p>");
+		WHEN.reading_contents("1");
+		  AND.reading_contents("1");
+		THEN.contents_are("<p>This is your answer</p>");
+		  AND.file_info_requests_are(1);
+		  AND.downloads_are(1);
+		  AND.hits_and_misses_are(1, 1);
+		  AND.bytes_saved_are(26);
+	}
+
+	@Test
+	public void test_stale_entry_is_revalidated_with_etag() throws Exception {
+		GIVEN.a_cache(1000, 0);
+		  AND.box_has_file("1", "etag1", "<p>This is your answer</p>");
+		WHEN.reading_contents("1");
+		  AND.reading_contents("1");
+		THEN.contents_are("<p>This is your answer</p>");
+		  AND.downloads_are(1);
+		  AND.revalidations_are(1, 1);
+		verify(client).getFileInfo("1", "etag1");
+	}
+
+	@Test
+	public void test_changed_file_is_downloaded_again() throws Exception {
+		GIVEN.a_cache(1000, 0);
+		  AND.box_has_file("1", "etag1", "first version");
+		WHEN.reading_contents("1");
+		GIVEN.box_has_file("1", "etag2", "second version");
+		WHEN.reading_contents("1");
+		THEN.contents_are("second version");
+		  AND.downloads_are(2);
+		  AND.revalidations_are(1, 0);
+		  AND.hits_and_misses_are(0, 2);
+	}
+
+	@Test
+	public void test_same_contents_are_downloaded_once() throws Exception {
+		GIVEN.a_cache(1000, 60);
+		  AND.box_has_file("1", "etag1", "same contents");
+		  AND.box_has_file("2", "etag7", "same contents");
+		WHEN.reading_contents("1");
+		  AND.reading_contents("2");
+		THEN.contents_are("same contents");
+		  AND.downloads_are(1);
+		  AND.hits_and_misses_are(1, 1);
+		  AND.cached_contents_are(1, 13);
+	}
+
+	@Test
+	public void test_least_recently_used_contents_are_evicted() throws Exception {
+		GIVEN.a_cache(10, 60);
+		  AND.box_has_file("1", "etag1", "aaaaaa");
+		  AND.box_has_file("2", "etag2", "bbbbbb");
+		WHEN.reading_contents("1");
+		  AND.reading_contents("2");
+		  AND.reading_contents("1");
+		THEN.contents_are("aaaaaa");
+		  AND.downloads_are(3);
+		  AND.cached_contents_are(1, 6);
+		  AND.files_on_disk_are(1);
+	}
+
+	@Test
+	public void test_file_larger_than_cache_is_not_cached() throws Exception {
+		GIVEN.a_cache(4, 60);
+		  AND.box_has_file("1", "etag1", "too large");
+		when(client.getContent("1")).thenReturn("too large");
+		WHEN.reading_contents("1");
+		THEN.contents_are("too large");
+		  AND.cached_contents_are(0, 0);
+		verify(client, never()).download(anyString(), any(File.class));
+	}
+
+	@Test
+	public void test_file_without_sha1_is_downloaded_once() throws Exception {
+		GIVEN.a_cache(1000, 60);
+		when(client.getFileInfo(eq("1"), anyString())).thenReturn(new BoxFileInfo("1", "etag1", null, 9));
+		when(client.getContent("1")).thenReturn("no digest");
+		WHEN.reading_contents("1");
+		THEN.contents_are("no digest");
+		  AND.cached_contents_are(0, 0);
+		  AND.hits_and_misses_are(0, 0);
+		verify(client, never()).download(anyString(), any(File.class));
+		verify(client, times(1)).getContent("1");
+	}
+
+	@Test
+	public void test_contents_are_reloaded_from_disk() throws Exception {
+		GIVEN.a_cache(1000, 60);
+		  AND.box_has_file("1", "etag1", "kept on disk");
+		  AND.reading_contents("1");
+		WHEN.a_cache(1000, 60);
+		  AND.reading_contents("1");
+		THEN.contents_are("kept on disk");
+		  AND.downloads_are(1);
+		  AND.hits_and_misses_are(1, 0);
+	}
+
+	@Test
+	public void test_range_is_served_from_cache() throws Exception {
+		GIVEN.a_cache(1000, 60);
+		  AND.box_has_file("1", "etag1", "0123456789");
+		  AND.reading_contents("1");
+		WHEN.reading_range("1", 2, 4);
+		THEN.contents_are("2345");
+		  AND.downloads_are(1);
+	}
+
+	@Test
+	public void test_falls_back_to_box_when_file_info_unavailable() throws Exception {
+		GIVEN.a_cache(1000, 60);
+		when(client.getContent("1")).thenReturn(null);
+		WHEN.reading_contents("1");
+		THEN.contents_are(null);
+		  AND.hits_and_misses_are(0, 0);
+		verify(client).getContent("1");
+	}
+
+	@Test
+	public void test_metadata_is_cached() throws Exception {
+		GIVEN.a_cache(1000, 60);
+		BoxMetadataResponse metadata = new BoxMetadataResponse();
+		metadata.setEntries(new ArrayList<Entry>());
+		metadata.getEntries().add(new Entry("myfirstclass", "what is your name?", "properties", "global"));
+		when(client.getMetadata("1")).thenReturn(metadata);
+		WHEN.reading_metadata("1");
+		assertSame(metadata, service.getMetadata("1"));
+		THEN.metadata_hits_and_misses_are(1, 1);
+		  AND.hits_and_misses_are(0, 0);
+		verify(client, times(1)).getMetadata("1");
+	}
+
+	private void a_cache(long maxBytes, long revalidateAfterSeconds) throws Exception {
+		cache = new BoxContentCache(directory, maxBytes, revalidateAfterSeconds, TimeUnit.SECONDS);
+		service = new CachingBoxService(client, cache);
+	}
+
+	private void box_has_file(String id, String etag, String contents) {
+		files.put(id, new String[] { etag, contents });
+	}
+
+	private void reading_contents(String id) {
+		contents = service.getFileContents(id);
+	}
+
+	private void reading_range(String id, long offset, long length) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(length, service.writeFileContents(id, offset, length, Channels.newChannel(out)));
+		contents = new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private void reading_metadata(String id) {
+		service.getMetadata(id);
+	}
+
+	private void contents_are(String expected) {
+		if(expected == null) {
+			assertNull(contents);
+		} else {
+			assertEquals(expected, contents);
+		}
+	}
+
+	private void file_info_requests_are(int expected) {
+		verify(client, times(expected)).getFileInfo(anyString(), anyString());
+	}
+
+	private void downloads_are(int expected) {
+		verify(client, times(expected)).download(anyString(), any(File.class));
+	}
+
+	private void hits_and_misses_are(long hits, long misses) {
+		assertEquals(hits, cache.getHitCount());
+		assertEquals(misses, cache.getMissCount());
+	}
+
+	private void metadata_hits_and_misses_are(long hits, long misses) {
+		assertEquals(hits, cache.getMetadataHitCount());
+		assertEquals(misses, cache.getMetadataMissCount());
+	}
+
+	private void bytes_saved_are(long expected) {
+		assertEquals(expected, cache.getBytesSaved());
+	}
+
+	private void revalidations_are(long revalidations, long notModified) {
+		assertEquals(revalidations, cache.getRevalidationCount());
+		assertEquals(notModified, cache.getNotModifiedCount());
+	}
+
+	private void cached_contents_are(long count, long bytes) {
+		assertEquals(count, cache.getContentCount());
+		assertEquals(bytes, cache.getContentBytes());
+	}
+
+	private void files_on_disk_are(int expected) {
+		assertEquals(expected, directory.listFiles().length);
+	}
+}
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -28,6 +29,7 @@ import static org.mockito.Mockito.when;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.http.Header;
 import org.apache.http.HeaderElement;
@@ -40,7 +42,9 @@ import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.mockito.ArgumentCaptor;
@@ -67,11 +71,14 @@ public class BaseNLClassifierTest {
 	.create();
 
 	@Mock protected CloseableHttpClient httpClient;
+	@Mock protected CloseableHttpAsyncClient httpAsyncClient;
 	@Mock protected HttpEntity httpEntity;
 	@Mock protected HttpResponse httpResponse;
 
 	protected NLClassifierRestClient restClient;	
 	protected String entityContent;
+	protected final AtomicInteger asyncInFlight = new AtomicInteger();
+	protected final AtomicInteger maxAsyncInFlight = new AtomicInteger();
 	
 	protected void classifier_status_is(String id, String url, String status, String desc) throws Exception {
 		// Can't use NLClassifierStatusResponse since we wouldn't be testing our status string => Status ENUM deserialization
@@ -128,8 +135,14 @@ public class BaseNLClassifierTest {
 		http_response_returns(200);
 	}
 
-	protected void http_entity_content_is(String content) throws Exception {
-		when(httpEntity.getContent()).thenReturn(new ByteArrayInputStream(content.getBytes()));
+	protected void http_entity_content_is(final String content) throws Exception {
+		// Hand out a fresh stream each time so the same response can be consumed by several requests
+		when(httpEntity.getContent()).thenAnswer(new Answer<InputStream>() {
+			@Override
+			public InputStream answer(InvocationOnMock invocation) throws Throwable {
+				return new ByteArrayInputStream(content.getBytes());
+			}
+		});
 		when(httpEntity.getContentLength()).thenReturn((long) content.length());
 		add_json_content_type_header_to_http_entity();
 		http_response_returns(200);
@@ -159,6 +172,58 @@ public class BaseNLClassifierTest {
 		verify(httpClient, times(1)).execute(uriCap.capture(), respCap.capture(), cxtCap.capture());
 	}
 
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	protected void verify_http_async_client_execute_invoked(String method, String urlSuffix) throws Exception {
+		ArgumentCaptor<HttpUriRequest> uriCap = ArgumentCaptor.forClass(HttpUriRequest.class);
+		ArgumentCaptor<FutureCallback> callbackCap = ArgumentCaptor.forClass(FutureCallback.class);
+
+		verify(httpAsyncClient, times(1)).execute(uriCap.capture(), any(HttpContext.class), callbackCap.capture());
+
+		assertNotNull(uriCap.getValue());
+		assertEquals(method.toUpperCase(), uriCap.getValue().getMethod());
+		assertEquals(DEFAULT_URL + "/v1/classifiers" + urlSuffix, uriCap.getValue().getURI().toString());
+		assertNotNull(callbackCap.getValue());
+	}
+
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	protected void http_async_client_fails_with(final Exception exc) {
+		doAnswer(new Answer<Object>() {
+					@Override
+					public Object answer(InvocationOnMock invocation) throws Throwable {
+						((FutureCallback) invocation.getArguments()[2]).failed(exc);
+						return null;
+					}
+				}).when(httpAsyncClient).execute(any(HttpUriRequest.class), any(HttpContext.class), any(FutureCallback.class));
+	}
+
+	/**
+	 * Complete every async request on its own thread after a short delay, counting how many are in flight at once
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	protected void http_async_client_completes_later() {
+		doAnswer(new Answer<Object>() {
+					@Override
+					public Object answer(InvocationOnMock invocation) throws Throwable {
+						final FutureCallback callback = (FutureCallback) invocation.getArguments()[2];
+						int current = asyncInFlight.incrementAndGet();
+						for(int max = maxAsyncInFlight.get(); current > max && !maxAsyncInFlight.compareAndSet(max, current); max = maxAsyncInFlight.get());
+						new Thread(new Runnable() {
+							@Override
+							public void run() {
+								try {
+									Thread.sleep(20);
+								} catch(InterruptedException e) {
+									Thread.currentThread().interrupt();
+								}
+								asyncInFlight.decrementAndGet();
+								callback.completed(httpResponse);
+							}
+						}).start();
+						return null;
+					}
+				}).when(httpAsyncClient).execute(any(HttpUriRequest.class), any(HttpContext.class), any(FutureCallback.class));
+	}
+
 	@SuppressWarnings({"rawtypes", "unchecked"})
 	protected void mock_rest_client_is_created() throws Exception {
 		when(httpClient.execute(any(HttpUriRequest.class), any(ResponseHandler.class), any(HttpContext.class))).thenAnswer(
@@ -169,6 +234,15 @@ public class BaseNLClassifierTest {
 					}
 				});
 
-		restClient = new NLClassifierRestClient(DEFAULT_URL, httpClient);
+		when(httpAsyncClient.execute(any(HttpUriRequest.class), any(HttpContext.class), any(FutureCallback.class))).thenAnswer(
+				new Answer<Object>() {
+					@Override
+					public Object answer(InvocationOnMock invocation) throws Throwable {
+						((FutureCallback) invocation.getArguments()[2]).completed(httpResponse);
+						return null;
+					}
+				});
+
+		restClient = new NLClassifierRestClient(DEFAULT_URL, httpClient, httpAsyncClient);
 	}
 }
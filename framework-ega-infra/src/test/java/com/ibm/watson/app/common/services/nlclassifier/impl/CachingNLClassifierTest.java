@@ -0,0 +1,311 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier;
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier.Status;
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifierService;
+import com.ibm.watson.app.common.services.nlclassifier.impl.NLClassifierResultCache.EvictionPolicy;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse.NLClassifiedClass;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierBatchResult;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierStatusResponse;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingNLClassifierTest {
+	@SuppressWarnings("unused")
+	private final CachingNLClassifierTest GIVEN = this, WHEN = this, THEN = this, WITH = this, AND = this;
+	
+	@Mock private NLClassifier delegate;
+	
+	private NLClassifierResultCache cache;
+	private CachingNLClassifier classifier;
+	private NLClassiferClassifyResponse response;
+	private List<NLClassifierBatchResult> batchResults;
+	
+	@Before
+	public void setup() {
+		when(delegate.getId()).thenReturn("testId12345");
+	}
+	
+	@Test
+	public void test_repeated_text_is_served_from_cache() {
+		GIVEN.cache_is_created(100);
+			AND.delegate_classifies_as("class1");
+		WHEN.classify_is_invoked("How do I reset my password?");
+			AND.classify_is_invoked("  How do I   reset my password? ");
+		THEN.verify_delegate_classify_invoked_times(1);
+			AND.verify_response_top_class_is("class1");
+			AND.verify_cache_counts_are(1, 1);
+	}
+	
+	@Test
+	public void test_case_is_not_folded_by_default() {
+		GIVEN.cache_is_created(100);
+			AND.delegate_classifies_as("class1");
+		WHEN.classify_is_invoked("Is this available in the US?");
+			AND.classify_is_invoked("is this available in the us?");
+		THEN.verify_delegate_classify_invoked_times(2);
+	}
+	
+	@Test
+	public void test_case_folding_is_opt_in() {
+		GIVEN.cache_is_created(100);
+			AND.delegate_classifies_as("class1");
+		cache.setNormalizer(TextNormalizers.DEFAULT);
+		WHEN.classify_is_invoked("Is this available in the US?");
+			AND.classify_is_invoked("is this available in the us?");
+		THEN.verify_delegate_classify_invoked_times(1);
+	}
+	
+	@Test
+	public void test_empty_response_is_not_cached() {
+		GIVEN.cache_is_created(100);
+			AND.delegate_classifies_as(null);
+		WHEN.classify_is_invoked("some text");
+			AND.classify_is_invoked("some text");
+		THEN.verify_delegate_classify_invoked_times(2);
+	}
+	
+	@Test
+	public void test_max_size_evicts_entries() {
+		GIVEN.cache_is_created(1);
+			AND.delegate_classifies_as("class1");
+		WHEN.classify_is_invoked("first text");
+			AND.classify_is_invoked("second text");
+		THEN.verify_cache_size_is(1);
+			AND.verify_eviction_count_is(1);
+	}
+	
+	@Test
+	public void test_retrained_classifier_invalidates_cache() {
+		GIVEN.cache_is_created(100);
+			AND.delegate_classifies_as("class1");
+			AND.delegate_status_is(Status.AVAILABLE);
+			AND.get_status_is_invoked();
+			AND.classify_is_invoked("some text");
+		WHEN.delegate_status_is(Status.TRAINING);
+			AND.get_status_is_invoked();
+			AND.classify_is_invoked("some text");
+		THEN.verify_delegate_classify_invoked_times(2);
+	}
+	
+	@Test
+	public void test_available_status_keeps_cache() {
+		GIVEN.cache_is_created(100);
+			AND.delegate_classifies_as("class1");
+			AND.delegate_status_is(Status.AVAILABLE);
+			AND.classify_is_invoked("some text");
+		WHEN.get_status_is_invoked();
+			AND.get_status_is_invoked();
+			AND.classify_is_invoked("some text");
+		THEN.verify_delegate_classify_invoked_times(1);
+	}
+	
+	@Test
+	public void test_deleted_classifier_invalidates_cache() {
+		GIVEN.cache_is_created(100);
+			AND.delegate_classifies_as("class1");
+			AND.classify_is_invoked("some text");
+			AND.delegate_delete_returns(true);
+		WHEN.delete_is_invoked();
+		THEN.verify_cache_size_is(0);
+	}
+	
+	@Test
+	public void test_classify_all_only_sends_misses() {
+		GIVEN.cache_is_created(100);
+			AND.delegate_classifies_as("class1");
+			AND.classify_is_invoked("second text");
+		WHEN.classify_all_is_invoked("first text", "second text", "third text");
+		THEN.verify_batch_results_texts_are("first text", "second text", "third text");
+			AND.verify_delegate_classify_all_invoked_with("first text", "third text");
+	}
+	
+	@Test
+	public void test_tracked_status_change_invalidates_cache() {
+		GIVEN.cache_is_created(100);
+			AND.delegate_classifies_as("class1");
+			AND.classify_is_invoked("some text");
+		WHEN.tracker_reports_status(Status.TRAINING);
+			AND.classify_is_invoked("some text");
+		THEN.verify_delegate_classify_invoked_times(2);
+	}
+	
+	@Test
+	public void test_tracked_deletion_invalidates_cache() {
+		GIVEN.cache_is_created(100);
+			AND.delegate_classifies_as("class1");
+			AND.classify_is_invoked("some text");
+		WHEN.tracker_reports_status(Status.NON_EXISTENT);
+		THEN.verify_cache_size_is(0);
+	}
+	
+	@Test
+	public void test_service_subscribes_cache_once_per_classifier() {
+		NLClassifierStatusTracker tracker = mock(NLClassifierStatusTracker.class);
+		NLClassifierRestClient restClient = mock(NLClassifierRestClient.class);
+		when(restClient.getStatusTracker()).thenReturn(tracker);
+		NLClassifierImpl impl = new NLClassifierImpl("testId12345");
+		impl.setRestClient(restClient);
+		NLClassifierService service = mock(NLClassifierService.class);
+		when(service.getClassifiers()).thenReturn(Collections.<NLClassifier>singletonList(impl));
+		
+		GIVEN.cache_is_created(100);
+		new CachingNLClassifier(impl, cache);
+		verify(tracker, never()).subscribe("testId12345", cache);
+		
+		CachingNLClassifierService cachingService = new CachingNLClassifierService(service, cache);
+		cachingService.getClassifiers();
+		cachingService.getClassifiers();
+		verify(tracker, times(1)).subscribe("testId12345", cache);
+		
+		cachingService.shutdown();
+		verify(tracker).unsubscribe("testId12345", cache);
+	}
+	
+	@Test
+	public void test_cached_responses_are_copies() {
+		GIVEN.cache_is_created(100);
+			AND.delegate_classifies_as("class1");
+			AND.classify_is_invoked("some text");
+		WHEN.response_is_changed();
+			AND.classify_is_invoked("some text");
+		THEN.verify_response_top_class_is("class1");
+		assertEquals(0.9, response.getClasses().get(0).getConfidence(), 0.0);
+		assertNotSame(response, classifier.classify("some text"));
+	}
+	
+	private void cache_is_created(long maxSize) {
+		cache = new NLClassifierResultCache(maxSize, 1, TimeUnit.HOURS, EvictionPolicy.LEAST_RECENTLY_USED);
+		classifier = new CachingNLClassifier(delegate, cache);
+	}
+	
+	private void delegate_classifies_as(String topClass) {
+		final NLClassiferClassifyResponse delegateResponse = new NLClassiferClassifyResponse();
+		delegateResponse.setTopClass(topClass);
+		delegateResponse.setClasses(topClass == null ? Collections.<NLClassifiedClass>emptyList() 
+				: Arrays.asList(new NLClassifiedClass(topClass, 0.9)));
+		when(delegate.classify(anyString())).thenReturn(delegateResponse);
+		when(delegate.classifyAll(anyCollectionOf(String.class))).thenAnswer(new Answer<List<NLClassifierBatchResult>>() {
+			@Override
+			public List<NLClassifierBatchResult> answer(InvocationOnMock invocation) throws Throwable {
+				@SuppressWarnings("unchecked")
+				Collection<String> texts = (Collection<String>) invocation.getArguments()[0];
+				List<NLClassifierBatchResult> results = new ArrayList<>();
+				for(String text : texts) {
+					results.add(NLClassifierBatchResult.success(text, delegateResponse));
+				}
+				return results;
+			}
+		});
+	}
+	
+	private void response_is_changed() {
+		response.setTopClass("changed");
+		response.getClasses().get(0).setConfidence(0.1);
+	}
+	
+	private void tracker_reports_status(Status status) {
+		NLClassifierStatusResponse statusResponse = new NLClassifierStatusResponse();
+		statusResponse.setClassifierId("testId12345");
+		statusResponse.setStatus(status);
+		cache.statusChanged("testId12345", statusResponse);
+	}
+	
+	private void delegate_status_is(Status status) {
+		when(delegate.getStatus()).thenReturn(status);
+	}
+	
+	private void delegate_delete_returns(boolean deleted) {
+		when(delegate.delete()).thenReturn(deleted);
+	}
+	
+	private void classify_is_invoked(String text) {
+		response = classifier.classify(text);
+	}
+	
+	private void classify_all_is_invoked(String... texts) {
+		batchResults = classifier.classifyAll(Arrays.asList(texts));
+	}
+	
+	private void get_status_is_invoked() {
+		classifier.getStatus();
+	}
+	
+	private void delete_is_invoked() {
+		assertTrue(classifier.delete());
+	}
+	
+	private void verify_delegate_classify_invoked_times(int count) {
+		verify(delegate, times(count)).classify(anyString());
+	}
+	
+	private void verify_delegate_classify_all_invoked_with(String... texts) {
+		verify(delegate).classifyAll(Arrays.asList(texts));
+	}
+	
+	private void verify_response_top_class_is(String topClass) {
+		assertEquals(topClass, response.getTopClass());
+	}
+	
+	private void verify_cache_counts_are(long hits, long misses) {
+		assertEquals(hits, cache.getHitCount());
+		assertEquals(misses, cache.getMissCount());
+	}
+	
+	private void verify_cache_size_is(long size) {
+		assertEquals(size, cache.size());
+	}
+	
+	private void verify_eviction_count_is(long count) {
+		assertEquals(count, cache.getEvictionCount());
+	}
+	
+	private void verify_batch_results_texts_are(String... texts) {
+		assertEquals(texts.length, batchResults.size());
+		for(int i = 0; i < texts.length; i++) {
+			assertEquals(texts[i], batchResults.get(i).getText());
+			assertTrue(batchResults.get(i).isSuccessful());
+		}
+	}
+}
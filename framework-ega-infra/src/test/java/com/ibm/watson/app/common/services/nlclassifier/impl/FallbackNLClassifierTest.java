@@ -0,0 +1,285 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier;
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifierService;
+import com.ibm.watson.app.common.services.nlclassifier.impl.FallbackNLClassifier.Mode;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse.NLClassifiedClass;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierBatchResult;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierTrainingData;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FallbackNLClassifierTest {
+	@SuppressWarnings("unused")
+	private final FallbackNLClassifierTest GIVEN = this, WHEN = this, THEN = this, WITH = this, AND = this;
+
+	private static final String ID = "testId12345";
+
+	@Mock private NLClassifier remote;
+	@Mock private NLClassifierService service;
+
+	private final NLClassifierTrainingData trainingData = new NLClassifierTrainingData();
+	private final NLClassiferClassifyResponse remoteResponse = new NLClassiferClassifyResponse();
+	private LocalNLClassifier local;
+	private FallbackNLClassifier classifier;
+	private NLClassiferClassifyResponse response;
+
+	@Before
+	public void setup() {
+		trainingData.addTrainingData("Is it hot outside?", "temperature");
+		trainingData.addTrainingData("Is it raining?", "conditions");
+		local = new LocalNLClassifier(ID, trainingData);
+		remoteResponse.setTopClass("remote");
+		remoteResponse.setClasses(Arrays.asList(new NLClassifiedClass("remote", 1.0)));
+		when(remote.getId()).thenReturn(ID);
+	}
+
+	@Test
+	public void test_fallback_uses_remote() {
+		GIVEN.classifier_in_mode(Mode.FALLBACK);
+		AND.remote_returns(remoteResponse);
+		WHEN.classifying("Is it raining?");
+		THEN.response_is_remote();
+	}
+
+	@Test
+	public void test_fallback_on_remote_failure() {
+		GIVEN.classifier_in_mode(Mode.FALLBACK);
+		AND.remote_fails();
+		WHEN.classifying("Is it raining?");
+		THEN.top_class_is("conditions");
+		AND.counts_are(1, 0);
+		assertEquals(1, classifier.getRoutingMetrics().getFallbackCount());
+	}
+
+	@Test
+	public void test_fallback_on_empty_remote_response() {
+		GIVEN.classifier_in_mode(Mode.FALLBACK);
+		NLClassiferClassifyResponse empty = new NLClassiferClassifyResponse();
+		empty.setClasses(Collections.<NLClassifiedClass>emptyList());
+		AND.remote_returns(empty);
+		WHEN.classifying("Is it hot outside?");
+		THEN.top_class_is("temperature");
+	}
+
+	@Test
+	public void test_first_pass_skips_remote_when_confident() {
+		GIVEN.classifier_in_mode(Mode.FIRST_PASS, 0);
+		WHEN.classifying("Is it raining?");
+		THEN.top_class_is("conditions");
+		verify(remote, never()).classify(anyString());
+		AND.counts_are(0, 1);
+	}
+
+	@Test
+	public void test_first_pass_asks_remote_when_unsure() {
+		GIVEN.classifier_in_mode(Mode.FIRST_PASS, 1.1);
+		AND.remote_returns(remoteResponse);
+		WHEN.classifying("Is it raining?");
+		THEN.response_is_remote();
+		AND.counts_are(1, 0);
+		AND.agreements_are(0, 1);
+	}
+
+	@Test
+	public void test_first_pass_tracks_agreement() {
+		GIVEN.classifier_in_mode(Mode.FIRST_PASS, 1.1);
+		NLClassiferClassifyResponse agreeing = new NLClassiferClassifyResponse();
+		agreeing.setTopClass("conditions");
+		agreeing.setClasses(Arrays.asList(new NLClassifiedClass("conditions", 0.9)));
+		AND.remote_returns(agreeing);
+		WHEN.classifying("Is it raining?");
+		AND.classifying("Is it hot outside?");
+		THEN.agreements_are(1, 1);
+		AND.agreement_rate_is(0.5);
+		assertEquals(1, classifier.getRoutingMetrics().getAgreementRateByConfidence().size());
+	}
+
+	@Test
+	public void test_first_pass_shadows_confident_answers() {
+		GIVEN.classifier_in_mode(Mode.FIRST_PASS, 0);
+		AND.every_confident_answer_is_shadowed();
+		AND.remote_returns(remoteResponse);
+		WHEN.classifying("Is it raining?");
+		THEN.top_class_is("conditions");
+		AND.counts_are(0, 1);
+		AND.agreements_are(0, 1);
+		assertEquals(1, classifier.getRoutingMetrics().getShadowCount());
+	}
+
+	@Test
+	public void test_classify_all_shadows_confident_answers_in_one_request() {
+		GIVEN.classifier_in_mode(Mode.FIRST_PASS, 0);
+		AND.every_confident_answer_is_shadowed();
+		NLClassiferClassifyResponse agreeing = new NLClassiferClassifyResponse();
+		agreeing.setTopClass("conditions");
+		agreeing.setClasses(Arrays.asList(new NLClassifiedClass("conditions", 0.9)));
+		when(remote.classifyAll(Arrays.asList("Is it raining?", "Is it hot outside?"))).thenReturn(Arrays.asList(
+				NLClassifierBatchResult.success("Is it raining?", agreeing),
+				NLClassifierBatchResult.failure("Is it hot outside?", new RuntimeException("test"))));
+		List<NLClassifierBatchResult> results = classifier.classifyAll(Arrays.asList("Is it raining?", "Is it hot outside?"));
+		assertEquals("temperature", results.get(1).getResponse().getTopClass());
+		AND.counts_are(0, 2);
+		AND.agreements_are(1, 0);
+		assertEquals(1, classifier.getRoutingMetrics().getShadowCount());
+	}
+
+	@Test
+	public void test_local_only_never_shadows() {
+		GIVEN.classifier_in_mode(Mode.LOCAL_ONLY);
+		AND.every_confident_answer_is_shadowed();
+		WHEN.classifying("Is it raining?");
+		THEN.top_class_is("conditions");
+		verify(remote, never()).classify(anyString());
+	}
+
+	@Test
+	public void test_threshold_changes_routing() {
+		GIVEN.classifier_in_mode(Mode.FIRST_PASS, 1.1);
+		AND.remote_returns(remoteResponse);
+		WHEN.classifying("Is it raining?");
+		THEN.response_is_remote();
+		WHEN.classifier.getRoutingMetrics().setThreshold(0);
+		AND.classifying("Is it raining?");
+		THEN.top_class_is("conditions");
+		AND.counts_are(1, 1);
+		assertEquals(0.5, classifier.getRoutingMetrics().getLocalRate(), 0);
+	}
+
+	@Test
+	public void test_classify_all_replaces_failures() {
+		GIVEN.classifier_in_mode(Mode.FALLBACK);
+		when(remote.classifyAll(Arrays.asList("Is it raining?", "Is it hot outside?"))).thenReturn(Arrays.asList(
+				NLClassifierBatchResult.failure("Is it raining?", new RuntimeException("test")),
+				NLClassifierBatchResult.success("Is it hot outside?", remoteResponse)));
+		List<NLClassifierBatchResult> results = classifier.classifyAll(Arrays.asList("Is it raining?", "Is it hot outside?"));
+		assertTrue(results.get(0).isSuccessful());
+		assertEquals("conditions", results.get(0).getResponse().getTopClass());
+		assertSame(remoteResponse, results.get(1).getResponse());
+	}
+
+	@Test
+	public void test_service_wraps_and_falls_back() {
+		FallbackNLClassifierService fallbackService = new FallbackNLClassifierService(service);
+		when(service.createClassifier(trainingData)).thenReturn(remote);
+		NLClassifier created = fallbackService.createClassifier(trainingData);
+		assertTrue(created instanceof FallbackNLClassifier);
+		assertSame(remote, ((FallbackNLClassifier) created).getRemote());
+
+		when(service.getClassifier(ID)).thenReturn(null);
+		NLClassifier fallback = fallbackService.getClassifier(ID);
+		assertSame(fallbackService.getLocalClassifier(ID), ((FallbackNLClassifier) fallback).getLocal());
+		assertEquals(Mode.LOCAL_ONLY, ((FallbackNLClassifier) fallback).getMode());
+	}
+
+	@Test
+	public void test_local_only_service_wraps_local_classifier() {
+		FallbackNLClassifierService fallbackService = new FallbackNLClassifierService(service, Mode.LOCAL_ONLY, 0.5);
+		fallbackService.train(ID, trainingData);
+		NLClassifier classifier = fallbackService.getClassifier(ID);
+		assertTrue(classifier instanceof FallbackNLClassifier);
+		assertEquals(ID, classifier.getId());
+		assertEquals("temperature", classifier.classify("Is it hot outside?").getTopClass());
+		assertEquals(1, fallbackService.getRoutingMetrics().getLocalCount());
+		verify(service, never()).getClassifier(ID);
+	}
+
+	@Test
+	public void test_service_registers_metrics() throws Exception {
+		FallbackNLClassifierService fallbackService = new FallbackNLClassifierService(service, Mode.FIRST_PASS, 0.5);
+		when(service.getName()).thenReturn("test-service");
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		ObjectName name = fallbackService.registerMetrics(server);
+		assertEquals(0.5, (Double) server.getAttribute(name, "Threshold"), 0);
+		server.setAttribute(name, new Attribute("Threshold", 0.75));
+		assertEquals(0.75, fallbackService.getRoutingMetrics().getThreshold(), 0);
+	}
+
+	private void classifier_in_mode(Mode mode) {
+		classifier_in_mode(mode, FallbackNLClassifierService.DEFAULT_THRESHOLD);
+	}
+
+	private void classifier_in_mode(Mode mode, double threshold) {
+		classifier = new FallbackNLClassifier(remote, local, mode, threshold);
+		classifier.setShadowExecutor(MoreExecutors.directExecutor());
+		// No random shadow requests unless a test asks for them
+		classifier.getRoutingMetrics().setShadowRate(0);
+	}
+
+	private void every_confident_answer_is_shadowed() {
+		classifier.getRoutingMetrics().setShadowRate(1);
+	}
+
+	private void remote_returns(NLClassiferClassifyResponse response) {
+		when(remote.classify(anyString())).thenReturn(response);
+	}
+
+	private void remote_fails() {
+		when(remote.classify(anyString())).thenThrow(new RuntimeException("test"));
+	}
+
+	private void classifying(String text) {
+		response = classifier.classify(text);
+	}
+
+	private void response_is_remote() {
+		assertSame(remoteResponse, response);
+	}
+
+	private void top_class_is(String className) {
+		assertEquals(className, response.getTopClass());
+	}
+
+	private void counts_are(long remoteCount, long localCount) {
+		assertEquals(remoteCount, classifier.getRoutingMetrics().getRemoteCount());
+		assertEquals(localCount, classifier.getRoutingMetrics().getLocalCount());
+	}
+
+	private void agreements_are(long agreed, long disagreed) {
+		assertEquals(agreed, classifier.getRoutingMetrics().getAgreementCount());
+		assertEquals(disagreed, classifier.getRoutingMetrics().getDisagreementCount());
+	}
+
+	private void agreement_rate_is(double rate) {
+		assertEquals(rate, classifier.getRoutingMetrics().getAgreementRate(), 0);
+	}
+}
@@ -0,0 +1,134 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier.Status;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse.NLClassifiedClass;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierBatchResult;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierTrainingData;
+
+public class LocalNLClassifierTest {
+	@SuppressWarnings("unused")
+	private final LocalNLClassifierTest GIVEN = this, WHEN = this, THEN = this, WITH = this, AND = this;
+
+	private static final String ID = "testId12345";
+
+	private final NLClassifierTrainingData trainingData = new NLClassifierTrainingData();
+	private LocalNLClassifier classifier;
+	private NLClassiferClassifyResponse response;
+
+	@Before
+	public void setup() {
+		trainingData.addTrainingData("How hot is it today?", "temperature");
+		trainingData.addTrainingData("Is it hot outside?", "temperature");
+		trainingData.addTrainingData("What is the temperature outside?", "temperature");
+		trainingData.addTrainingData("Will it be cold tomorrow?", "temperature");
+		trainingData.addTrainingData("Is it raining?", "conditions");
+		trainingData.addTrainingData("Will it snow tomorrow?", "conditions");
+		trainingData.addTrainingData("Do I need an umbrella today?", "conditions");
+		trainingData.addTrainingData("Is it sunny outside?", "conditions");
+	}
+
+	@Test
+	public void test_classify_training_texts() {
+		GIVEN.classifier_is_trained();
+		WHEN.classifying("How hot is it today?");
+		THEN.top_class_is("temperature");
+		WHEN.classifying("Do I need an umbrella today?");
+		THEN.top_class_is("conditions");
+	}
+
+	@Test
+	public void test_classify_unseen_text() {
+		GIVEN.classifier_is_trained();
+		WHEN.classifying("what's the TEMPERATURE going to be");
+		THEN.top_class_is("temperature");
+		AND.confidences_are_sorted_and_add_up_to_one();
+		AND.response_has_id_and_text("what's the TEMPERATURE going to be");
+	}
+
+	@Test
+	public void test_classify_unknown_words_uses_priors() {
+		GIVEN.trainingData.addTrainingData("Is it foggy?", "conditions");
+		AND.classifier_is_trained();
+		WHEN.classifying("xyzzy");
+		THEN.top_class_is("conditions");
+		AND.confidences_are_sorted_and_add_up_to_one();
+	}
+
+	@Test
+	public void test_repeating_the_text_does_not_change_the_confidence() {
+		GIVEN.classifier_is_trained();
+		WHEN.classifying("Is it hot outside?");
+		double confidence = response.getClasses().get(0).getConfidence();
+		WHEN.classifying("Is it hot outside? Is it hot outside?");
+		THEN.top_class_is("temperature");
+		assertEquals(confidence, response.getClasses().get(0).getConfidence(), 1e-6);
+	}
+
+		@Test
+	public void test_classify_all() {
+		GIVEN.classifier_is_trained();
+		List<NLClassifierBatchResult> results = classifier.classifyAll(Arrays.asList("Is it raining?", "How hot is it?"));
+		assertEquals(2, results.size());
+		assertEquals("conditions", results.get(0).getResponse().getTopClass());
+		assertEquals("temperature", results.get(1).getResponse().getTopClass());
+		assertEquals(Status.AVAILABLE, classifier.getStatus());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_no_training_data() {
+		new LocalNLClassifier(ID, new NLClassifierTrainingData());
+	}
+
+	private void classifier_is_trained() {
+		classifier = new LocalNLClassifier(ID, trainingData);
+	}
+
+	private void classifying(String text) {
+		response = classifier.classify(text);
+	}
+
+	private void top_class_is(String className) {
+		assertEquals(className, response.getTopClass());
+		assertEquals(className, response.getClasses().get(0).getClassName());
+	}
+
+	private void confidences_are_sorted_and_add_up_to_one() {
+		double sum = 0, previous = 1;
+		for(NLClassifiedClass c : response.getClasses()) {
+			assertTrue(c.getConfidence() <= previous);
+			previous = c.getConfidence();
+			sum += c.getConfidence();
+		}
+		assertEquals(1, sum, 1e-9);
+	}
+
+	private void response_has_id_and_text(String text) {
+		assertEquals(ID, response.getClassifierId());
+		assertEquals(text, response.getText());
+	}
+}
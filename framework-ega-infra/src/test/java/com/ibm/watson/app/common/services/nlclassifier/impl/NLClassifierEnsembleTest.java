@@ -0,0 +1,207 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse.NLClassifiedClass;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NLClassifierEnsembleTest {
+	@SuppressWarnings("unused")
+	private final NLClassifierEnsembleTest GIVEN = this, WHEN = this, THEN = this, WITH = this, AND = this;
+
+	private static final String TEXT = "Is it raining?";
+
+	@Mock private NLClassifier english;
+	@Mock private NLClassifier spanish;
+	@Mock private NLClassifierImpl remote;
+
+	private final SettableFuture<NLClassiferClassifyResponse> remoteResponse = SettableFuture.create();
+	private NLClassifierEnsemble ensemble;
+	private NLClassiferClassifyResponse response;
+
+	@Before
+	public void setup() {
+		when(english.getId()).thenReturn("english");
+		when(spanish.getId()).thenReturn("spanish");
+		when(remote.getId()).thenReturn("remote");
+		when(remote.classifyAsync(TEXT)).thenReturn(remoteResponse);
+	}
+
+	@Test
+	public void test_max() {
+		GIVEN.ensemble_of(EnsembleStrategies.MAX);
+		AND.classifier_answers(english, 1, "conditions", 0.6, "temperature", 0.4);
+		AND.classifier_answers(spanish, 1, "temperature", 0.7, "conditions", 0.3);
+		WHEN.classifying();
+		THEN.classes_are("temperature", 0.7, "conditions", 0.6);
+		AND.text_is(TEXT);
+	}
+
+	@Test
+	public void test_weighted_average() {
+		GIVEN.ensemble_of(EnsembleStrategies.WEIGHTED_AVERAGE);
+		AND.classifier_answers(english, 3, "conditions", 0.8, "temperature", 0.2);
+		AND.classifier_answers(spanish, 1, "temperature", 1.0);
+		WHEN.classifying();
+		THEN.classes_are("conditions", 0.6, "temperature", 0.4);
+	}
+
+	@Test
+	public void test_failed_classifier_is_left_out() {
+		GIVEN.ensemble_of(EnsembleStrategies.WEIGHTED_AVERAGE);
+		AND.classifier_answers(english, 1, "conditions", 0.8, "temperature", 0.2);
+		AND.ensemble.add(spanish);
+		when(spanish.classify(TEXT)).thenThrow(new RuntimeException("test"));
+		WHEN.classifying();
+		THEN.classes_are("conditions", 0.8, "temperature", 0.2);
+	}
+
+	@Test
+	public void test_first_above_does_not_wait() {
+		GIVEN.ensemble_of(EnsembleStrategies.firstAbove(0.9));
+		AND.ensemble.add(remote);
+		AND.classifier_answers(english, 1, "conditions", 0.95, "temperature", 0.05);
+		ListenableFuture<NLClassiferClassifyResponse> future = ensemble.classifyAsync(TEXT);
+		assertTrue(future.isDone());
+		assertEquals("conditions", Futures.getUnchecked(future).getTopClass());
+		assertTrue("the outstanding request is cancelled", remoteResponse.isCancelled());
+	}
+
+	@Test
+	public void test_first_above_waits_when_unsure() throws Exception {
+		GIVEN.ensemble_of(EnsembleStrategies.firstAbove(0.9));
+		AND.ensemble.add(remote);
+		AND.classifier_answers(english, 1, "conditions", 0.6, "temperature", 0.4);
+		ListenableFuture<NLClassiferClassifyResponse> future = ensemble.classifyAsync(TEXT);
+		assertFalse(future.isDone());
+		NLClassiferClassifyResponse answer = response("temperature", 0.8, "conditions", 0.2);
+		remoteResponse.set(answer);
+		response = future.get();
+		THEN.classes_are("temperature", 0.8, "conditions", 0.2);
+			AND.text_is(TEXT);
+		assertNull("the answer of the classifier is left as it is", answer.getText());
+	}
+
+	@Test
+	public void test_deadline_is_kept_by_default_executor() {
+		GIVEN.ensemble_uses_default_executor(EnsembleStrategies.MAX);
+			AND.classifier_answers(english, 1, "conditions", 0.6, "temperature", 0.4);
+			AND.classifier_answers_slowly(spanish, 2000, "temperature", 0.9);
+		long start = System.nanoTime();
+		response = ensemble.classify(TEXT, 500, TimeUnit.MILLISECONDS);
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1500);
+		THEN.classes_are("conditions", 0.6, "temperature", 0.4);
+	}
+
+	@Test
+	public void test_deadline_merges_answers_so_far() {
+		GIVEN.ensemble_of(EnsembleStrategies.MAX);
+		AND.ensemble.add(remote);
+		AND.classifier_answers(english, 1, "conditions", 0.6, "temperature", 0.4);
+		response = ensemble.classify(TEXT, 10, TimeUnit.MILLISECONDS);
+		THEN.classes_are("conditions", 0.6, "temperature", 0.4);
+	}
+
+	@Test
+	public void test_deadline_without_answers() {
+		GIVEN.ensemble_of(EnsembleStrategies.MAX);
+		AND.ensemble.add(remote);
+		response = ensemble.classify(TEXT, 10, TimeUnit.MILLISECONDS);
+		THEN.classes_are();
+		AND.text_is(TEXT);
+	}
+
+	private void ensemble_of(EnsembleStrategy strategy) {
+		ensemble = new NLClassifierEnsemble(strategy);
+		// Run the classifiers in turn on the calling thread, so the tests know when they have answered
+		ensemble.setExecutor(MoreExecutors.directExecutor());
+	}
+
+	private void ensemble_uses_default_executor(EnsembleStrategy strategy) {
+		ensemble = new NLClassifierEnsemble(strategy);
+	}
+
+	private void classifier_answers_slowly(NLClassifier classifier, final long millis, Object... classes) {
+		final NLClassiferClassifyResponse answer = response(classes);
+		when(classifier.classify(TEXT)).thenAnswer(new Answer<NLClassiferClassifyResponse>() {
+			@Override
+			public NLClassiferClassifyResponse answer(InvocationOnMock invocation) throws Throwable {
+				Thread.sleep(millis);
+				return answer;
+			}
+		});
+		ensemble.add(classifier);
+	}
+
+	private void classifier_answers(NLClassifier classifier, double weight, Object... classes) {
+		when(classifier.classify(TEXT)).thenReturn(response(classes));
+		ensemble.add(classifier, weight);
+	}
+
+	private void classifying() {
+		response = ensemble.classify(TEXT);
+	}
+
+	private void classes_are(Object... expected) {
+		List<Object> actual = new ArrayList<>();
+		for(NLClassifiedClass c : response.getClasses()) {
+			actual.add(c.getClassName());
+			actual.add(Math.round(c.getConfidence() * 1000) / 1000.0);
+		}
+		assertEquals(Arrays.asList(expected), actual);
+		assertEquals(expected.length == 0 ? null : expected[0], response.getTopClass());
+	}
+
+	private void text_is(String text) {
+		assertEquals(text, response.getText());
+	}
+
+	private static NLClassiferClassifyResponse response(Object... classes) {
+		List<NLClassifiedClass> list = new ArrayList<>();
+		for(int i = 0; i < classes.length; i += 2) {
+			list.add(new NLClassifiedClass((String) classes[i], (Double) classes[i + 1]));
+		}
+		NLClassiferClassifyResponse response = new NLClassiferClassifyResponse();
+		response.setTopClass(list.get(0).getClassName());
+		response.setClasses(list);
+		return response;
+	}
+}
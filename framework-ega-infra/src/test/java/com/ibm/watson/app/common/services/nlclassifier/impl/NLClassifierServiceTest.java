@@ -18,16 +18,36 @@ package com.ibm.watson.app.common.services.nlclassifier.impl;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.junit.Ignore;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.protocol.HttpContext;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.junit.After;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import com.google.gson.JsonObject;
@@ -44,7 +64,13 @@ public class NLClassifierServiceTest extends BaseNLClassifierTest {
 	@SuppressWarnings("unused")
 	private final NLClassifierServiceTest GIVEN = this, WHEN = this, THEN = this, WITH = this, AND = this;
 
+	private static final String TRACED_LOGGER = "com.ibm.watson.app.common.util.rest.SimpleRestClient";
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
 	private NLClassifierService service;
+	private File trainingFile;
 
 	private List<NLClassifier> classifiers;
 	private NLClassifierTrainingData trainingData;
@@ -230,9 +256,6 @@ public class NLClassifierServiceTest extends BaseNLClassifierTest {
 			AND.verify_http_client_execute_invoked("get", null, "/nl12345");
 	}
 	
-	// Ignoring all of the test_train until we implement a new version of the create/train call
-	// the create/train methods are not currently used in the app
-	@Ignore
 	@Test
 	public void test_train_classifier() throws Exception {
 		GIVEN.training_data_is_created();
@@ -243,10 +266,20 @@ public class NLClassifierServiceTest extends BaseNLClassifierTest {
 		WHEN.create_classifier_is_invoked();
 		THEN.verify_classifier_is_not_null();
 			AND.verify_classifier_id_is("nlc1234-23");
-			AND.verify_http_client_execute_invoked("post", "application/json; charset=UTF-8", "");
+			AND.verify_training_data_uploaded();
+	}
+	
+	@Test
+	public void test_train_classifier_from_csv_file_with_trace_logging() throws Exception {
+		GIVEN.csv_training_file_is_created("text1,class1\r\n");
+			AND.classifier_status_is("nlc1234-23", "some_url", "training", "the classifier is training");
+			AND.request_bodies_are_traced();
+		GIVEN.mock_rest_client_is_created();
+		WHEN.create_classifier_from_file_is_invoked();
+		THEN.verify_classifier_is_not_null();
+			AND.verify_classifier_id_is("nlc1234-23");
 	}
 	
-	@Ignore
 	@Test
 	public void test_train_classifier_multiple_training_instances() throws Exception {
 		GIVEN.training_data_is_created();
@@ -258,10 +291,9 @@ public class NLClassifierServiceTest extends BaseNLClassifierTest {
 		WHEN.create_classifier_is_invoked();
 		THEN.verify_classifier_is_not_null();
 			AND.verify_classifier_id_is("nlc1234-23");
-			AND.verify_http_client_execute_invoked("post", "application/json; charset=UTF-8", "");
+			AND.verify_training_data_uploaded();
 	}
 	
-	@Ignore
 	@Test
 	public void test_train_classifier_gets_500() throws Exception {
 		GIVEN.training_data_is_created();
@@ -272,10 +304,9 @@ public class NLClassifierServiceTest extends BaseNLClassifierTest {
 			AND.http_response_returns(500);
 		WHEN.create_classifier_is_invoked();
 		THEN.verify_classifier_is_null();
-			AND.verify_http_client_execute_invoked("post", "application/json; charset=UTF-8", "");
+			AND.verify_training_data_uploaded();
 	}
 	
-	@Ignore
 	@Test
 	public void test_train_classifier_response_causes_io_exception() throws Exception {
 		GIVEN.training_data_is_created();
@@ -286,10 +317,9 @@ public class NLClassifierServiceTest extends BaseNLClassifierTest {
 			AND.http_entity_input_stream_throws(new IOException("Can't read"));
 		WHEN.create_classifier_is_invoked();
 		THEN.verify_classifier_is_null();
-			AND.verify_http_client_execute_invoked("post", "application/json; charset=UTF-8", "");
+			AND.verify_training_data_uploaded();
 	}
 	
-	@Ignore
 	@Test
 	public void test_train_classifier_response_causes_npe() throws Exception {
 		GIVEN.training_data_is_created();
@@ -300,10 +330,9 @@ public class NLClassifierServiceTest extends BaseNLClassifierTest {
 			AND.http_entity_input_stream_throws(new NullPointerException("Can't read"));
 		WHEN.create_classifier_is_invoked();
 		THEN.verify_classifier_is_null();
-			AND.verify_http_client_execute_invoked("post", "application/json; charset=UTF-8", "");
+			AND.verify_training_data_uploaded();
 	}
 	
-	@Ignore
 	@Test
 	public void test_train_classifier_response_is_not_json() throws Exception {
 		GIVEN.training_data_is_created();
@@ -314,10 +343,9 @@ public class NLClassifierServiceTest extends BaseNLClassifierTest {
 			AND.http_entity_content_is("this is not json");
 		WHEN.create_classifier_is_invoked();
 		THEN.verify_classifier_is_null();
-			AND.verify_http_client_execute_invoked("post", "application/json; charset=UTF-8", "");
+			AND.verify_training_data_uploaded();
 	}
 	
-	@Ignore
 	@Test
 	public void test_train_classifier_response_is_valid_json_but_invalid_schema() throws Exception {
 		GIVEN.training_data_is_created();
@@ -328,7 +356,29 @@ public class NLClassifierServiceTest extends BaseNLClassifierTest {
 			AND.http_entity_content_is("{\"classifier\":\"wrong schema\"}");
 		WHEN.create_classifier_is_invoked();
 		THEN.verify_classifier_is_null();
-			AND.verify_http_client_execute_invoked("post", "application/json; charset=UTF-8", "");
+			AND.verify_training_data_uploaded();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void verify_training_data_uploaded() throws Exception {
+		ArgumentCaptor<HttpUriRequest> uriCap = ArgumentCaptor.forClass(HttpUriRequest.class);
+		verify(httpClient, times(1)).execute(uriCap.capture(), any(ResponseHandler.class), any(HttpContext.class));
+		assertEquals("http://www.example.com/v1/classifiers", uriCap.getValue().getURI().toString());
+		
+		HttpEntity entity = ((HttpPost) uriCap.getValue()).getEntity();
+		assertTrue(entity.getContentType().getValue().startsWith("multipart/form-data; boundary="));
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		entity.writeTo(body);
+		String content = new String(body.toByteArray(), StandardCharsets.UTF_8);
+		assertTrue(content.contains("name=\"training_metadata\"\r\nContent-Type: application/json; charset=UTF-8\r\n\r\n{\"language\":\"en\"}\r\n"));
+		assertTrue(content.contains("name=\"training_data\"; filename=\"training.csv\""));
+		for(TrainingInstance instance : trainingData.getTrainingData()) {
+			StringBuilder line = new StringBuilder(instance.getText());
+			for(String className : instance.getClasses()) {
+				line.append(',').append(className);
+			}
+			assertTrue(content.contains(line.append("\r\n")));
+		}
 	}
 
 	private void verify_classifier_id_is(String id) {
@@ -401,6 +451,31 @@ public class NLClassifierServiceTest extends BaseNLClassifierTest {
 		classifiers = service.getClassifiers();
 	}
 	
+	@After
+	public void stop_tracing() {
+		LoggerContext context = (LoggerContext) LogManager.getContext(false);
+		if(context.getConfiguration().getLoggers().containsKey(TRACED_LOGGER)) {
+			context.getConfiguration().removeLogger(TRACED_LOGGER);
+			context.updateLoggers();
+		}
+	}
+	
+	private void csv_training_file_is_created(String csv) throws IOException {
+		trainingFile = folder.newFile("training.csv");
+		Files.write(trainingFile.toPath(), csv.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private void create_classifier_from_file_is_invoked() {
+		classifier = restClient.createClassifier(trainingFile, null, null, null);
+	}
+	
+	private void request_bodies_are_traced() {
+		LoggerContext context = (LoggerContext) LogManager.getContext(false);
+		context.getConfiguration().addLogger(TRACED_LOGGER, new LoggerConfig(TRACED_LOGGER, Level.TRACE, false));
+		context.updateLoggers();
+		assertTrue(LogManager.getLogger(TRACED_LOGGER).isTraceEnabled());
+	}
+	
 	private void classifier_service_is_created() {
 		service = new NLClassifierServiceImpl(restClient);
 	}
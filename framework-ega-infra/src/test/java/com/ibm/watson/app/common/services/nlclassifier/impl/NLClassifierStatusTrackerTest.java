@@ -0,0 +1,259 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.base.Ticker;
+import com.ibm.watson.app.common.services.nlclassifier.NLClassifier.Status;
+import com.ibm.watson.app.common.services.nlclassifier.impl.NLClassifierStatusTracker.StatusListener;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierStatusResponse;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NLClassifierStatusTrackerTest {
+	@SuppressWarnings("unused")
+	private final NLClassifierStatusTrackerTest GIVEN = this, WHEN = this, THEN = this, WITH = this, AND = this;
+	
+	private static final String ID = "testId12345";
+	
+	@Mock private NLClassifierRestClient client;
+	
+	private final FakeTicker ticker = new FakeTicker();
+	private NLClassifierStatusTracker tracker;
+	private Status status;
+	
+	@Before
+	public void setup() {
+		tracker = new NLClassifierStatusTracker(client, ticker);
+		tracker.setFreshness(5, TimeUnit.SECONDS);
+	}
+	
+	@After
+	public void teardown() {
+		tracker.shutdown();
+	}
+	
+	@Test
+	public void test_fresh_status_is_not_fetched_again() {
+		GIVEN.service_status_is(Status.TRAINING);
+		WHEN.get_status_is_invoked();
+			AND.time_passes(4);
+			AND.get_status_is_invoked();
+		THEN.verify_status_is(Status.TRAINING);
+			AND.verify_service_called_times(1);
+	}
+	
+	@Test
+	public void test_stale_status_is_fetched_again() {
+		GIVEN.service_status_is(Status.TRAINING);
+		WHEN.get_status_is_invoked();
+			AND.service_status_is(Status.AVAILABLE);
+			AND.time_passes(6);
+			AND.get_status_is_invoked();
+		THEN.verify_status_is(Status.AVAILABLE);
+			AND.verify_service_called_times(2);
+	}
+	
+	@Test
+	public void test_unknown_status_is_not_cached() {
+		GIVEN.service_status_is(Status.UNKNOWN);
+		WHEN.get_status_is_invoked();
+			AND.get_status_is_invoked();
+		THEN.verify_status_is(Status.UNKNOWN);
+			AND.verify_service_called_times(2);
+	}
+	
+	@Test
+	public void test_invalidate_forces_fetch() {
+		GIVEN.service_status_is(Status.AVAILABLE);
+		WHEN.get_status_is_invoked();
+			AND.status_is_invalidated();
+			AND.get_status_is_invoked();
+		THEN.verify_service_called_times(2);
+	}
+	
+	@Test
+	public void test_concurrent_callers_share_one_request() throws Exception {
+		final CountDownLatch requestStarted = new CountDownLatch(1);
+		final CountDownLatch releaseRequest = new CountDownLatch(1);
+		when(client.getClassifierStatus(ID)).thenAnswer(new Answer<NLClassifierStatusResponse>() {
+			@Override
+			public NLClassifierStatusResponse answer(InvocationOnMock invocation) throws Throwable {
+				requestStarted.countDown();
+				releaseRequest.await(5, TimeUnit.SECONDS);
+				return status_response(Status.AVAILABLE);
+			}
+		});
+		
+		Thread first = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				tracker.getStatus(ID);
+			}
+		});
+		first.start();
+		assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+		
+		Thread second = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				tracker.refresh(ID);
+			}
+		});
+		second.start();
+		// Wait until the second caller is parked on the in-flight request
+		while(second.getState() != Thread.State.WAITING) {
+			Thread.sleep(5);
+		}
+		releaseRequest.countDown();
+		first.join(5000);
+		second.join(5000);
+		
+		verify_service_called_times(1);
+	}
+	
+	@Test
+	public void test_subscriber_notified_on_change() throws Exception {
+		final CountDownLatch available = new CountDownLatch(1);
+		GIVEN.service_status_is(Status.TRAINING);
+			AND.get_status_is_invoked();
+			AND.service_status_is(Status.AVAILABLE);
+			AND.poll_interval_is(10);
+		tracker.subscribe(ID, new StatusListener() {
+				@Override
+				public void statusChanged(String classifierId, NLClassifierStatusResponse status) {
+					if(status.getStatus() == Status.AVAILABLE) {
+						available.countDown();
+					}
+				}
+			});
+		assertTrue(available.await(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void test_non_existent_classifier_is_no_longer_polled() throws Exception {
+		final AtomicInteger requests = new AtomicInteger();
+		final CountDownLatch deleted = new CountDownLatch(1);
+		when(client.getClassifierStatus(ID)).thenAnswer(new Answer<NLClassifierStatusResponse>() {
+			@Override
+			public NLClassifierStatusResponse answer(InvocationOnMock invocation) throws Throwable {
+				requests.incrementAndGet();
+				return status_response(Status.NON_EXISTENT);
+			}
+		});
+		GIVEN.poll_interval_is(10);
+		tracker.subscribe(ID, new StatusListener() {
+				@Override
+				public void statusChanged(String classifierId, NLClassifierStatusResponse status) {
+					if(status.getStatus() == Status.NON_EXISTENT) {
+						deleted.countDown();
+					}
+				}
+			});
+		assertTrue(deleted.await(5, TimeUnit.SECONDS));
+		Thread.sleep(100);
+		assertEquals(1, requests.get());
+	}
+	
+	@Test
+	public void test_failing_listener_does_not_fail_caller() throws Exception {
+		final CountDownLatch notified = new CountDownLatch(1);
+		GIVEN.service_status_is(Status.TRAINING);
+			AND.get_status_is_invoked();
+			AND.poll_interval_is(TimeUnit.HOURS.toMillis(1));
+		tracker.subscribe(ID, new StatusListener() {
+				@Override
+				public void statusChanged(String classifierId, NLClassifierStatusResponse status) {
+					throw new IllegalStateException("listener failed");
+				}
+			});
+		tracker.subscribe(ID, new StatusListener() {
+				@Override
+				public void statusChanged(String classifierId, NLClassifierStatusResponse status) {
+					notified.countDown();
+				}
+			});
+		// Let the first background poll, which finds the status unchanged, complete
+		verify(client, timeout(5000).times(2)).getClassifierStatus(ID);
+		Thread.sleep(50);
+		
+		WHEN.service_status_is(Status.AVAILABLE);
+		assertEquals(Status.AVAILABLE, tracker.refresh(ID).getStatus());
+		assertEquals(0, notified.getCount());
+	}
+	
+	private void service_status_is(Status status) {
+		when(client.getClassifierStatus(ID)).thenReturn(status_response(status));
+	}
+	
+	private NLClassifierStatusResponse status_response(Status status) {
+		NLClassifierStatusResponse response = new NLClassifierStatusResponse();
+		response.setClassifierId(ID);
+		response.setStatus(status);
+		return response;
+	}
+	
+	private void status_is_invalidated() {
+		tracker.invalidate(ID);
+	}
+	
+	private void poll_interval_is(long millis) {
+		tracker.setPollInterval(millis, TimeUnit.MILLISECONDS);
+	}
+	
+	private void get_status_is_invoked() {
+		status = tracker.getStatus(ID).getStatus();
+	}
+	
+	private void time_passes(long seconds) {
+		ticker.nanos += TimeUnit.SECONDS.toNanos(seconds);
+	}
+	
+	private void verify_status_is(Status expected) {
+		assertEquals(expected, status);
+	}
+	
+	private void verify_service_called_times(int count) {
+		verify(client, times(count)).getClassifierStatus(ID);
+	}
+	
+	private static class FakeTicker extends Ticker {
+		private volatile long nanos;
+		
+		@Override
+		public long read() {
+			return nanos;
+		}
+	}
+}
@@ -19,11 +19,22 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.protocol.HttpContext;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -34,6 +45,7 @@ import com.google.gson.JsonParser;
 import com.ibm.watson.app.common.services.nlclassifier.NLClassifier.Status;
 import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
 import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse.NLClassifiedClass;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierBatchResult;
 
 @RunWith(MockitoJUnitRunner.class)
 public class NLClassifierTest extends BaseNLClassifierTest {
@@ -43,6 +55,7 @@ public class NLClassifierTest extends BaseNLClassifierTest {
 	private NLClassifierImpl classifier;
 	
 	private NLClassiferClassifyResponse expectedClassifyResponse, actualClassifyResponse;
+	private List<NLClassifierBatchResult> batchResults;
 	
 	private Status classifierStatus;
 	private boolean classifierDeleted;
@@ -167,6 +180,137 @@ public class NLClassifierTest extends BaseNLClassifierTest {
 			AND.verify_entity_content_is_classify_data();
 	}
 	
+	@Test
+	public void test_classify_async_multiple_classified_classes() throws Exception {
+		GIVEN.classifier_is_created();
+			AND.mock_rest_client_is_created();
+			AND.rest_client_is_set_in_classifier();
+		GIVEN.a_new_classify_response();
+			AND.a_class_is_added_to_the_classify_response("class1", 0.975);
+			AND.a_class_is_added_to_the_classify_response("class2", 0.875);
+			AND.response_handler_returns(expectedClassifyResponse);
+		WHEN.classifier_classify_async_is_invoked("Some text to classify");
+		THEN.verify_classified_items_is_not_null();
+			AND.verify_classified_items_size_is(2);
+			AND.verify_classified_items_item_is(0, "class1", 0.975);
+			AND.verify_classified_items_item_is(1, "class2", 0.875);
+			AND.verify_http_async_client_execute_invoked("post", "/testId12345/classify");
+	}
+	
+	@Test
+	public void test_classify_async_gets_bad_response() throws Exception {
+		GIVEN.classifier_is_created();
+			AND.mock_rest_client_is_created();
+			AND.rest_client_is_set_in_classifier();
+		GIVEN.a_new_classify_response();
+			AND.a_class_is_added_to_the_classify_response("class1", 0.975);
+			AND.response_handler_returns(expectedClassifyResponse);
+			AND.http_response_returns(503);
+		WHEN.classifier_classify_async_is_invoked("Some text to classify");
+		THEN.verify_classified_items_is_not_null();
+			AND.verify_classified_items_size_is(0);
+			AND.verify_http_async_client_execute_invoked("post", "/testId12345/classify");
+	}
+	
+	@Test
+	public void test_classify_async_request_fails() throws Exception {
+		GIVEN.classifier_is_created();
+			AND.mock_rest_client_is_created();
+			AND.rest_client_is_set_in_classifier();
+			AND.http_async_client_fails_with(new IOException("Connection reset"));
+		GIVEN.a_new_classify_response();
+		WHEN.classifier_classify_async_is_invoked("Some text to classify");
+		THEN.verify_classified_items_is_not_null();
+			AND.verify_classified_items_size_is(0);
+			AND.verify_http_async_client_execute_invoked("post", "/testId12345/classify");
+	}
+	
+	@Test
+	public void test_classify_all_keeps_input_order() throws Exception {
+		GIVEN.classifier_is_created();
+			AND.mock_rest_client_is_created();
+			AND.rest_client_is_set_in_classifier();
+		GIVEN.a_new_classify_response();
+			AND.a_class_is_added_to_the_classify_response("class1", 0.975);
+			AND.a_class_is_added_to_the_classify_response("class2", 0.875);
+			AND.response_handler_returns(expectedClassifyResponse);
+		WHEN.classifier_classify_all_is_invoked("first text", "second text", "third text");
+		THEN.verify_batch_results_texts_are("first text", "second text", "third text");
+			AND.verify_batch_results_successful_with_classes(2);
+			AND.verify_http_async_client_execute_invoked_times(3);
+	}
+	
+	@Test
+	public void test_classify_all_with_concurrency_of_one() throws Exception {
+		GIVEN.classifier_is_created();
+			AND.mock_rest_client_is_created();
+		GIVEN.a_new_classify_response();
+			AND.a_class_is_added_to_the_classify_response("class1", 0.975);
+			AND.response_handler_returns(expectedClassifyResponse);
+			AND.http_async_client_completes_later();
+		WHEN.rest_client_classify_all_is_invoked(1, "first text", "second text", "third text");
+		THEN.verify_batch_results_texts_are("first text", "second text", "third text");
+			AND.verify_batch_results_successful_with_classes(1);
+			AND.verify_http_async_client_execute_invoked_times(3);
+			AND.verify_max_requests_in_flight_is(1);
+	}
+	
+	@Test
+	public void test_classify_all_reports_invalid_json_per_item() throws Exception {
+		GIVEN.classifier_is_created();
+			AND.mock_rest_client_is_created();
+			AND.rest_client_is_set_in_classifier();
+			AND.http_entity_content_is("{\"classes\": [");
+		WHEN.classifier_classify_all_is_invoked("first text", "second text");
+		THEN.verify_batch_results_texts_are("first text", "second text");
+			AND.verify_batch_results_failed_with(ClientProtocolException.class);
+	}
+	
+	@Test
+	public void test_classify_all_reports_empty_json_per_item() throws Exception {
+		GIVEN.classifier_is_created();
+			AND.mock_rest_client_is_created();
+			AND.rest_client_is_set_in_classifier();
+			AND.http_entity_content_is("");
+		WHEN.classifier_classify_all_is_invoked("first text");
+		THEN.verify_batch_results_texts_are("first text");
+			AND.verify_batch_results_failed_with(ClientProtocolException.class);
+	}
+	
+	@Test
+	public void test_classify_all_reports_bad_response_per_item() throws Exception {
+		GIVEN.classifier_is_created();
+			AND.mock_rest_client_is_created();
+			AND.rest_client_is_set_in_classifier();
+		GIVEN.a_new_classify_response();
+			AND.response_handler_returns(expectedClassifyResponse);
+			AND.http_response_returns(503);
+		WHEN.classifier_classify_all_is_invoked("first text", "second text");
+		THEN.verify_batch_results_texts_are("first text", "second text");
+			AND.verify_batch_results_failed_with_status(503);
+	}
+	
+	@Test
+	public void test_classify_all_reports_client_error_per_item() throws Exception {
+		GIVEN.mock_rest_client_is_created();
+		doThrow(new IllegalStateException("The clients have been closed"))
+				.when(httpAsyncClient).execute(any(HttpUriRequest.class), any(HttpContext.class), any(FutureCallback.class));
+		WHEN.rest_client_classify_all_is_invoked(1, "first text", "second text", "third text");
+		THEN.verify_batch_results_texts_are("first text", "second text", "third text");
+			AND.verify_batch_results_failed_with(IllegalStateException.class);
+	}
+	
+	@Test
+	public void test_classify_all_request_fails() throws Exception {
+		GIVEN.classifier_is_created();
+			AND.mock_rest_client_is_created();
+			AND.rest_client_is_set_in_classifier();
+			AND.http_async_client_fails_with(new IOException("Connection reset"));
+		WHEN.classifier_classify_all_is_invoked("first text", "second text");
+		THEN.verify_batch_results_texts_are("first text", "second text");
+			AND.verify_batch_results_failed_with(IOException.class);
+	}
+	
 	@Test
 	public void test_get_status_training() throws Exception {
 		GIVEN.classifier_is_created();
@@ -252,6 +396,19 @@ public class NLClassifierTest extends BaseNLClassifierTest {
 			AND.verify_http_client_execute_invoked("get", null, "/testId12345");
 	}
 	
+	@Test
+	public void test_get_status_of_deleted_classifier_gets_404() throws Exception {
+		GIVEN.classifier_is_created();
+			AND.mock_rest_client_is_created();
+			AND.rest_client_is_set_in_classifier();
+			AND.http_entity_content_is("{\"code\":404,\"error\":\"Classifier not found\"}");
+			AND.http_response_returns(404);
+		WHEN.classifier_get_status_is_invoked();
+		THEN.verify_classifier_status_not_null();
+			AND.verify_classifier_state_is(Status.NON_EXISTENT);
+			AND.verify_http_client_execute_invoked("get", null, "/testId12345");
+	}
+	
 	@Test
 	public void test_get_status_valid_but_response_throws_npe() throws Exception {
 		GIVEN.classifier_is_created();
@@ -462,6 +619,59 @@ public class NLClassifierTest extends BaseNLClassifierTest {
 		actualClassifyResponse = classifier.classify(text);
 	}
 	
+	private void classifier_classify_async_is_invoked(String text) throws Exception {
+		expectedClassifyResponse.setText(text);
+		actualClassifyResponse = classifier.classifyAsync(text).get(5, TimeUnit.SECONDS);
+	}
+	
+	private void classifier_classify_all_is_invoked(String... texts) {
+		batchResults = classifier.classifyAll(Arrays.asList(texts));
+	}
+	
+	private void rest_client_classify_all_is_invoked(int maxConcurrency, String... texts) {
+		batchResults = restClient.classifyAll("testId12345", Arrays.asList(texts), maxConcurrency);
+	}
+	
+	private void verify_batch_results_texts_are(String... texts) {
+		assertNotNull(batchResults);
+		assertEquals(texts.length, batchResults.size());
+		for(int i = 0; i < texts.length; i++) {
+			assertEquals(texts[i], batchResults.get(i).getText());
+		}
+	}
+	
+	private void verify_batch_results_successful_with_classes(int size) {
+		for(NLClassifierBatchResult result : batchResults) {
+			assertTrue(result.isSuccessful());
+			assertNotNull(result.getResponse());
+			assertEquals(size, result.getResponse().getClasses().size());
+		}
+	}
+	
+	private void verify_batch_results_failed_with_status(int status) {
+		verify_batch_results_failed_with(HttpResponseException.class);
+		for(NLClassifierBatchResult result : batchResults) {
+			assertEquals(status, ((HttpResponseException) result.getError()).getStatusCode());
+		}
+	}
+	
+	private void verify_batch_results_failed_with(Class<? extends Throwable> errorClass) {
+		for(NLClassifierBatchResult result : batchResults) {
+			assertFalse(result.isSuccessful());
+			assertEquals(null, result.getResponse());
+			assertTrue(errorClass.isInstance(result.getError()));
+		}
+	}
+	
+	private void verify_max_requests_in_flight_is(int expected) {
+		assertEquals(expected, maxAsyncInFlight.get());
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void verify_http_async_client_execute_invoked_times(int count) {
+		verify(httpAsyncClient, times(count)).execute(any(HttpUriRequest.class), any(HttpContext.class), any(FutureCallback.class));
+	}
+	
 	private void classifier_delete_is_invoked() {
 		classifierDeleted = classifier.delete();
 	}
@@ -0,0 +1,237 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NLClassifyRequestCoalescerTest {
+	@SuppressWarnings("unused")
+	private final NLClassifyRequestCoalescerTest GIVEN = this, WHEN = this, THEN = this, WITH = this, AND = this;
+	
+	private static final String ID = "testId12345";
+	
+	@Mock private NLClassifierRestClient client;
+	
+	private NLClassifyRequestCoalescer coalescer;
+	private final NLClassiferClassifyResponse response = new NLClassiferClassifyResponse();
+	private final SettableFuture<NLClassiferClassifyResponse> asyncResponse = SettableFuture.create();
+	
+	@Before
+	public void setup() {
+		coalescer = new NLClassifyRequestCoalescer(client);
+		when(client.sendClassify(anyString(), anyString())).thenReturn(response);
+		when(client.sendClassifyAsync(anyString(), anyString())).thenReturn(asyncResponse);
+	}
+	
+	@Test
+	public void test_concurrent_identical_calls_share_one_request() throws Exception {
+		final CountDownLatch requestStarted = new CountDownLatch(1);
+		final CountDownLatch releaseRequest = new CountDownLatch(1);
+		when(client.sendClassify(ID, "What is Watson?")).thenAnswer(new Answer<NLClassiferClassifyResponse>() {
+			@Override
+			public NLClassiferClassifyResponse answer(InvocationOnMock invocation) throws Throwable {
+				requestStarted.countDown();
+				releaseRequest.await(5, TimeUnit.SECONDS);
+				return response;
+			}
+		});
+		
+		final NLClassiferClassifyResponse[] responses = new NLClassiferClassifyResponse[2];
+		Thread first = classify_in_thread("What is Watson?", responses, 0);
+		assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+		Thread second = classify_in_thread("  What is   Watson? ", responses, 1);
+		// Wait until the second caller is parked on the in-flight request
+		while(second.getState() != Thread.State.WAITING) {
+			Thread.sleep(5);
+		}
+		releaseRequest.countDown();
+		first.join(5000);
+		second.join(5000);
+		
+		THEN.verify_requests_sent(1);
+			AND.verify_sync_requests_sent(1);
+			AND.verify_coalesced(1);
+		assertSame(response, responses[0]);
+		assertSame(response, responses[1]);
+	}
+	
+	@Test
+	public void test_async_calls_share_one_request() throws Exception {
+		WHEN.classify_async_is_invoked("Hello world");
+		ListenableFuture<NLClassiferClassifyResponse> second = coalescer.classifyAsync(ID, "Hello  world");
+		ListenableFuture<NLClassiferClassifyResponse> third = coalescer.classifyAsync(ID, "Hello world");
+			AND.second_caller_cancels(second);
+			AND.async_response_arrives();
+		THEN.verify_requests_sent(1);
+			AND.verify_async_requests_sent(1);
+			AND.verify_coalesced(2);
+		assertSame(response, third.get(1, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void test_completed_request_is_not_shared() {
+		WHEN.classify_is_invoked("Hello");
+			AND.classify_is_invoked("Hello");
+		THEN.verify_requests_sent(2);
+			AND.verify_sync_requests_sent(2);
+			AND.verify_coalesced(0);
+	}
+	
+	@Test
+	public void test_different_texts_and_classifiers_are_not_coalesced() {
+		WHEN.classify_async_is_invoked("Hello");
+			AND.classify_async_is_invoked("Goodbye");
+		coalescer.classifyAsync("otherId", "Hello");
+		THEN.verify_requests_sent(3);
+			AND.verify_async_requests_sent(3);
+			AND.verify_coalesced(0);
+	}
+	
+	@Test
+	public void test_case_is_not_folded_by_default() {
+		WHEN.classify_async_is_invoked("Hello");
+			AND.classify_async_is_invoked("hello");
+		THEN.verify_requests_sent(2);
+			AND.verify_coalesced(0);
+	}
+	
+	@Test
+	public void test_error_completes_the_shared_request() {
+		GIVEN.request_fails_with(new OutOfMemoryError("fatal"));
+		WHEN.classify_is_invoked_and_fails("Hello");
+		GIVEN.request_succeeds();
+		WHEN.classify_is_invoked("Hello");
+		THEN.verify_requests_sent(2);
+			AND.verify_coalesced(0);
+	}
+	
+	@Test
+	public void test_punctuation_normalizer() {
+		GIVEN.normalizer_is(TextNormalizers.chain(TextNormalizers.DEFAULT, TextNormalizers.PUNCTUATION));
+			AND.normalized_text_is_sent();
+		WHEN.classify_async_is_invoked("What's Watson?");
+			AND.classify_async_is_invoked("whats watson");
+		THEN.verify_requests_sent(1);
+		verify(client).sendClassifyAsync(ID, "whats watson");
+	}
+	
+	@Test
+	public void test_disabled() {
+		GIVEN.coalescing_is_disabled();
+		WHEN.classify_async_is_invoked("Hello");
+			AND.classify_async_is_invoked("Hello");
+		THEN.verify_requests_sent(2);
+			AND.verify_async_requests_sent(2);
+	}
+	
+	private Thread classify_in_thread(final String text, final NLClassiferClassifyResponse[] responses, final int index) {
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				responses[index] = coalescer.classify(ID, text);
+			}
+		});
+		thread.start();
+		return thread;
+	}
+	
+	private void classify_is_invoked(String text) {
+		coalescer.classify(ID, text);
+	}
+	
+	private void classify_is_invoked_and_fails(String text) {
+		try {
+			coalescer.classify(ID, text);
+			fail("Expected the request to fail");
+		} catch(OutOfMemoryError e) {
+			assertEquals("fatal", e.getMessage());
+		}
+	}
+	
+	private void request_fails_with(Throwable error) {
+		reset(client);
+		when(client.sendClassify(anyString(), anyString())).thenThrow(error);
+	}
+	
+	private void request_succeeds() {
+		reset(client);
+		when(client.sendClassify(anyString(), anyString())).thenReturn(response);
+	}
+	
+	private void classify_async_is_invoked(String text) {
+		coalescer.classifyAsync(ID, text);
+	}
+	
+	private void second_caller_cancels(ListenableFuture<NLClassiferClassifyResponse> future) {
+		assertTrue(future.cancel(false));
+	}
+	
+	private void async_response_arrives() {
+		asyncResponse.set(response);
+	}
+	
+	private void normalizer_is(TextNormalizer normalizer) {
+		coalescer.setNormalizer(normalizer);
+	}
+	
+	private void normalized_text_is_sent() {
+		coalescer.setSendNormalizedText(true);
+	}
+	
+	private void coalescing_is_disabled() {
+		coalescer.setEnabled(false);
+	}
+	
+	private void verify_requests_sent(int times) {
+		assertEquals(times, coalescer.getSentCount());
+	}
+	
+	private void verify_sync_requests_sent(int times) {
+		verify(client, times(times)).sendClassify(anyString(), anyString());
+	}
+	
+	private void verify_async_requests_sent(int times) {
+		verify(client, times(times)).sendClassifyAsync(anyString(), anyString());
+	}
+	
+	private void verify_coalesced(int times) {
+		assertEquals(times, coalescer.getCoalescedCount());
+	}
+}
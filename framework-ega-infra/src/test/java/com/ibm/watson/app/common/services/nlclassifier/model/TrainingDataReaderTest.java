@@ -0,0 +1,186 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.services.nlclassifier.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierTrainingData.TrainingInstance;
+import com.ibm.watson.app.common.services.nlclassifier.model.TrainingDataReport.ProblemType;
+
+public class TrainingDataReaderTest {
+	@SuppressWarnings("unused")
+	private final TrainingDataReaderTest GIVEN = this, WHEN = this, THEN = this, WITH = this, AND = this;
+
+	private TrainingDataReader reader;
+	private NLClassifierTrainingData data;
+	private TrainingDataReport report;
+
+	@Test
+	public void test_json_matches_gson() throws IOException {
+		NLClassifierTrainingData expected = new NLClassifierTrainingData();
+		expected.setLanguage("en");
+		expected.setName("weather");
+		expected.addTrainingData("Is it \"hot\"?", "temperature");
+		expected.addTrainingData("Will it snow?", "conditions", "temperature");
+		GIVEN.json_reader(expected.toJson());
+		WHEN.reading_all();
+		THEN.data_matches(expected);
+	}
+
+	@Test
+	public void test_json_skips_unknown_fields() throws IOException {
+		GIVEN.json_reader("{\"extra\":{\"a\":[1,2]},\"training_data\":[{\"id\":3,\"text\":\"Is it hot?\",\"classes\":[\"temperature\"]},null],\"name\":\"weather\"}");
+		WHEN.reading_all();
+		THEN.instance_is(0, "Is it hot?", "temperature");
+		AND.instance_count_is(1);
+		assertEquals("weather", reader.getName());
+	}
+
+	@Test
+	public void test_csv() throws IOException {
+		GIVEN.csv_reader("Is it hot?,temperature\n\n\"Rain, or snow?\",conditions,temperature\r\nHow cold is it?,temperature,,\n");
+		WHEN.reading_all();
+		THEN.instance_count_is(3);
+		AND.instance_is(0, "Is it hot?", "temperature");
+		AND.instance_is(1, "Rain, or snow?", "conditions", "temperature");
+		AND.instance_is(2, "How cold is it?", "temperature");
+		AND.class_labels_are_shared();
+	}
+
+	@Test
+	public void test_read_one_at_a_time() throws IOException {
+		GIVEN.csv_reader("a,x\nb,y\n");
+		assertEquals("a", reader.read().getText());
+		assertEquals(1, reader.getRecordNumber());
+		assertEquals("b", reader.read().getText());
+		assertNull(reader.read());
+		assertEquals(2, reader.getRecordNumber());
+	}
+
+	@Test
+	public void test_validate() throws IOException {
+		GIVEN.csv_reader("Is it hot?,temperature\nIs it hot?,conditions\nWill it rain?,\"\"\n,conditions\nHow cold is it?,temperature\n");
+		WHEN.validating(new TrainingDataValidator());
+		THEN.report_is_invalid();
+		AND.problem_count_is(ProblemType.DUPLICATE_TEXT, 1);
+		AND.problem_count_is(ProblemType.NO_CLASSES, 1);
+		AND.problem_count_is(ProblemType.EMPTY_TEXT, 1);
+		AND.problem_count_is(ProblemType.TOO_FEW_INSTANCES, 0);
+		assertEquals(2, report.getProblems().get(0).getRecordNumber());
+		assertEquals(2, report.getClasses().get("temperature").getInstanceCount());
+		assertEquals(12.5, report.getClasses().get("temperature").getMeanTextLength(), 0);
+		assertEquals(2, report.getClasses().get("conditions").getInstanceCount());
+	}
+
+	@Test
+	public void test_validate_limits() throws IOException {
+		TrainingDataValidator validator = new TrainingDataValidator();
+		validator.setMinInstances(3);
+		validator.setMaxClasses(1);
+		validator.setMaxClassesPerInstance(1);
+		validator.setMaxTextLength(5);
+		GIVEN.csv_reader("short,a\ntoo long,a,b\n");
+		WHEN.validating(validator);
+		THEN.problem_count_is(ProblemType.TOO_FEW_INSTANCES, 1);
+		AND.problem_count_is(ProblemType.TOO_MANY_CLASSES, 1);
+		AND.problem_count_is(ProblemType.TOO_MANY_CLASSES_PER_INSTANCE, 1);
+		AND.problem_count_is(ProblemType.TEXT_TOO_LONG, 1);
+	}
+
+	@Test
+	public void test_validate_valid_data() throws IOException {
+		GIVEN.csv_reader("a,x\nb,x\nc,y\nd,y\ne,z\n");
+		WHEN.validating(new TrainingDataValidator());
+		assertTrue(report.isValid());
+		assertEquals(5, report.getInstanceCount());
+	}
+
+	@Test
+	public void test_long_hash_set() {
+		TrainingDataValidator.LongHashSet set = new TrainingDataValidator.LongHashSet();
+		for(long i = 0; i < 5000; i++) {
+			assertTrue(set.add(i * 31));
+		}
+		for(long i = 0; i < 5000; i++) {
+			assertFalse(set.add(i * 31));
+		}
+	}
+
+	private void json_reader(String json) {
+		reader = TrainingDataReader.json(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private void csv_reader(String csv) throws IOException {
+		reader = TrainingDataReader.csv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private void reading_all() throws IOException {
+		data = reader.readAll();
+		reader.close();
+	}
+
+	private void validating(TrainingDataValidator validator) throws IOException {
+		report = validator.validate(reader);
+		reader.close();
+	}
+
+	private void data_matches(NLClassifierTrainingData expected) {
+		assertEquals(expected.getLanguage(), data.getLanguage());
+		assertEquals(expected.getName(), data.getName());
+		instance_count_is(expected.getTrainingData().size());
+		for(int i = 0; i < expected.getTrainingData().size(); i++) {
+			TrainingInstance instance = expected.getTrainingData().get(i);
+			instance_is(i, instance.getText(), instance.getClasses().toArray(new String[0]));
+		}
+	}
+
+	private void instance_count_is(int count) {
+		assertEquals(count, data.getTrainingData().size());
+	}
+
+	private void instance_is(int index, String text, String... classes) {
+		TrainingInstance instance = data.getTrainingData().get(index);
+		assertEquals(text, instance.getText());
+		assertEquals(Arrays.asList(classes), instance.getClasses());
+	}
+
+	private void class_labels_are_shared() {
+		List<TrainingInstance> instances = data.getTrainingData();
+		assertSame(instances.get(0).getClasses().get(0), instances.get(2).getClasses().get(0));
+		assertSame(instances.get(0).getClasses().get(0), instances.get(1).getClasses().get(1));
+	}
+
+	private void report_is_invalid() {
+		assertFalse(report.isValid());
+	}
+
+	private void problem_count_is(ProblemType type, long count) {
+		Long actual = report.getProblemCounts().get(type);
+		assertEquals(count, actual == null ? 0 : actual.longValue());
+	}
+}
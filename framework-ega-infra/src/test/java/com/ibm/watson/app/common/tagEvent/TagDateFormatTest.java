@@ -0,0 +1,58 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+public class TagDateFormatTest {
+
+   private static final String[] ZONES = { "UTC", "America/New_York", "Asia/Kolkata", "Australia/Lord_Howe", "Pacific/Chatham", "America/St_Johns" };
+
+   @Test
+   public void test_format_matches_simple_date_format() {
+      Random random = new Random(42);
+      for ( String id : ZONES ) {
+         TimeZone zone = TimeZone.getTimeZone(id);
+         SimpleDateFormat expected = new SimpleDateFormat(TagRecord.dateFormatString);
+         expected.setTimeZone(zone);
+         TagDateFormat format = new TagDateFormat(zone);
+         for ( int i = 0; i < 10000; i++ ) {
+            // Roughly the years 1500 to 2400, both before and after the range that is computed directly
+            Date date = new Date((long) ((random.nextDouble() * 900 - 470) * 365.25 * 24 * 3600 * 1000));
+            assertEquals(expected.format(date), format.format(date));
+         }
+         Date epoch = new Date(0), beforeEpoch = new Date(-1);
+         assertEquals(expected.format(epoch), format.format(epoch));
+         assertEquals(expected.format(beforeEpoch), format.format(beforeEpoch));
+      }
+   }
+
+   @Test
+   public void test_same_second_is_cached() {
+      TagDateFormat format = new TagDateFormat(TimeZone.getTimeZone("UTC"));
+      String first = format.format(new Date(1431000000001L));
+      assertSame(first, format.format(new Date(1431000000999L)));
+      assertEquals("20150507120001+0000", format.format(new Date(1431000001000L)));
+   }
+}
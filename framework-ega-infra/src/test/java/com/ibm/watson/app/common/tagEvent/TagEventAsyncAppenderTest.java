@@ -0,0 +1,176 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.tagEvent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.AppenderRef;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TagEventAsyncAppenderTest {
+
+   @SuppressWarnings("unused")
+   private final TagEventAsyncAppenderTest GIVEN = this, WHEN = this, WITH = this, THEN = this, AND = this;
+
+   @Mock
+   Configuration config;
+
+   final CapturingAppender target = new CapturingAppender();
+   TagEventAsyncAppender appender;
+
+   @Before
+   public void setup() {
+      target.start();
+      when(config.getAppender("target")).thenReturn(target);
+   }
+
+   @After
+   public void cleanup() {
+      if ( appender != null && appender.isStarted() ) {
+         appender.stop();
+      }
+   }
+
+   @Test
+   public void test_tag_events_are_forwarded_as_batches() {
+      GIVEN.appender_is_created("target");
+      WHEN.tag_events_are_appended("a", "b", "c");
+         AND.appender_is_stopped();
+      THEN.verify_forwarded_output("a\r\nb\r\nc\r\n");
+         AND.verify_forwarded_events_are_batches();
+         AND.verify_written(3);
+   }
+
+   @Test
+   public void test_other_events_are_ignored() {
+      GIVEN.appender_is_created("target");
+      WHEN.event_is_appended(null, new TagEventMessage(new TestTagRecord("a")));
+         AND.event_is_appended(TagEventMarkers.TAG_EVENT_MARKER, new SimpleMessage("not a tag event"));
+         AND.appender_is_stopped();
+      THEN.verify_forwarded_output("");
+         AND.verify_written(0);
+   }
+
+   @Test
+   public void test_appender_does_not_start_without_target() {
+      GIVEN.appender_is_created("missing");
+      THEN.verify_not_started();
+   }
+
+   private void appender_is_created(String ref) {
+      appender = TagEventAsyncAppender.createAppender("test", "csv", 16, 2, "BLOCK", 1, true,
+            new AppenderRef[] {AppenderRef.createAppenderRef(ref, null, null)}, null, config);
+      appender.start();
+   }
+
+   private void tag_events_are_appended(String... ids) {
+      for ( String id : ids ) {
+         event_is_appended(TagEventMarkers.TAG_EVENT_MARKER, new TagEventMessage(new TestTagRecord(id)));
+      }
+   }
+
+   private void event_is_appended(Marker marker, Message message) {
+      appender.append(new Log4jLogEvent.Builder()
+            .setLoggerName("test")
+            .setLevel(Level.INFO)
+            .setMarker(marker)
+            .setMessage(message)
+            .build());
+   }
+
+   private void appender_is_stopped() {
+      appender.stop();
+   }
+
+   private void verify_forwarded_output(String expected) {
+      StringBuilder output = new StringBuilder();
+      for ( LogEvent event : target.events ) {
+         output.append(event.getMessage().getFormattedMessage());
+      }
+      assertEquals(expected, output.toString());
+   }
+
+   private void verify_forwarded_events_are_batches() {
+      for ( LogEvent event : target.events ) {
+         assertSame(TagEventMarkers.TAG_EVENT_BATCH_MARKER, event.getMarker());
+         // No more than the batch size of 2 records per event
+         assertTrue(event.getMessage().getFormattedMessage().split("\r\n").length <= 2);
+      }
+   }
+
+   private void verify_written(long written) {
+      assertEquals(written, appender.getPipeline().getWritten());
+      assertEquals(0, appender.getPipeline().getQueued());
+   }
+
+   private void verify_not_started() {
+      assertFalse(appender.isStarted());
+   }
+
+   private static class CapturingAppender extends AbstractAppender {
+      private static final long serialVersionUID = 1L;
+      final List<LogEvent> events = Collections.synchronizedList(new ArrayList<LogEvent>());
+
+      CapturingAppender() {
+         super("target", null, null);
+      }
+
+      @Override
+      public void append( LogEvent event ) {
+         events.add(event);
+      }
+   }
+
+   private static class TestTagRecord extends TagRecord {
+      private final String id;
+
+      TestTagRecord(String id) {
+         this.id = id;
+         setType("test");
+      }
+
+      @Override
+      protected void prepareForFormat() {
+      }
+
+      @Override
+      public Iterator<String> iterator() {
+         return Collections.singletonList(id).iterator();
+      }
+   }
+}
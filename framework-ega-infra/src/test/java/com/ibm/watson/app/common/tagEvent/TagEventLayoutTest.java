@@ -0,0 +1,95 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.tagEvent;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.util.Charsets;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.Test;
+
+public class TagEventLayoutTest {
+
+   @SuppressWarnings("unused")
+   private final TagEventLayoutTest GIVEN = this, WHEN = this, WITH = this, THEN = this, AND = this;
+
+   TagEventLayout layout;
+   String output;
+
+   @Test
+   public void test_tag_event_is_formatted() {
+      GIVEN.layout_is("csv");
+      WHEN.event_is_serialized(TagEventMarkers.TAG_EVENT_MARKER, new TagEventMessage(new TestTagRecord("a")));
+      THEN.verify_output_is("a\r\n");
+   }
+
+   @Test
+   public void test_batch_is_written_as_is() {
+      GIVEN.layout_is("json");
+      WHEN.event_is_serialized(TagEventMarkers.TAG_EVENT_BATCH_MARKER, new SimpleMessage("a\r\nb\r\n"));
+      THEN.verify_output_is("a\r\nb\r\n");
+   }
+
+   @Test
+   public void test_other_events_are_not_written() {
+      GIVEN.layout_is("json");
+      WHEN.event_is_serialized(TagEventMarkers.TAG_EVENT_MARKER, new SimpleMessage("not a tag event"));
+      THEN.verify_output_is("");
+      WHEN.event_is_serialized(null, new SimpleMessage("a\r\nb\r\n"));
+      THEN.verify_output_is("");
+   }
+
+   private void layout_is(String format) {
+      layout = new TagEventLayout(format, Charsets.UTF_8);
+   }
+
+   private void event_is_serialized(Marker marker, Message message) {
+      output = layout.toSerializable(new Log4jLogEvent.Builder()
+            .setLoggerName("test")
+            .setLevel(Level.INFO)
+            .setMarker(marker)
+            .setMessage(message)
+            .build());
+   }
+
+   private void verify_output_is(String expected) {
+      assertEquals(expected, output);
+   }
+
+   private static class TestTagRecord extends TagRecord {
+      private final String id;
+
+      TestTagRecord(String id) {
+         this.id = id;
+         setType("test");
+      }
+
+      @Override
+      protected void prepareForFormat() {
+      }
+
+      @Override
+      public Iterator<String> iterator() {
+         return Collections.singletonList(id).iterator();
+      }
+   }
+}
@@ -0,0 +1,177 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TagEventPipelineTest {
+
+   @SuppressWarnings("unused")
+   private final TagEventPipelineTest GIVEN = this, WHEN = this, WITH = this, THEN = this, AND = this;
+
+   private final List<String> batches = Collections.synchronizedList(new ArrayList<String>());
+   private final TagEventPipeline.BatchHandler handler = new TagEventPipeline.BatchHandler() {
+      @Override
+      public void handleBatch(CharSequence batch, int records) {
+         batches.add(batch.toString());
+      }
+   };
+
+   TagEventPipeline pipeline;
+
+   @After
+   public void cleanup() {
+      if ( pipeline != null ) {
+         pipeline.stop(1, TimeUnit.SECONDS);
+      }
+   }
+
+   @Test
+   public void test_records_are_written_in_order_and_in_batches() {
+      GIVEN.pipeline_is_created(16, 2, BackpressurePolicy.BLOCK);
+         AND.records_are_offered("a", "b", "c", "d", "e");
+      WHEN.pipeline_is_started_and_stopped();
+      THEN.verify_batches("a\r\nb\r\n", "c\r\nd\r\n", "e\r\n");
+         AND.verify_counters(5, 0, 5, 0);
+   }
+
+   @Test
+   public void test_drop_policy_counts_dropped_records() {
+      GIVEN.pipeline_is_created(4, 8, BackpressurePolicy.DROP);
+      WHEN.records_are_offered("a", "b", "c", "d", "e", "f");
+         AND.pipeline_is_started_and_stopped();
+      THEN.verify_batches("a\r\nb\r\nc\r\nd\r\n");
+         AND.verify_counters(4, 2, 4, 0);
+   }
+
+   @Test
+   public void test_sample_policy_keeps_one_in_sample_rate_records() throws Exception {
+      GIVEN.pipeline_is_created(2, 8, BackpressurePolicy.SAMPLE);
+         AND.records_are_offered("a", "b", "c", "d");
+      WHEN.record_is_offered_while_full_and_pipeline_is_started("e");
+      THEN.verify_output("a\r\nb\r\ne\r\n");
+         AND.verify_counters(3, 2, 3, 0);
+         AND.verify_sampled(1);
+   }
+
+   @Test
+   public void test_failed_record_does_not_stop_the_pipeline() {
+      GIVEN.pipeline_is_created(16, 8, BackpressurePolicy.BLOCK);
+         AND.records_are_offered("a", null, "c");
+      WHEN.pipeline_is_started_and_stopped();
+      THEN.verify_batches("a\r\nc\r\n");
+         AND.verify_counters(3, 0, 2, 1);
+   }
+
+   @Test
+   public void test_records_are_dropped_once_stopped() {
+      GIVEN.pipeline_is_created(16, 8, BackpressurePolicy.BLOCK);
+         AND.pipeline_is_started_and_stopped();
+      WHEN.records_are_offered("a");
+      THEN.verify_counters(0, 1, 0, 0);
+   }
+
+   private void pipeline_is_created(int bufferSize, int batchSize, BackpressurePolicy policy) {
+      pipeline = new TagEventPipeline("test", true, bufferSize, batchSize, policy, 3, handler);
+   }
+
+   private void records_are_offered(String... ids) {
+      for ( String id : ids ) {
+         pipeline.offer(new TestTagRecord(id));
+      }
+   }
+
+   private void pipeline_is_started_and_stopped() {
+      pipeline.start();
+      assertTrue(pipeline.stop(5, TimeUnit.SECONDS));
+   }
+
+   private void record_is_offered_while_full_and_pipeline_is_started(final String id) throws InterruptedException {
+      Thread producer = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            records_are_offered(id);
+         }
+      });
+      producer.start();
+      // The sampled record waits for room in the buffer
+      while ( pipeline.getSampled() == 0 ) {
+         Thread.sleep(1);
+      }
+      assertEquals(2, pipeline.getEnqueued());
+      pipeline.start();
+      producer.join(5000);
+      assertFalse(producer.isAlive());
+      assertTrue(pipeline.stop(5, TimeUnit.SECONDS));
+   }
+
+   private void verify_batches(String... expected) {
+      assertEquals(Arrays.asList(expected), batches);
+   }
+
+   private void verify_output(String expected) {
+      StringBuilder output = new StringBuilder();
+      for ( String batch : batches ) {
+         output.append(batch);
+      }
+      assertEquals(expected, output.toString());
+   }
+
+   private void verify_counters(long enqueued, long dropped, long written, long failed) {
+      assertEquals(enqueued, pipeline.getEnqueued());
+      assertEquals(dropped, pipeline.getDropped());
+      assertEquals(written, pipeline.getWritten());
+      assertEquals(failed, pipeline.getFailed());
+      assertEquals(0, pipeline.getQueued());
+   }
+
+   private void verify_sampled(long sampled) {
+      assertEquals(sampled, pipeline.getSampled());
+   }
+
+   private static class TestTagRecord extends TagRecord {
+      private final String id;
+
+      TestTagRecord(String id) {
+         this.id = id;
+         setType("test");
+      }
+
+      @Override
+      protected void prepareForFormat() {
+         if ( id == null ) {
+            throw new IllegalStateException("No id");
+         }
+      }
+
+      @Override
+      public Iterator<String> iterator() {
+         return Collections.singletonList(id).iterator();
+      }
+   }
+}
@@ -0,0 +1,123 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import com.ibm.watson.app.common.tagEvent.QueryTagRecord.InputMethod;
+
+public class TagRecordTest {
+
+   @SuppressWarnings("unused")
+   private final TagRecordTest GIVEN = this, WHEN = this, WITH = this, THEN = this, AND = this;
+
+   private static final String[] STRINGS = { "what is watson", "", " leading", "trailing ", "#hash", "1st", "a,b", 
+         "say \"hi\"", "back\\slash", "line\nbreak", "carriage\rreturn", "tab\there", "bell\u0007", "  ", 
+         "<html>&amp;", "unicode é中", "\"", null };
+
+   TagRecord record;
+
+   @Test
+   public void test_query_records_are_written_as_before() throws IOException {
+      for ( String string : STRINGS ) {
+         for ( InputMethod mode : new InputMethod[] { InputMethod.clicked, InputMethod.typed, null } ) {
+            GIVEN.record_is(new QueryTagRecord(new Date(1431000000123L), string, string, mode));
+            if ( string != null && mode != null ) {
+               THEN.verify_csv_matches_csv_printer();
+            }
+            THEN.verify_json_matches_gson();
+         }
+      }
+   }
+
+   @Test
+   public void test_records_with_own_iterator_are_written_as_before() throws IOException {
+      for ( String string : STRINGS ) {
+         GIVEN.record_is(new CustomTagRecord(string));
+         THEN.verify_csv_matches_csv_printer();
+            AND.verify_json_matches_gson();
+      }
+   }
+
+   @Test
+   public void test_json_field_order_and_names() {
+      GIVEN.record_is(new CustomTagRecord("x"));
+      assertEquals("{\"custom\":{\"renamed\":\"x\",\"count\":7,\"choice\":\"second\",\"timestamp\":\"" 
+            + TagRecord.formatDate(new Date(0)) + "\",\"user\":\"x\"}}", record.asJson());
+   }
+
+   private void record_is(TagRecord record) {
+      this.record = record;
+   }
+
+   private void verify_json_matches_gson() {
+      JsonObject json = new JsonObject();
+      json.add(record.getType(), TagRecord.gson.toJsonTree(record));
+      assertEquals(TagRecord.gson.toJson(json), record.asJson());
+   }
+
+   private void verify_csv_matches_csv_printer() throws IOException {
+      StringBuilder expected = new StringBuilder();
+      CSVPrinter printer = new CSVPrinter(expected, CSVFormat.DEFAULT);
+      printer.printRecord(record);
+      printer.close();
+      assertEquals(expected.toString(), record.asCsv());
+   }
+
+   private static class CustomTagRecord extends EventTagRecord {
+      @Expose
+      @SerializedName("renamed")
+      private String value;
+      @Expose
+      private int count = 7;
+      @Expose
+      private Choice choice = Choice.SECOND;
+      @Expose(serialize = false)
+      private String hidden = "hidden";
+      private String notExposed = "not exposed";
+
+      CustomTagRecord(String value) {
+         super(new Date(0), value);
+         this.value = value;
+         setType("custom");
+      }
+
+      @Override
+      protected void prepareForFormat() {
+      }
+
+      @Override
+      public Iterator<String> iterator() {
+         return Arrays.asList(value, hidden, notExposed, String.valueOf(count)).iterator();
+      }
+   }
+
+   private static enum Choice {
+      FIRST, @SerializedName("second") SECOND
+   }
+}
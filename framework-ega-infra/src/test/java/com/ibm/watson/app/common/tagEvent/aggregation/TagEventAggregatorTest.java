@@ -0,0 +1,181 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.aggregation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.ibm.watson.app.common.tagEvent.QueryTagRecord;
+import com.ibm.watson.app.common.tagEvent.QueryTagRecord.InputMethod;
+import com.ibm.watson.app.common.tagEvent.TagEventMarkers;
+
+public class TagEventAggregatorTest {
+
+   @SuppressWarnings("unused")
+   private final TagEventAggregatorTest GIVEN = this, WHEN = this, WITH = this, THEN = this, AND = this;
+
+   private final FakeTicker ticker = new FakeTicker();
+   // 60 second window in 6 buckets of 10 seconds
+   private final TagEventAggregator aggregator = new TagEventAggregator(60, 6, 3, ticker);
+
+   @Test
+   public void test_events_are_counted_per_marker() {
+      WHEN.queries_are_recorded(InputMethod.typed, "a", "b");
+         AND.queries_are_recorded(InputMethod.clicked, "c");
+         AND.click_is_recorded();
+      THEN.verify_event_counts(4, 1);
+         AND.verify_input_method_counts(1, 2);
+   }
+
+   @Test
+   public void test_counts_slide_with_the_window() {
+      GIVEN.queries_are_recorded(InputMethod.typed, "a", "b");
+      WHEN.seconds_pass(30);
+         AND.queries_are_recorded(InputMethod.clicked, "c");
+      THEN.verify_event_counts(3, 0);
+         AND.verify_recent_event_count(10, 1);
+      WHEN.seconds_pass(35);
+      THEN.verify_event_counts(1, 0);
+         AND.verify_input_method_counts(1, 0);
+      WHEN.seconds_pass(60);
+      THEN.verify_event_counts(0, 0);
+   }
+
+   @Test
+   public void test_no_events_are_lost_when_buckets_are_reused_concurrently() throws InterruptedException {
+      GIVEN.a_click_is_recorded_in_every_bucket();
+         AND.seconds_pass(60);
+      WHEN.clicks_are_recorded_while_seconds_pass(4, 20000, 10, 4);
+      THEN.verify_event_counts(80000, 80000);
+   }
+
+   @Test
+   public void test_top_queries() {
+      GIVEN.many_distinct_queries_are_recorded(5000);
+      WHEN.queries_are_recorded(InputMethod.typed, repeat("watson", 300));
+         AND.queries_are_recorded(InputMethod.typed, repeat("weather", 200));
+         AND.many_distinct_queries_are_recorded(5000);
+         AND.queries_are_recorded(InputMethod.typed, repeat("news", 100));
+      THEN.verify_top_queries("watson", "weather", "news");
+   }
+
+   @Test
+   public void test_top_queries_slide_with_the_window() {
+      GIVEN.queries_are_recorded(InputMethod.typed, repeat("old", 50));
+      WHEN.seconds_pass(40);
+         AND.queries_are_recorded(InputMethod.typed, repeat("new", 10));
+      THEN.verify_top_queries("old", "new");
+      WHEN.seconds_pass(25);
+      THEN.verify_top_queries("new");
+   }
+
+   private void queries_are_recorded(InputMethod mode, String... strings) {
+      for ( String string : strings ) {
+         aggregator.record(TagEventMarkers.TAG_EVENT_MARKER, new QueryTagRecord(new Date(), "user", string, mode));
+      }
+   }
+
+   private void many_distinct_queries_are_recorded(int count) {
+      for ( int i = 0; i < count; i++ ) {
+         queries_are_recorded(InputMethod.typed, "noise " + ticker.read() + " " + i);
+      }
+   }
+
+   private void click_is_recorded() {
+      aggregator.record(TagEventMarkers.ARTCLE_CLICK_MARKER, null);
+   }
+
+   private void a_click_is_recorded_in_every_bucket() {
+      for ( int i = 0; i < 6; i++ ) {
+         click_is_recorded();
+         seconds_pass(10);
+      }
+   }
+
+   private void clicks_are_recorded_while_seconds_pass(int threads, final int clicks, long seconds, int times) throws InterruptedException {
+      List<Thread> recorders = new ArrayList<>();
+      for ( int i = 0; i < threads; i++ ) {
+         Thread recorder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+               for ( int j = 0; j < clicks; j++ ) {
+                  click_is_recorded();
+               }
+            }
+         });
+         recorders.add(recorder);
+         recorder.start();
+      }
+      // Every step moves into a bucket whose slot still holds an older bucket
+      for ( int i = 0; i < times; i++ ) {
+         Thread.sleep(2);
+         seconds_pass(seconds);
+      }
+      for ( Thread recorder : recorders ) {
+         recorder.join();
+      }
+   }
+
+   private void seconds_pass(long seconds) {
+      ticker.advance(TimeUnit.SECONDS.toNanos(seconds));
+   }
+
+   private void verify_event_counts(long total, long clicks) {
+      assertEquals(total, aggregator.getEventCount(TagEventMarkers.TAG_EVENT_MARKER, TimeUnit.SECONDS.toMillis(60)));
+      assertEquals(clicks, aggregator.getEventCount(TagEventMarkers.ARTCLE_CLICK_MARKER, TimeUnit.SECONDS.toMillis(60)));
+      assertEquals(Long.valueOf(total), aggregator.getEventCounts().get(TagEventMarkers.TAG_EVENT_MARKER.getName()));
+   }
+
+   private void verify_recent_event_count(long seconds, long total) {
+      assertEquals(total, aggregator.getEventCount(TagEventMarkers.TAG_EVENT_MARKER, TimeUnit.SECONDS.toMillis(seconds)));
+   }
+
+   private void verify_input_method_counts(long clicked, long typed) {
+      assertEquals(Long.valueOf(clicked), aggregator.getInputMethodCounts().get(InputMethod.clicked.name()));
+      assertEquals(Long.valueOf(typed), aggregator.getInputMethodCounts().get(InputMethod.typed.name()));
+   }
+
+   private void verify_top_queries(String... expected) {
+      assertEquals(Arrays.asList(expected), new ArrayList<>(aggregator.getTopQueries().keySet()));
+   }
+
+   private static String[] repeat(String string, int times) {
+      String[] strings = new String[times];
+      Arrays.fill(strings, string);
+      return strings;
+   }
+
+   private static class FakeTicker extends Ticker {
+      private volatile long nanos;
+
+      @Override
+      public long read() {
+         return nanos;
+      }
+
+      void advance(long delta) {
+         nanos += delta;
+      }
+   }
+}
@@ -0,0 +1,204 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tagEvent.segment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ibm.watson.app.common.tagEvent.EventTagRecord;
+import com.ibm.watson.app.common.tagEvent.QueryTagRecord;
+import com.ibm.watson.app.common.tagEvent.QueryTagRecord.InputMethod;
+import com.ibm.watson.app.common.tagEvent.TagEventMarkers;
+import com.ibm.watson.app.common.tagEvent.TagEventMessage;
+import com.ibm.watson.app.common.tagEvent.TagRecord;
+
+public class TagSegmentTest {
+
+   @SuppressWarnings("unused")
+   private final TagSegmentTest GIVEN = this, WHEN = this, WITH = this, THEN = this, AND = this;
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private final TagSegmentWriter writer = new TagSegmentWriter();
+   private File segment;
+   private TagEventRollup rollup;
+
+   @Test
+   public void test_segment_round_trip() throws IOException {
+      GIVEN.records_are_added(query(1000, "alice", "what is watson", InputMethod.typed), click(2000, "bob"), 
+            query(3000, null, "héllo, \"world\"", null));
+      WHEN.segment_is_written();
+      THEN.verify_segment();
+   }
+
+   @Test
+   public void test_wide_dictionary_codes() throws IOException {
+      GIVEN.distinct_queries_are_added(70000);
+      WHEN.segment_is_written();
+      try ( TagSegmentReader reader = TagSegmentReader.open(segment) ) {
+         assertEquals(70000, reader.getRowCount());
+         assertEquals(70000, reader.getDictionarySize(TagSegmentColumn.STRING));
+         assertEquals("query 69999", reader.getRowValue(TagSegmentColumn.STRING, 69999));
+         assertEquals("user 0", reader.getRowValue(TagSegmentColumn.USER, 69999));
+      }
+   }
+
+   @Test
+   public void test_rollup() throws IOException {
+      GIVEN.records_are_added(query(1000, "alice", "hello", InputMethod.typed), query(2000, "alice", "hello", InputMethod.clicked), 
+            query(3000, "bob", "bye", InputMethod.typed), click(500, "bob"));
+         AND.segment_is_written();
+         AND.records_are_added(query(4000, "carol", "hello", InputMethod.typed));
+         AND.segment_is_written();
+      WHEN.segments_are_rolled_up();
+      THEN.verify_rollup();
+   }
+
+   @Test
+   public void test_appender_writes_segments() throws IOException {
+      TagEventSegmentAppender appender = TagEventSegmentAppender.createAppender("segments", folder.getRoot().getPath(), "test", 2, true, null);
+      appender.start();
+      for ( int i = 0; i < 3; i++ ) {
+         appender.append(new Log4jLogEvent.Builder().setLevel(Level.INFO).setMarker(TagEventMarkers.TAG_EVENT_MARKER)
+               .setMessage(new TagEventMessage(query(i, "user", "query", InputMethod.typed))).build());
+      }
+      appender.stop();
+
+      File[] segments = folder.getRoot().listFiles();
+      assertEquals(2, segments.length);
+      rollup = new TagEventRollup();
+      for ( File file : segments ) {
+         rollup.add(file);
+      }
+      assertEquals(3, rollup.getQueryCount());
+   }
+
+   @Test
+   public void test_appender_writes_sealed_segments_in_background_and_ignores_batches() throws IOException {
+      TagEventSegmentAppender appender = TagEventSegmentAppender.createAppender("segments", folder.getRoot().getPath(), "test", 2, true, null);
+      appender.start();
+      for ( int i = 0; i < 20; i++ ) {
+         appender.append(new Log4jLogEvent.Builder().setLevel(Level.INFO).setMarker(TagEventMarkers.TAG_EVENT_MARKER)
+               .setMessage(new TagEventMessage(query(i, "user", "query", InputMethod.typed))).build());
+      }
+      appender.append(new Log4jLogEvent.Builder().setLevel(Level.INFO).setMarker(TagEventMarkers.TAG_EVENT_BATCH_MARKER)
+            .setMessage(new SimpleMessage("already serialized\r\n")).build());
+      appender.stop();
+
+      File[] segments = folder.getRoot().listFiles();
+      assertEquals(10, segments.length);
+      rollup = new TagEventRollup();
+      for ( File file : segments ) {
+         assertTrue(file.getName().endsWith(TagEventSegmentAppender.SEGMENT_SUFFIX));
+         rollup.add(file);
+      }
+      assertEquals(20, rollup.getQueryCount());
+   }
+
+   private void records_are_added(TagRecord... records) {
+      for ( TagRecord record : records ) {
+         writer.add(record);
+      }
+   }
+
+   private void distinct_queries_are_added(int count) {
+      for ( int i = 0; i < count; i++ ) {
+         writer.add(query(i, "user " + i % 3, "query " + i, InputMethod.typed));
+      }
+   }
+
+   private void segment_is_written() throws IOException {
+      segment = folder.newFile();
+      writer.writeTo(segment);
+      writer.clear();
+   }
+
+   private void segments_are_rolled_up() throws IOException {
+      rollup = new TagEventRollup();
+      for ( File file : folder.getRoot().listFiles() ) {
+         rollup.add(file);
+      }
+   }
+
+   private void verify_segment() throws IOException {
+      try ( TagSegmentReader reader = TagSegmentReader.open(segment) ) {
+         assertEquals(3, reader.getRowCount());
+         assertEquals(Arrays.asList("query", "click", "query"), values(reader, TagSegmentColumn.TYPE));
+         assertEquals(Arrays.asList("alice", "bob", null), values(reader, TagSegmentColumn.USER));
+         assertEquals(Arrays.asList("what is watson", null, "héllo, \"world\""), values(reader, TagSegmentColumn.STRING));
+         assertEquals(Arrays.asList("typed", null, null), values(reader, TagSegmentColumn.MODE));
+         assertEquals(2000, reader.getTimestamp(1));
+         assertEquals(2, reader.getDictionarySize(TagSegmentColumn.TYPE));
+         assertEquals(-1, reader.getCode(TagSegmentColumn.TYPE, "missing"));
+         assertNull(reader.getValue(TagSegmentColumn.MODE, 0));
+      }
+   }
+
+   private void verify_rollup() {
+      assertEquals(5, rollup.getEventCount());
+      assertEquals(4, rollup.getQueryCount());
+      assertEquals(500, rollup.getFirstTimestamp());
+      assertEquals(4000, rollup.getLastTimestamp());
+      assertEquals(Long.valueOf(4), rollup.getEventsPerType().get("query"));
+      assertEquals(Long.valueOf(1), rollup.getEventsPerType().get("click"));
+      assertEquals(Long.valueOf(2), rollup.getQueriesPerUser().get("alice"));
+      assertEquals(Long.valueOf(1), rollup.getQueriesPerUser().get("bob"));
+      assertEquals(Long.valueOf(3), rollup.getQueriesPerMode().get("typed"));
+      assertEquals(Long.valueOf(1), rollup.getQueriesPerMode().get("clicked"));
+      List<Entry<String, Long>> top = rollup.getTopStrings(1);
+      assertEquals(1, top.size());
+      assertEquals("hello", top.get(0).getKey());
+      assertEquals(Long.valueOf(3), top.get(0).getValue());
+   }
+
+   private static List<String> values(TagSegmentReader reader, TagSegmentColumn column) {
+      String[] values = new String[reader.getRowCount()];
+      for ( int row = 0; row < values.length; row++ ) {
+         values[row] = reader.getRowValue(column, row);
+      }
+      return Arrays.asList(values);
+   }
+
+   private static QueryTagRecord query(long time, String user, String string, InputMethod mode) {
+      return new QueryTagRecord(new Date(time), user, string, mode);
+   }
+
+   private static EventTagRecord click(long time, String user) {
+      EventTagRecord record = new EventTagRecord(new Date(time), user) {
+         @Override
+         protected void prepareForFormat() {
+         }
+      };
+      record.setType("click");
+      return record;
+   }
+}
@@ -16,13 +16,21 @@
 
 package com.ibm.watson.app.common.util.http;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.Properties;
+
+import org.apache.http.HttpHost;
 import org.apache.http.auth.Credentials;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.ibm.watson.app.common.services.general.impl.GeneralConfigurationService;
 import com.ibm.watson.app.common.util.http.HttpClientBuilder;
 
 
@@ -33,6 +41,9 @@ public class HttpClientBuilderTest {
    private final HttpClientBuilderTest GIVEN = this, WHEN = this, WITH = this, THEN = this, AND = this;
 
    CloseableHttpClient client;
+   CloseableHttpAsyncClient asyncClient;
+   HttpClientBuilder builder;
+   Properties properties = new Properties();
    
    
    @Test
@@ -48,6 +59,128 @@ public class HttpClientBuilderTest {
       THEN.verify_http_client_is_not_null();
    }
 
+   @Test
+   public void test_default_async_client() throws Exception {
+      WHEN.http_async_client_is_built(null);
+      THEN.verify_http_async_client_is_running();
+   }
+
+   @Test
+   public void test_builder_from_configuration() {
+      GIVEN.property_is(HttpClientBuilder.MAX_TOTAL, "500");
+         AND.property_is(HttpClientBuilder.MAX_PER_ROUTE, "100");
+         AND.property_is(HttpClientBuilder.CONNECT_TIMEOUT, "2000");
+         AND.property_is(HttpClientBuilder.SOCKET_TIMEOUT, "3000");
+         AND.property_is(HttpClientBuilder.IDLE_TIMEOUT, "0");
+         AND.property_is(HttpClientBuilder.TRUST_SELF_SIGNED, "true");
+      WHEN.builder_is_created_from_configuration();
+      THEN.verify_pool_sizes_are(500, 100);
+         AND.verify_timeouts_are(2000, 3000);
+         AND.verify_idle_timeout_is(0);
+         AND.verify_trust_self_signed_is(true);
+   }
+
+   @Test
+   public void test_builder_from_empty_configuration_uses_defaults() {
+      WHEN.builder_is_created_from_configuration();
+      THEN.verify_pool_sizes_are(200, 50);
+         AND.verify_timeouts_are(10000, 60000);
+         AND.verify_trust_self_signed_is(false);
+   }
+
+   @Test
+   public void test_builder_ignores_invalid_values() {
+      GIVEN.property_is(HttpClientBuilder.MAX_TOTAL, "lots");
+      WHEN.builder_is_created_from_configuration();
+      THEN.verify_pool_sizes_are(200, 50);
+   }
+
+   @Test
+   public void test_builder_ignores_eviction_interval_not_greater_than_0() throws Exception {
+      GIVEN.property_is(HttpClientBuilder.EVICTION_INTERVAL, "0");
+         AND.builder_is_created_from_configuration();
+      WHEN.clients_are_built_from_builder();
+      THEN.verify_eviction_interval_is(30000);
+         AND.verify_http_async_client_is_running();
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void test_eviction_interval_not_greater_than_0_is_rejected() {
+      new HttpClientBuilder().setEvictionInterval(-1);
+   }
+
+   @Test
+   public void test_builder_per_route_overrides() {
+      GIVEN.property_is(HttpClientBuilder.MAX_PER_ROUTE_HOSTS, "https://api.box.com=20, http://localhost:8080=5, not a host");
+      WHEN.builder_is_created_from_configuration();
+      THEN.verify_max_per_route_is(new HttpRoute(new HttpHost("api.box.com", 443, "https"), null, true), 20);
+         AND.verify_max_per_route_is(new HttpRoute(new HttpHost("localhost", 8080, "http"), null, false), 5);
+         AND.verify_max_per_route_override_count_is(2);
+   }
+
+   @Test
+   public void test_configured_clients_are_built() throws Exception {
+      GIVEN.property_is(HttpClientBuilder.MAX_PER_ROUTE_HOSTS, "https://api.box.com=20");
+         AND.property_is(HttpClientBuilder.TRUST_SELF_SIGNED, "true");
+         AND.builder_is_created_from_configuration();
+      WHEN.clients_are_built_from_builder();
+      THEN.verify_http_client_is_not_null();
+         AND.verify_http_async_client_is_running();
+   }
+
+   private void property_is(String name, String value) {
+      properties.setProperty(name, value);
+   }
+
+   private void builder_is_created_from_configuration() {
+      builder = HttpClientBuilder.fromConfiguration(new GeneralConfigurationService(properties));
+   }
+
+   private void clients_are_built_from_builder() {
+      client = builder.build();
+      asyncClient = builder.buildAsync();
+   }
+
+   private void verify_pool_sizes_are(int maxTotal, int maxPerRoute) {
+      assertEquals(maxTotal, builder.getMaxTotal());
+      assertEquals(maxPerRoute, builder.getMaxPerRoute());
+   }
+
+   private void verify_timeouts_are(int connectTimeout, int socketTimeout) {
+      assertEquals(connectTimeout, builder.getConnectTimeout());
+      assertEquals(socketTimeout, builder.getSocketTimeout());
+   }
+
+   private void verify_idle_timeout_is(long idleTimeout) {
+      assertEquals(idleTimeout, builder.getIdleTimeout());
+   }
+
+   private void verify_eviction_interval_is(long evictionInterval) {
+      assertEquals(evictionInterval, builder.getEvictionInterval());
+   }
+
+   private void verify_trust_self_signed_is(boolean trustSelfSigned) {
+      assertEquals(trustSelfSigned, builder.isTrustSelfSigned());
+   }
+
+   private void verify_max_per_route_is(HttpRoute route, int max) {
+      assertEquals(Integer.valueOf(max), builder.getMaxPerRouteOverrides().get(route));
+   }
+
+   private void verify_max_per_route_override_count_is(int count) {
+      assertEquals(count, builder.getMaxPerRouteOverrides().size());
+   }
+
+   private void http_async_client_is_built( Credentials creds ) {
+      asyncClient = HttpClientBuilder.buildDefaultHttpAsyncClient(creds);
+   }
+
+   private void verify_http_async_client_is_running() throws Exception {
+      assertNotNull(asyncClient);
+      assertTrue(asyncClient.isRunning());
+      asyncClient.close();
+   }
+
    private void verify_http_client_is_not_null() {
       assertNotNull(client);
    }
@@ -0,0 +1,137 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.ibm.watson.app.common.util.http.HttpClientRegistry.Lease;
+
+public class HttpClientRegistryTest {
+
+   @SuppressWarnings("unused")
+   private final HttpClientRegistryTest GIVEN = this, WHEN = this, WITH = this, THEN = this, AND = this;
+
+   private static final String URL = "https://gateway.example.com/natural-language-classifier/api";
+
+   Lease first, second;
+
+   @After
+   public void cleanup() {
+      HttpClientRegistry.shutdown();
+   }
+
+   @Test
+   public void test_same_host_shares_clients() {
+      WHEN.leases_are_acquired(URL, "https://gateway.example.com:443/other/api");
+      THEN.verify_clients_are_shared(true);
+         AND.verify_reference_count_is(2);
+   }
+
+   @Test
+   public void test_different_hosts_do_not_share_clients() {
+      WHEN.leases_are_acquired(URL, "https://other.example.com/api");
+      THEN.verify_clients_are_shared(false);
+         AND.verify_reference_count_is(1);
+   }
+
+   @Test
+   public void test_clients_are_closed_with_last_lease() {
+      GIVEN.leases_are_acquired(URL, URL);
+      WHEN.first_lease_is_closed_twice();
+      THEN.verify_reference_count_is(1);
+      WHEN.second_lease_is_closed();
+      THEN.verify_reference_count_is(0);
+   }
+
+   @Test
+   public void test_closed_lease_does_not_hand_out_clients() {
+      GIVEN.leases_are_acquired(URL, URL);
+      WHEN.first_lease_is_closed_twice();
+      THEN.verify_lease_is_open(first, false);
+         AND.verify_lease_is_open(second, true);
+         AND.verify_async_client_is_refused(first);
+   }
+
+   @Test
+   public void test_shutdown_closes_leased_clients() {
+      GIVEN.leases_are_acquired(URL, URL);
+         AND.async_client_is_created(first);
+      WHEN.registry_is_shut_down();
+      THEN.verify_lease_is_open(first, false);
+         AND.verify_async_client_is_refused(second);
+   }
+
+   @Test
+   public void test_host_key() {
+      assertEquals("https://gateway.example.com:443", HttpClientRegistry.getHostKey(URL));
+      assertEquals("http://localhost:8080", HttpClientRegistry.getHostKey("http://localhost:8080/api"));
+      assertEquals("http://localhost:80", HttpClientRegistry.getHostKey("HTTP://localhost/"));
+   }
+
+   private void leases_are_acquired(String firstUrl, String secondUrl) {
+      first = HttpClientRegistry.acquire(firstUrl);
+      second = HttpClientRegistry.acquire(secondUrl);
+   }
+
+   private void first_lease_is_closed_twice() {
+      first.close();
+      first.close();
+   }
+
+   private void second_lease_is_closed() {
+      second.close();
+   }
+
+   private void verify_clients_are_shared(boolean shared) {
+      if ( shared ) {
+         assertSame(first.getHttpClient(), second.getHttpClient());
+         assertSame(first.getHttpAsyncClient(), second.getHttpAsyncClient());
+      } else {
+         assertNotSame(first.getHttpClient(), second.getHttpClient());
+      }
+   }
+
+   private void async_client_is_created(Lease lease) {
+      lease.getHttpAsyncClient();
+   }
+
+   private void registry_is_shut_down() {
+      HttpClientRegistry.shutdown();
+   }
+
+   private void verify_lease_is_open(Lease lease, boolean open) {
+      assertEquals(open, lease.isOpen());
+   }
+
+   private void verify_async_client_is_refused(Lease lease) {
+      try {
+         lease.getHttpAsyncClient();
+         fail("Expected IllegalStateException");
+      } catch ( IllegalStateException e ) {
+         // expected
+      }
+   }
+
+   private void verify_reference_count_is(int count) {
+      assertEquals(count, HttpClientRegistry.getReferenceCount(URL));
+   }
+}
@@ -0,0 +1,67 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	@SuppressWarnings("unused")
+	private final LatencyHistogramTest GIVEN = this, WHEN = this, THEN = this;
+
+	LatencyHistogram histogram = new LatencyHistogram();
+
+	@Test
+	public void test_empty_histogram() {
+		THEN.verify_percentile_is(0.99, 0, 0);
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMean(TimeUnit.MILLISECONDS), 0);
+	}
+
+	@Test
+	public void test_percentiles() {
+		GIVEN.latencies_are_recorded(1, 100);
+		THEN.verify_percentile_is(0.5, 50, 62.5);
+			verify_percentile_is(0.99, 99, 100);
+			verify_percentile_is(1.0, 100, 100);
+		assertEquals(100, histogram.getMax(TimeUnit.MILLISECONDS));
+		assertEquals(50.5, histogram.getMean(TimeUnit.MILLISECONDS), 0.001);
+	}
+
+	@Test
+	public void test_buckets_are_contiguous() {
+		for(long micros = 0; micros < 100000; micros++) {
+			int index = LatencyHistogram.indexOf(micros);
+			assertTrue(micros <= LatencyHistogram.upperBoundOf(index));
+			assertTrue(index == 0 || micros > LatencyHistogram.upperBoundOf(index - 1));
+		}
+	}
+
+	private void latencies_are_recorded(int fromMillis, int toMillis) {
+		for(int millis = fromMillis; millis <= toMillis; millis++) {
+			histogram.record(millis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void verify_percentile_is(double percentile, double min, double max) {
+		double value = histogram.getPercentile(percentile, TimeUnit.MILLISECONDS);
+		assertTrue("p" + percentile + " = " + value, value >= min && value <= max);
+	}
+}
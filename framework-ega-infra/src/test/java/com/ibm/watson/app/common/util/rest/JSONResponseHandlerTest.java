@@ -35,6 +35,7 @@ import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.StatusLine;
+import org.apache.http.message.BasicNameValuePair;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -154,10 +155,98 @@ public class JSONResponseHandlerTest {
 		WHEN.handle_response_is_invoked();
 	}
 	
+	@Test
+	public void test_extract_entity_not_streaming() throws Exception {
+		GIVEN.http_entity_content_is("{\"key\":\"keyVal\",\"iKey\":123,\"bKey\":true}");
+			AND.streaming_is(false);
+		WHEN.extract_entity_is_invoked();
+		THEN.verify_entity_is_not_null();
+			AND.verify_validate_was_invoked();
+			AND.entity_key_is("keyVal");
+			AND.entity_int_key_is(123);
+	}
+
+	@Test
+	public void test_extract_entity_empty() throws Exception {
+		GIVEN.http_entity_content_is("");
+		WHEN.extract_entity_is_invoked();
+		THEN.verify_entity_is_null();
+	}
+
+	@Test
+	public void test_extract_entity_trailing_data() throws Exception {
+		GIVEN.http_entity_content_is("{\"key\":\"keyVal\"} {\"key\":\"other\"}");
+		WHEN.extract_entity_is_invoked();
+		THEN.verify_entity_is_null();
+	}
+
+	@Test
+	public void test_extract_entity_trailing_data_not_streaming() throws Exception {
+		GIVEN.http_entity_content_is("{\"key\":\"keyVal\"} {\"key\":\"other\"}");
+			AND.streaming_is(false);
+		WHEN.extract_entity_is_invoked();
+		THEN.verify_entity_is_null();
+	}
+
+	@Test
+	public void test_extract_entity_whitespace_only() throws Exception {
+		GIVEN.http_entity_content_is(" \r\n\t");
+		WHEN.extract_entity_is_invoked();
+		THEN.verify_entity_is_null();
+			AND.verify_validate_was_not_invoked();
+	}
+
+	@Test
+	public void test_extract_entity_whitespace_only_not_streaming() throws Exception {
+		GIVEN.http_entity_content_is(" \r\n\t");
+			AND.streaming_is(false);
+		WHEN.extract_entity_is_invoked();
+		THEN.verify_entity_is_null();
+			AND.verify_validate_was_not_invoked();
+	}
+
+	@Test
+	public void test_extract_entity_uses_content_type_charset() throws Exception {
+		GIVEN.http_entity_content_is("{\"key\":\"caf\u00e9\"}", "ISO-8859-1");
+		WHEN.extract_entity_is_invoked();
+		THEN.entity_key_is("caf\u00e9");
+	}
+
+	@Test
+	public void test_extract_entity_uses_content_type_charset_not_streaming() throws Exception {
+		GIVEN.http_entity_content_is("{\"key\":\"caf\u00e9\"}", "ISO-8859-1");
+			AND.streaming_is(false);
+		WHEN.extract_entity_is_invoked();
+		THEN.entity_key_is("caf\u00e9");
+	}
+
+	@Test
+	public void test_extract_entity_truncated_json() throws Exception {
+		GIVEN.http_entity_content_is("{\"key\":\"keyVal\",\"iKey\":");
+		WHEN.extract_entity_is_invoked();
+		THEN.verify_entity_is_null();
+	}
+
+	@Test
+	public void test_extract_entity_not_streaming_throws_IOException() throws Exception {
+		GIVEN.http_entity_input_stream_throws(new IOException("cannot read"));
+			AND.streaming_is(false);
+		thrown.expect(IOException.class);
+		WHEN.extract_entity_is_invoked();
+	}
+	
+	private void streaming_is(boolean streaming) {
+		handler.setStreaming(streaming);
+	}
+	
 	private void verify_validate_was_invoked() throws InvalidObjectException {
 		verify(handler, times(1)).validate(any(MyEntity.class));
 	}
 	
+	private void verify_validate_was_not_invoked() throws InvalidObjectException {
+		verify(handler, times(0)).validate(any(MyEntity.class));
+	}
+	
 	private void entity_boolean_key_is(Boolean b) {
 		assertEquals(b, entity.bKey);
 	}
@@ -190,12 +279,23 @@ public class JSONResponseHandlerTest {
 		when(httpEntity.getContentLength()).thenReturn((long) content.length());
 		add_default_header_to_http_entity();
 	}
+
+	private void http_entity_content_is(String content, String charset) throws Exception {
+		byte[] bytes = content.getBytes(charset);
+		when(httpEntity.getContent()).thenReturn(new ByteArrayInputStream(bytes));
+		when(httpEntity.getContentLength()).thenReturn((long) bytes.length);
+		add_header_to_http_entity(new NameValuePair[] {new BasicNameValuePair("charset", charset)});
+	}
 	
 	private void add_default_header_to_http_entity() throws Exception {
+		add_header_to_http_entity(new NameValuePair[] {});
+	}
+	
+	private void add_header_to_http_entity(NameValuePair[] parameters) throws Exception {
 		Header ctHeader = mock(Header.class);
 		HeaderElement ctHeaderElement = mock(HeaderElement.class);
 		when(ctHeaderElement.getName()).thenReturn("application/json");
-		when(ctHeaderElement.getParameters()).thenReturn(new NameValuePair[] {});
+		when(ctHeaderElement.getParameters()).thenReturn(parameters);
 		when(ctHeader.getElements()).thenReturn(new HeaderElement[] {ctHeaderElement});
 		when(httpEntity.getContentType()).thenReturn(ctHeader);
 	}
@@ -0,0 +1,175 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+public class MultipartEntityTest {
+	@SuppressWarnings("unused")
+	private final MultipartEntityTest GIVEN = this, WHEN = this, THEN = this, WITH = this, AND = this;
+
+	private static final String BOUNDARY = "testBoundary";
+
+	private MultipartEntity entity = new MultipartEntity(BOUNDARY);
+	private final List<long[]> progress = new ArrayList<>();
+	private byte[] written;
+
+	@Test
+	public void test_text_and_file_parts() throws Exception {
+		File file = File.createTempFile("multipart", ".csv");
+		try {
+			Files.write(file.toPath(), "text,class\r\n".getBytes(StandardCharsets.UTF_8));
+			GIVEN.entity.addText("metadata", "{\"language\":\"en\"}", ContentType.APPLICATION_JSON);
+			AND.entity.addFile("data", file, ContentType.create("text/csv"));
+			WHEN.entity_is_written();
+			THEN.body_is("--testBoundary\r\n"
+					+ "Content-Disposition: form-data; name=\"metadata\"\r\nContent-Type: application/json; charset=UTF-8\r\n\r\n"
+					+ "{\"language\":\"en\"}\r\n"
+					+ "--testBoundary\r\n"
+					+ "Content-Disposition: form-data; name=\"data\"; filename=\"" + file.getName() + "\"\r\nContent-Type: text/csv\r\n\r\n"
+					+ "text,class\r\n\r\n"
+					+ "--testBoundary--\r\n");
+			AND.length_is_known();
+			assertTrue(entity.isRepeatable());
+			assertEquals("multipart/form-data; boundary=testBoundary", entity.getContentType().getValue());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void test_streamed_part_and_progress() throws Exception {
+		GIVEN.entity.addPart("data", "data.csv", ContentType.create("text/csv"), one_megabyte_part());
+		AND.entity.setProgressListener(new UploadProgressListener() {
+			@Override
+			public void progress(long bytesWritten, long totalBytes) {
+				progress.add(new long[] { bytesWritten, totalBytes });
+			}
+		});
+		WHEN.entity_is_written();
+		THEN.length_is_unknown();
+		AND.progress_was_reported();
+		assertFalse(entity.isRepeatable());
+	}
+
+	@Test
+	public void test_content_can_be_read_without_reporting_progress() throws Exception {
+		GIVEN.entity.addText("metadata", "{\"language\":\"en\"}", ContentType.APPLICATION_JSON);
+		AND.entity.setProgressListener(new UploadProgressListener() {
+			@Override
+			public void progress(long bytesWritten, long totalBytes) {
+				progress.add(new long[] { bytesWritten, totalBytes });
+			}
+		});
+		WHEN.entity_is_written();
+		THEN.body_is(EntityUtils.toString(entity, StandardCharsets.UTF_8));
+		assertEquals(1, progress.size());
+	}
+
+	@Test
+	public void test_gzip() throws Exception {
+		GIVEN.entity.addText("metadata", "{\"language\":\"en\"}", ContentType.APPLICATION_JSON);
+		AND.entity.setGzip(true);
+		WHEN.entity_is_written();
+		THEN.length_is_unknown();
+		assertEquals("gzip", entity.getContentEncoding().getValue());
+		String body = gunzip(written);
+		assertTrue(body.startsWith("--testBoundary\r\n"));
+		assertTrue(body.endsWith("--testBoundary--\r\n"));
+	}
+
+	private MultipartEntity.PartWriter one_megabyte_part() {
+		return new MultipartEntity.PartWriter() {
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				byte[] line = "some text,some class\r\n".getBytes(StandardCharsets.UTF_8);
+				for(int i = 0; i < 1024 * 1024 / line.length; i++) {
+					out.write(line);
+				}
+			}
+
+			@Override
+			public boolean isRepeatable() {
+				return false;
+			}
+
+			@Override
+			public long getContentLength() {
+				return -1;
+			}
+		};
+	}
+
+	private void entity_is_written() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		entity.writeTo(out);
+		written = out.toByteArray();
+	}
+
+	private void body_is(String body) {
+		assertEquals(body, new String(written, StandardCharsets.UTF_8));
+	}
+
+	private void length_is_known() {
+		assertEquals(written.length, entity.getContentLength());
+		assertFalse(entity.isChunked());
+	}
+
+	private void length_is_unknown() {
+		assertEquals(-1, entity.getContentLength());
+		assertTrue(entity.isChunked());
+	}
+
+	private void progress_was_reported() {
+		assertTrue(progress.size() > 10);
+		long previous = 0;
+		for(long[] report : progress) {
+			assertTrue(report[0] >= previous);
+			assertEquals(-1, report[1]);
+			previous = report[0];
+		}
+		assertEquals(written.length, previous);
+	}
+
+	private static String gunzip(byte[] bytes) throws IOException {
+		try(GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int n;
+			while((n = in.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
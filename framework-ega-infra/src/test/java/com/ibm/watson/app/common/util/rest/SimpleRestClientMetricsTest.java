@@ -0,0 +1,210 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.ibm.watson.app.common.util.metrics.EndpointMetrics;
+import com.ibm.watson.app.common.util.metrics.JmxMetricsExporter;
+import com.ibm.watson.app.common.util.metrics.RequestMetricsRegistry;
+import com.ibm.watson.app.common.util.metrics.RequestMetricsSink;
+import com.ibm.watson.app.common.util.metrics.RequestSample;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SimpleRestClientMetricsTest {
+	private final SimpleRestClientMetricsTest GIVEN = this, WHEN = this, THEN = this, AND = this;
+
+	private static final String URL = "http://localhost/api";
+	private static final String ITEM_ENDPOINT = "/v1/items/${item_id}";
+
+	@Mock
+	CloseableHttpClient httpClient;
+
+	TestRestClient restClient;
+	HttpResponse httpResponse;
+	final List<RequestSample> samples = new ArrayList<>();
+	final RequestMetricsRegistry registry = new RequestMetricsRegistry();
+
+	@Before
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public void setup() throws Exception {
+		when(httpClient.execute(any(HttpUriRequest.class), any(ResponseHandler.class), any(HttpContext.class))).thenAnswer(
+				new Answer<Object>() {
+					@Override
+					public Object answer(InvocationOnMock invocation) throws Throwable {
+						return ((ResponseHandler) invocation.getArguments()[1]).handleResponse(httpResponse);
+					}
+				});
+		restClient = new TestRestClient(httpClient);
+		restClient.setRetryPolicy(RetryPolicy.NONE);
+		restClient.setMetricsSink(new RequestMetricsSink() {
+			@Override
+			public void record(RequestSample sample) {
+				samples.add(sample);
+				registry.record(sample);
+			}
+		});
+	}
+
+	@Test
+	public void test_request_is_tagged_with_template() throws Exception {
+		GIVEN.http_response_is(200, "hello");
+		WHEN.get_is_invoked("/v1/items/12345?verbose=true");
+		THEN.verify_sample_is("GET", ITEM_ENDPOINT, 200, false);
+			AND.verify_bytes_are(0, 5);
+	}
+
+	@Test
+	public void test_unknown_endpoint_is_tagged_as_unmatched() throws Exception {
+		GIVEN.http_response_is(200, "hello");
+		WHEN.get_is_invoked("/v2/other?query=1");
+		THEN.verify_sample_is("GET", SimpleRestClient.UNMATCHED_ENDPOINT, 200, false);
+	}
+
+	@Test
+	public void test_unknown_endpoints_share_one_entry() throws Exception {
+		GIVEN.http_response_is(200, "hello");
+		WHEN.get_is_invoked("/v2/files/1/content");
+			AND.get_is_invoked("/v2/files/2/content");
+		THEN.verify_endpoint_count_is(1);
+		assertEquals(2L, registry.getEndpointMetrics("TestRestClient", "GET", SimpleRestClient.UNMATCHED_ENDPOINT).getRequestCount());
+	}
+
+	@Test
+	public void test_fallback_is_recorded() throws Exception {
+		GIVEN.http_response_is(404, "not found");
+		WHEN.get_is_invoked("/v1/items/12345");
+		THEN.verify_sample_is("GET", ITEM_ENDPOINT, 404, true);
+	}
+
+	@Test
+	public void test_post_bytes_sent() throws Exception {
+		GIVEN.http_response_is(200, "ok");
+		WHEN.post_is_invoked("/v1/items/12345", "{\"a\":1}");
+		THEN.verify_sample_is("POST", ITEM_ENDPOINT, 200, false);
+			AND.verify_bytes_are(7, 2);
+	}
+
+	@Test
+	public void test_metrics_are_exported_over_jmx() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		JmxMetricsExporter exporter = new JmxMetricsExporter(registry, server);
+		exporter.start();
+		try {
+			GIVEN.http_response_is(200, "hello");
+			WHEN.get_is_invoked("/v1/items/1");
+				AND.get_is_invoked("/v1/items/2");
+			EndpointMetrics metrics = registry.getEndpointMetrics("TestRestClient", "GET", ITEM_ENDPOINT);
+			ObjectName name = JmxMetricsExporter.getObjectName(metrics);
+			assertTrue(server.isRegistered(name));
+			assertEquals(2L, server.getAttribute(name, "RequestCount"));
+			assertTrue((Double) server.getAttribute(name, "P99LatencyMillis") >= 0);
+		} finally {
+			exporter.stop();
+		}
+	}
+
+	@Test
+	public void test_cleared_metrics_are_unregistered_from_jmx() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		JmxMetricsExporter exporter = new JmxMetricsExporter(registry, server);
+		exporter.start();
+		try {
+			GIVEN.http_response_is(200, "hello");
+				AND.get_is_invoked("/v1/items/1");
+			ObjectName name = JmxMetricsExporter.getObjectName(registry.getEndpointMetrics("TestRestClient", "GET", ITEM_ENDPOINT));
+			assertTrue(server.isRegistered(name));
+			WHEN.registry.clear();
+			THEN.verify_endpoint_count_is(0);
+			assertFalse(server.isRegistered(name));
+		} finally {
+			exporter.stop();
+		}
+	}
+
+	private void http_response_is(int status, String body) {
+		BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "status " + status);
+		response.setEntity(new StringEntity(body, StandardCharsets.UTF_8));
+		httpResponse = response;
+	}
+
+	private void get_is_invoked(String endpoint) throws IOException {
+		restClient.get(endpoint);
+	}
+
+	private void post_is_invoked(String endpoint, String body) throws IOException {
+		restClient.post(endpoint, new StringEntity(body, StandardCharsets.UTF_8));
+	}
+
+	private void verify_sample_is(String method, String endpoint, int status, boolean fallback) {
+		assertEquals(1, samples.size());
+		RequestSample sample = samples.get(0);
+		assertEquals("TestRestClient", sample.getClientName());
+		assertEquals(method, sample.getMethod());
+		assertEquals(endpoint, sample.getEndpoint());
+		assertEquals(status, sample.getStatus());
+		assertEquals(fallback, sample.isFallback());
+		assertFalse(sample.isError());
+		assertNull(sample.getError());
+		assertTrue(sample.getLatencyNanos() >= 0);
+	}
+
+	private void verify_endpoint_count_is(int count) {
+		assertEquals(count, registry.getEndpointMetrics().size());
+	}
+
+	private void verify_bytes_are(long sent, long received) {
+		assertEquals(sent, samples.get(0).getBytesSent());
+		assertEquals(received, samples.get(0).getBytesReceived());
+	}
+
+	private static class TestRestClient extends SimpleRestClient {
+		TestRestClient(CloseableHttpClient client) {
+			super(URL, client);
+			addEndpointTemplates(ITEM_ENDPOINT);
+		}
+	}
+}
@@ -0,0 +1,341 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.util.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.base.Ticker;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SimpleRestClientResilienceTest {
+	private final SimpleRestClientResilienceTest GIVEN = this, WHEN = this, THEN = this, AND = this;
+
+	private static final String URL = "http://localhost/api";
+
+	@Mock
+	CloseableHttpClient httpClient;
+
+	TestRestClient restClient;
+	final LinkedList<HttpResponse> responses = new LinkedList<>();
+	String result;
+	IOException error;
+
+	@Before
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public void setup() throws Exception {
+		when(httpClient.execute(any(HttpUriRequest.class), any(ResponseHandler.class), any(HttpContext.class))).thenAnswer(
+				new Answer<Object>() {
+					@Override
+					public Object answer(InvocationOnMock invocation) throws Throwable {
+						return ((ResponseHandler) invocation.getArguments()[1]).handleResponse(responses.removeFirst());
+					}
+				});
+		restClient = new TestRestClient(httpClient);
+	}
+
+	@Test
+	public void test_retry_on_503() throws Exception {
+		GIVEN.responses_are(503, 200);
+		WHEN.get_is_invoked("/v1/classifiers");
+		THEN.verify_result_is("body 200");
+			AND.verify_attempts_and_retries_are(2, 1);
+			AND.verify_backoffs_are_within(100, 200);
+	}
+
+	@Test
+	public void test_retry_after_is_honored() throws Exception {
+		GIVEN.response_with_retry_after(429, "2");
+			AND.responses_are(200);
+		WHEN.get_is_invoked("/v1/classifiers");
+		THEN.verify_result_is("body 200");
+			AND.verify_backoffs_are_within(2000, 2000);
+	}
+
+	@Test
+	public void test_retries_are_exhausted() throws Exception {
+		GIVEN.responses_are(503, 503, 503);
+		WHEN.get_is_invoked("/v1/classifiers");
+		THEN.verify_result_is(null);
+			AND.verify_attempts_and_retries_are(3, 2);
+	}
+
+	@Test
+	public void test_post_not_retried_on_502() throws Exception {
+		GIVEN.responses_are(502);
+		WHEN.post_is_invoked("/v1/classifiers");
+		THEN.verify_result_is(null);
+			AND.verify_attempts_and_retries_are(1, 0);
+	}
+
+	@Test
+	public void test_endpoint_retry_policy() throws Exception {
+		GIVEN.endpoint_retry_policy_is("/v1/classifiers/{id}/classify", RetryPolicy.NONE);
+			AND.responses_are(503, 503, 200);
+		WHEN.get_is_invoked("/v1/classifiers/123/classify");
+		THEN.verify_attempts_and_retries_are(1, 0);
+		WHEN.get_is_invoked("/v1/classifiers/123");
+		THEN.verify_result_is("body 200");
+			AND.verify_attempts_and_retries_are(3, 1);
+	}
+
+	@Test
+	public void test_circuit_breaker_opens() throws Exception {
+		GIVEN.retry_policy_is(RetryPolicy.NONE);
+			AND.circuit_breaker_is(new CircuitBreaker("test", 2, 60000));
+			AND.responses_are(500, 500, 200);
+		WHEN.get_is_invoked("/v1/classifiers");
+			AND.get_is_invoked("/v1/classifiers");
+			AND.get_is_invoked("/v1/classifiers");
+		THEN.verify_request_was_rejected();
+			AND.verify_circuit_breaker_state_is(CircuitBreaker.State.OPEN);
+			AND.verify_attempts_and_retries_are(2, 0);
+		assertEquals(1, restClient.getResilienceMetrics().getRejectedByCircuitBreaker());
+		assertEquals(1, restClient.getResilienceMetrics().getCircuitOpened());
+	}
+
+	@Test
+	public void test_resilience_metrics_are_exported_over_jmx() throws Exception {
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		ObjectName name = restClient.registerMetrics(server);
+		GIVEN.retry_policy_is(RetryPolicy.NONE);
+			AND.circuit_breaker_is(new CircuitBreaker("test", 1, 60000));
+			AND.responses_are(500);
+		WHEN.get_is_invoked("/v1/classifiers");
+			AND.get_is_invoked("/v1/classifiers");
+		THEN.verify_request_was_rejected();
+		assertEquals(1L, server.getAttribute(name, "CircuitOpened"));
+		assertEquals(1L, server.getAttribute(name, "RejectedByCircuitBreaker"));
+		assertEquals(2L, server.getAttribute(name, "Requests"));
+	}
+
+	@Test
+	public void test_unreadable_response_does_not_open_circuit_breaker() throws Exception {
+		GIVEN.retry_policy_is(RetryPolicy.NONE);
+			AND.circuit_breaker_is(new CircuitBreaker("test", 1, 60000));
+			AND.responses_are(200, 200);
+		WHEN.get_is_invoked_with_failing_handler("/v1/classifiers");
+			AND.get_is_invoked("/v1/classifiers");
+		THEN.verify_result_is("body 200");
+			AND.verify_circuit_breaker_state_is(CircuitBreaker.State.CLOSED);
+		assertEquals(0, restClient.getResilienceMetrics().getFailedAttempts());
+	}
+
+	@Test
+	public void test_async_request_rejected_by_open_circuit_breaker() throws Exception {
+		GIVEN.circuit_breaker_is(new CircuitBreaker("test", 1, 60000));
+			AND.circuit_breaker_has_tripped();
+		WHEN.get_async_is_invoked("/v1/classifiers");
+		THEN.verify_request_was_rejected();
+		assertEquals(1, restClient.getResilienceMetrics().getRejectedByCircuitBreaker());
+	}
+
+	@Test
+	public void test_circuit_breaker_half_open() throws Exception {
+		FakeTicker ticker = new FakeTicker();
+		CircuitBreaker breaker = new CircuitBreaker("test", 1, 1000, ticker);
+		breaker.recordFailure();
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertTrue(!breaker.tryAcquire());
+
+		ticker.advance(1000);
+		assertTrue(breaker.tryAcquire());
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		assertTrue("only one trial request", !breaker.tryAcquire());
+		breaker.recordFailure();
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+		ticker.advance(1000);
+		assertTrue(breaker.tryAcquire());
+		breaker.recordSuccess();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void test_bulkhead_full() throws Exception {
+		GIVEN.bulkhead_is(new Bulkhead("test", 1, 0));
+			AND.bulkhead_slot_is_taken();
+			AND.responses_are(200);
+		WHEN.get_is_invoked("/v1/classifiers");
+		THEN.verify_request_was_rejected();
+			AND.verify_attempts_and_retries_are(0, 0);
+		assertEquals(1, restClient.getResilienceMetrics().getRejectedByBulkhead());
+	}
+
+	private void responses_are(Integer... statuses) throws Exception {
+		for(int status : statuses) {
+			BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "status " + status);
+			response.setEntity(new StringEntity("body " + status));
+			responses.add(response);
+		}
+	}
+
+	private void response_with_retry_after(int status, String retryAfter) throws Exception {
+		responses_are(status);
+		responses.getLast().setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+	}
+
+	private void retry_policy_is(RetryPolicy policy) {
+		restClient.setRetryPolicy(policy);
+	}
+
+	private void endpoint_retry_policy_is(String endpoint, RetryPolicy policy) {
+		restClient.setRetryPolicy(endpoint, policy);
+	}
+
+	private void circuit_breaker_is(CircuitBreaker breaker) {
+		restClient.setCircuitBreaker(breaker);
+	}
+
+	private void bulkhead_is(Bulkhead bulkhead) {
+		restClient.setBulkhead(bulkhead);
+	}
+
+	private void bulkhead_slot_is_taken() throws Exception {
+		assertTrue(restClient.getBulkhead().tryAcquire());
+	}
+
+	private void get_is_invoked(String endpoint) {
+		try {
+			result = restClient.get(endpoint);
+		} catch(IOException e) {
+			error = e;
+		}
+	}
+
+	private void circuit_breaker_has_tripped() {
+		restClient.getCircuitBreaker().recordFailure();
+	}
+
+	private void get_is_invoked_with_failing_handler(String endpoint) {
+		try {
+			restClient.get(endpoint, new ResponseHandler<String>() {
+				@Override
+				public String handleResponse(HttpResponse response) throws IOException {
+					throw new ClientProtocolException("unreadable body");
+				}
+			});
+		} catch(ClientProtocolException e) {
+			// expected, the breaker must not count it
+		} catch(IOException e) {
+			error = e;
+		}
+	}
+
+	private void get_async_is_invoked(String endpoint) throws Exception {
+		try {
+			result = restClient.getAsync(endpoint, SimpleRestClient.DEFAULT_STRING_RESPONSE_HANDLER).get();
+		} catch(ExecutionException e) {
+			error = (IOException) e.getCause();
+		}
+	}
+
+	private void post_is_invoked(String endpoint) {
+		try {
+			result = restClient.post(endpoint, new StringEntity("{}"));
+		} catch(IOException e) {
+			error = e;
+		}
+	}
+
+	private void verify_result_is(String expected) {
+		assertNull(error);
+		assertEquals(expected, result);
+	}
+
+	private void verify_request_was_rejected() {
+		assertTrue("Expected RequestRejectedException but got " + error, error instanceof RequestRejectedException);
+	}
+
+	private void verify_circuit_breaker_state_is(CircuitBreaker.State state) {
+		assertEquals(state, restClient.getCircuitBreaker().getState());
+	}
+
+	private void verify_attempts_and_retries_are(long attempts, long retries) {
+		assertEquals(attempts, restClient.getResilienceMetrics().getAttempts());
+		assertEquals(retries, restClient.getResilienceMetrics().getRetries());
+	}
+
+	private void verify_backoffs_are_within(long min, long max) {
+		if(restClient.backoffs.isEmpty()) {
+			fail("No backoff recorded");
+		}
+		for(long backoff : restClient.backoffs) {
+			assertTrue("Backoff " + backoff + " not within " + Arrays.asList(min, max), backoff >= min && backoff <= max);
+		}
+	}
+
+	private static class TestRestClient extends SimpleRestClient {
+		final List<Long> backoffs = new ArrayList<>();
+
+		TestRestClient(CloseableHttpClient client) {
+			super(URL, client);
+		}
+
+		@Override
+		protected void backoff(long millis) {
+			backoffs.add(millis);
+		}
+	}
+
+	private static class FakeTicker extends Ticker {
+		private long nanos;
+
+		@Override
+		public long read() {
+			return nanos;
+		}
+
+		void advance(long millis) {
+			nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.watson.app.common.util.rest;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.ibm.watson.app.common.util.http.HttpClientBuilder;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SimpleRestClientTest {
+	@SuppressWarnings("unused")
+	private final SimpleRestClientTest GIVEN = this, WHEN = this, THEN = this, AND = this;
+
+	private static final String URL = "http://localhost/api";
+
+	@Mock
+	CloseableHttpClient httpClient;
+
+	TestRestClient restClient;
+	CloseableHttpAsyncClient asyncClient;
+
+	@Test
+	public void test_async_client_built_for_instance_is_closed() throws Exception {
+		GIVEN.rest_client_is_created(new TestRestClient(httpClient));
+		WHEN.async_client_is_used();
+		THEN.verify_async_client_is_running(true);
+		WHEN.rest_client_is_closed();
+		THEN.verify_async_client_is_running(false);
+	}
+
+	@Test
+	public void test_supplied_async_client_is_left_open() throws Exception {
+		CloseableHttpAsyncClient supplied = HttpClientBuilder.buildDefaultHttpAsyncClient(null);
+		try {
+			GIVEN.rest_client_is_created(new TestRestClient(httpClient, supplied));
+			WHEN.async_client_is_used();
+			assertSame(supplied, asyncClient);
+			WHEN.rest_client_is_closed();
+			THEN.verify_async_client_is_running(true);
+		} finally {
+			supplied.close();
+		}
+	}
+
+	@Test
+	public void test_shared_async_client_is_not_restarted_once_closed() throws Exception {
+		GIVEN.rest_client_is_created(new TestRestClient());
+			AND.async_client_is_used();
+		WHEN.rest_client_is_closed();
+		THEN.verify_async_client_is_running(false);
+			AND.verify_async_client_is_refused();
+	}
+
+	private void rest_client_is_created(TestRestClient client) {
+		restClient = client;
+	}
+
+	private void async_client_is_used() {
+		asyncClient = restClient.getHttpAsyncClient();
+	}
+
+	private void rest_client_is_closed() throws Exception {
+		restClient.close();
+	}
+
+	private void verify_async_client_is_running(boolean running) {
+		if(running) {
+			assertTrue(asyncClient.isRunning());
+		} else {
+			assertFalse(asyncClient.isRunning());
+		}
+	}
+
+	private void verify_async_client_is_refused() {
+		try {
+			restClient.getHttpAsyncClient();
+			fail("Expected IllegalStateException");
+		} catch(IllegalStateException e) {
+			// expected
+		}
+	}
+
+	private static class TestRestClient extends SimpleRestClient {
+		TestRestClient() {
+			super(URL);
+		}
+
+		TestRestClient(CloseableHttpClient client) {
+			super(URL, client);
+		}
+
+		TestRestClient(CloseableHttpClient client, CloseableHttpAsyncClient asyncClient) {
+			super(URL, client, asyncClient);
+		}
+	}
+}
@@ -36,9 +36,9 @@ import com.ibm.watson.app.common.services.nlclassifier.NLClassifier;
 import com.ibm.watson.app.common.services.nlclassifier.NLClassifier.Status;
 import com.ibm.watson.app.common.services.nlclassifier.impl.NLClassifierRestClient;
 import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse;
-import com.ibm.watson.app.common.services.nlclassifier.model.NLClassifierTrainingData;
 import com.ibm.watson.app.common.services.nlclassifier.model.NLClassiferClassifyResponse.NLClassifiedClass;
 import com.ibm.watson.app.common.util.rest.MessageKey;
+import com.ibm.watson.app.common.util.rest.UploadProgressListener;
 
 public class TrainClassifier {
 	public static final String DEFAULT_URL = "https://gateway-d.watsonplatform.net/natural-language-classifier-alpha/api";
@@ -49,11 +49,14 @@ public class TrainClassifier {
 	private static final String FILE_OPTION = "f", FILE_OPTION_LONG = "file";
 	private static final String DELETE_OPTION = "d", DELETE_OPTION_LONG = "delete";
 
+	private static final long PROGRESS_PERCENT_STEP = 10;
+	private static final long PROGRESS_BYTES_STEP = 10 * 1024 * 1024;
+
 	public static void main(String[] args) throws Exception {
 		Option urlOption = createOption(URL_OPTION, URL_OPTION_LONG, true, "The absolute URL of the NL classifier service to connect to. If omitted, the default will be used (" + DEFAULT_URL + ")", false, "url");
 		Option usernameOption = createOption(USERNAME_OPTION, USERNAME_OPTION_LONG, true, "The username to use during authentication to the NL classifier service", true, "username");
 		Option passwordOption = createOption(PASSWORD_OPTION, PASSWORD_OPTION_LONG, true, "The password to use during authentication to the NL classifier service", true, "password");
-		Option fileOption = createOption(FILE_OPTION, FILE_OPTION_LONG, true, "The filepath to be used as training data", false, "file");
+		Option fileOption = createOption(FILE_OPTION, FILE_OPTION_LONG, true, "The filepath to be used as training data, either CSV or JSON", false, "file");
 		Option deleteOption = createOption(DELETE_OPTION, DELETE_OPTION_LONG, false, "If specified, the classifier instance will be deleted if training is not successful");
 
 		final Options options = buildOptions(urlOption, usernameOption, passwordOption, fileOption, deleteOption);
@@ -183,8 +186,25 @@ public class TrainClassifier {
 		}
 
 		System.out.println("Training with data from file: " + trainingDataFile.getAbsolutePath());
-		NLClassifierTrainingData trainingData = NLClassifierTrainingData.fromFile(trainingDataFile);
-		NLClassifier classifier = client.createClassifier(trainingData);
+		// Stream the file rather than loading it, training data can be hundreds of MB
+		NLClassifier classifier = client.createClassifier(trainingDataFile, null, null, new UploadProgressListener() {
+			// The listener is called every few KB, only print every PROGRESS_PERCENT_STEP percent or PROGRESS_BYTES_STEP bytes
+			private long printedPercent, printedBytes;
+
+			@Override
+			public void progress(long bytesWritten, long totalBytes) {
+				if(totalBytes > 0) {
+					long percent = bytesWritten * 100 / totalBytes;
+					if(percent / PROGRESS_PERCENT_STEP > printedPercent / PROGRESS_PERCENT_STEP) {
+						printedPercent = percent;
+						System.out.format("\tUploaded %,d of %,d bytes (%d%%)\n", bytesWritten, totalBytes, percent);
+					}
+				} else if(bytesWritten - printedBytes >= PROGRESS_BYTES_STEP) {
+					printedBytes = bytesWritten;
+					System.out.format("\tUploaded %,d bytes\n", bytesWritten);
+				}
+			}
+		});
 		if(classifier == null) {
 			throw new IllegalStateException(MessageKey.AQWEGA14015E_classifier_created_training_null.getMessage().getFormattedMessage());
 		}
@@ -0,0 +1,125 @@
+/* Copyright IBM Corp. 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.watson.app.common.tools.tagEvent;
+
+import static com.ibm.watson.app.common.tools.utils.CliUtils.buildOptions;
+import static com.ibm.watson.app.common.tools.utils.CliUtils.createOption;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilenameFilter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.ibm.watson.app.common.tagEvent.segment.TagEventRollup;
+import com.ibm.watson.app.common.tagEvent.segment.TagEventSegmentAppender;
+import com.ibm.watson.app.common.tagEvent.segment.TagSegmentWriter;
+import com.ibm.watson.app.common.util.rest.MessageKey;
+
+/**
+ * Prints a rollup of the tag event segments written by {@link TagEventSegmentAppender}
+ */
+public class TagEventRollupTool {
+	private static final String TOP_OPTION = "t", TOP_OPTION_LONG = "top";
+	private static final int DEFAULT_TOP = 10;
+
+	public static void main(String[] args) throws Exception {
+		Option topOption = createOption(TOP_OPTION, TOP_OPTION_LONG, true, "The number of query strings and users to list. If omitted, " + DEFAULT_TOP + " are listed", false, "count");
+		final Options options = buildOptions(topOption);
+
+		CommandLine cmd;
+		try {
+			CommandLineParser parser = new GnuParser();
+			cmd = parser.parse(options, args);
+			if(cmd.getArgs().length == 0) {
+				throw new ParseException("No segment files or directories specified");
+			}
+		} catch(ParseException e) {
+			System.err.println(MessageKey.AQWEGA14016E_could_not_parse_cmd_line_args_1.getMessage(e.getMessage()).getFormattedMessage()); 
+			HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp(120, "java " + TagEventRollupTool.class.getName() + " [options] <segment file or directory>...", null, options, null);
+			return;
+		}
+
+		final int top = cmd.hasOption(TOP_OPTION) ? Integer.parseInt(cmd.getOptionValue(TOP_OPTION).trim()) : DEFAULT_TOP;
+		final List<File> segments = findSegments(cmd.getArgs());
+
+		final long start = System.nanoTime();
+		final TagEventRollup rollup = new TagEventRollup();
+		for(File segment : segments) {
+			rollup.add(segment);
+		}
+		final long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+		System.out.format("Scanned %d events in %d segments in %d ms\n", rollup.getEventCount(), segments.size(), elapsedMillis);
+		if(rollup.getFirstTimestamp() != TagSegmentWriter.NO_TIMESTAMP) {
+			SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss Z");
+			System.out.format("From %s to %s\n", format.format(new Date(rollup.getFirstTimestamp())), format.format(new Date(rollup.getLastTimestamp())));
+		}
+		print("Events per type", rollup.getEventsPerType());
+		System.out.format("\nQueries: %d\n", rollup.getQueryCount());
+		print("Queries per input method", rollup.getQueriesPerMode());
+		print("Top " + top + " users", rollup.getTopUsers(top));
+		print("Top " + top + " query strings", rollup.getTopStrings(top));
+	}
+
+	private static List<File> findSegments(String[] paths) throws FileNotFoundException {
+		final List<File> segments = new ArrayList<File>();
+		for(String path : paths) {
+			File file = new File(path);
+			if(file.isDirectory()) {
+				File[] files = file.listFiles(new FilenameFilter() {
+					@Override
+					public boolean accept(File dir, String name) {
+						return name.endsWith(TagEventSegmentAppender.SEGMENT_SUFFIX);
+					}
+				});
+				Arrays.sort(files);
+				segments.addAll(Arrays.asList(files));
+			} else if(file.isFile()) {
+				segments.add(file);
+			} else {
+				throw new FileNotFoundException(path);
+			}
+		}
+		return segments;
+	}
+
+	private static void print(String title, Map<String, Long> counts) {
+		print(title, new ArrayList<Entry<String, Long>>(counts.entrySet()));
+	}
+
+	private static void print(String title, List<Entry<String, Long>> counts) {
+		System.out.println();
+		System.out.println(title + ":");
+		for(Entry<String, Long> entry : counts) {
+			System.out.format("\t%10d  %s\n", entry.getValue(), entry.getKey() == null ? "(none)" : entry.getKey());
+		}
+	}
+}